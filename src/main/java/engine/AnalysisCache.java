@@ -0,0 +1,214 @@
+package engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Caché persistente de análisis: para cada posición analizada, la mejor jugada, la puntuación y
+ * la profundidad. Vive en un archivo mapeado en memoria ({@link MemorySegment} de la API de
+ * memoria externa), así lo analizado en sesiones anteriores está disponible apenas se abre y
+ * las entradas no ocupan heap ni generan basura.
+ *
+ * Formato: número mágico, número de entradas y las entradas, de 16 bytes cada una (clave
+ * combinada con XOR con los datos, y los datos), agrupadas de a dos por posición de la tabla.
+ * Como en {@link TranspositionTable}, una entrada escrita a medias no coincide al leer. Las
+ * escrituras cambian los datos con compareAndSet, así dos hilos que escriben la misma entrada
+ * no pisan un análisis más profundo con uno más corto, y no hace falta ningún bloqueo entre las
+ * búsquedas y la interfaz.
+ *
+ * Datos empaquetados: jugada (19 bits), puntuación (16) y profundidad (8).
+ *
+ * @author angelsn
+ */
+public class AnalysisCache implements Closeable {
+    public static final int DEFAULT_MEGABYTES = 16;
+    private static final long MAGIC = 0x4348455353414331L; // "CHESSAC1"
+    private static final long HEADER = 16;
+    private static final long ENTRY_BYTES = 16;
+    private static final int WAYS = 2;
+    private static final VarHandle LONG = ValueLayout.JAVA_LONG.varHandle();
+
+    private static AnalysisCache instance;
+
+    private final FileChannel channel;
+    private final Arena arena;
+    private final MemorySegment segment;
+    private final long mask;
+    private boolean closed;
+
+    /**
+     * @return Caché de la interfaz ("~/.chessdrez/analysis.cache"), o null si no se pudo abrir
+     *         (el análisis funciona igual, solo que sin guardarse)
+     */
+    public static synchronized AnalysisCache getInstance() {
+        if (instance == null) {
+            Path file = Path.of(System.getProperty("user.home"), ".chessdrez", "analysis.cache");
+            try {
+                Files.createDirectories(file.getParent());
+                instance = new AnalysisCache(file, DEFAULT_MEGABYTES);
+                // Al salir solo se baja a disco: los hilos de análisis pueden seguir escribiendo
+                AnalysisCache cache = instance;
+                Runtime.getRuntime().addShutdownHook(new Thread(cache::flush));
+            } catch (IOException e) {
+                System.err.println("Can't open analysis cache " + file + ": " + e.getMessage());
+                return null;
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Abre (o crea) una caché. Si el archivo ya es una caché se usa con su tamaño original, así
+     * no se pierde nada; si no, se crea vacía.
+     * @param file Archivo de la caché
+     * @param megabytes Tamaño aproximado de una caché nueva (se redondea hacia abajo a una
+     *                  potencia de dos de entradas)
+     * @throws IOException si no se puede leer o escribir
+     */
+    public AnalysisCache(Path file, int megabytes) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long entries = existingEntries();
+        boolean reuse = entries > 0;
+        if (!reuse) {
+            entries = Long.highestOneBit(Math.max(WAYS, (long) megabytes * 1024 * 1024 / ENTRY_BYTES));
+            channel.truncate(0);
+        }
+        arena = Arena.ofShared();
+        try {
+            // Mapear más allá del final agranda el archivo con ceros
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + entries * ENTRY_BYTES, arena);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            channel.close();
+            throw e;
+        }
+        if (!reuse) {
+            segment.set(ValueLayout.JAVA_LONG, 8, entries);
+            segment.set(ValueLayout.JAVA_LONG, 0, MAGIC);
+        }
+        mask = entries - 1;
+    }
+
+    /**
+     * @return Entradas del archivo si ya es una caché completa, o 0 si hay que crearla
+     */
+    private long existingEntries() throws IOException {
+        if (channel.size() < HEADER) return 0;
+        // Todo el archivo está en el orden de bytes de la máquina: en otra el número mágico no coincide
+        ByteBuffer header = ByteBuffer.allocate((int) HEADER).order(ByteOrder.nativeOrder());
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // leer la cabecera completa
+        }
+        long entries = header.getLong(8);
+        boolean valid = header.getLong(0) == MAGIC && entries >= WAYS && Long.bitCount(entries) == 1
+                && channel.size() == HEADER + entries * ENTRY_BYTES;
+        return valid ? entries : 0;
+    }
+
+    /**
+     * @return Número de entradas
+     */
+    public long size() {
+        return mask + 1;
+    }
+
+    /**
+     * @param hash Hash de la posición
+     * @return Datos empaquetados, o 0 si la posición no está
+     */
+    public long probe(long hash) {
+        long first = offset(hash);
+        for (int i = 0; i < WAYS; i++) {
+            long offset = first + i * ENTRY_BYTES;
+            long data = (long) LONG.getVolatile(segment, offset + 8);
+            long key = (long) LONG.getVolatile(segment, offset);
+            if (data != 0 && (key ^ data) == hash) return data;
+        }
+        return 0;
+    }
+
+    /**
+     * Guarda un análisis. Si la posición ya está con más profundidad no se cambia; si no está,
+     * reemplaza la entrada menos profunda de su grupo, pero solo si el análisis nuevo es al menos
+     * igual de profundo: uno corto no borra el análisis más largo de otra posición.
+     * @param score Puntuación desde el punto de vista del bando que mueve
+     */
+    public void store(long hash, int move, int score, int depth) {
+        if (move == Moves.NONE || depth <= 0) return;
+        long entry = (move & 0x7FFFFL)
+                | ((long) (score + 32768) & 0xFFFF) << 19
+                | ((long) Math.min(depth, 255)) << 35;
+        long first = offset(hash);
+        while (true) {
+            long victim = first;
+            long victimData = (long) LONG.getVolatile(segment, first + 8);
+            for (int i = 0; i < WAYS; i++) {
+                long offset = first + i * ENTRY_BYTES;
+                long data = (long) LONG.getVolatile(segment, offset + 8);
+                long key = (long) LONG.getVolatile(segment, offset);
+                if (data != 0 && (key ^ data) == hash) {
+                    victim = offset;
+                    victimData = data;
+                    break;
+                }
+                if (depth(data) < depth(victimData)) {
+                    victim = offset;
+                    victimData = data;
+                }
+            }
+            // Ya hay un análisis más profundo de la posición, o las dos entradas del grupo son más
+            // profundas que el nuevo (una entrada vacía tiene profundidad 0 y siempre se ocupa)
+            if (depth(victimData) > depth) return;
+            // Si otro hilo cambió la entrada en el medio, volver a elegir
+            if (LONG.compareAndSet(segment, victim + 8, victimData, entry)) {
+                LONG.setVolatile(segment, victim, hash ^ entry);
+                return;
+            }
+        }
+    }
+
+    private long offset(long hash) {
+        return HEADER + (hash & mask & -WAYS) * ENTRY_BYTES;
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & 0x7FFFF);
+    }
+
+    public static int score(long entry) {
+        return (int) ((entry >>> 19) & 0xFFFF) - 32768;
+    }
+
+    public static int depth(long entry) {
+        return (int) ((entry >>> 35) & 0xFF);
+    }
+
+    /**
+     * Baja a disco las entradas escritas (el sistema también lo hace solo, de a poco).
+     */
+    public synchronized void flush() {
+        if (!closed) segment.force();
+    }
+
+    /**
+     * Baja a disco y libera el mapeo. Ningún hilo puede seguir usando la caché después.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        segment.force();
+        closed = true;
+        arena.close();
+        channel.close();
+    }
+}
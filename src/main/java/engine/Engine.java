@@ -0,0 +1,192 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Punto de entrada del motor: tabla de transposición, número de hilos y búsqueda.
+ * Con varios hilos usa "Lazy SMP": todos los hilos buscan la misma posición compartiendo la tabla,
+ * y solo el hilo principal controla el tiempo y reporta resultados.
+ *
+ * @author angelsn
+ */
+public class Engine {
+    public static final int DEFAULT_HASH_MB = 16;
+
+    private final TranspositionTable tt;
+    private Evaluator evaluator;
+    private volatile AnalysisCache analysisCache;
+    private volatile SearchTelemetry telemetry;
+    private final AtomicBoolean stop = new AtomicBoolean();
+    private int threads = 1;
+    private ExecutorService helperPool;
+    private volatile Search[] activeSearches = new Search[0];
+
+    public Engine() {
+        this(DEFAULT_HASH_MB, 1);
+    }
+
+    public Engine(int hashMegabytes, int threads) {
+        this.tt = new TranspositionTable(hashMegabytes);
+        this.evaluator = new Evaluator();
+        setThreads(threads);
+    }
+
+    public synchronized void setHashSize(int megabytes) {
+        tt.resize(Math.max(1, megabytes));
+    }
+
+    public synchronized void setThreads(int count) {
+        threads = Math.max(1, count);
+        if (helperPool != null) helperPool.shutdownNow();
+        helperPool = threads > 1 ? Executors.newFixedThreadPool(threads - 1, r -> {
+            Thread t = new Thread(r, "search-helper");
+            t.setDaemon(true);
+            return t;
+        }) : null;
+    }
+
+    /**
+     * Libera los hilos auxiliares. Espera a que termine la búsqueda en curso (conviene llamar
+     * antes a {@link #stop}); después el motor sigue funcionando, pero con un solo hilo.
+     */
+    public synchronized void shutdown() {
+        if (helperPool != null) helperPool.shutdownNow();
+        helperPool = null;
+        threads = 1;
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    public Evaluator evaluator() {
+        return evaluator;
+    }
+
+    /**
+     * Usa una caché de análisis: cada iteración de la posición raíz se guarda en ella, y lo que
+     * ya tenía de esa posición (de otra búsqueda o de otra sesión) ordena primero su jugada.
+     * @param cache Caché, o null para no usar ninguna
+     */
+    public void setAnalysisCache(AnalysisCache cache) {
+        this.analysisCache = cache;
+    }
+
+    /**
+     * Escribe la telemetría de cada búsqueda (un registro por iteración y uno por búsqueda).
+     * @param telemetry Destino, o null para apagarla
+     */
+    public void setTelemetry(SearchTelemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    public TranspositionTable transpositionTable() {
+        return tt;
+    }
+
+    /**
+     * Olvida la información de partidas anteriores.
+     */
+    public void newGame() {
+        tt.clear();
+    }
+
+    /**
+     * Pide detener la búsqueda en curso; {@link #search} devolverá la mejor jugada hasta el momento.
+     */
+    public void stop() {
+        stop.set(true);
+    }
+
+    /**
+     * Nodos visitados hasta ahora por todos los hilos de la búsqueda en curso.
+     */
+    public long nodes() {
+        long total = 0;
+        for (Search s : activeSearches) total += s.nodes();
+        return total;
+    }
+
+    /**
+     * Busca la mejor jugada. Bloquea hasta que se cumple algún límite o se llama a {@link #stop}.
+     * La posición no se modifica.
+     * @param position Posición a analizar
+     * @param limits Límites de la búsqueda
+     * @param listener Receptor de cada iteración del hilo principal (puede ser null)
+     * @return Resultado final, con los nodos de todos los hilos
+     */
+    public synchronized SearchResult search(Position position, SearchLimits limits, SearchListener listener) {
+        stop.set(false);
+        tt.newSearch();
+        // Con searchmoves la mejor jugada no es la de la posición: no se lee ni se guarda
+        AnalysisCache cache = limits.searchMoves == null ? analysisCache : null;
+        if (cache != null) seedFromCache(cache, position);
+
+        SearchTelemetry.Run run = telemetry == null ? null : telemetry.start(position, threads);
+        Search[] searches = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new Search(tt, evaluator, stop, i == 0);
+        }
+        activeSearches = searches;
+
+        List<Future<SearchResult>> helpers = new ArrayList<>();
+        for (int i = 1; i < threads; i++) {
+            Search helper = searches[i];
+            Position copy = new Position(position);
+            int offset = i % 2;
+            helpers.add(helperPool.submit(() -> helper.run(copy, limits, null, offset)));
+        }
+
+        SearchListener totals = listener == null && cache == null && run == null ? null : result -> {
+            result.nodes = nodes();
+            if (run != null) run.iteration(result, searches);
+            if (cache != null) cache.store(position.hash, result.bestMove(), result.score, result.depth);
+            if (listener != null) listener.onIteration(result);
+        };
+        SearchResult result = searches[0].run(new Position(position), limits, totals, 0);
+
+        stop.set(true);
+        for (Future<SearchResult> helper : helpers) {
+            try {
+                helper.get();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        result.nodes = nodes();
+        if (run != null) run.finish(result, searches);
+        activeSearches = new Search[0];
+        return result;
+    }
+
+    /**
+     * Pone el análisis guardado de la raíz en la tabla de transposición, si la tabla no sabe más,
+     * así la búsqueda prueba primero esa jugada desde la primera iteración.
+     */
+    private void seedFromCache(AnalysisCache cache, Position position) {
+        long cached = cache.probe(position.hash);
+        if (cached == 0) return;
+        long entry = tt.probe(position.hash);
+        if (entry != 0 && TranspositionTable.depth(entry) >= AnalysisCache.depth(cached)) return;
+        // Comprobar la jugada por si es otra posición con el mismo hash
+        int move = AnalysisCache.move(cached);
+        int[] legal = new int[Position.MAX_MOVES];
+        int count = new Position(position).generateLegalMoves(legal);
+        for (int i = 0; i < count; i++) {
+            if (legal[i] == move) {
+                tt.store(position.hash, move, AnalysisCache.score(cached), AnalysisCache.depth(cached),
+                        TranspositionTable.BOUND_EXACT);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Evaluación estática lineal: material, tablas de casillas por pieza y movilidad.
+ *
+ * Todos los términos viven en un solo arreglo de pesos para poder ajustarlos externamente:
+ * [0, 6) material por tipo de pieza, [6, 390) tablas de casillas (6x64, vistas desde las blancas
+ * con la fila 0 en la octava fila), [390, 394) movilidad de caballo, alfil, torre y dama.
+ * Las tablas por defecto son las de la "Simplified Evaluation Function" de T. Michniewski.
+ *
+ * @author angelsn
+ */
+public class Evaluator {
+    public static final int MATERIAL_OFFSET = 0;
+    public static final int PST_OFFSET = 6;
+    public static final int MOBILITY_OFFSET = PST_OFFSET + 6 * 64;
+    public static final int WEIGHT_COUNT = MOBILITY_OFFSET + 4;
+
+    private static final int[] DEFAULT_MATERIAL = {100, 320, 330, 500, 900, 0};
+    private static final int[] DEFAULT_MOBILITY = {4, 5, 2, 1};
+
+    private static final int[][] DEFAULT_PST = {
+        { // Peón
+             0,  0,  0,  0,  0,  0,  0,  0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+             5,  5, 10, 25, 25, 10,  5,  5,
+             0,  0,  0, 20, 20,  0,  0,  0,
+             5, -5,-10,  0,  0,-10, -5,  5,
+             5, 10, 10,-20,-20, 10, 10,  5,
+             0,  0,  0,  0,  0,  0,  0,  0
+        },
+        { // Caballo
+            -50,-40,-30,-30,-30,-30,-40,-50,
+            -40,-20,  0,  0,  0,  0,-20,-40,
+            -30,  0, 10, 15, 15, 10,  0,-30,
+            -30,  5, 15, 20, 20, 15,  5,-30,
+            -30,  0, 15, 20, 20, 15,  0,-30,
+            -30,  5, 10, 15, 15, 10,  5,-30,
+            -40,-20,  0,  5,  5,  0,-20,-40,
+            -50,-40,-30,-30,-30,-30,-40,-50
+        },
+        { // Alfil
+            -20,-10,-10,-10,-10,-10,-10,-20,
+            -10,  0,  0,  0,  0,  0,  0,-10,
+            -10,  0,  5, 10, 10,  5,  0,-10,
+            -10,  5,  5, 10, 10,  5,  5,-10,
+            -10,  0, 10, 10, 10, 10,  0,-10,
+            -10, 10, 10, 10, 10, 10, 10,-10,
+            -10,  5,  0,  0,  0,  0,  5,-10,
+            -20,-10,-10,-10,-10,-10,-10,-20
+        },
+        { // Torre
+             0,  0,  0,  0,  0,  0,  0,  0,
+             5, 10, 10, 10, 10, 10, 10,  5,
+            -5,  0,  0,  0,  0,  0,  0, -5,
+            -5,  0,  0,  0,  0,  0,  0, -5,
+            -5,  0,  0,  0,  0,  0,  0, -5,
+            -5,  0,  0,  0,  0,  0,  0, -5,
+            -5,  0,  0,  0,  0,  0,  0, -5,
+             0,  0,  0,  5,  5,  0,  0,  0
+        },
+        { // Dama
+            -20,-10,-10, -5, -5,-10,-10,-20,
+            -10,  0,  0,  0,  0,  0,  0,-10,
+            -10,  0,  5,  5,  5,  5,  0,-10,
+             -5,  0,  5,  5,  5,  5,  0, -5,
+              0,  0,  5,  5,  5,  5,  0, -5,
+            -10,  5,  5,  5,  5,  5,  0,-10,
+            -10,  0,  5,  0,  0,  0,  0,-10,
+            -20,-10,-10, -5, -5,-10,-10,-20
+        },
+        { // Rey (medio juego)
+            -30,-40,-40,-50,-50,-40,-40,-30,
+            -30,-40,-40,-50,-50,-40,-40,-30,
+            -30,-40,-40,-50,-50,-40,-40,-30,
+            -30,-40,-40,-50,-50,-40,-40,-30,
+            -20,-30,-30,-40,-40,-30,-30,-20,
+            -10,-20,-20,-20,-20,-20,-20,-10,
+             20, 20,  0,  0,  0,  0, 20, 20,
+             20, 30, 10,  0,  0, 10, 30, 20
+        }
+    };
+
+    private final int[] weights;
+
+    public Evaluator() {
+        this(defaultWeights());
+    }
+
+    /**
+     * @param weights Pesos con la distribución descrita en la clase ({@link #WEIGHT_COUNT} elementos)
+     */
+    public Evaluator(int[] weights) {
+        if (weights.length != WEIGHT_COUNT) {
+            throw new IllegalArgumentException("Invalid weights: expected " + WEIGHT_COUNT + " values");
+        }
+        this.weights = weights.clone();
+    }
+
+    public static int[] defaultWeights() {
+        int[] w = new int[WEIGHT_COUNT];
+        System.arraycopy(DEFAULT_MATERIAL, 0, w, MATERIAL_OFFSET, 6);
+        for (int type = 0; type < 6; type++) {
+            System.arraycopy(DEFAULT_PST[type], 0, w, PST_OFFSET + type * 64, 64);
+        }
+        System.arraycopy(DEFAULT_MOBILITY, 0, w, MOBILITY_OFFSET, 4);
+        return w;
+    }
+
+    public int[] weights() {
+        return weights.clone();
+    }
+
+    /**
+     * Valor de material de un tipo de pieza con los pesos por defecto (usado para ordenar capturas).
+     * @param type Tipo de pieza (PAWN..KING)
+     * @return Valor en centipeones
+     */
+    public static int pieceValue(int type) {
+        return type == Position.KING ? 20000 : DEFAULT_MATERIAL[type - 1];
+    }
+
+    /**
+     * Evalúa la posición desde el punto de vista del bando que mueve.
+     * @param pos Posición a evaluar
+     * @return Puntuación en centipeones (positiva favorece al bando que mueve)
+     */
+    public int evaluate(Position pos) {
+        int score = 0;
+        int[] squares = pos.squares;
+        for (int sq = 0; sq < 64; sq++) {
+            int p = squares[sq];
+            if (p == Position.EMPTY) continue;
+            int type = Math.abs(p);
+            int relative = p > 0 ? sq : sq ^ 56; // espejo vertical para las negras
+            int value = weights[MATERIAL_OFFSET + type - 1] + weights[PST_OFFSET + (type - 1) * 64 + relative];
+            if (type >= Position.KNIGHT && type <= Position.QUEEN) {
+                value += weights[MOBILITY_OFFSET + type - Position.KNIGHT] * mobility(squares, sq, p);
+            }
+            score += p > 0 ? value : -value;
+        }
+        return pos.whiteToMove ? score : -score;
+    }
+
+    /**
+     * Cuántas veces aparece cada peso en la evaluación de una posición, desde el punto de vista
+     * de las blancas: {@code evaluate(pos)} es la suma de {@code weights[i] * coefficients[i]},
+     * con el signo cambiado si mueven las negras. Como la evaluación es lineal, con esto se
+     * pueden ajustar los pesos sin volver a recorrer las posiciones.
+     * @param pos Posición
+     * @param coefficients Arreglo de {@link #WEIGHT_COUNT} elementos donde se suman los coeficientes
+     */
+    public static void features(Position pos, int[] coefficients) {
+        int[] squares = pos.squares;
+        for (int sq = 0; sq < 64; sq++) {
+            int p = squares[sq];
+            if (p == Position.EMPTY) continue;
+            int type = Math.abs(p);
+            int sign = p > 0 ? 1 : -1;
+            int relative = p > 0 ? sq : sq ^ 56;
+            coefficients[MATERIAL_OFFSET + type - 1] += sign;
+            coefficients[PST_OFFSET + (type - 1) * 64 + relative] += sign;
+            if (type >= Position.KNIGHT && type <= Position.QUEEN) {
+                coefficients[MOBILITY_OFFSET + type - Position.KNIGHT] += sign * mobility(squares, sq, p);
+            }
+        }
+    }
+
+    /**
+     * Lee pesos de un archivo de texto: {@link #WEIGHT_COUNT} enteros separados por espacios o
+     * líneas, en el orden descrito en la clase. Las líneas que empiezan con '#' se ignoran.
+     * @param file Archivo (por ejemplo, el que escribe {@link #save})
+     * @return Pesos
+     * @throws IOException si no se puede leer o no tiene la cantidad de valores esperada
+     */
+    public static int[] load(Path file) throws IOException {
+        int[] w = new int[WEIGHT_COUNT];
+        int count = 0;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            for (String token : line.split("\\s+")) {
+                if (count == WEIGHT_COUNT) throw new IOException(file + ": more than " + WEIGHT_COUNT + " weights");
+                try {
+                    w[count++] = Integer.parseInt(token);
+                } catch (NumberFormatException e) {
+                    throw new IOException(file + ": invalid weight " + token);
+                }
+            }
+        }
+        if (count != WEIGHT_COUNT) throw new IOException(file + ": expected " + WEIGHT_COUNT + " weights, found " + count);
+        return w;
+    }
+
+    /**
+     * Escribe pesos en el formato de {@link #load}, con las tablas de casillas en filas de 8.
+     */
+    public static void save(int[] weights, Path file) throws IOException {
+        String[] names = {"Pawn", "Knight", "Bishop", "Rook", "Queen", "King"};
+        StringBuilder text = new StringBuilder();
+        text.append("# Material: ").append(String.join(", ", names)).append('\n');
+        appendRow(text, weights, MATERIAL_OFFSET, 6);
+        for (int type = 0; type < 6; type++) {
+            text.append("# Piece-square table: ").append(names[type]).append('\n');
+            for (int row = 0; row < 8; row++) {
+                appendRow(text, weights, PST_OFFSET + type * 64 + row * 8, 8);
+            }
+        }
+        text.append("# Mobility: Knight, Bishop, Rook, Queen\n");
+        appendRow(text, weights, MOBILITY_OFFSET, 4);
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+    }
+
+    private static void appendRow(StringBuilder text, int[] weights, int from, int count) {
+        for (int i = 0; i < count; i++) {
+            text.append(String.format("%5d", weights[from + i]));
+        }
+        text.append('\n');
+    }
+
+    /**
+     * Cuenta las casillas alcanzables por una pieza que no están ocupadas por piezas propias.
+     */
+    static int mobility(int[] squares, int sq, int piece) {
+        int type = Math.abs(piece);
+        int count = 0;
+        if (type == Position.KNIGHT) {
+            for (int t : Position.KNIGHT_TARGETS[sq]) {
+                if (squares[t] * piece <= 0) count++;
+            }
+            return count;
+        }
+        int firstDir = type == Position.BISHOP ? 4 : 0;
+        int lastDir = type == Position.ROOK ? 4 : 8;
+        for (int d = firstDir; d < lastDir; d++) {
+            for (int t : Position.RAYS[d][sq]) {
+                int target = squares[t];
+                if (target == Position.EMPTY) {
+                    count++;
+                } else {
+                    if (target * piece < 0) count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,323 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lector de FEN en una sola pasada, sin split, sin toCharArray y sin crear objetos por posición.
+ *
+ * Trabaja directamente sobre un CharSequence (o sobre bytes ASCII) y escribe en una
+ * {@link Position} que se reutiliza. Los errores no lanzan excepción: {@link #parse} devuelve el
+ * desplazamiento del carácter problemático y {@link #errorMessage()} describe el error, así un
+ * corpus con millones de líneas malas no paga el costo de crear excepciones.
+ *
+ * Acepta lo mismo que {@code main.FEN}: seis campos separados por espacios, enroque "-" o
+ * combinación de "KQkq", en passant "-" o casilla de filas 3 a 6, contadores no negativos.
+ *
+ * @author angelsn
+ */
+public class FenParser {
+    public static final int OK = -1;
+
+    private static final String PIECE_CHARS = "pnbrqk";
+    private static final String CASTLING_ERROR =
+            "Invalid castling availability: must be '-' or combination of 'KQkq'";
+    private static final String EN_PASSANT_ERROR =
+            "Invalid en passant target: must be '-' or valid square (e.g., 'e3')";
+
+    private final ByteChars bytes = new ByteChars();
+    private String errorMessage;
+    private int errorOffset = OK;
+
+    /**
+     * Recibe cada línea de un archivo procesado con {@link #parseFile}. La posición se reutiliza:
+     * hay que copiarla si se necesita conservar.
+     */
+    @FunctionalInterface
+    public interface LineVisitor {
+        /**
+         * @param lineNumber Número de línea (desde 1)
+         * @param position Posición leída, o null si la línea es inválida
+         * @param parser Parser que leyó la línea (para consultar el error)
+         */
+        void visit(long lineNumber, Position position, FenParser parser);
+    }
+
+    /**
+     * Lee un FEN completo.
+     * @param fen Texto a leer
+     * @param position Posición destino (se sobrescribe)
+     * @return {@link #OK} o el desplazamiento del error
+     */
+    public int parse(CharSequence fen, Position position) {
+        return parse(fen, 0, fen.length(), position);
+    }
+
+    /**
+     * Lee un FEN desde bytes ASCII, sin convertirlos a String.
+     * @param buffer Bytes de entrada
+     * @param start Inicio del FEN
+     * @param end Fin del FEN (exclusivo)
+     * @param position Posición destino (se sobrescribe)
+     * @return {@link #OK} o el desplazamiento del error, relativo a {@code start}
+     */
+    public int parse(byte[] buffer, int start, int end, Position position) {
+        bytes.reset(buffer, start, end - start);
+        return parse(bytes, 0, end - start, position);
+    }
+
+    /**
+     * Lee el FEN contenido en {@code fen[start, end)}. Se permiten espacios al principio y al final.
+     * @return {@link #OK} o el desplazamiento del error dentro de {@code fen}
+     */
+    public int parse(CharSequence fen, int start, int end, Position position) {
+        errorMessage = null;
+        errorOffset = OK;
+        position.clear();
+        int i = skipSpaces(fen, start, end);
+
+        // 1. Colocación de piezas
+        int row = 0, col = 0;
+        int rankStart = i;
+        while (i < end) {
+            char c = fen.charAt(i);
+            if (c == ' ' || c == '\t') break;
+            if (c == '/') {
+                if (col != 8) return fail(rankStart, "Invalid piece placement: rank must have 8 squares");
+                if (++row == 8) return fail(i, "Invalid piece placement: must have 8 ranks");
+                col = 0;
+                rankStart = i + 1;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+                if (col > 8) return fail(i, "Invalid piece placement: rank must have 8 squares");
+            } else {
+                int type = PIECE_CHARS.indexOf(c | 0x20) + 1;
+                if (type == 0) return fail(i, "Invalid piece placement: invalid character");
+                if (col == 8) return fail(i, "Invalid piece placement: rank must have 8 squares");
+                position.setPiece(row * 8 + col, c < 'a' ? type : -type);
+                col++;
+            }
+            i++;
+        }
+        if (row != 7) return fail(i, "Invalid piece placement: must have 8 ranks");
+        if (col != 8) return fail(rankStart, "Invalid piece placement: rank must have 8 squares");
+
+        // 2. Color activo
+        i = expectSeparator(fen, i, end);
+        if (i < 0) return errorOffset;
+        char color = fen.charAt(i);
+        if ((color != 'w' && color != 'b') || !fieldEnds(fen, i + 1, end)) {
+            return fail(i, "Invalid active color: must be 'w' or 'b'");
+        }
+        position.whiteToMove = color == 'w';
+        i++;
+
+        // 3. Enroque
+        i = expectSeparator(fen, i, end);
+        if (i < 0) return errorOffset;
+        if (fen.charAt(i) == '-') {
+            if (!fieldEnds(fen, i + 1, end)) return fail(i + 1, CASTLING_ERROR);
+            i++;
+        } else {
+            for (; !fieldEnds(fen, i, end); i++) {
+                switch (fen.charAt(i)) {
+                    case 'K': position.castlingRights |= Position.WHITE_KINGSIDE; break;
+                    case 'Q': position.castlingRights |= Position.WHITE_QUEENSIDE; break;
+                    case 'k': position.castlingRights |= Position.BLACK_KINGSIDE; break;
+                    case 'q': position.castlingRights |= Position.BLACK_QUEENSIDE; break;
+                    default: return fail(i, CASTLING_ERROR);
+                }
+            }
+        }
+
+        // 4. En passant
+        i = expectSeparator(fen, i, end);
+        if (i < 0) return errorOffset;
+        if (fen.charAt(i) == '-') {
+            if (!fieldEnds(fen, i + 1, end)) return fail(i + 1, EN_PASSANT_ERROR);
+            i++;
+        } else {
+            char file = fen.charAt(i);
+            char rank = i + 1 < end ? fen.charAt(i + 1) : ' ';
+            if (file < 'a' || file > 'h' || rank < '3' || rank > '6' || !fieldEnds(fen, i + 2, end)) {
+                return fail(i, EN_PASSANT_ERROR);
+            }
+            position.enPassantTile = ('8' - rank) * 8 + (file - 'a');
+            i += 2;
+        }
+
+        // 5. Medio movimiento
+        i = expectSeparator(fen, i, end);
+        if (i < 0) return errorOffset;
+        int fieldStart = i;
+        int halfmove = 0;
+        for (; !fieldEnds(fen, i, end); i++) {
+            int digit = fen.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || halfmove > 100_000_000) {
+                return fail(fieldStart, "Invalid halfmove clock: must be a number");
+            }
+            halfmove = halfmove * 10 + digit;
+        }
+        position.halfmoveClock = halfmove;
+
+        // 6. Movimiento completo
+        i = expectSeparator(fen, i, end);
+        if (i < 0) return errorOffset;
+        fieldStart = i;
+        int fullmove = 0;
+        for (; !fieldEnds(fen, i, end); i++) {
+            int digit = fen.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || fullmove > 100_000_000) {
+                return fail(fieldStart, "Invalid fullmove number: must be a number");
+            }
+            fullmove = fullmove * 10 + digit;
+        }
+        if (fullmove < 1) return fail(fieldStart, "Invalid fullmove number: must be positive");
+        position.fullmoveNumber = fullmove;
+
+        i = skipSpaces(fen, i, end);
+        if (i < end) return fail(i, "Invalid FEN: must have 6 parts");
+        position.refreshHash();
+        return OK;
+    }
+
+    /**
+     * Como {@link #parse(CharSequence, Position)}, pero lanza excepción si el FEN es inválido.
+     * @throws IllegalArgumentException con el mensaje y el desplazamiento del error
+     */
+    public void parseOrThrow(CharSequence fen, Position position) {
+        if (parse(fen, position) != OK) {
+            throw new IllegalArgumentException(errorMessage + " (at offset " + errorOffset + ")");
+        }
+    }
+
+    /**
+     * @return Descripción del último error, o null si la última lectura fue correcta
+     */
+    public String errorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * @return Desplazamiento del último error, o {@link #OK}
+     */
+    public int errorOffset() {
+        return errorOffset;
+    }
+
+    /**
+     * Lee un archivo con un FEN por línea, en bloques grandes y sin crear un String por línea.
+     * Las líneas vacías y las que empiezan con '#' se ignoran.
+     * @param file Archivo de entrada
+     * @param visitor Recibe cada línea leída
+     * @return Número de líneas con FEN (válidas o no)
+     * @throws IOException si falla la lectura
+     */
+    public long parseFile(Path file, LineVisitor visitor) throws IOException {
+        Position position = new Position();
+        byte[] block = new byte[1 << 20];
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        long lineNumber = 0;
+        long fens = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boolean eof = false;
+            while (!eof) {
+                eof = channel.read(buffer) < 0;
+                int limit = buffer.position();
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (block[i] != '\n') continue;
+                    lineNumber++;
+                    fens += visitLine(block, lineStart, i, lineNumber, position, visitor);
+                    lineStart = i + 1;
+                }
+                if (eof) {
+                    if (lineStart < limit) {
+                        fens += visitLine(block, lineStart, limit, ++lineNumber, position, visitor);
+                    }
+                } else if (lineStart == 0 && limit == block.length) {
+                    throw new IOException("Line " + (lineNumber + 1) + " is longer than " + block.length + " bytes");
+                } else {
+                    // Mover la línea incompleta al principio del bloque
+                    System.arraycopy(block, lineStart, block, 0, limit - lineStart);
+                    buffer.position(limit - lineStart);
+                }
+            }
+        }
+        return fens;
+    }
+
+    private int visitLine(byte[] block, int start, int end, long lineNumber, Position position,
+            LineVisitor visitor) {
+        if (end > start && block[end - 1] == '\r') end--;
+        int first = start;
+        while (first < end && (block[first] == ' ' || block[first] == '\t')) first++;
+        if (first == end || block[first] == '#') return 0;
+        boolean ok = parse(block, start, end, position) == OK;
+        visitor.visit(lineNumber, ok ? position : null, this);
+        return 1;
+    }
+
+    private int fail(int offset, String message) {
+        errorOffset = offset;
+        errorMessage = message;
+        return offset;
+    }
+
+    private int expectSeparator(CharSequence fen, int i, int end) {
+        int next = skipSpaces(fen, i, end);
+        if (next == i || next >= end) {
+            fail(next, "Invalid FEN: must have 6 parts");
+            return -1;
+        }
+        return next;
+    }
+
+    private static boolean fieldEnds(CharSequence fen, int i, int end) {
+        return i >= end || fen.charAt(i) == ' ' || fen.charAt(i) == '\t';
+    }
+
+    private static int skipSpaces(CharSequence fen, int i, int end) {
+        while (i < end && (fen.charAt(i) == ' ' || fen.charAt(i) == '\t')) i++;
+        return i;
+    }
+
+    /**
+     * Vista reutilizable de un tramo de bytes ASCII como CharSequence.
+     */
+    private static final class ByteChars implements CharSequence {
+        private byte[] data;
+        private int offset;
+        private int length;
+
+        void reset(byte[] data, int offset, int length) {
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (data[offset + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(data, offset + start, end - start, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length).toString();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Historia de una partida: las jugadas en un arreglo de int y, cada {@link #interval} jugadas,
+ * una foto compacta de la posición (5 longs: las casillas en medios bytes y el resto del estado).
+ *
+ * Para obtener la posición después de cualquier jugada se restaura la foto anterior más cercana
+ * y se reproducen a lo sumo {@code interval - 1} jugadas, así ir a cualquier punto de una partida
+ * larga cuesta lo mismo que en una corta, y la memoria es de unos 7 bytes por jugada.
+ *
+ * @author angelsn
+ */
+public class GameHistory {
+    public static final int DEFAULT_INTERVAL = 16;
+    private static final int SNAPSHOT = 5; // longs por foto
+
+    private final int interval;
+    private int[] moves = new int[64];
+    private int size;
+    private long[] snapshots = new long[SNAPSHOT * 8];
+    private int snapshotCount;
+
+    public GameHistory() {
+        this(DEFAULT_INTERVAL);
+    }
+
+    /**
+     * @param interval Jugadas entre fotos (más chico: saltos más rápidos y más memoria)
+     */
+    public GameHistory(int interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * Empieza una historia nueva.
+     * @param start Posición inicial (se copia)
+     */
+    public void reset(Position start) {
+        size = 0;
+        snapshotCount = 0;
+        addSnapshot(start);
+    }
+
+    /**
+     * Agrega una jugada.
+     * @param move Jugada hecha
+     * @param after Posición después de la jugada (se guarda una foto si toca)
+     */
+    public void add(int move, Position after) {
+        if (size == moves.length) moves = Arrays.copyOf(moves, size * 2);
+        moves[size++] = move;
+        if (size % interval == 0) addSnapshot(after);
+    }
+
+    /**
+     * @return Número de jugadas
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param ply Índice de la jugada (desde 0)
+     * @return Jugada
+     */
+    public int move(int ply) {
+        if (ply < 0 || ply >= size) throw new IndexOutOfBoundsException("Ply " + ply + " of " + size);
+        return moves[ply];
+    }
+
+    /**
+     * Reconstruye la posición después de un número de jugadas.
+     * @param plies Jugadas desde el inicio (0 = posición inicial, {@link #size()} = posición actual)
+     * @param target Posición destino (se sobrescribe; su historia para repeticiones queda vacía)
+     */
+    public void positionAt(int plies, Position target) {
+        if (plies < 0 || plies > size) throw new IndexOutOfBoundsException("Ply " + plies + " of " + size);
+        int checkpoint = plies / interval;
+        restoreSnapshot(checkpoint, target);
+        for (int ply = checkpoint * interval; ply < plies; ply++) {
+            target.makeMove(moves[ply]);
+        }
+    }
+
+    private void addSnapshot(Position pos) {
+        int offset = snapshotCount * SNAPSHOT;
+        if (offset + SNAPSHOT > snapshots.length) snapshots = Arrays.copyOf(snapshots, snapshots.length * 2);
+        for (int i = 0; i < 4; i++) {
+            long packed = 0;
+            for (int j = 0; j < 16; j++) {
+                packed |= (long) (pos.squares[i * 16 + j] + Position.KING) << (4 * j);
+            }
+            snapshots[offset + i] = packed;
+        }
+        snapshots[offset + 4] = (pos.whiteToMove ? 1L : 0L)
+                | (long) pos.castlingRights << 1
+                | (long) (pos.enPassantTile + 1) << 5
+                | (long) pos.halfmoveClock << 12
+                | (long) pos.fullmoveNumber << 32;
+        snapshotCount++;
+    }
+
+    private void restoreSnapshot(int index, Position target) {
+        int offset = index * SNAPSHOT;
+        target.clear();
+        for (int i = 0; i < 4; i++) {
+            long packed = snapshots[offset + i];
+            for (int j = 0; j < 16; j++) {
+                int piece = (int) (packed >>> (4 * j) & 0xF) - Position.KING;
+                if (piece != Position.EMPTY) target.setPiece(i * 16 + j, piece);
+            }
+        }
+        long state = snapshots[offset + 4];
+        target.whiteToMove = (state & 1) != 0;
+        target.castlingRights = (int) (state >>> 1 & 0xF);
+        target.enPassantTile = (int) (state >>> 5 & 0x7F) - 1;
+        target.halfmoveClock = (int) (state >>> 12 & 0xFFFFF);
+        target.fullmoveNumber = (int) (state >>> 32);
+        target.refreshHash();
+    }
+}
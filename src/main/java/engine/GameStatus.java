@@ -0,0 +1,93 @@
+package engine;
+
+/**
+ * Estado de fin de partida. Compartido por el tablero de la interfaz ({@link main.Board})
+ * y por las herramientas sin ventana, para que ambos terminen las partidas con las mismas reglas
+ * y los mismos mensajes.
+ *
+ * @author angelsn
+ */
+public enum GameStatus {
+    ONGOING(null),
+    CHECKMATE("Checkmate"),
+    STALEMATE("Stalemate"),
+    FIFTY_MOVE_RULE("Fifty-move rule"),
+    THREEFOLD_REPETITION("Threefold repetition"),
+    INSUFFICIENT_MATERIAL("Insufficient material");
+
+    private final String title;
+
+    GameStatus(String title) {
+        this.title = title;
+    }
+
+    public boolean isOver() {
+        return this != ONGOING;
+    }
+
+    public String title() {
+        return title;
+    }
+
+    /**
+     * Mensaje para el jugador al terminar la partida.
+     * @param whiteToMove Turno en la posición final (en jaque mate, el bando que perdió)
+     * @return Mensaje, o null si la partida sigue
+     */
+    public String message(boolean whiteToMove) {
+        switch (this) {
+            case CHECKMATE: return (whiteToMove ? "Black" : "White") + " wins by checkmate!";
+            case STALEMATE: return "Draw by stalemate!";
+            case FIFTY_MOVE_RULE: return "Draw by the fifty-move rule!";
+            case THREEFOLD_REPETITION: return "Draw by threefold repetition!";
+            case INSUFFICIENT_MATERIAL: return "Draw by insufficient material!";
+            default: return null;
+        }
+    }
+
+    /**
+     * Resultado en formato PGN ("1-0", "0-1", "1/2-1/2" o "*").
+     * @param whiteToMove Turno en la posición final
+     */
+    public String pgnResult(boolean whiteToMove) {
+        if (this == ONGOING) return "*";
+        if (this == CHECKMATE) return whiteToMove ? "0-1" : "1-0";
+        return "1/2-1/2";
+    }
+
+    /**
+     * Determina si la partida terminó en la posición dada.
+     * @param pos Posición actual (con su historia de jugadas para detectar repeticiones)
+     * @return Estado de la partida
+     */
+    public static GameStatus of(Position pos) {
+        int[] moves = new int[Position.MAX_MOVES];
+        if (pos.generateLegalMoves(moves) == 0) {
+            return pos.isInCheck() ? CHECKMATE : STALEMATE;
+        }
+        if (pos.halfmoveClock >= 100) return FIFTY_MOVE_RULE;
+        if (pos.repetitionCount() >= 3) return THREEFOLD_REPETITION;
+        if (isInsufficientMaterial(pos)) return INSUFFICIENT_MATERIAL;
+        return ONGOING;
+    }
+
+    /**
+     * Rey contra rey, rey y pieza menor contra rey, o solo alfiles en casillas del mismo color.
+     */
+    static boolean isInsufficientMaterial(Position pos) {
+        int knights = 0;
+        int bishops = 0;
+        int bishopColors = 0; // bit 0: casilla clara, bit 1: oscura
+        for (int sq = 0; sq < 64; sq++) {
+            int type = Math.abs(pos.squares[sq]);
+            if (type == Position.PAWN || type == Position.ROOK || type == Position.QUEEN) return false;
+            if (type == Position.KNIGHT) {
+                knights++;
+            } else if (type == Position.BISHOP) {
+                bishops++;
+                bishopColors |= ((sq >> 3) + (sq & 7)) % 2 == 0 ? 1 : 2;
+            }
+        }
+        return knights + bishops <= 1 || (knights == 0 && bishopColors != 3);
+    }
+}
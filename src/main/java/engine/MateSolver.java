@@ -0,0 +1,293 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Buscador de mates forzados con números de prueba en profundidad (df-pn).
+ *
+ * En vez de buscar la mejor jugada, solo responde "¿el bando que mueve puede dar mate en N
+ * jugadas o menos?". Cada nodo lleva dos números: cuántas hojas faltan probar para demostrar el
+ * mate (prueba) y cuántas para refutarlo (refutación). La búsqueda siempre baja por la rama más
+ * barata de resolver y vuelve cuando sus números pasan los umbrales, así en posiciones de mate
+ * (pocas respuestas del defensor, jaques) llega al mate mucho antes que alfa-beta, que tiene que
+ * recorrer todas las jugadas a cada profundidad.
+ *
+ * Los números se guardan en una tabla de transposición indexada por el hash de la posición y las
+ * jugadas que quedan (una posición probada con 5 jugadas no lo está con 3). Se prueba primero
+ * mate en 1, después en 2, etc., así el mate encontrado es el más corto. No se tienen en cuenta
+ * las repeticiones ni la regla de 50 jugadas.
+ *
+ * Cada instancia es de un solo hilo.
+ *
+ * @author angelsn
+ */
+public class MateSolver {
+    public static final int DEFAULT_HASH_MB = 16;
+    public static final int MAX_MOVES = 64;
+    private static final int MAX_PLIES = 2 * MAX_MOVES;
+    private static final int INF = 100_000_000;
+    private static final int ENTRY_BYTES = 22; // clave, prueba/refutación, jugada, distancia
+    private static final long[] PLY_KEYS = new long[MAX_PLIES + 1];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x4D415445L);
+        for (int i = 0; i < PLY_KEYS.length; i++) {
+            PLY_KEYS[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Resultado de {@link #solve}.
+     */
+    public static class Result {
+        /** Jugadas hasta el mate (del bando que mueve), o 0 si no se encontró. */
+        public int mateIn;
+        /** Línea del mate, con la defensa más larga. */
+        public int[] line = new int[0];
+        public long nodes;
+        public long timeMillis;
+        /** false si se cortó por nodos o por {@link #stop}: que no haya mate no es definitivo. */
+        public boolean complete;
+
+        public boolean found() {
+            return mateIn > 0;
+        }
+    }
+
+    private final long[] keys;
+    private final int[] phis;
+    private final int[] deltas;
+    private final int[] bestMoves;
+    private final short[] distances;
+    private final int mask;
+    private final AtomicBoolean stop = new AtomicBoolean();
+
+    private final int[][] moveBuffers = new int[MAX_PLIES + 1][Position.MAX_MOVES];
+    private final long[][] childKeys = new long[MAX_PLIES + 1][Position.MAX_MOVES];
+    private final int[][] childProofs = new int[MAX_PLIES + 1][Position.MAX_MOVES];
+    private Position pos;
+    private long nodes;
+    private long maxNodes;
+    private boolean aborted;
+    private int lastPhi; // phi del último nodo resuelto por mid()
+
+    public MateSolver() {
+        this(DEFAULT_HASH_MB);
+    }
+
+    /**
+     * @param megabytes Tamaño de la tabla de transposición
+     */
+    public MateSolver(int megabytes) {
+        long entries = Long.highestOneBit(Math.max(1024, (long) megabytes * 1024 * 1024 / ENTRY_BYTES));
+        int size = (int) Math.min(entries, 1 << 28);
+        keys = new long[size];
+        phis = new int[size];
+        deltas = new int[size];
+        bestMoves = new int[size];
+        distances = new short[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Corta la búsqueda en curso (se puede llamar desde otro hilo).
+     */
+    public void stop() {
+        stop.set(true);
+    }
+
+    /**
+     * Vacía la tabla de transposición.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+    }
+
+    /**
+     * Busca un mate del bando que mueve.
+     * @param position Posición (no se modifica)
+     * @param maxMoves Jugadas máximas hasta el mate (a lo sumo {@link #MAX_MOVES})
+     * @param nodeLimit Nodos máximos, o 0 para no limitar
+     * @return Resultado: el mate más corto hasta maxMoves, si lo hay
+     */
+    public Result solve(Position position, int maxMoves, long nodeLimit) {
+        long start = System.currentTimeMillis();
+        stop.set(false);
+        pos = new Position(position);
+        nodes = 0;
+        maxNodes = nodeLimit > 0 ? nodeLimit : Long.MAX_VALUE;
+        aborted = false;
+        Result result = new Result();
+        for (int n = 1; n <= Math.min(maxMoves, MAX_MOVES) && !aborted; n++) {
+            int plies = 2 * n - 1;
+            mid(INF, INF, plies, true, 0);
+            if (!aborted && lastPhi == 0) {
+                result.mateIn = n;
+                result.line = line(plies);
+                break;
+            }
+        }
+        result.complete = !aborted;
+        result.nodes = nodes;
+        result.timeMillis = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    /**
+     * Expande un nodo hasta que su prueba o su refutación pasen los umbrales, y deja sus números
+     * en la tabla.
+     *
+     * phi y delta son los números vistos desde el bando que mueve: en los nodos del atacante
+     * phi = prueba y delta = refutación; en los del defensor, al revés. Así phi de un nodo es el
+     * mínimo de delta de sus hijos y delta la suma de phi de sus hijos, para los dos bandos.
+     * @param plies Medias jugadas que quedan
+     * @param attacker true si mueve el bando que busca el mate
+     */
+    private void mid(int thPhi, int thDelta, int plies, boolean attacker, int ply) {
+        nodes++;
+        if (nodes >= maxNodes || ((nodes & 1023) == 0 && stop.get())) {
+            aborted = true;
+            return;
+        }
+        long key = pos.hash ^ PLY_KEYS[plies];
+        int[] moves = moveBuffers[ply];
+        int count = pos.generateLegalMoves(moves);
+        // Las medias jugadas son impares en la raíz, así plies llega a 0 solo cuando mueve el defensor
+        if (count == 0 || plies == 0) {
+            if (attacker) {
+                store(key, INF, 0, Moves.NONE, 0); // el atacante no puede mover: no hay mate
+            } else if (count == 0 && pos.isInCheck()) {
+                store(key, INF, 0, Moves.NONE, 0); // mate: el defensor perdió
+            } else {
+                store(key, 0, INF, Moves.NONE, 0); // ahogado, o ya no le quedan jugadas al atacante
+            }
+            return;
+        }
+
+        // Claves de los hijos y su prueba inicial: en los nodos del atacante los jaques parten
+        // con prueba 1 y las demás con 2, y en la última jugada solo un jaque puede ser mate
+        long[] children = childKeys[ply];
+        int[] initial = childProofs[ply];
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            pos.makeMove(move);
+            long childKey = pos.hash ^ PLY_KEYS[plies - 1];
+            boolean check = attacker && pos.isInCheck();
+            pos.unmakeMove(move);
+            if (attacker && plies == 1 && !check) continue;
+            moves[kept] = move;
+            children[kept] = childKey;
+            initial[kept] = !attacker || check ? 1 : 2;
+            kept++;
+        }
+        count = kept;
+        if (count == 0) {
+            store(key, INF, 0, Moves.NONE, 0); // ningún jaque con la última jugada
+            return;
+        }
+
+        int phi = 0, delta = 0, best = 0;
+        while (true) {
+            // phi = mínimo de delta de los hijos, delta = suma de phi de los hijos
+            phi = INF;
+            delta = 0;
+            int secondDelta = INF;
+            int bestPhi = 1;
+            for (int i = 0; i < count; i++) {
+                int slot = (int) children[i] & mask;
+                int childPhi = 1, childDelta = initial[i];
+                if (keys[slot] == children[i]) {
+                    childPhi = phis[slot];
+                    childDelta = deltas[slot];
+                }
+                delta = Math.min(INF, delta + childPhi);
+                if (childDelta < phi) {
+                    secondDelta = phi;
+                    phi = childDelta;
+                    best = i;
+                    bestPhi = childPhi;
+                } else if (childDelta < secondDelta) {
+                    secondDelta = childDelta;
+                }
+            }
+            if (phi >= thPhi || delta >= thDelta) break;
+
+            int childThPhi = Math.min(INF, thDelta - delta + bestPhi);
+            int childThDelta = Math.min(thPhi, secondDelta + 1);
+            pos.makeMove(moves[best]);
+            mid(childThPhi, childThDelta, plies - 1, !attacker, ply + 1);
+            pos.unmakeMove(moves[best]);
+            if (aborted) return;
+        }
+
+        // Distancia al mate si el atacante ganó: por la jugada elegida si mueve él, por la
+        // defensa más larga si mueve el defensor
+        int distance = 0;
+        boolean attackerWon = attacker ? phi == 0 : delta == 0;
+        if (attackerWon) {
+            if (attacker) {
+                distance = 1 + distanceOf(children[best]);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    distance = Math.max(distance, 1 + distanceOf(children[i]));
+                }
+            }
+        }
+        store(key, phi, delta, moves[best], distance);
+    }
+
+    private int distanceOf(long key) {
+        int slot = (int) key & mask;
+        return keys[slot] == key ? distances[slot] : 0;
+    }
+
+    private void store(long key, int phi, int delta, int move, int distance) {
+        int slot = (int) key & mask;
+        keys[slot] = key;
+        phis[slot] = phi;
+        deltas[slot] = delta;
+        bestMoves[slot] = move;
+        distances[slot] = (short) distance;
+        lastPhi = phi;
+    }
+
+    /**
+     * Línea del mate desde la tabla: la jugada guardada del atacante y la respuesta del defensor
+     * que más tarda en recibir mate. Se corta si falta alguna entrada.
+     */
+    private int[] line(int plies) {
+        Position line = new Position(pos);
+        int[] moves = new int[plies];
+        int length = 0;
+        int[] legal = new int[Position.MAX_MOVES];
+        for (int remaining = plies; remaining > 0; remaining--) {
+            boolean attacker = (plies - remaining) % 2 == 0;
+            int move = Moves.NONE;
+            if (attacker) {
+                long key = line.hash ^ PLY_KEYS[remaining];
+                int slot = (int) key & mask;
+                if (keys[slot] == key && phis[slot] == 0) move = bestMoves[slot];
+            } else {
+                int count = line.generateLegalMoves(legal);
+                int longest = -1;
+                for (int i = 0; i < count; i++) {
+                    line.makeMove(legal[i]);
+                    long key = line.hash ^ PLY_KEYS[remaining - 1];
+                    line.unmakeMove(legal[i]);
+                    int slot = (int) key & mask;
+                    if (keys[slot] == key && phis[slot] == 0 && distances[slot] > longest) {
+                        longest = distances[slot];
+                        move = legal[i];
+                    }
+                }
+            }
+            if (move == Moves.NONE) break;
+            moves[length++] = move;
+            line.makeMove(move);
+        }
+        return Arrays.copyOf(moves, length);
+    }
+}
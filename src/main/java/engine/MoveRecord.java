@@ -0,0 +1,142 @@
+package engine;
+
+/**
+ * Registro de una jugada ya jugada: pieza, origen, destino, captura, promoción y si dio jaque o mate.
+ *
+ * Todo lo que depende de la posición (desambiguación, jaque, mate) se calcula una sola vez al crear
+ * el registro, con la lista de jugadas legales; después {@link #toSan()} solo concatena campos.
+ *
+ * @author angelsn
+ */
+public final class MoveRecord {
+    public static final int DISAMBIGUATE_NONE = 0;
+    public static final int DISAMBIGUATE_FILE = 1;
+    public static final int DISAMBIGUATE_RANK = 2;
+    public static final int DISAMBIGUATE_SQUARE = 3;
+
+    private static final String PIECE_LETTERS = " PNBRQK";
+
+    public final int move;
+    public final int piece;        // con signo: positivo blancas, negativo negras
+    public final int from;
+    public final int to;
+    public final int captured;     // pieza capturada con signo, 0 si no hubo captura
+    public final int promotion;    // tipo de pieza, 0 si no hubo promoción
+    public final int disambiguation;
+    public final boolean check;
+    public final boolean mate;
+    public final int fullmoveNumber;
+
+    private MoveRecord(Position pos, int move, int disambiguation, boolean check, boolean mate) {
+        this.move = move;
+        this.from = Moves.from(move);
+        this.to = Moves.to(move);
+        this.piece = pos.squares[from];
+        if ((Moves.flags(move) & Moves.FLAG_EN_PASSANT) != 0) {
+            this.captured = -piece;
+        } else {
+            this.captured = pos.squares[to];
+        }
+        this.promotion = Moves.promotion(move);
+        this.disambiguation = disambiguation;
+        this.check = check;
+        this.mate = mate;
+        this.fullmoveNumber = pos.fullmoveNumber;
+    }
+
+    /**
+     * Crea el registro de una jugada legal.
+     * @param pos Posición antes de la jugada (se restaura al terminar)
+     * @param move Jugada legal en esa posición
+     * @param legal Jugadas legales de la posición
+     * @param count Número de jugadas legales
+     * @return Registro de la jugada
+     */
+    public static MoveRecord create(Position pos, int move, int[] legal, int count) {
+        int disambiguation = disambiguation(pos, move, legal, count);
+        pos.makeMove(move);
+        boolean check = pos.isInCheck();
+        boolean mate = check && pos.generateLegalMoves(new int[Position.MAX_MOVES]) == 0;
+        pos.unmakeMove(move);
+        return new MoveRecord(pos, move, disambiguation, check, mate);
+    }
+
+    /**
+     * Calcula cuánto hay que añadir al origen para que la jugada no sea ambigua ("Nbd2", "R1e2", "Qh4e1").
+     * @return Uno de los valores DISAMBIGUATE_*
+     */
+    static int disambiguation(Position pos, int move, int[] legal, int count) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int type = Math.abs(pos.squares[from]);
+        if (type == Position.PAWN || type == Position.KING) return DISAMBIGUATE_NONE;
+
+        boolean ambiguous = false, sameFile = false, sameRank = false;
+        for (int i = 0; i < count; i++) {
+            int other = legal[i];
+            int otherFrom = Moves.from(other);
+            if (Moves.to(other) == to && otherFrom != from && Math.abs(pos.squares[otherFrom]) == type) {
+                ambiguous = true;
+                if ((otherFrom & 7) == (from & 7)) sameFile = true;
+                if ((otherFrom >> 3) == (from >> 3)) sameRank = true;
+            }
+        }
+        if (!ambiguous) return DISAMBIGUATE_NONE;
+        if (!sameFile) return DISAMBIGUATE_FILE;
+        if (!sameRank) return DISAMBIGUATE_RANK;
+        return DISAMBIGUATE_SQUARE;
+    }
+
+    public boolean isWhite() {
+        return piece > 0;
+    }
+
+    public boolean isCapture() {
+        return captured != Position.EMPTY;
+    }
+
+    public boolean isCastle() {
+        return (Moves.flags(move) & Moves.FLAG_CASTLE) != 0;
+    }
+
+    /**
+     * @return Jugada en SAN con sufijo de jaque o mate (ej: "Nbd2", "exd6", "e8=Q+", "O-O#")
+     */
+    public String toSan() {
+        StringBuilder san = new StringBuilder(8);
+        appendSan(san, true);
+        return san.toString();
+    }
+
+    /**
+     * Escribe la jugada en SAN.
+     * @param san Destino
+     * @param withSuffix Si se añade "+" o "#"
+     */
+    public void appendSan(StringBuilder san, boolean withSuffix) {
+        int type = Math.abs(piece);
+        if (isCastle()) {
+            san.append(to > from ? "O-O" : "O-O-O");
+        } else if (type == Position.PAWN) {
+            if (isCapture()) san.append((char) ('a' + (from & 7))).append('x');
+            san.append(Moves.squareName(to));
+            if (promotion != 0) san.append('=').append(PIECE_LETTERS.charAt(promotion));
+        } else {
+            san.append(PIECE_LETTERS.charAt(type));
+            if (disambiguation == DISAMBIGUATE_FILE || disambiguation == DISAMBIGUATE_SQUARE) {
+                san.append((char) ('a' + (from & 7)));
+            }
+            if (disambiguation == DISAMBIGUATE_RANK || disambiguation == DISAMBIGUATE_SQUARE) {
+                san.append((char) ('0' + 8 - (from >> 3)));
+            }
+            if (isCapture()) san.append('x');
+            san.append(Moves.squareName(to));
+        }
+        if (withSuffix && (check || mate)) san.append(mate ? '#' : '+');
+    }
+
+    @Override
+    public String toString() {
+        return toSan();
+    }
+}
@@ -0,0 +1,80 @@
+package engine;
+
+/**
+ * Codificación de jugadas en un solo int, para no crear objetos dentro de la búsqueda.
+ *
+ * Bits 0-5: casilla de origen, 6-11: casilla de destino, 12-14: pieza de promoción,
+ * 15-18: banderas (captura, al paso, enroque, avance doble).
+ * Un valor de 0 significa "sin jugada".
+ *
+ * @author angelsn
+ */
+public final class Moves {
+    public static final int FLAG_CAPTURE = 1;
+    public static final int FLAG_EN_PASSANT = 2;
+    public static final int FLAG_CASTLE = 4;
+    public static final int FLAG_DOUBLE_PUSH = 8;
+
+    public static final int NONE = 0;
+
+    private Moves() {
+    }
+
+    public static int encode(int from, int to, int promotion, int flags) {
+        return from | (to << 6) | (promotion << 12) | (flags << 15);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int promotion(int move) {
+        return (move >>> 12) & 7;
+    }
+
+    public static int flags(int move) {
+        return (move >>> 15) & 15;
+    }
+
+    public static boolean isCapture(int move) {
+        return (flags(move) & FLAG_CAPTURE) != 0;
+    }
+
+    /**
+     * Nombre algebraico de una casilla (ej: 52 -> "e2").
+     * @param sq Índice de casilla (fila 0 = octava fila)
+     * @return Casilla en notación algebraica
+     */
+    public static String squareName(int sq) {
+        return "" + (char) ('a' + (sq & 7)) + (8 - (sq >> 3));
+    }
+
+    /**
+     * Convierte una casilla algebraica ("e2") a índice.
+     * @param name Casilla en notación algebraica
+     * @return Índice de casilla, o -1 si no es válida
+     */
+    public static int parseSquare(CharSequence name) {
+        if (name.length() != 2) return -1;
+        int col = name.charAt(0) - 'a';
+        int rank = name.charAt(1) - '0';
+        if (col < 0 || col > 7 || rank < 1 || rank > 8) return -1;
+        return (8 - rank) * 8 + col;
+    }
+
+    /**
+     * Notación UCI de la jugada (ej: "e2e4", "e7e8q").
+     * @param move Jugada codificada
+     * @return Jugada en notación de coordenadas, o "0000" para la jugada nula
+     */
+    public static String toUci(int move) {
+        if (move == NONE) return "0000";
+        String uci = squareName(from(move)) + squareName(to(move));
+        if (promotion(move) != 0) uci += "?pnbrqk".charAt(promotion(move));
+        return uci;
+    }
+}
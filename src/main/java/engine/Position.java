@@ -0,0 +1,509 @@
+package engine;
+
+/**
+ * Representación ligera de una posición de ajedrez para el motor, sin Swing ni sprites.
+ * Usa la misma numeración de casillas que {@link main.Board#getTileNum(int, int)}:
+ * índice = fila * 8 + columna, con la fila 0 en la octava fila (lado de las negras).
+ *
+ * Las piezas se codifican como enteros: positivos para blancas, negativos para negras
+ * (PAWN=1, KNIGHT=2, BISHOP=3, ROOK=4, QUEEN=5, KING=6). Las jugadas se codifican con {@link Moves}.
+ *
+ * makeMove/unmakeMove guardan el estado irreversible en una pila interna, de modo que la búsqueda
+ * no crea objetos por nodo.
+ *
+ * @author angelsn
+ */
+public class Position {
+    public static final int EMPTY = 0;
+    public static final int PAWN = 1;
+    public static final int KNIGHT = 2;
+    public static final int BISHOP = 3;
+    public static final int ROOK = 4;
+    public static final int QUEEN = 5;
+    public static final int KING = 6;
+
+    // Derechos de enroque (bits)
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    public static final int MAX_MOVES = 256;
+    private static final int MAX_HISTORY = 2048;
+
+    public static final String STARTING_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // Tablas precalculadas de destinos por casilla
+    static final int[][] KNIGHT_TARGETS = new int[64][];
+    static final int[][] KING_TARGETS = new int[64][];
+    // RAYS[dir][sq]: casillas en orden desde sq hacia el borde. 0-3 rectas, 4-7 diagonales
+    static final int[][][] RAYS = new int[8][64][];
+    private static final int[][] DIRECTIONS = {
+        {0, -1}, {1, 0}, {0, 1}, {-1, 0},
+        {1, -1}, {1, 1}, {-1, 1}, {-1, -1}
+    };
+    // Máscara de derechos de enroque que se conservan al tocar cada casilla
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        int[][] knightOffsets = {{-1, -2}, {1, -2}, {2, -1}, {2, 1}, {1, 2}, {-1, 2}, {-2, 1}, {-2, -1}};
+        for (int sq = 0; sq < 64; sq++) {
+            int col = sq & 7, row = sq >> 3;
+            KNIGHT_TARGETS[sq] = targets(col, row, knightOffsets);
+            KING_TARGETS[sq] = targets(col, row, DIRECTIONS);
+            for (int d = 0; d < 8; d++) {
+                int[] ray = new int[7];
+                int n = 0;
+                int c = col + DIRECTIONS[d][0], r = row + DIRECTIONS[d][1];
+                while (c >= 0 && c < 8 && r >= 0 && r < 8) {
+                    ray[n++] = r * 8 + c;
+                    c += DIRECTIONS[d][0];
+                    r += DIRECTIONS[d][1];
+                }
+                RAYS[d][sq] = java.util.Arrays.copyOf(ray, n);
+            }
+            CASTLING_MASK[sq] = 15;
+        }
+        CASTLING_MASK[63] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[56] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[60] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[7] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[0] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASK[4] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+    }
+
+    private static int[] targets(int col, int row, int[][] offsets) {
+        int[] result = new int[offsets.length];
+        int n = 0;
+        for (int[] o : offsets) {
+            int c = col + o[0], r = row + o[1];
+            if (c >= 0 && c < 8 && r >= 0 && r < 8) result[n++] = r * 8 + c;
+        }
+        return java.util.Arrays.copyOf(result, n);
+    }
+
+    // Estado de la posición
+    public final int[] squares = new int[64];
+    public boolean whiteToMove = true;
+    public int castlingRights;
+    public int enPassantTile = -1;
+    public int halfmoveClock;
+    public int fullmoveNumber = 1;
+    public long hash;
+    private final int[] kingSquare = {-1, -1}; // [0] blancas, [1] negras
+
+    // Pila de estado irreversible para unmakeMove
+    private int ply;
+    private final long[] hashHistory = new long[MAX_HISTORY];
+    private final int[] capturedHistory = new int[MAX_HISTORY];
+    private final int[] castlingHistory = new int[MAX_HISTORY];
+    private final int[] enPassantHistory = new int[MAX_HISTORY];
+    private final int[] halfmoveHistory = new int[MAX_HISTORY];
+
+    public Position() {
+    }
+
+    /**
+     * Crea una copia independiente (útil para dar una posición a cada hilo de búsqueda).
+     * @param other Posición a copiar
+     */
+    public Position(Position other) {
+        copyFrom(other);
+    }
+
+    /**
+     * Copia el estado completo de otra posición, incluida la historia de hashes para repeticiones.
+     * @param other Posición origen
+     */
+    public void copyFrom(Position other) {
+        System.arraycopy(other.squares, 0, squares, 0, 64);
+        whiteToMove = other.whiteToMove;
+        castlingRights = other.castlingRights;
+        enPassantTile = other.enPassantTile;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        hash = other.hash;
+        kingSquare[0] = other.kingSquare[0];
+        kingSquare[1] = other.kingSquare[1];
+        ply = other.ply;
+        System.arraycopy(other.hashHistory, 0, hashHistory, 0, ply);
+        System.arraycopy(other.capturedHistory, 0, capturedHistory, 0, ply);
+        System.arraycopy(other.castlingHistory, 0, castlingHistory, 0, ply);
+        System.arraycopy(other.enPassantHistory, 0, enPassantHistory, 0, ply);
+        System.arraycopy(other.halfmoveHistory, 0, halfmoveHistory, 0, ply);
+    }
+
+    /**
+     * Vacía el tablero y deja el estado listo para colocar piezas con {@link #setPiece}.
+     */
+    public void clear() {
+        java.util.Arrays.fill(squares, EMPTY);
+        whiteToMove = true;
+        castlingRights = 0;
+        enPassantTile = -1;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        kingSquare[0] = -1;
+        kingSquare[1] = -1;
+        ply = 0;
+        hash = 0;
+    }
+
+    public void setPiece(int sq, int piece) {
+        squares[sq] = piece;
+        if (piece == KING) kingSquare[0] = sq;
+        else if (piece == -KING) kingSquare[1] = sq;
+    }
+
+    /**
+     * Recalcula el hash Zobrist desde cero. Debe llamarse después de cargar una posición.
+     */
+    public void refreshHash() {
+        hash = Zobrist.compute(this);
+    }
+
+    public int kingSquare(boolean white) {
+        return kingSquare[white ? 0 : 1];
+    }
+
+    public int ply() {
+        return ply;
+    }
+
+    public boolean isInCheck() {
+        int king = kingSquare(whiteToMove);
+        return king >= 0 && isSquareAttacked(king, !whiteToMove);
+    }
+
+    /**
+     * Verifica si una casilla está atacada por piezas del color indicado.
+     * Misma idea que {@link main.CheckScanner#isKingChecked}, pero sobre el arreglo de casillas.
+     * @param sq Casilla objetivo
+     * @param byWhite True para buscar atacantes blancos, false para negros
+     * @return True si la casilla está atacada
+     */
+    public boolean isSquareAttacked(int sq, boolean byWhite) {
+        int sign = byWhite ? 1 : -1;
+        int col = sq & 7;
+        // Peones: los blancos atacan hacia filas menores, así que el atacante está una fila "abajo"
+        int pawnRow = (sq >> 3) + (byWhite ? 1 : -1);
+        if (pawnRow >= 0 && pawnRow < 8) {
+            if (col > 0 && squares[pawnRow * 8 + col - 1] == sign * PAWN) return true;
+            if (col < 7 && squares[pawnRow * 8 + col + 1] == sign * PAWN) return true;
+        }
+        for (int t : KNIGHT_TARGETS[sq]) {
+            if (squares[t] == sign * KNIGHT) return true;
+        }
+        for (int t : KING_TARGETS[sq]) {
+            if (squares[t] == sign * KING) return true;
+        }
+        for (int d = 0; d < 8; d++) {
+            int slider = d < 4 ? ROOK : BISHOP;
+            for (int t : RAYS[d][sq]) {
+                int p = squares[t];
+                if (p != EMPTY) {
+                    if (p == sign * slider || p == sign * QUEEN) return true;
+                    break;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Genera las jugadas pseudo-legales (pueden dejar al rey en jaque).
+     * @param moves Arreglo destino con al menos {@link #MAX_MOVES} elementos
+     * @return Número de jugadas escritas
+     */
+    public int generatePseudoLegalMoves(int[] moves) {
+        int n = 0;
+        int sign = whiteToMove ? 1 : -1;
+        for (int from = 0; from < 64; from++) {
+            int p = squares[from] * sign;
+            if (p <= 0) continue;
+            switch (p) {
+                case PAWN: n = generatePawnMoves(from, moves, n); break;
+                case KNIGHT: n = generateStepMoves(from, KNIGHT_TARGETS[from], moves, n); break;
+                case KING:
+                    n = generateStepMoves(from, KING_TARGETS[from], moves, n);
+                    n = generateCastling(from, moves, n);
+                    break;
+                default:
+                    int firstDir = p == BISHOP ? 4 : 0;
+                    int lastDir = p == ROOK ? 4 : 8;
+                    for (int d = firstDir; d < lastDir; d++) {
+                        for (int to : RAYS[d][from]) {
+                            int target = squares[to];
+                            if (target == EMPTY) {
+                                moves[n++] = Moves.encode(from, to, 0, 0);
+                            } else {
+                                if (target * sign < 0) moves[n++] = Moves.encode(from, to, 0, Moves.FLAG_CAPTURE);
+                                break;
+                            }
+                        }
+                    }
+            }
+        }
+        return n;
+    }
+
+    private int generateStepMoves(int from, int[] targets, int[] moves, int n) {
+        int sign = whiteToMove ? 1 : -1;
+        for (int to : targets) {
+            int target = squares[to];
+            if (target == EMPTY) moves[n++] = Moves.encode(from, to, 0, 0);
+            else if (target * sign < 0) moves[n++] = Moves.encode(from, to, 0, Moves.FLAG_CAPTURE);
+        }
+        return n;
+    }
+
+    private int generatePawnMoves(int from, int[] moves, int n) {
+        int sign = whiteToMove ? 1 : -1;
+        int step = whiteToMove ? -8 : 8;
+        int row = from >> 3, col = from & 7;
+        int startRow = whiteToMove ? 6 : 1;
+        int lastRow = whiteToMove ? 1 : 6; // fila desde la que se promociona
+        int to = from + step;
+        if (squares[to] == EMPTY) {
+            n = addPawnMove(from, to, 0, row == lastRow, moves, n);
+            if (row == startRow && squares[to + step] == EMPTY) {
+                moves[n++] = Moves.encode(from, to + step, 0, Moves.FLAG_DOUBLE_PUSH);
+            }
+        }
+        for (int dc = -1; dc <= 1; dc += 2) {
+            if (col + dc < 0 || col + dc > 7) continue;
+            int target = to + dc;
+            if (squares[target] * sign < 0) {
+                n = addPawnMove(from, target, Moves.FLAG_CAPTURE, row == lastRow, moves, n);
+            } else if (target == enPassantTile) {
+                moves[n++] = Moves.encode(from, target, 0, Moves.FLAG_CAPTURE | Moves.FLAG_EN_PASSANT);
+            }
+        }
+        return n;
+    }
+
+    private int addPawnMove(int from, int to, int flags, boolean promotes, int[] moves, int n) {
+        if (promotes) {
+            moves[n++] = Moves.encode(from, to, QUEEN, flags);
+            moves[n++] = Moves.encode(from, to, KNIGHT, flags);
+            moves[n++] = Moves.encode(from, to, ROOK, flags);
+            moves[n++] = Moves.encode(from, to, BISHOP, flags);
+        } else {
+            moves[n++] = Moves.encode(from, to, 0, flags);
+        }
+        return n;
+    }
+
+    private int generateCastling(int from, int[] moves, int n) {
+        boolean white = whiteToMove;
+        int kingside = white ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+        int queenside = white ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+        int home = white ? 60 : 4;
+        if (from != home || (castlingRights & (kingside | queenside)) == 0) return n;
+        int rook = white ? ROOK : -ROOK;
+        if (isSquareAttacked(home, !white)) return n;
+        if ((castlingRights & kingside) != 0 && squares[home + 3] == rook
+                && squares[home + 1] == EMPTY && squares[home + 2] == EMPTY
+                && !isSquareAttacked(home + 1, !white)) {
+            moves[n++] = Moves.encode(home, home + 2, 0, Moves.FLAG_CASTLE);
+        }
+        if ((castlingRights & queenside) != 0 && squares[home - 4] == rook
+                && squares[home - 1] == EMPTY && squares[home - 2] == EMPTY && squares[home - 3] == EMPTY
+                && !isSquareAttacked(home - 1, !white)) {
+            moves[n++] = Moves.encode(home, home - 2, 0, Moves.FLAG_CASTLE);
+        }
+        return n;
+    }
+
+    /**
+     * Genera solo las jugadas legales.
+     * @param moves Arreglo destino con al menos {@link #MAX_MOVES} elementos
+     * @return Número de jugadas legales
+     */
+    public int generateLegalMoves(int[] moves) {
+        int n = generatePseudoLegalMoves(moves);
+        int legal = 0;
+        for (int i = 0; i < n; i++) {
+            if (makeMove(moves[i])) {
+                moves[legal++] = moves[i];
+            }
+            unmakeMove(moves[i]);
+        }
+        return legal;
+    }
+
+    /**
+     * Ejecuta una jugada. Siempre debe seguirse de {@link #unmakeMove}, incluso si devuelve false.
+     * @param move Jugada codificada
+     * @return False si la jugada deja al propio rey en jaque (ilegal)
+     */
+    public boolean makeMove(int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int flags = Moves.flags(move);
+        int piece = squares[from];
+        int sign = whiteToMove ? 1 : -1;
+
+        hashHistory[ply] = hash;
+        castlingHistory[ply] = castlingRights;
+        enPassantHistory[ply] = enPassantTile;
+        halfmoveHistory[ply] = halfmoveClock;
+
+        int captured;
+        int capturedSquare = to;
+        if ((flags & Moves.FLAG_EN_PASSANT) != 0) {
+            capturedSquare = to - (whiteToMove ? -8 : 8);
+        }
+        captured = squares[capturedSquare];
+        capturedHistory[ply] = captured;
+        ply++;
+
+        if (enPassantTile != -1) hash ^= Zobrist.enPassantKey(this);
+        hash ^= Zobrist.castlingKey(castlingRights);
+
+        if (captured != EMPTY) {
+            squares[capturedSquare] = EMPTY;
+            hash ^= Zobrist.pieceKey(captured, capturedSquare);
+        }
+        squares[from] = EMPTY;
+        hash ^= Zobrist.pieceKey(piece, from);
+        int placed = Moves.promotion(move) != 0 ? sign * Moves.promotion(move) : piece;
+        squares[to] = placed;
+        hash ^= Zobrist.pieceKey(placed, to);
+
+        if (piece * sign == KING) {
+            kingSquare[whiteToMove ? 0 : 1] = to;
+            if ((flags & Moves.FLAG_CASTLE) != 0) {
+                int rookFrom = to > from ? from + 3 : from - 4;
+                int rookTo = to > from ? from + 1 : from - 1;
+                int rook = squares[rookFrom];
+                squares[rookFrom] = EMPTY;
+                squares[rookTo] = rook;
+                hash ^= Zobrist.pieceKey(rook, rookFrom) ^ Zobrist.pieceKey(rook, rookTo);
+            }
+        }
+
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        hash ^= Zobrist.castlingKey(castlingRights);
+
+        halfmoveClock = (piece * sign == PAWN || captured != EMPTY) ? 0 : halfmoveClock + 1;
+        enPassantTile = (flags & Moves.FLAG_DOUBLE_PUSH) != 0 ? (from + to) / 2 : -1;
+        if (!whiteToMove) fullmoveNumber++;
+        whiteToMove = !whiteToMove;
+        hash ^= Zobrist.SIDE_KEY;
+        if (enPassantTile != -1) hash ^= Zobrist.enPassantKey(this);
+
+        int king = kingSquare[whiteToMove ? 1 : 0];
+        return king < 0 || !isSquareAttacked(king, whiteToMove);
+    }
+
+    /**
+     * Deshace la última jugada hecha con {@link #makeMove}.
+     * @param move La misma jugada que se pasó a makeMove
+     */
+    public void unmakeMove(int move) {
+        ply--;
+        whiteToMove = !whiteToMove;
+        if (!whiteToMove) fullmoveNumber--;
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int flags = Moves.flags(move);
+        int sign = whiteToMove ? 1 : -1;
+        int piece = Moves.promotion(move) != 0 ? sign * PAWN : squares[to];
+
+        squares[from] = piece;
+        squares[to] = EMPTY;
+        int captured = capturedHistory[ply];
+        if ((flags & Moves.FLAG_EN_PASSANT) != 0) {
+            squares[to - (whiteToMove ? -8 : 8)] = captured;
+        } else {
+            squares[to] = captured;
+        }
+        if (piece * sign == KING) {
+            kingSquare[whiteToMove ? 0 : 1] = from;
+            if ((flags & Moves.FLAG_CASTLE) != 0) {
+                int rookFrom = to > from ? from + 3 : from - 4;
+                int rookTo = to > from ? from + 1 : from - 1;
+                squares[rookFrom] = squares[rookTo];
+                squares[rookTo] = EMPTY;
+            }
+        }
+        hash = hashHistory[ply];
+        castlingRights = castlingHistory[ply];
+        enPassantTile = enPassantHistory[ply];
+        halfmoveClock = halfmoveHistory[ply];
+    }
+
+    /**
+     * Jugada nula para la poda de movimiento nulo: solo cambia el turno.
+     */
+    public void makeNullMove() {
+        hashHistory[ply] = hash;
+        castlingHistory[ply] = castlingRights;
+        enPassantHistory[ply] = enPassantTile;
+        halfmoveHistory[ply] = halfmoveClock;
+        capturedHistory[ply] = EMPTY;
+        ply++;
+        if (enPassantTile != -1) hash ^= Zobrist.enPassantKey(this);
+        enPassantTile = -1;
+        halfmoveClock++;
+        whiteToMove = !whiteToMove;
+        hash ^= Zobrist.SIDE_KEY;
+    }
+
+    public void unmakeNullMove() {
+        ply--;
+        whiteToMove = !whiteToMove;
+        hash = hashHistory[ply];
+        enPassantTile = enPassantHistory[ply];
+        halfmoveClock = halfmoveHistory[ply];
+    }
+
+    /**
+     * Tablas por repetición (basta una repetición dentro de la búsqueda) o por la regla de 50 movimientos.
+     * @return True si la posición se considera tablas
+     */
+    public boolean isDraw() {
+        if (halfmoveClock >= 100) return true;
+        int limit = Math.max(0, ply - halfmoveClock);
+        for (int i = ply - 2; i >= limit; i -= 2) {
+            if (hashHistory[i] == hash) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Veces que la posición actual ha aparecido desde la última jugada irreversible (incluida la actual).
+     * @return Número de apariciones
+     */
+    public int repetitionCount() {
+        int count = 1;
+        int limit = Math.max(0, ply - halfmoveClock);
+        for (int i = ply - 2; i >= limit; i -= 2) {
+            if (hashHistory[i] == hash) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Olvida la pila de jugadas, conservando la posición actual. Útil en partidas largas
+     * para que la pila interna no se desborde; solo se pierde la detección de repeticiones previas.
+     */
+    public void resetHistory() {
+        ply = 0;
+    }
+
+    /**
+     * Busca entre las jugadas legales la que corresponde a la notación UCI (ej: "e2e4", "e7e8q").
+     * @param uci Jugada en notación de coordenadas
+     * @return Jugada codificada, o 0 si no es legal en esta posición
+     */
+    public int parseUciMove(String uci) {
+        int[] moves = new int[MAX_MOVES];
+        int n = generateLegalMoves(moves);
+        for (int i = 0; i < n; i++) {
+            if (Moves.toUci(moves[i]).equals(uci)) return moves[i];
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,155 @@
+package engine;
+
+import java.util.List;
+
+/**
+ * Revisa que una posición leída de un FEN sea alcanzable en una partida, no solo que el texto
+ * esté bien escrito (eso ya lo revisa {@link FenParser}).
+ *
+ * Los ataques se calculan con {@link Position#isSquareAttacked}, la misma lógica que
+ * {@code main.CheckScanner} pero sobre el arreglo de casillas, así se pueden revisar millones de
+ * posiciones sin crear un tablero con piezas por cada una.
+ *
+ * Los mensajes son constantes públicas, así quien los recibe puede agruparlos o contarlos por
+ * tipo sin comparar texto.
+ *
+ * @author angelsn
+ */
+public final class PositionValidator {
+    public static final String WHITE_KING_COUNT = "White must have exactly one king";
+    public static final String BLACK_KING_COUNT = "Black must have exactly one king";
+    public static final String PAWN_ON_BACK_RANK = "Pawn on the first or last rank";
+    public static final String TOO_MANY_WHITE_PAWNS = "White has more than 8 pawns";
+    public static final String TOO_MANY_BLACK_PAWNS = "Black has more than 8 pawns";
+    public static final String TOO_MANY_WHITE_PIECES = "White has more pieces than promotions allow";
+    public static final String TOO_MANY_BLACK_PIECES = "Black has more pieces than promotions allow";
+    public static final String OPPONENT_IN_CHECK = "Side not to move is in check";
+    public static final String WHITE_KINGSIDE_CASTLING = "White kingside castling without king on e1 and rook on h1";
+    public static final String WHITE_QUEENSIDE_CASTLING = "White queenside castling without king on e1 and rook on a1";
+    public static final String BLACK_KINGSIDE_CASTLING = "Black kingside castling without king on e8 and rook on h8";
+    public static final String BLACK_QUEENSIDE_CASTLING = "Black queenside castling without king on e8 and rook on a8";
+    public static final String EN_PASSANT_RANK = "En passant square on the wrong rank for the side to move";
+    public static final String EN_PASSANT_NO_PAWN = "En passant square without a pawn that just moved two squares";
+    public static final String EN_PASSANT_HALFMOVE = "En passant square with a halfmove clock other than 0";
+
+    // Casillas con la fila 0 = octava fila (ver Position)
+    private static final int A8 = 0, E8 = 4, H8 = 7;
+    private static final int A1 = 56, E1 = 60, H1 = 63;
+
+    private PositionValidator() {
+    }
+
+    /**
+     * @return true si la posición no tiene ningún error
+     */
+    public static boolean isLegal(Position pos) {
+        return validate(pos, null) == 0;
+    }
+
+    /**
+     * Revisa una posición.
+     * @param pos Posición (no se modifica)
+     * @param errors Lista donde agregar los mensajes, o null para solo contarlos
+     * @return Número de errores encontrados
+     */
+    public static int validate(Position pos, List<String> errors) {
+        int[] squares = pos.squares;
+        int[] counts = new int[2 * Position.KING + 1]; // índice pieza + KING
+        boolean pawnOnBackRank = false;
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = squares[sq];
+            counts[piece + Position.KING]++;
+            if ((piece == Position.PAWN || piece == -Position.PAWN) && (sq < 8 || sq >= 56)) {
+                pawnOnBackRank = true;
+            }
+        }
+
+        int found = 0;
+        int whiteKings = counts[Position.KING + Position.KING];
+        int blackKings = counts[0];
+        if (whiteKings != 1) found += add(errors, WHITE_KING_COUNT);
+        if (blackKings != 1) found += add(errors, BLACK_KING_COUNT);
+        if (pawnOnBackRank) found += add(errors, PAWN_ON_BACK_RANK);
+        found += checkMaterial(counts, 1, errors, TOO_MANY_WHITE_PAWNS, TOO_MANY_WHITE_PIECES);
+        found += checkMaterial(counts, -1, errors, TOO_MANY_BLACK_PAWNS, TOO_MANY_BLACK_PIECES);
+
+        // Con un rey de más o de menos no tiene sentido hablar de jaque
+        if (whiteKings == 1 && blackKings == 1) {
+            int opponentKing = findKing(squares, pos.whiteToMove ? -Position.KING : Position.KING);
+            if (pos.isSquareAttacked(opponentKing, pos.whiteToMove)) found += add(errors, OPPONENT_IN_CHECK);
+        }
+
+        int rights = pos.castlingRights;
+        if ((rights & Position.WHITE_KINGSIDE) != 0 && !castlingPieces(squares, Position.KING, E1, H1)) {
+            found += add(errors, WHITE_KINGSIDE_CASTLING);
+        }
+        if ((rights & Position.WHITE_QUEENSIDE) != 0 && !castlingPieces(squares, Position.KING, E1, A1)) {
+            found += add(errors, WHITE_QUEENSIDE_CASTLING);
+        }
+        if ((rights & Position.BLACK_KINGSIDE) != 0 && !castlingPieces(squares, -Position.KING, E8, H8)) {
+            found += add(errors, BLACK_KINGSIDE_CASTLING);
+        }
+        if ((rights & Position.BLACK_QUEENSIDE) != 0 && !castlingPieces(squares, -Position.KING, E8, A8)) {
+            found += add(errors, BLACK_QUEENSIDE_CASTLING);
+        }
+
+        found += checkEnPassant(pos, errors);
+        return found;
+    }
+
+    /**
+     * Peones y piezas de un bando: a lo sumo 8 peones, y cada pieza por encima de la dotación
+     * inicial (1 dama, 2 torres, 2 alfiles, 2 caballos) tuvo que salir de un peón que ya no está.
+     */
+    private static int checkMaterial(int[] counts, int sign, List<String> errors, String pawnError,
+            String pieceError) {
+        int found = 0;
+        int pawns = counts[sign * Position.PAWN + Position.KING];
+        if (pawns > 8) found += add(errors, pawnError);
+        int promoted = Math.max(0, counts[sign * Position.QUEEN + Position.KING] - 1)
+                + Math.max(0, counts[sign * Position.ROOK + Position.KING] - 2)
+                + Math.max(0, counts[sign * Position.BISHOP + Position.KING] - 2)
+                + Math.max(0, counts[sign * Position.KNIGHT + Position.KING] - 2);
+        if (promoted > Math.max(0, 8 - pawns)) found += add(errors, pieceError);
+        return found;
+    }
+
+    private static boolean castlingPieces(int[] squares, int king, int kingSquare, int rookSquare) {
+        int rook = king > 0 ? Position.ROOK : -Position.ROOK;
+        return squares[kingSquare] == king && squares[rookSquare] == rook;
+    }
+
+    /**
+     * La casilla de en passant está detrás de un peón rival que acaba de avanzar dos casillas:
+     * en la sexta fila si mueven las blancas (tercera si mueven las negras), vacía, con el peón
+     * delante y la casilla de salida del peón también vacía.
+     */
+    private static int checkEnPassant(Position pos, List<String> errors) {
+        int ep = pos.enPassantTile;
+        if (ep < 0) return 0;
+        int found = 0;
+        int row = ep >> 3;
+        int expectedRow = pos.whiteToMove ? 2 : 5;
+        if (row != expectedRow) return add(errors, EN_PASSANT_RANK);
+        int forward = pos.whiteToMove ? 8 : -8; // del destino hacia el peón que avanzó
+        int pawn = pos.whiteToMove ? -Position.PAWN : Position.PAWN;
+        int[] squares = pos.squares;
+        if (squares[ep] != Position.EMPTY || squares[ep + forward] != pawn || squares[ep - forward] != Position.EMPTY) {
+            found += add(errors, EN_PASSANT_NO_PAWN);
+        }
+        if (pos.halfmoveClock != 0) found += add(errors, EN_PASSANT_HALFMOVE);
+        return found;
+    }
+
+    private static int findKing(int[] squares, int king) {
+        for (int sq = 0; sq < 64; sq++) {
+            if (squares[sq] == king) return sq;
+        }
+        return -1;
+    }
+
+    private static int add(List<String> errors, String message) {
+        if (errors != null) errors.add(message);
+        return 1;
+    }
+}
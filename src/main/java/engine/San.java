@@ -0,0 +1,274 @@
+package engine;
+
+/**
+ * Notación algebraica estándar (SAN) para jugadas del motor, con desambiguación
+ * ("Nbd2", "R1e2") calculada a partir de la lista de jugadas legales, y lectura de SAN
+ * (para importar PGN) sin crear objetos por jugada.
+ *
+ * @author angelsn
+ */
+public final class San {
+    private static final String PIECE_LETTERS = " PNBRQK";
+
+    private San() {
+    }
+
+    /**
+     * Convierte una jugada legal a SAN, incluyendo el sufijo de jaque ("+") o mate ("#").
+     * @param pos Posición antes de la jugada (se restaura al terminar)
+     * @param move Jugada legal en esa posición
+     * @return Jugada en SAN (ej: "e4", "Nxf3", "O-O", "exd6", "e8=Q+")
+     */
+    public static String toSan(Position pos, int move) {
+        int[] legal = new int[Position.MAX_MOVES];
+        int count = pos.generateLegalMoves(legal);
+        StringBuilder san = new StringBuilder(8);
+        appendMove(pos, move, legal, count, san);
+
+        pos.makeMove(move);
+        if (pos.isInCheck()) {
+            san.append(pos.generateLegalMoves(legal) == 0 ? '#' : '+');
+        }
+        pos.unmakeMove(move);
+        return san.toString();
+    }
+
+    /**
+     * Escribe la jugada en SAN sin sufijo de jaque.
+     * @param pos Posición antes de la jugada
+     * @param move Jugada a escribir
+     * @param legal Jugadas legales de la posición (para desambiguar)
+     * @param count Número de jugadas legales
+     * @param san Destino
+     */
+    public static void appendMove(Position pos, int move, int[] legal, int count, StringBuilder san) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int type = Math.abs(pos.squares[from]);
+
+        if ((Moves.flags(move) & Moves.FLAG_CASTLE) != 0) {
+            san.append(to > from ? "O-O" : "O-O-O");
+            return;
+        }
+        if (type == Position.PAWN) {
+            if (Moves.isCapture(move)) san.append((char) ('a' + (from & 7))).append('x');
+            san.append(Moves.squareName(to));
+            if (Moves.promotion(move) != 0) san.append('=').append(PIECE_LETTERS.charAt(Moves.promotion(move)));
+            return;
+        }
+
+        san.append(PIECE_LETTERS.charAt(type));
+        int disambiguation = MoveRecord.disambiguation(pos, move, legal, count);
+        if (disambiguation == MoveRecord.DISAMBIGUATE_FILE || disambiguation == MoveRecord.DISAMBIGUATE_SQUARE) {
+            san.append((char) ('a' + (from & 7)));
+        }
+        if (disambiguation == MoveRecord.DISAMBIGUATE_RANK || disambiguation == MoveRecord.DISAMBIGUATE_SQUARE) {
+            san.append((char) ('0' + 8 - (from >> 3)));
+        }
+        if (Moves.isCapture(move)) san.append('x');
+        san.append(Moves.squareName(to));
+    }
+
+    /**
+     * Lee una jugada en SAN.
+     * @param pos Posición antes de la jugada (no se modifica)
+     * @param san Texto de la jugada
+     * @return Jugada codificada, o {@link Moves#NONE} si es ilegal, ambigua o no es SAN
+     */
+    public static int parse(Position pos, String san) {
+        return parse(pos, san, 0, san.length(), new int[Position.MAX_MOVES]);
+    }
+
+    /**
+     * Lee la jugada en SAN contenida en {@code text[start, end)}. Acepta sufijos de jaque y
+     * anotaciones ("+", "#", "!", "?"), capturas con "x" o ":", "0-0" y promociones con o sin "=".
+     * @param pos Posición antes de la jugada (se restaura al terminar)
+     * @param text Texto de entrada
+     * @param start Inicio de la jugada
+     * @param end Fin de la jugada (exclusivo)
+     * @param scratch Arreglo de trabajo con al menos {@link Position#MAX_MOVES} elementos
+     * @return Jugada codificada, o {@link Moves#NONE} si es ilegal, ambigua o no es SAN
+     */
+    public static int parse(Position pos, CharSequence text, int start, int end, int[] scratch) {
+        int count = candidates(pos, text, start, end, scratch);
+        int found = Moves.NONE;
+        for (int i = 0; i < count; i++) {
+            if (isLegal(pos, scratch[i])) {
+                if (found != Moves.NONE) return Moves.NONE; // ambigua
+                found = scratch[i];
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Como {@link #parse(Position, CharSequence, int, int, int[])}, pero además juega la jugada.
+     * Cuando el texto solo admite un origen (lo normal) la legalidad se comprueba con la misma
+     * llamada a makeMove que la ejecuta, así que reproducir una partida cuesta una sola makeMove
+     * por jugada.
+     * @return Jugada ejecutada, o {@link Moves#NONE} si es ilegal, ambigua o no es SAN (en ese
+     *         caso la posición queda igual)
+     */
+    public static int play(Position pos, CharSequence text, int start, int end, int[] scratch) {
+        int count = candidates(pos, text, start, end, scratch);
+        int move;
+        if (count == 1) {
+            move = scratch[0];
+        } else {
+            move = Moves.NONE;
+            for (int i = 0; i < count; i++) {
+                if (isLegal(pos, scratch[i])) {
+                    if (move != Moves.NONE) return Moves.NONE; // ambigua
+                    move = scratch[i];
+                }
+            }
+            if (move == Moves.NONE) return Moves.NONE;
+        }
+        if (pos.makeMove(move)) return move;
+        pos.unmakeMove(move);
+        return Moves.NONE;
+    }
+
+    /**
+     * Busca hacia atrás, desde la casilla destino, las jugadas que coinciden con el texto, sin
+     * comprobar si dejan al rey en jaque.
+     * @return Número de jugadas escritas en {@code out}
+     */
+    private static int candidates(Position pos, CharSequence text, int start, int end, int[] out) {
+        while (end > start && "+#!?".indexOf(text.charAt(end - 1)) >= 0) end--;
+        if (end - start < 2) return 0;
+
+        char first = text.charAt(start);
+        if (first == 'O' || first == '0') {
+            int length = end - start;
+            if (length != 3 && length != 5) return 0;
+            return castleCandidates(pos, length == 3, out);
+        }
+
+        int type = Position.PAWN;
+        int i = start;
+        int letter = PIECE_LETTERS.indexOf(first);
+        if (letter > Position.PAWN) {
+            type = letter;
+            i++;
+        }
+
+        int promotion = 0;
+        if (type == Position.PAWN) {
+            char last = text.charAt(end - 1);
+            int promo = PIECE_LETTERS.indexOf(Character.toUpperCase(last));
+            if (promo >= Position.KNIGHT && promo <= Position.QUEEN && (last < 'a' || end - start > 2)) {
+                promotion = promo;
+                end--;
+                if (end > i && text.charAt(end - 1) == '=') end--;
+            }
+        }
+
+        if (end - i < 2) return 0;
+        int toFile = text.charAt(end - 2) - 'a';
+        int toRank = text.charAt(end - 1) - '1';
+        if (toFile < 0 || toFile > 7 || toRank < 0 || toRank > 7) return 0;
+        int to = (7 - toRank) * 8 + toFile;
+        end -= 2;
+
+        int fromFile = -1, fromRank = -1;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'h') fromFile = c - 'a';
+            else if (c >= '1' && c <= '8') fromRank = 7 - (c - '1');
+            else if (c != 'x' && c != ':' && c != '-') return 0;
+        }
+
+        int sign = pos.whiteToMove ? 1 : -1;
+        int target = pos.squares[to];
+        if (target * sign > 0) return 0;
+        int flags = target != Position.EMPTY ? Moves.FLAG_CAPTURE : 0;
+        if (type == Position.PAWN) {
+            int move = pawnCandidate(pos, to, fromFile, fromRank, promotion, flags, sign);
+            if (move == Moves.NONE) return 0;
+            out[0] = move;
+            return 1;
+        }
+
+        int piece = sign * type;
+        int count = 0;
+        if (type == Position.KNIGHT || type == Position.KING) {
+            int[] origins = type == Position.KNIGHT ? Position.KNIGHT_TARGETS[to] : Position.KING_TARGETS[to];
+            for (int from : origins) {
+                if (pos.squares[from] == piece && matches(from, fromFile, fromRank)) {
+                    out[count++] = Moves.encode(from, to, 0, flags);
+                }
+            }
+            return count;
+        }
+        int firstDir = type == Position.BISHOP ? 4 : 0;
+        int lastDir = type == Position.ROOK ? 4 : 8;
+        for (int d = firstDir; d < lastDir; d++) {
+            for (int from : Position.RAYS[d][to]) {
+                int occupant = pos.squares[from];
+                if (occupant == Position.EMPTY) continue;
+                if (occupant == piece && matches(from, fromFile, fromRank)) {
+                    out[count++] = Moves.encode(from, to, 0, flags);
+                }
+                break;
+            }
+        }
+        return count;
+    }
+
+    private static int pawnCandidate(Position pos, int to, int fromFile, int fromRank, int promotion, int flags,
+            int sign) {
+        int back = sign * 8; // del destino hacia el origen
+        int row = to >> 3;
+        if ((row == (sign > 0 ? 0 : 7)) != (promotion != 0)) return Moves.NONE;
+        int move;
+        int toFile = to & 7;
+        if (fromFile >= 0 && fromFile != toFile) {
+            int from = to + back + fromFile - toFile;
+            if (Math.abs(fromFile - toFile) != 1 || from < 0 || from > 63
+                    || pos.squares[from] != sign * Position.PAWN) {
+                return Moves.NONE;
+            }
+            if (flags == 0) {
+                if (to != pos.enPassantTile) return Moves.NONE;
+                flags = Moves.FLAG_CAPTURE | Moves.FLAG_EN_PASSANT;
+            }
+            move = Moves.encode(from, to, promotion, flags);
+        } else {
+            int from = to + back;
+            if (flags != 0 || from < 0 || from > 63) return Moves.NONE;
+            if (pos.squares[from] == sign * Position.PAWN) {
+                move = Moves.encode(from, to, promotion, 0);
+            } else if (pos.squares[from] == Position.EMPTY && (from >> 3) == (sign > 0 ? 5 : 2)
+                    && pos.squares[from + back] == sign * Position.PAWN) {
+                move = Moves.encode(from + back, to, 0, Moves.FLAG_DOUBLE_PUSH);
+            } else {
+                return Moves.NONE;
+            }
+        }
+        if (fromRank >= 0 && (Moves.from(move) >> 3) != fromRank) return Moves.NONE;
+        return move;
+    }
+
+    private static boolean matches(int from, int fromFile, int fromRank) {
+        return (fromFile < 0 || (from & 7) == fromFile) && (fromRank < 0 || (from >> 3) == fromRank);
+    }
+
+    private static int castleCandidates(Position pos, boolean kingside, int[] out) {
+        int count = pos.generatePseudoLegalMoves(out);
+        for (int k = 0; k < count; k++) {
+            int move = out[k];
+            if ((Moves.flags(move) & Moves.FLAG_CASTLE) != 0 && (Moves.to(move) > Moves.from(move)) == kingside) {
+                out[0] = move;
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isLegal(Position pos, int move) {
+        boolean legal = pos.makeMove(move);
+        pos.unmakeMove(move);
+        return legal;
+    }
+}
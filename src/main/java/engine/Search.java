@@ -0,0 +1,431 @@
+package engine;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Búsqueda alfa-beta con profundización iterativa, tabla de transposición,
+ * poda de movimiento nulo y búsqueda de quietud.
+ *
+ * Cada hilo usa su propia instancia (con su propia copia de la posición); solo la tabla de
+ * transposición y la bandera de parada son compartidas.
+ *
+ * Los contadores de la telemetría ({@link SearchStats}) son campos comunes de cada instancia y
+ * se publican al terminar cada iteración, así contar no cuesta más que un incremento.
+ *
+ * @author angelsn
+ */
+public class Search {
+    public static final int INFINITE = 32000;
+    public static final int MATE = 30000;
+    public static final int MATE_BOUND = MATE - 1000;
+    public static final int MAX_PLY = 128;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final TranspositionTable tt;
+    private final Evaluator evaluator;
+    private final AtomicBoolean stop;
+    private final boolean mainThread;
+
+    private Position pos;
+    private SearchLimits limits;
+    private long startTime;
+    private long softLimit, hardLimit;
+    private long nodes;
+    private volatile long reportedNodes;
+    private int selDepth;
+    private boolean firstIterationDone;
+
+    // Telemetría: contadores del hilo y su última copia publicada
+    private long quiescenceNodes, ttProbes, ttHits, ttCutoffs, betaCutoffs, firstMoveCutoffs, nullMoveCutoffs;
+    private volatile SearchStats publishedStats = new SearchStats();
+    private volatile long threadId = -1;
+    private long cpuStart;
+
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[64][64];
+    private final int[][] moveBuffers = new int[MAX_PLY][Position.MAX_MOVES];
+    private final int[][] scoreBuffers = new int[MAX_PLY][Position.MAX_MOVES];
+
+    /**
+     * @param tt Tabla de transposición (puede compartirse entre hilos)
+     * @param evaluator Función de evaluación
+     * @param stop Bandera de parada compartida
+     * @param mainThread True si este hilo controla el tiempo y reporta resultados
+     */
+    public Search(TranspositionTable tt, Evaluator evaluator, AtomicBoolean stop, boolean mainThread) {
+        this.tt = tt;
+        this.evaluator = evaluator;
+        this.stop = stop;
+        this.mainThread = mainThread;
+    }
+
+    public long nodes() {
+        return reportedNodes;
+    }
+
+    /**
+     * @return Contadores hasta la última iteración terminada (o el final de la búsqueda)
+     */
+    public SearchStats stats() {
+        return publishedStats;
+    }
+
+    /**
+     * @return Tiempo de CPU del hilo desde que empezó la búsqueda, en nanosegundos, o -1 si la
+     *         JVM no lo mide (se puede llamar desde otro hilo)
+     */
+    public long cpuNanos() {
+        long id = threadId;
+        if (id < 0 || !THREADS.isThreadCpuTimeSupported()) return -1;
+        long time = THREADS.getThreadCpuTime(id);
+        return time < 0 ? -1 : time - cpuStart;
+    }
+
+    /**
+     * Ejecuta la búsqueda por profundización iterativa sobre la posición dada (que se modifica
+     * durante la búsqueda y se deja como estaba al terminar).
+     * @param position Posición raíz
+     * @param searchLimits Límites de profundidad, nodos o tiempo
+     * @param listener Receptor de cada iteración (puede ser null)
+     * @param depthOffset Profundidad inicial extra (los hilos auxiliares usan valores distintos para diversificar)
+     * @return Resultado de la última iteración completada
+     */
+    public SearchResult run(Position position, SearchLimits searchLimits, SearchListener listener, int depthOffset) {
+        this.pos = position;
+        this.limits = searchLimits;
+        this.startTime = System.currentTimeMillis();
+        this.nodes = 0;
+        this.reportedNodes = 0;
+        quiescenceNodes = ttProbes = ttHits = ttCutoffs = betaCutoffs = firstMoveCutoffs = nullMoveCutoffs = 0;
+        publishedStats = new SearchStats();
+        cpuStart = THREADS.isThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+        threadId = Thread.currentThread().threadId();
+        computeTimeLimits();
+        for (int[] k : killers) java.util.Arrays.fill(k, 0);
+        for (int[] h : history) java.util.Arrays.fill(h, 0);
+
+        firstIterationDone = false;
+        SearchResult best = new SearchResult();
+        int maxDepth = limits.depth > 0 ? Math.min(limits.depth, MAX_PLY - 1) : MAX_PLY - 1;
+        for (int depth = 1 + depthOffset; depth <= maxDepth; depth++) {
+            selDepth = 0;
+            int score = negamax(depth, -INFINITE, INFINITE, 0, true);
+            if (stop.get() && depth > 1 + depthOffset) break;
+
+            reportedNodes = nodes;
+            publishStats();
+            SearchResult result = new SearchResult();
+            result.depth = depth;
+            result.selDepth = selDepth;
+            result.score = score;
+            result.nodes = nodes;
+            result.timeMillis = System.currentTimeMillis() - startTime;
+            result.pv = java.util.Arrays.copyOf(pv[0], pvLength[0]);
+            if (result.pv.length == 0 && best.pv.length > 0) break;
+            best = result;
+            firstIterationDone = true;
+            if (listener != null) listener.onIteration(result);
+
+            if (stop.get()) break;
+            if (mainThread && softLimit > 0 && result.timeMillis >= softLimit) break;
+            if (Math.abs(score) >= MATE_BOUND && !limits.infinite && limits.depth == 0
+                    && MATE - Math.abs(score) <= depth) break;
+        }
+        if (best.pv.length == 0) {
+            // Parada externa antes de terminar la primera iteración: devolver al menos una jugada legal
+            int[] legal = new int[Position.MAX_MOVES];
+            if (limits.searchMoves != null && limits.searchMoves.length > 0) {
+                best.pv = new int[]{limits.searchMoves[0]};
+            } else if (pos.generateLegalMoves(legal) > 0) {
+                best.pv = new int[]{legal[0]};
+            }
+        }
+        reportedNodes = nodes;
+        publishStats();
+        best.nodes = nodes;
+        best.timeMillis = System.currentTimeMillis() - startTime;
+        return best;
+    }
+
+    private void publishStats() {
+        SearchStats stats = new SearchStats();
+        stats.nodes = nodes;
+        stats.quiescenceNodes = quiescenceNodes;
+        stats.ttProbes = ttProbes;
+        stats.ttHits = ttHits;
+        stats.ttCutoffs = ttCutoffs;
+        stats.betaCutoffs = betaCutoffs;
+        stats.firstMoveCutoffs = firstMoveCutoffs;
+        stats.nullMoveCutoffs = nullMoveCutoffs;
+        publishedStats = stats;
+    }
+
+    private void computeTimeLimits() {
+        softLimit = 0;
+        hardLimit = 0;
+        if (limits.infinite) return;
+        if (limits.moveTime > 0) {
+            softLimit = limits.moveTime;
+            hardLimit = limits.moveTime;
+            return;
+        }
+        long time = pos.whiteToMove ? limits.whiteTime : limits.blackTime;
+        long increment = pos.whiteToMove ? limits.whiteIncrement : limits.blackIncrement;
+        if (time <= 0) return;
+        int movesToGo = limits.movesToGo > 0 ? limits.movesToGo + 1 : 30;
+        long reserve = Math.min(50, time / 10);
+        softLimit = Math.max(1, time / movesToGo + increment * 3 / 4);
+        hardLimit = Math.max(1, Math.min(time - reserve, Math.max(softLimit * 3, time / 3)));
+        softLimit = Math.min(softLimit, hardLimit);
+    }
+
+    /**
+     * Búsqueda de quietud sola, sin límites: el valor de la posición cuando ya no quedan capturas
+     * ni promociones que cambien el material.
+     * @param position Posición (se modifica durante la búsqueda y se deja como estaba)
+     * @return Puntuación desde el punto de vista del bando que mueve
+     */
+    public int quiescence(Position position) {
+        this.pos = position;
+        this.limits = new SearchLimits();
+        this.nodes = 0;
+        firstIterationDone = false;
+        return quiescence(-INFINITE, INFINITE, 0);
+    }
+
+    private void checkLimits() {
+        reportedNodes = nodes;
+        // Los límites de nodos y tiempo no cortan la primera iteración, así siempre hay una jugada completa
+        if (!firstIterationDone) return;
+        if (limits.nodes > 0 && nodes >= limits.nodes) stop.set(true);
+        if (mainThread && hardLimit > 0 && System.currentTimeMillis() - startTime >= hardLimit) stop.set(true);
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply, boolean allowNull) {
+        pvLength[ply] = ply;
+        if ((nodes & 1023) == 0) checkLimits();
+        if (stop.get()) return 0;
+
+        boolean root = ply == 0;
+        boolean pvNode = beta - alpha > 1;
+        if (!root && pos.isDraw()) return 0;
+        if (ply >= MAX_PLY - 1) return evaluator.evaluate(pos);
+
+        boolean inCheck = pos.isInCheck();
+        if (inCheck) depth++;
+        if (depth <= 0) return quiescence(alpha, beta, ply);
+        nodes++;
+
+        long entry = tt.probe(pos.hash);
+        ttProbes++;
+        int ttMove = Moves.NONE;
+        if (entry != 0) {
+            ttHits++;
+            ttMove = TranspositionTable.move(entry);
+            if (!root && !pvNode && TranspositionTable.depth(entry) >= depth) {
+                int ttScore = fromTT(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && ttScore >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && ttScore <= alpha)) {
+                    ttCutoffs++;
+                    return ttScore;
+                }
+            }
+        }
+
+        // Poda de movimiento nulo
+        if (allowNull && !inCheck && !pvNode && depth >= 3 && hasNonPawnMaterial()
+                && evaluator.evaluate(pos) >= beta) {
+            pos.makeNullMove();
+            int score = -negamax(depth - 3, -beta, -beta + 1, ply + 1, false);
+            pos.unmakeNullMove();
+            if (stop.get()) return 0;
+            if (score >= beta) {
+                nullMoveCutoffs++;
+                return score >= MATE_BOUND ? beta : score;
+            }
+        }
+
+        int[] moves = moveBuffers[ply];
+        int[] scores = scoreBuffers[ply];
+        int count = pos.generatePseudoLegalMoves(moves);
+        scoreMoves(moves, scores, count, ttMove, ply);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITE;
+        int bestMove = Moves.NONE;
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(moves, scores, i, count);
+            if (root && limits.searchMoves != null && !contains(limits.searchMoves, move)) continue;
+            if (!pos.makeMove(move)) {
+                pos.unmakeMove(move);
+                continue;
+            }
+            legal++;
+            int score;
+            if (legal == 1) {
+                score = -negamax(depth - 1, -beta, -alpha, ply + 1, true);
+            } else {
+                score = -negamax(depth - 1, -alpha - 1, -alpha, ply + 1, true);
+                if (score > alpha && score < beta) {
+                    score = -negamax(depth - 1, -beta, -alpha, ply + 1, true);
+                }
+            }
+            pos.unmakeMove(move);
+            if (stop.get()) return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    pv[ply][ply] = move;
+                    System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+                    pvLength[ply] = Math.max(ply + 1, pvLength[ply + 1]);
+                    if (score >= beta) {
+                        betaCutoffs++;
+                        if (legal == 1) firstMoveCutoffs++;
+                        if (!Moves.isCapture(move)) {
+                            if (killers[ply][0] != move) {
+                                killers[ply][1] = killers[ply][0];
+                                killers[ply][0] = move;
+                            }
+                            history[Moves.from(move)][Moves.to(move)] += depth * depth;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (legal == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+
+        // Con la raíz restringida el resultado no vale para la posición: no se guarda
+        if (root && limits.searchMoves != null) return bestScore;
+        int bound = bestScore >= beta ? TranspositionTable.BOUND_LOWER
+                : bestScore > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        tt.store(pos.hash, bestMove, toTT(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    private int quiescence(int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if ((nodes & 1023) == 0) checkLimits();
+        if (stop.get()) return 0;
+        nodes++;
+        quiescenceNodes++;
+        if (ply > selDepth) selDepth = ply;
+
+        int standPat = evaluator.evaluate(pos);
+        if (ply >= MAX_PLY - 1 || standPat >= beta) return standPat;
+        if (standPat > alpha) alpha = standPat;
+
+        int[] moves = moveBuffers[ply];
+        int[] scores = scoreBuffers[ply];
+        int count = pos.generatePseudoLegalMoves(moves);
+        int tactical = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (Moves.isCapture(move) || Moves.promotion(move) == Position.QUEEN) {
+                moves[tactical++] = move;
+            }
+        }
+        scoreMoves(moves, scores, tactical, Moves.NONE, ply);
+
+        int bestScore = standPat;
+        for (int i = 0; i < tactical; i++) {
+            int move = pickNext(moves, scores, i, tactical);
+            if (!pos.makeMove(move)) {
+                pos.unmakeMove(move);
+                continue;
+            }
+            int score = -quiescence(-beta, -alpha, ply + 1);
+            pos.unmakeMove(move);
+            if (stop.get()) return 0;
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (score >= beta) break;
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    private static boolean contains(int[] moves, int move) {
+        for (int m : moves) {
+            if (m == move) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Ordena: jugada de la tabla, capturas por MVV-LVA, jugadas asesinas e historial.
+     */
+    private void scoreMoves(int[] moves, int[] scores, int count, int ttMove, int ply) {
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (move == ttMove) {
+                scores[i] = 1_000_000;
+            } else if (Moves.isCapture(move)) {
+                int victim = (Moves.flags(move) & Moves.FLAG_EN_PASSANT) != 0
+                        ? Position.PAWN : Math.abs(pos.squares[Moves.to(move)]);
+                int attacker = Math.abs(pos.squares[Moves.from(move)]);
+                scores[i] = 100_000 + victim * 10 - attacker;
+            } else if (Moves.promotion(move) == Position.QUEEN) {
+                scores[i] = 95_000;
+            } else if (move == killers[ply][0]) {
+                scores[i] = 90_000;
+            } else if (move == killers[ply][1]) {
+                scores[i] = 80_000;
+            } else {
+                scores[i] = Math.min(history[Moves.from(move)][Moves.to(move)], 70_000);
+            }
+        }
+    }
+
+    private static int pickNext(int[] moves, int[] scores, int start, int count) {
+        int best = start;
+        for (int i = start + 1; i < count; i++) {
+            if (scores[i] > scores[best]) best = i;
+        }
+        int move = moves[best];
+        moves[best] = moves[start];
+        moves[start] = move;
+        int score = scores[best];
+        scores[best] = scores[start];
+        scores[start] = score;
+        return move;
+    }
+
+    private boolean hasNonPawnMaterial() {
+        int sign = pos.whiteToMove ? 1 : -1;
+        for (int p : pos.squares) {
+            int piece = p * sign;
+            if (piece > Position.PAWN && piece < Position.KING) return true;
+        }
+        return false;
+    }
+
+    // Las puntuaciones de mate se guardan relativas al nodo, no a la raíz
+    private static int toTT(int score, int ply) {
+        if (score >= MATE_BOUND) return score + ply;
+        if (score <= -MATE_BOUND) return score - ply;
+        return score;
+    }
+
+    private static int fromTT(int score, int ply) {
+        if (score >= MATE_BOUND) return score - ply;
+        if (score <= -MATE_BOUND) return score + ply;
+        return score;
+    }
+}
@@ -0,0 +1,43 @@
+package engine;
+
+/**
+ * Límites de una búsqueda, equivalentes a los parámetros del comando "go" de UCI.
+ * Un valor de 0 significa "sin límite" en ese campo.
+ *
+ * @author angelsn
+ */
+public class SearchLimits {
+    public int depth;
+    public long nodes;
+    public long moveTime;
+    public long whiteTime, blackTime;
+    public long whiteIncrement, blackIncrement;
+    public int movesToGo;
+    public boolean infinite;
+    /** Jugadas de la raíz entre las que se busca (como "searchmoves" de UCI); null = todas. */
+    public int[] searchMoves;
+
+    public static SearchLimits depth(int depth) {
+        SearchLimits limits = new SearchLimits();
+        limits.depth = depth;
+        return limits;
+    }
+
+    public static SearchLimits moveTime(long millis) {
+        SearchLimits limits = new SearchLimits();
+        limits.moveTime = millis;
+        return limits;
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        SearchLimits limits = new SearchLimits();
+        limits.nodes = nodes;
+        return limits;
+    }
+
+    public static SearchLimits infinite() {
+        SearchLimits limits = new SearchLimits();
+        limits.infinite = true;
+        return limits;
+    }
+}
@@ -0,0 +1,11 @@
+package engine;
+
+/**
+ * Recibe el resultado de cada iteración completada de la búsqueda.
+ *
+ * @author angelsn
+ */
+@FunctionalInterface
+public interface SearchListener {
+    void onIteration(SearchResult result);
+}
@@ -0,0 +1,51 @@
+package engine;
+
+/**
+ * Resultado de una iteración de la búsqueda (o de la búsqueda completa).
+ *
+ * @author angelsn
+ */
+public class SearchResult {
+    public int depth;
+    public int selDepth;
+    public int score;
+    public long nodes;
+    public long timeMillis;
+    public int[] pv = new int[0];
+
+    public int bestMove() {
+        return pv.length > 0 ? pv[0] : Moves.NONE;
+    }
+
+    public int ponderMove() {
+        return pv.length > 1 ? pv[1] : Moves.NONE;
+    }
+
+    public long nps() {
+        return timeMillis > 0 ? nodes * 1000 / timeMillis : nodes * 1000;
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE_BOUND;
+    }
+
+    /**
+     * Jugadas hasta el mate (positivo si gana el bando que mueve), como en "score mate" de UCI.
+     */
+    public int mateIn() {
+        int plies = Search.MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2;
+    }
+
+    /**
+     * Variante principal en notación UCI separada por espacios.
+     */
+    public String pvString() {
+        StringBuilder sb = new StringBuilder();
+        for (int move : pv) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(Moves.toUci(move));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,39 @@
+package engine;
+
+/**
+ * Contadores de una búsqueda para la telemetría: cada hilo cuenta en campos propios de su
+ * {@link Search}, sin sincronizar, y al terminar cada iteración publica una copia de este tipo;
+ * {@link SearchTelemetry} suma las copias de todos los hilos.
+ *
+ * @author angelsn
+ */
+public class SearchStats {
+    /** Nodos de la búsqueda principal y de quietud, y solo de quietud. */
+    public long nodes, quiescenceNodes;
+    /** Consultas a la tabla de transposición, las que encontraron la posición y las que cortaron. */
+    public long ttProbes, ttHits, ttCutoffs;
+    /** Cortes beta en el bucle de jugadas, los que dio la primera jugada, y cortes por movimiento nulo. */
+    public long betaCutoffs, firstMoveCutoffs, nullMoveCutoffs;
+
+    public void add(SearchStats other) {
+        nodes += other.nodes;
+        quiescenceNodes += other.quiescenceNodes;
+        ttProbes += other.ttProbes;
+        ttHits += other.ttHits;
+        ttCutoffs += other.ttCutoffs;
+        betaCutoffs += other.betaCutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+        nullMoveCutoffs += other.nullMoveCutoffs;
+    }
+
+    public double ttHitRate() {
+        return ttProbes == 0 ? 0 : (double) ttHits / ttProbes;
+    }
+
+    /**
+     * Proporción de cortes beta que dio la primera jugada probada (mide el orden de jugadas).
+     */
+    public double firstMoveCutoffRate() {
+        return betaCutoffs == 0 ? 0 : (double) firstMoveCutoffs / betaCutoffs;
+    }
+}
@@ -0,0 +1,171 @@
+package engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Telemetría de la búsqueda en formato JSON lines: un registro por cada iteración terminada
+ * ({@code "type":"iteration"}) y uno por búsqueda ({@code "type":"search"}), con profundidad,
+ * nodos, NPS, acierto de la tabla de transposición, cortes, factor de ramificación efectivo,
+ * tiempo por profundidad y uso de los hilos.
+ *
+ * Los contadores los lleva cada hilo en su {@link Search} y se suman acá solo al terminar una
+ * iteración del hilo principal; con la telemetría apagada no se escribe nada, así que se puede
+ * dejar prendida en producción. Se puede compartir entre varios motores: cada registro se
+ * escribe entero en una línea.
+ *
+ * Todos los contadores de un registro (nodos, NPS, tabla, cortes) salen de la misma suma: la
+ * última copia publicada por cada hilo. En los registros de iteración la copia de un hilo
+ * auxiliar es la de su última iteración terminada, así que puede ir atrasada hasta una
+ * iteración; el registro de la búsqueda se escribe con todos los hilos ya parados y es exacto.
+ *
+ * Uso: {@link Engine#setTelemetry}, la opción "Telemetry" de UCI o "bench --telemetry archivo".
+ *
+ * @author angelsn
+ */
+public class SearchTelemetry implements Closeable {
+    private final Writer out;
+    private final AtomicLong searches = new AtomicLong();
+    private boolean failed;
+
+    public SearchTelemetry(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Abre un archivo de telemetría, agregando al final si ya existe.
+     */
+    public static SearchTelemetry open(Path file) throws IOException {
+        return new SearchTelemetry(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    }
+
+    /**
+     * Empieza los registros de una búsqueda (la llama {@link Engine#search}).
+     */
+    Run start(Position position, int threads) {
+        return new Run(searches.incrementAndGet(), position.hash, threads);
+    }
+
+    /**
+     * Estado de una búsqueda: lo que hace falta para los valores por iteración.
+     */
+    final class Run {
+        private final long id;
+        private final long hash;
+        private final int threads;
+        private final long startNanos = System.nanoTime();
+        private final List<Long> depthTimes = new ArrayList<>();
+        private long previousNodes;
+        private long previousMillis;
+
+        private Run(long id, long hash, int threads) {
+            this.id = id;
+            this.hash = hash;
+            this.threads = threads;
+        }
+
+        void iteration(SearchResult result, Search[] searchers) {
+            SearchStats stats = merge(searchers);
+            long depthMillis = result.timeMillis - previousMillis;
+            depthTimes.add(depthMillis);
+            StringBuilder line = new StringBuilder(512);
+            line.append("{\"type\":\"iteration\",\"search\":").append(id);
+            appendResult(line, result, stats, searchers);
+            line.append(",\"depth_time_ms\":").append(depthMillis);
+            // Factor de ramificación efectivo: nodos hasta esta profundidad / hasta la anterior
+            line.append(",\"ebf\":").append(previousNodes > 0 ? number((double) stats.nodes / previousNodes) : "null");
+            line.append(",\"pv\":\"");
+            for (int i = 0; i < result.pv.length; i++) {
+                if (i > 0) line.append(' ');
+                line.append(Moves.toUci(result.pv[i]));
+            }
+            line.append("\"}");
+            previousNodes = stats.nodes;
+            previousMillis = result.timeMillis;
+            write(line, false);
+        }
+
+        void finish(SearchResult result, Search[] searchers) {
+            SearchStats stats = merge(searchers);
+            StringBuilder line = new StringBuilder(512);
+            line.append("{\"type\":\"search\",\"search\":").append(id)
+                .append(",\"hash\":\"").append(String.format("%016x", hash)).append('"');
+            appendResult(line, result, stats, searchers);
+            // Promedio geométrico: la raíz d-ésima de los nodos totales
+            line.append(",\"ebf\":").append(result.depth > 0 && stats.nodes > 1
+                    ? number(Math.pow(stats.nodes, 1.0 / result.depth)) : "null");
+            line.append(",\"depth_times_ms\":").append(depthTimes.toString().replace(" ", ""));
+            line.append(",\"bestmove\":\"").append(result.bestMove() == Moves.NONE ? "0000"
+                    : Moves.toUci(result.bestMove())).append("\"}");
+            write(line, true);
+        }
+
+        /**
+         * Suma las últimas copias publicadas de los contadores de todos los hilos.
+         */
+        private SearchStats merge(Search[] searchers) {
+            SearchStats stats = new SearchStats();
+            for (Search search : searchers) {
+                stats.add(search.stats());
+            }
+            return stats;
+        }
+
+        private void appendResult(StringBuilder line, SearchResult result, SearchStats stats, Search[] searchers) {
+            long cpuNanos = 0;
+            for (Search search : searchers) {
+                long cpu = search.cpuNanos();
+                cpuNanos = cpu < 0 || cpuNanos < 0 ? -1 : cpuNanos + cpu;
+            }
+            long wallNanos = Math.max(1, System.nanoTime() - startNanos);
+            line.append(",\"depth\":").append(result.depth)
+                .append(",\"seldepth\":").append(result.selDepth)
+                .append(",\"score\":").append(result.score)
+                .append(",\"nodes\":").append(stats.nodes)
+                .append(",\"qnodes\":").append(stats.quiescenceNodes)
+                .append(",\"time_ms\":").append(result.timeMillis)
+                .append(",\"nps\":").append(stats.nodes * 1000 / Math.max(1, result.timeMillis))
+                .append(",\"tt_probes\":").append(stats.ttProbes)
+                .append(",\"tt_hit_rate\":").append(number(stats.ttHitRate()))
+                .append(",\"tt_cutoffs\":").append(stats.ttCutoffs)
+                .append(",\"beta_cutoffs\":").append(stats.betaCutoffs)
+                .append(",\"first_move_cutoff_rate\":").append(number(stats.firstMoveCutoffRate()))
+                .append(",\"null_move_cutoffs\":").append(stats.nullMoveCutoffs)
+                .append(",\"threads\":").append(threads)
+                // Tiempo de CPU de los hilos de búsqueda sobre hilos × tiempo transcurrido
+                .append(",\"thread_utilization\":").append(cpuNanos < 0 ? "null"
+                        : number(Math.min(1.0, (double) cpuNanos / ((double) threads * wallNanos))));
+        }
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+
+    private synchronized void write(CharSequence line, boolean flush) {
+        if (failed) return;
+        try {
+            out.append(line).append('\n');
+            if (flush) out.flush();
+        } catch (IOException e) {
+            failed = true;
+            // Nunca a System.out: en modo UCI esa salida es del protocolo
+            System.err.println("Telemetry disabled: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,109 @@
+package engine;
+
+/**
+ * Tabla de transposición compartida entre hilos, sin bloqueos.
+ *
+ * Cada entrada son dos long: la clave se guarda combinada con XOR con los datos, así una escritura
+ * concurrente a medias simplemente no coincide al leer y se descarta (truco de Hyatt).
+ * Datos empaquetados: jugada (19 bits), puntuación (16), profundidad (8), tipo de cota (2), generación (8).
+ *
+ * @author angelsn
+ */
+public class TranspositionTable {
+    public static final int BOUND_EXACT = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_UPPER = 3;
+
+    private long[] keys;
+    private long[] data;
+    private int mask;
+    private int generation;
+
+    /**
+     * @param megabytes Tamaño aproximado en MB (se redondea hacia abajo a una potencia de dos de entradas)
+     */
+    public TranspositionTable(int megabytes) {
+        resize(megabytes);
+    }
+
+    public final void resize(int megabytes) {
+        long entries = Math.max(1L, (long) megabytes * 1024 * 1024 / 16);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        keys = new long[size];
+        data = new long[size];
+        mask = size - 1;
+        generation = 0;
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(keys, 0);
+        java.util.Arrays.fill(data, 0);
+        generation = 0;
+    }
+
+    /**
+     * Marca el inicio de una nueva búsqueda para que las entradas viejas se reemplacen primero.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * @param hash Hash de la posición
+     * @return Datos empaquetados, o 0 si no hay entrada para esa posición
+     */
+    public long probe(long hash) {
+        int index = (int) hash & mask;
+        long entry = data[index];
+        return (keys[index] ^ entry) == hash ? entry : 0;
+    }
+
+    public void store(long hash, int move, int score, int depth, int bound) {
+        int index = (int) hash & mask;
+        long old = data[index];
+        boolean samePosition = (keys[index] ^ old) == hash;
+        // Reemplazar si es otra generación o si la nueva búsqueda es igual de profunda
+        if (samePosition || old == 0 || generation(old) != generation || depth >= depth(old)) {
+            if (move == Moves.NONE && samePosition) move = move(old);
+            long entry = (move & 0x7FFFFL)
+                    | ((long) (score + 32768) & 0xFFFF) << 19
+                    | ((long) Math.max(0, Math.min(depth, 255))) << 35
+                    | ((long) bound) << 43
+                    | ((long) generation) << 45;
+            keys[index] = hash ^ entry;
+            data[index] = entry;
+        }
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & 0x7FFFF);
+    }
+
+    public static int score(long entry) {
+        return (int) ((entry >>> 19) & 0xFFFF) - 32768;
+    }
+
+    public static int depth(long entry) {
+        return (int) ((entry >>> 35) & 0xFF);
+    }
+
+    public static int bound(long entry) {
+        return (int) ((entry >>> 43) & 3);
+    }
+
+    private static int generation(long entry) {
+        return (int) ((entry >>> 45) & 0xFF);
+    }
+
+    /**
+     * Ocupación aproximada en por mil, para el campo "hashfull" de UCI.
+     */
+    public int hashfull() {
+        int used = 0;
+        int sample = Math.min(1000, data.length);
+        for (int i = 0; i < sample; i++) {
+            if (data[i] != 0 && generation(data[i]) == generation) used++;
+        }
+        return sample == 0 ? 0 : used * 1000 / sample;
+    }
+}
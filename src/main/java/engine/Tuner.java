@@ -0,0 +1,222 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Ajuste de los pesos de {@link Evaluator} al estilo Texel: minimiza la pérdida logística entre
+ * el resultado de cada partida y la probabilidad de ganar que da la evaluación de sus
+ * posiciones, {@code 1 / (1 + exp(-scale * eval))}, con descenso por gradiente (Adam).
+ *
+ * Como la evaluación es lineal, cada posición se convierte una sola vez en sus coeficientes
+ * ({@link Evaluator#features}) y ya no se vuelve a tocar: cada coeficiente distinto de cero se
+ * guarda en un short (índice del peso en los 9 bits bajos, coeficiente en los 7 altos) dentro
+ * de bloques de arreglos primitivos. Una época recorre los bloques en paralelo, cada uno con su
+ * propio gradiente, y los suma al final; son unos 35 shorts por posición, leídos de corrido.
+ *
+ * @author angelsn
+ */
+public class Tuner {
+    public static final int CHUNK_POSITIONS = 1 << 16;
+    private static final int INDEX_BITS = 9;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int MAX_COEFFICIENT = 63; // 7 bits con signo
+    private static final double BETA1 = 0.9, BETA2 = 0.999, EPSILON = 1e-8;
+
+    /**
+     * Bloque de posiciones ya convertidas. Lo llena un solo hilo con {@link #add}.
+     */
+    public static final class Chunk {
+        private short[] features = new short[CHUNK_POSITIONS * 40];
+        private final int[] start = new int[CHUNK_POSITIONS + 1];
+        private final byte[] results = new byte[CHUNK_POSITIONS]; // 0 = ganan negras, 1 = tablas, 2 = ganan blancas
+        private final int[] coefficients = new int[Evaluator.WEIGHT_COUNT];
+        private int size;
+
+        /**
+         * Agrega una posición.
+         * @param pos Posición
+         * @param whiteResult Resultado de la partida: 0 = ganan las negras, 1 = tablas, 2 = ganan las blancas
+         * @return false si el bloque está lleno (la posición no se agregó)
+         */
+        public boolean add(Position pos, int whiteResult) {
+            if (size == CHUNK_POSITIONS) return false;
+            Evaluator.features(pos, coefficients);
+            int count = start[size];
+            for (int i = 0; i < Evaluator.WEIGHT_COUNT; i++) {
+                int c = coefficients[i];
+                if (c == 0) continue;
+                coefficients[i] = 0;
+                // Un coeficiente grande (movilidad) ocupa varias entradas
+                while (c != 0) {
+                    int part = Math.max(-MAX_COEFFICIENT, Math.min(MAX_COEFFICIENT, c));
+                    if (count == features.length) features = Arrays.copyOf(features, count * 2);
+                    features[count++] = (short) (i | part << INDEX_BITS);
+                    c -= part;
+                }
+            }
+            results[size] = (byte) whiteResult;
+            start[++size] = count;
+            return true;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Suma el gradiente de la pérdida de este bloque.
+         * @return Pérdida total del bloque
+         */
+        double gradient(double[] weights, double scale, double[] gradient) {
+            double loss = 0;
+            for (int p = 0; p < size; p++) {
+                int from = start[p], to = start[p + 1];
+                double eval = 0;
+                for (int i = from; i < to; i++) {
+                    short f = features[i];
+                    eval += weights[f & INDEX_MASK] * (f >> INDEX_BITS);
+                }
+                double predicted = 1 / (1 + Math.exp(-scale * eval));
+                double target = results[p] * 0.5;
+                loss -= target * Math.log(predicted + EPSILON) + (1 - target) * Math.log(1 - predicted + EPSILON);
+                if (gradient == null) continue;
+                double error = scale * (predicted - target);
+                for (int i = from; i < to; i++) {
+                    short f = features[i];
+                    gradient[f & INDEX_MASK] += error * (f >> INDEX_BITS);
+                }
+            }
+            return loss;
+        }
+    }
+
+    private final List<Chunk> chunks = new ArrayList<>();
+    private final ForkJoinPool pool;
+    private final double[] weights = new double[Evaluator.WEIGHT_COUNT];
+    private final double[] moment = new double[Evaluator.WEIGHT_COUNT];
+    private final double[] velocity = new double[Evaluator.WEIGHT_COUNT];
+    private long positions;
+    private int steps;
+    private double scale = Math.log(10) / 400;
+
+    /**
+     * @param initial Pesos iniciales
+     * @param pool Hilos para calcular el gradiente
+     */
+    public Tuner(int[] initial, ForkJoinPool pool) {
+        this.pool = pool;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = initial[i];
+        }
+    }
+
+    /**
+     * Agrega un bloque lleno por otro hilo.
+     */
+    public synchronized void addChunk(Chunk chunk) {
+        chunk.features = Arrays.copyOf(chunk.features, chunk.start[chunk.size]);
+        chunks.add(chunk);
+        positions += chunk.size;
+    }
+
+    public synchronized long positions() {
+        return positions;
+    }
+
+    /**
+     * @return Factor de la sigmoide (por centipeón)
+     */
+    public double scale() {
+        return scale;
+    }
+
+    /**
+     * @return Pesos actuales redondeados
+     */
+    public int[] weights() {
+        int[] w = new int[weights.length];
+        for (int i = 0; i < w.length; i++) {
+            w[i] = (int) Math.round(weights[i]);
+        }
+        return w;
+    }
+
+    /**
+     * @return Pérdida promedio con los pesos actuales
+     */
+    public double loss() throws InterruptedException, ExecutionException {
+        return run(null) / Math.max(1, positions);
+    }
+
+    /**
+     * Busca el factor de la sigmoide que mejor explica los resultados con los pesos actuales
+     * (búsqueda ternaria; la pérdida es convexa en el factor). Se llama antes de ajustar, así los
+     * pesos quedan en la escala de centipeones que ya usan.
+     * @return Factor elegido
+     */
+    public double fitScale() throws InterruptedException, ExecutionException {
+        double low = 0.1 * Math.log(10) / 400, high = 5 * Math.log(10) / 400;
+        for (int i = 0; i < 30; i++) {
+            double a = low + (high - low) / 3, b = high - (high - low) / 3;
+            scale = a;
+            double lossA = loss();
+            scale = b;
+            double lossB = loss();
+            if (lossA < lossB) high = b; else low = a;
+        }
+        scale = (low + high) / 2;
+        return scale;
+    }
+
+    /**
+     * Una época: el gradiente sobre todas las posiciones y un paso de Adam.
+     * @param rate Tamaño del paso en centipeones
+     * @return Pérdida promedio antes del paso
+     */
+    public double epoch(double rate) throws InterruptedException, ExecutionException {
+        double[] gradient = new double[weights.length];
+        double loss = run(gradient) / Math.max(1, positions);
+        steps++;
+        double correction1 = 1 - Math.pow(BETA1, steps), correction2 = 1 - Math.pow(BETA2, steps);
+        for (int i = 0; i < weights.length; i++) {
+            double g = gradient[i] / positions;
+            moment[i] = BETA1 * moment[i] + (1 - BETA1) * g;
+            velocity[i] = BETA2 * velocity[i] + (1 - BETA2) * g * g;
+            weights[i] -= rate * (moment[i] / correction1) / (Math.sqrt(velocity[i] / correction2) + EPSILON);
+        }
+        return loss;
+    }
+
+    /**
+     * Recorre los bloques en paralelo; cada tarea tiene su gradiente y se suman al final.
+     * @param gradient Donde sumar el gradiente, o null para calcular solo la pérdida
+     * @return Pérdida total
+     */
+    private double run(double[] gradient) throws InterruptedException, ExecutionException {
+        List<Callable<double[]>> tasks = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            tasks.add(() -> {
+                double[] partial = new double[weights.length + 1]; // gradiente y pérdida
+                partial[weights.length] = chunk.gradient(weights, scale, gradient != null ? partial : null);
+                return partial;
+            });
+        }
+        double loss = 0;
+        for (Future<double[]> future : pool.invokeAll(tasks)) {
+            double[] partial = future.get();
+            loss += partial[weights.length];
+            if (gradient != null) {
+                for (int i = 0; i < weights.length; i++) {
+                    gradient[i] += partial[i];
+                }
+            }
+        }
+        return loss;
+    }
+}
@@ -0,0 +1,109 @@
+package engine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Claves Zobrist para el hash de 64 bits de una posición.
+ *
+ * La tabla sigue la distribución de Polyglot (781 claves: 12x64 piezas, 4 enroques,
+ * 8 columnas de al paso y 1 de turno) y la casilla de al paso solo se incluye si un peón
+ * del bando que mueve puede capturar, de modo que posiciones iguales siempre tienen el mismo hash.
+ * Las claves se generan con una semilla fija para que el hash sea estable entre ejecuciones.
+ *
+ * @author angelsn
+ */
+public final class Zobrist {
+    static final long[] RANDOM64 = new long[781];
+    private static final int CASTLE_OFFSET = 768;
+    private static final int EN_PASSANT_OFFSET = 772;
+    private static final int TURN_OFFSET = 780;
+
+    public static final long SIDE_KEY;
+    private static final long[] CASTLING_KEYS = new long[16];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x43484553534452L);
+        for (int i = 0; i < RANDOM64.length; i++) {
+            RANDOM64[i] = random.nextLong();
+        }
+        SIDE_KEY = RANDOM64[TURN_OFFSET];
+        for (int rights = 0; rights < 16; rights++) {
+            long key = 0;
+            for (int bit = 0; bit < 4; bit++) {
+                if ((rights & (1 << bit)) != 0) key ^= RANDOM64[CASTLE_OFFSET + bit];
+            }
+            CASTLING_KEYS[rights] = key;
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    public static long pieceKey(int piece, int sq) {
+        return RANDOM64[pieceIndex(piece, sq)];
+    }
+
+    private static int pieceIndex(int piece, int sq) {
+        int kind = 2 * (Math.abs(piece) - 1) + (piece > 0 ? 1 : 0);
+        int rank = 7 - (sq >> 3);
+        return 64 * kind + 8 * rank + (sq & 7);
+    }
+
+    public static long castlingKey(int rights) {
+        return CASTLING_KEYS[rights];
+    }
+
+    /**
+     * Clave de al paso de la posición, o 0 si ningún peón del bando que mueve puede capturar.
+     * @param pos Posición con enPassantTile definido
+     * @return Clave a combinar con XOR
+     */
+    public static long enPassantKey(Position pos) {
+        int col = enPassantFile(pos);
+        return col < 0 ? 0 : RANDOM64[EN_PASSANT_OFFSET + col];
+    }
+
+    /**
+     * @return Columna de al paso si algún peón del bando que mueve puede capturar, o -1
+     */
+    private static int enPassantFile(Position pos) {
+        int ep = pos.enPassantTile;
+        if (ep == -1) return -1;
+        int col = ep & 7;
+        int pawnRow = (ep >> 3) + (pos.whiteToMove ? 1 : -1);
+        int pawn = pos.whiteToMove ? Position.PAWN : -Position.PAWN;
+        boolean capturable = (col > 0 && pos.squares[pawnRow * 8 + col - 1] == pawn)
+                || (col < 7 && pos.squares[pawnRow * 8 + col + 1] == pawn);
+        return capturable ? col : -1;
+    }
+
+    /**
+     * Calcula el hash completo de una posición.
+     * @param pos Posición
+     * @return Hash Zobrist de 64 bits
+     */
+    public static long compute(Position pos) {
+        return compute(pos, RANDOM64);
+    }
+
+    /**
+     * Calcula el hash de una posición con otra tabla de 781 claves en la misma distribución,
+     * por ejemplo la tabla Random64 de Polyglot ({@code games.PolyglotBook.random64()}).
+     * @param pos Posición
+     * @param keys Tabla de 781 claves
+     * @return Hash de 64 bits
+     */
+    public static long compute(Position pos, long[] keys) {
+        long key = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            if (pos.squares[sq] != Position.EMPTY) key ^= keys[pieceIndex(pos.squares[sq], sq)];
+        }
+        for (int bit = 0; bit < 4; bit++) {
+            if ((pos.castlingRights & (1 << bit)) != 0) key ^= keys[CASTLE_OFFSET + bit];
+        }
+        int col = enPassantFile(pos);
+        if (col >= 0) key ^= keys[EN_PASSANT_OFFSET + col];
+        if (pos.whiteToMove) key ^= keys[TURN_OFFSET];
+        return key;
+    }
+}
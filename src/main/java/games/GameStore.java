@@ -0,0 +1,554 @@
+package games;
+
+import engine.FenParser;
+import engine.Moves;
+import engine.Position;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Base de datos binaria de partidas.
+ *
+ * Una base son tres archivos con el mismo nombre y distinta extensión:
+ * <ul>
+ *   <li>".games": por partida, el resultado, la posición inicial (solo si no es la normal) y cada
+ *   jugada en un byte: su índice en la lista ordenada de jugadas pseudo-legales. Se usan las
+ *   pseudo-legales porque generarlas cuesta una fracción de las legales y en partidas reales no
+ *   pasan de unas 70; si alguna vez hubiera 255 o más, el byte 255 indica que sigue otro.</li>
+ *   <li>".tags": las etiquetas PGN de cada partida. Van aparte para que recorrer las jugadas no
+ *   tenga que leerlas.</li>
+ *   <li>".idx": por partida, dos long con dónde termina en los otros dos archivos. La partida N
+ *   se encuentra con una sola lectura, sin recorrer las anteriores.</li>
+ * </ul>
+ *
+ * Las jugadas se ordenan por origen y destino antes de tomar el índice, así el formato no depende
+ * del orden en que el generador las produzca (que ya las agrupa por origen, así que ordenarlas
+ * es casi gratis).
+ *
+ * @author angelsn
+ */
+public class GameStore implements Closeable {
+    private static final long MAGIC = 0x4348455A44420001L; // "CHEZDB" + versión
+    private static final int INDEX_HEADER = 8;
+    private static final int INDEX_ENTRY = 16;
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final int CUSTOM_START = 4;
+    private static final int ESCAPE = 255;
+    private static final String[] RESULTS = {
+        PgnGame.RESULT_UNKNOWN, PgnGame.RESULT_WHITE_WINS, PgnGame.RESULT_BLACK_WINS, PgnGame.RESULT_DRAW
+    };
+    private static final Position STANDARD_START = new Position();
+
+    static {
+        new FenParser().parseOrThrow(Position.STARTING_FEN, STANDARD_START);
+    }
+
+    /**
+     * Recibe cada partida de {@link #scan}. Se llama desde varios hilos a la vez; la partida se
+     * reutiliza después de la llamada.
+     */
+    @FunctionalInterface
+    public interface GameVisitor {
+        void game(long number, PgnGame game) throws Exception;
+    }
+
+    private final Path base;
+    private final FileChannel index;
+    private final FileChannel games;
+    private final FileChannel tags;
+    private final long size;
+
+    private GameStore(Path base) throws IOException {
+        this.base = base;
+        this.index = FileChannel.open(file(base, ".idx"), StandardOpenOption.READ);
+        this.games = FileChannel.open(file(base, ".games"), StandardOpenOption.READ);
+        this.tags = FileChannel.open(file(base, ".tags"), StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER);
+        if (index.read(header, 0) != INDEX_HEADER || header.getLong(0) != MAGIC) {
+            close();
+            throw new IOException("Not a game store: " + file(base, ".idx"));
+        }
+        this.size = (index.size() - INDEX_HEADER) / INDEX_ENTRY;
+    }
+
+    /**
+     * Abre una base para lectura.
+     * @param base Ruta sin extensión (ej: "partidas" para partidas.games, partidas.tags, partidas.idx)
+     * @return Base abierta
+     * @throws IOException si falta algún archivo o no tiene el formato esperado
+     */
+    public static GameStore open(Path base) throws IOException {
+        return new GameStore(base);
+    }
+
+    /**
+     * Crea una base vacía (sobrescribe la que hubiera) para añadir partidas.
+     * @param base Ruta sin extensión
+     * @return Escritor de la base; hay que cerrarlo para que todo quede en disco
+     * @throws IOException si no se pueden crear los archivos
+     */
+    public static Writer create(Path base) throws IOException {
+        return new Writer(base);
+    }
+
+    static Path file(Path base, String extension) {
+        return base.resolveSibling(base.getFileName() + extension);
+    }
+
+    /**
+     * @return Número de partidas de la base
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Lee una partida. Se puede llamar desde varios hilos a la vez, cada uno con su propio PgnGame.
+     * @param number Número de la partida (desde 0)
+     * @param game Destino; {@link PgnGame#offset} queda con la posición de la partida en ".games"
+     * @param withTags Si también se leen las etiquetas
+     * @throws IOException si falla la lectura
+     */
+    public void read(long number, PgnGame game, boolean withTags) throws IOException {
+        if (number < 0 || number >= size) {
+            throw new IndexOutOfBoundsException("Game " + number + " of " + size);
+        }
+        // fin de la partida anterior (= inicio de esta) y fin de esta; la primera empieza en 0
+        ByteBuffer entries = ByteBuffer.allocate(2 * INDEX_ENTRY);
+        if (number == 0) entries.position(INDEX_ENTRY);
+        readFully(index, entries, INDEX_HEADER + (number - 1) * INDEX_ENTRY + entries.position());
+        long gamesStart = entries.getLong(0);
+        long tagsStart = entries.getLong(8);
+        long gamesEnd = entries.getLong(INDEX_ENTRY);
+        long tagsEnd = entries.getLong(INDEX_ENTRY + 8);
+
+        Decoder decoder = new Decoder();
+        ByteBuffer record = ByteBuffer.allocate((int) (gamesEnd - gamesStart));
+        readFully(games, record, gamesStart);
+        decoder.decodeGame(record, game, gamesStart);
+        if (withTags) {
+            ByteBuffer tagRecord = ByteBuffer.allocate((int) (tagsEnd - tagsStart));
+            readFully(tags, tagRecord, tagsStart);
+            decoder.decodeTags(tagRecord, game);
+        } else {
+            game.tagCount = 0;
+        }
+    }
+
+    /**
+     * Recorre toda la base. Cada hilo se queda con un rango de partidas consecutivas y las lee en
+     * bloques de 1 MB.
+     * @param threads Hilos (con 1 las partidas llegan en orden)
+     * @param withTags Si también se leen las etiquetas
+     * @param visitor Recibe cada partida
+     * @throws IOException si falla la lectura o el visitor lanza una excepción
+     */
+    public void scan(int threads, boolean withTags, GameVisitor visitor) throws IOException {
+        long chunk = Math.max(1, (size + threads - 1) / threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> ranges = new ArrayList<>();
+            for (long first = 0; first < size; first += chunk) {
+                long start = first;
+                long end = Math.min(size, first + chunk);
+                ranges.add(pool.submit(() -> {
+                    scanRange(start, end, withTags, visitor);
+                    return null;
+                }));
+            }
+            for (Future<?> range : ranges) {
+                range.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning " + base, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException("Error while scanning " + base, e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void scanRange(long first, long end, boolean withTags, GameVisitor visitor) throws Exception {
+        long gamesStart = 0, tagsStart = 0;
+        if (first > 0) {
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY);
+            readFully(index, entry, INDEX_HEADER + (first - 1) * INDEX_ENTRY);
+            gamesStart = entry.getLong(0);
+            tagsStart = entry.getLong(8);
+        }
+        BlockReader indexIn = new BlockReader(index, INDEX_HEADER + first * INDEX_ENTRY);
+        BlockReader gamesIn = new BlockReader(games, gamesStart);
+        BlockReader tagsIn = withTags ? new BlockReader(tags, tagsStart) : null;
+        Decoder decoder = new Decoder();
+        PgnGame game = new PgnGame();
+
+        for (long number = first; number < end; number++) {
+            ByteBuffer entry = indexIn.next(INDEX_ENTRY);
+            long gamesEnd = entry.getLong();
+            long tagsEnd = entry.getLong();
+
+            long offset = gamesIn.position;
+            decoder.decodeGame(gamesIn.next((int) (gamesEnd - offset)), game, offset);
+            if (tagsIn != null) {
+                decoder.decodeTags(tagsIn.next((int) (tagsEnd - tagsIn.position)), game);
+            } else {
+                game.tagCount = 0;
+            }
+            visitor.game(number, game);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Unexpected end of game store");
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (index; games; tags) {
+            // cerrar los tres aunque alguno falle
+        }
+    }
+
+    /**
+     * Genera las jugadas pseudo-legales y las deja ordenadas como claves de {@link #sortKey}.
+     * @return Número de jugadas
+     */
+    private static int sortedMoves(Position pos, int[] keys) {
+        int count = pos.generatePseudoLegalMoves(keys);
+        for (int i = 0; i < count; i++) {
+            keys[i] = sortKey(keys[i]);
+        }
+        for (int i = 1; i < count; i++) {
+            int key = keys[i];
+            int j = i - 1;
+            while (j >= 0 && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                j--;
+            }
+            keys[j + 1] = key;
+        }
+        return count;
+    }
+
+    /** Origen en los bits altos y el resto de la jugada debajo. */
+    private static int sortKey(int move) {
+        return (move & 63) << 20 | move >>> 6;
+    }
+
+    private static int moveOf(int key) {
+        return key >>> 20 | (key & 0xFFFFF) << 6;
+    }
+
+    private static boolean isStandardStart(Position pos) {
+        return pos.hash == STANDARD_START.hash && pos.fullmoveNumber == 1 && pos.halfmoveClock == 0
+                && Arrays.equals(pos.squares, STANDARD_START.squares);
+    }
+
+    /**
+     * Lectura secuencial de un archivo en bloques, garantizando que cada registro quede entero
+     * en el buffer que se devuelve.
+     */
+    private static final class BlockReader {
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE).limit(0);
+        private long next;
+        long position;
+
+        BlockReader(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+            this.next = position;
+        }
+
+        /**
+         * @return Buffer con los próximos length bytes a partir de su posición actual
+         */
+        ByteBuffer next(int length) throws IOException {
+            if (buffer.remaining() < length) {
+                if (length > buffer.capacity()) {
+                    ByteBuffer bigger = ByteBuffer.allocate(Math.max(length, 2 * buffer.capacity()));
+                    bigger.put(buffer);
+                    buffer = bigger;
+                } else {
+                    buffer.compact();
+                }
+                while (buffer.position() < length) {
+                    int read = channel.read(buffer, next);
+                    if (read < 0) throw new IOException("Unexpected end of game store");
+                    next += read;
+                }
+                buffer.flip();
+            }
+            ByteBuffer record = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            position += length;
+            return record;
+        }
+    }
+
+    /**
+     * Decodificación de registros; cada hilo usa el suyo.
+     */
+    private static final class Decoder {
+        private final Position position = new Position();
+        private final int[] keys = new int[Position.MAX_MOVES];
+        private final StringBuilder tagText = new StringBuilder();
+
+        void decodeGame(ByteBuffer in, PgnGame game, long offset) throws IOException {
+            game.reset(offset);
+            int header = in.get() & 0xFF;
+            game.result = RESULTS[header & 3];
+            if ((header & CUSTOM_START) != 0) {
+                readPosition(in, game.start);
+            } else {
+                game.start.copyFrom(STANDARD_START);
+            }
+            int count = readVarInt(in);
+            position.copyFrom(game.start);
+            for (int ply = 0; ply < count; ply++) {
+                int moveCount = sortedMoves(position, keys);
+                int choice = in.get() & 0xFF;
+                if (choice == ESCAPE) choice += in.get() & 0xFF;
+                int move = choice < moveCount ? moveOf(keys[choice]) : Moves.NONE;
+                if (move == Moves.NONE || !position.makeMove(move)) {
+                    throw new IOException("Corrupt move at byte " + (offset + in.position() - 1));
+                }
+                position.resetHistory();
+                game.addMove(move);
+            }
+        }
+
+        void decodeTags(ByteBuffer in, PgnGame game) {
+            tagText.setLength(0);
+            game.source = tagText;
+            game.tagCount = 0;
+            int count = readVarInt(in);
+            for (int t = 0; t < count; t++) {
+                int nameStart = tagText.length();
+                appendString(in);
+                int valueStart = tagText.length();
+                appendString(in);
+                game.addTag(nameStart, valueStart, valueStart, tagText.length());
+            }
+        }
+
+        private void appendString(ByteBuffer in) {
+            int length = readVarInt(in);
+            tagText.append(new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8));
+            in.position(in.position() + length);
+        }
+
+        private static void readPosition(ByteBuffer in, Position pos) {
+            pos.clear();
+            for (int sq = 0; sq < 64; sq += 2) {
+                int pair = in.get() & 0xFF;
+                setNibble(pos, sq, pair & 0xF);
+                setNibble(pos, sq + 1, pair >> 4);
+            }
+            int flags = in.get() & 0xFF;
+            pos.whiteToMove = (flags & 1) != 0;
+            pos.castlingRights = flags >> 1;
+            pos.enPassantTile = (in.get() & 0xFF) - 1;
+            pos.halfmoveClock = readVarInt(in);
+            pos.fullmoveNumber = readVarInt(in);
+            pos.refreshHash();
+        }
+
+        private static void setNibble(Position pos, int sq, int nibble) {
+            if (nibble != 0) pos.setPiece(sq, nibble >= 8 ? nibble - 16 : nibble);
+        }
+
+        private static int readVarInt(ByteBuffer in) {
+            int value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = in.get() & 0xFF;
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+
+    /**
+     * Añade partidas a una base nueva. {@link #append} se puede llamar desde varios hilos (por
+     * ejemplo desde un {@link PgnReader.GameHandler}): la codificación se hace fuera del bloqueo
+     * y solo la copia a los buffers de salida es exclusiva.
+     */
+    public static final class Writer implements Closeable {
+        private final FileChannel index;
+        private final FileChannel games;
+        private final FileChannel tags;
+        private final ByteBuffer indexOut = ByteBuffer.allocate(BLOCK_SIZE);
+        private final ByteBuffer gamesOut = ByteBuffer.allocate(BLOCK_SIZE);
+        private final ByteBuffer tagsOut = ByteBuffer.allocate(BLOCK_SIZE);
+        private final ThreadLocal<Encoder> encoders = ThreadLocal.withInitial(Encoder::new);
+        private long gamesEnd;
+        private long tagsEnd;
+        private long count;
+
+        private Writer(Path base) throws IOException {
+            this.index = open(file(base, ".idx"));
+            this.games = open(file(base, ".games"));
+            this.tags = open(file(base, ".tags"));
+            indexOut.putLong(MAGIC);
+        }
+
+        private static FileChannel open(Path path) throws IOException {
+            return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        /**
+         * Añade una partida con sus etiquetas.
+         * @param game Partida válida (las jugadas deben ser legales desde {@link PgnGame#start})
+         * @return Número que recibió la partida
+         * @throws IOException si falla la escritura
+         * @throws IllegalArgumentException si alguna jugada no es legal
+         */
+        public long append(PgnGame game) throws IOException {
+            Encoder encoder = encoders.get();
+            encoder.encode(game);
+            synchronized (this) {
+                write(games, gamesOut, encoder.game.array(), encoder.game.position());
+                write(tags, tagsOut, encoder.tags.array(), encoder.tags.position());
+                gamesEnd += encoder.game.position();
+                tagsEnd += encoder.tags.position();
+                if (indexOut.remaining() < INDEX_ENTRY) flush(index, indexOut);
+                indexOut.putLong(gamesEnd).putLong(tagsEnd);
+                return count++;
+            }
+        }
+
+        /**
+         * @return Partidas añadidas hasta ahora
+         */
+        public synchronized long size() {
+            return count;
+        }
+
+        private static void write(FileChannel channel, ByteBuffer out, byte[] bytes, int length) throws IOException {
+            int offset = 0;
+            while (offset < length) {
+                if (!out.hasRemaining()) flush(channel, out);
+                int n = Math.min(out.remaining(), length - offset);
+                out.put(bytes, offset, n);
+                offset += n;
+            }
+        }
+
+        private static void flush(FileChannel channel, ByteBuffer out) throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            try (index; games; tags) {
+                flush(games, gamesOut);
+                flush(tags, tagsOut);
+                flush(index, indexOut);
+            }
+        }
+    }
+
+    /**
+     * Codificación de registros; cada hilo usa el suyo.
+     */
+    private static final class Encoder {
+        private final Position position = new Position();
+        private final int[] keys = new int[Position.MAX_MOVES];
+        ByteBuffer game = ByteBuffer.allocate(1024);
+        ByteBuffer tags = ByteBuffer.allocate(1024);
+
+        void encode(PgnGame source) {
+            game.clear();
+            tags.clear();
+            int result = Arrays.asList(RESULTS).indexOf(source.result);
+            boolean custom = !isStandardStart(source.start);
+            game = ensure(game, 16 + 40 + source.moveCount);
+            game.put((byte) (Math.max(result, 0) | (custom ? CUSTOM_START : 0)));
+            if (custom) writePosition(source.start);
+            writeVarInt(game, source.moveCount);
+
+            position.copyFrom(source.start);
+            for (int ply = 0; ply < source.moveCount; ply++) {
+                int move = source.moves[ply];
+                int moveCount = sortedMoves(position, keys);
+                int choice = Arrays.binarySearch(keys, 0, moveCount, sortKey(move));
+                if (choice < 0 || !position.makeMove(move)) {
+                    throw new IllegalArgumentException("Illegal move at ply " + (ply + 1) + " of game at " + source.offset);
+                }
+                if (choice >= ESCAPE) {
+                    game = ensure(game, 2);
+                    game.put((byte) ESCAPE);
+                    choice -= ESCAPE;
+                }
+                game.put((byte) choice);
+                position.resetHistory();
+            }
+
+            writeVarInt(tags, source.tagCount);
+            for (int t = 0; t < source.tagCount; t++) {
+                int[] bounds = source.tagBounds;
+                writeString(source.source.subSequence(bounds[4 * t], bounds[4 * t + 1]));
+                writeString(source.source.subSequence(bounds[4 * t + 2], bounds[4 * t + 3]));
+            }
+        }
+
+        private void writePosition(Position pos) {
+            for (int sq = 0; sq < 64; sq += 2) {
+                game.put((byte) ((pos.squares[sq] & 0xF) | (pos.squares[sq + 1] & 0xF) << 4));
+            }
+            game.put((byte) ((pos.whiteToMove ? 1 : 0) | pos.castlingRights << 1));
+            game.put((byte) (pos.enPassantTile + 1));
+            writeVarInt(game, pos.halfmoveClock);
+            writeVarInt(game, pos.fullmoveNumber);
+        }
+
+        private void writeString(CharSequence text) {
+            byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            tags = ensure(tags, bytes.length + 5);
+            writeVarInt(tags, bytes.length);
+            tags.put(bytes);
+        }
+
+        private static ByteBuffer ensure(ByteBuffer buffer, int extra) {
+            if (buffer.remaining() >= extra) return buffer;
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + extra));
+            buffer.flip();
+            return bigger.put(buffer);
+        }
+
+        private static void writeVarInt(ByteBuffer out, int value) {
+            while ((value & ~0x7F) != 0) {
+                out.put((byte) (value & 0x7F | 0x80));
+                value >>>= 7;
+            }
+            out.put((byte) value);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package games;
+
+import engine.Moves;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Diario de la partida en curso: cada jugada se agrega al final de un archivo como un registro
+ * de 8 bytes, así una partida sobrevive a cerrar la ventana o a una caída del programa y se
+ * retoma al volver a abrirlo.
+ *
+ * El archivo tiene una cabecera (MAGIC e identificador de la partida) y un registro por jugada:
+ * la jugada, su número y una suma de verificación. Al abrirlo se leen los registros válidos y se
+ * corta lo que sobre, por ejemplo un registro a medio escribir.
+ *
+ * {@link #append} no toca el disco: deja la jugada en una cola y vuelve. Un hilo escritor toma
+ * todo lo pendiente, lo escribe de una vez y hace un solo fsync por tanda (group commit), así el
+ * EDT nunca espera al disco y varias jugadas seguidas cuestan un solo fsync. Si una escritura
+ * falla el diario queda apagado: no se encola nada más.
+ *
+ * @author angelsn
+ */
+public class MoveJournal implements Closeable {
+    private static final long MAGIC = 0x4348455A4A4E0001L; // "CHEZJN" + versión
+    private static final int HEADER = 16;
+    private static final int RECORD = 8;
+    private static final int MAX_PLIES = 0xFFFF;
+
+    private static MoveJournal instance;
+
+    private final FileChannel channel;
+    private final LinkedBlockingQueue<long[]> pending = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final SplittableRandom random = new SplittableRandom();
+    // Jugadas de la partida actual, tal como quedarán en el archivo
+    private final List<Integer> moves = new ArrayList<>();
+    private long gameId;
+    private long recordStart; // posición en el archivo del primer registro del buffer del escritor
+    private long committed; // comandos escritos y sincronizados
+    private long submitted; // comandos encolados
+    private IOException failure;
+    private boolean closed;
+
+    // Comandos para el hilo escritor: {ply, jugada} o {RESET, id de la nueva partida}
+    private static final long RESET = -1;
+    private static final long[] STOP = new long[0];
+
+    /**
+     * @return Diario de la partida de la ventana principal ("~/.chessdrez/game.journal"), o null
+     *         si no se pudo abrir (la partida funciona igual, solo que sin guardarse)
+     */
+    public static synchronized MoveJournal getInstance() {
+        if (instance == null) {
+            Path file = Path.of(System.getProperty("user.home"), ".chessdrez", "game.journal");
+            try {
+                Files.createDirectories(file.getParent());
+                instance = new MoveJournal(file);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        instance.close();
+                    } catch (IOException e) {
+                        System.out.println("Error closing move journal: " + e.getMessage());
+                    }
+                }));
+            } catch (IOException e) {
+                System.out.println("Can't open move journal " + file + ": " + e.getMessage());
+                return null;
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Abre (o crea) un diario y lee las jugadas que ya tenía.
+     * @param file Archivo del diario
+     * @throws IOException si no se puede leer o escribir
+     */
+    public MoveJournal(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (!load()) {
+            gameId = random.nextLong();
+            writeHeader();
+        }
+        writer = new Thread(this::writeLoop, "move-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Lee la cabecera y los registros válidos, y corta el archivo después del último.
+     * @return false si el archivo está vacío o no es un diario
+     */
+    private boolean load() throws IOException {
+        long size = channel.size();
+        if (size < HEADER) return false;
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, HEADER + (long) MAX_PLIES * RECORD));
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // leer todo el archivo
+        }
+        buffer.flip();
+        if (buffer.getLong() != MAGIC) return false;
+        gameId = buffer.getLong();
+        while (buffer.remaining() >= RECORD) {
+            int move = buffer.getInt();
+            int ply = buffer.getShort() & 0xFFFF;
+            short check = buffer.getShort();
+            if (ply != moves.size() || check != check(gameId, ply, move) || move == Moves.NONE) break;
+            moves.add(move);
+        }
+        long end = HEADER + (long) moves.size() * RECORD;
+        if (end < size) {
+            channel.truncate(end);
+            channel.force(false);
+        }
+        return true;
+    }
+
+    private void writeHeader() throws IOException {
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER).putLong(MAGIC).putLong(gameId).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(true);
+    }
+
+    /**
+     * Suma de verificación de un registro; depende de la partida, así un registro de una partida
+     * anterior nunca pasa por uno de la actual.
+     */
+    private static short check(long gameId, int ply, int move) {
+        long h = gameId ^ ((long) ply << 32 | (move & 0xFFFFFFFFL));
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return (short) (h ^ (h >>> 33));
+    }
+
+    /**
+     * @return Jugadas de la partida guardada, en orden (para reproducirlas al iniciar)
+     */
+    public synchronized int[] moves() {
+        int[] result = new int[moves.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = moves.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Agrega una jugada de la partida actual. No espera al disco.
+     * @param move Jugada ({@link Moves})
+     */
+    public synchronized void append(int move) {
+        if (closed || failure != null || moves.size() >= MAX_PLIES) return;
+        pending.add(new long[] {moves.size(), move});
+        moves.add(move);
+        submitted++;
+    }
+
+    /**
+     * Empieza una partida nueva: las jugadas guardadas se descartan. No espera al disco.
+     */
+    public synchronized void reset() {
+        if (closed || failure != null) return;
+        moves.clear();
+        pending.add(new long[] {RESET, random.nextLong()});
+        submitted++;
+    }
+
+    /**
+     * Deja las jugadas como un prefijo de las actuales (por ejemplo, si al reproducirlas una ya
+     * no es válida). No espera al disco.
+     */
+    public synchronized void truncate(int plies) {
+        if (plies >= moves.size()) return;
+        int[] keep = Arrays.copyOf(moves(), plies);
+        reset();
+        for (int move : keep) {
+            append(move);
+        }
+    }
+
+    /**
+     * Espera a que todo lo agregado hasta ahora esté escrito y sincronizado.
+     * @throws IOException si el hilo escritor falló
+     */
+    public synchronized void flush() throws IOException {
+        long target = submitted;
+        while (committed < target && failure == null && writer.isAlive()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while flushing journal", e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Escribe lo pendiente y cierra el archivo.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        pending.add(STOP);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        synchronized (this) {
+            if (failure != null) throw failure;
+        }
+    }
+
+    /**
+     * Hilo escritor: toma todos los comandos pendientes, los aplica con una sola escritura por
+     * grupo de jugadas consecutivas y sincroniza una vez al final de la tanda.
+     */
+    private void writeLoop() {
+        List<long[]> batch = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD * 256);
+        boolean stop = false;
+        while (!stop) {
+            try {
+                batch.add(pending.take());
+                pending.drainTo(batch);
+                boolean dirty = false;
+                int done = 0;
+                for (long[] command : batch) {
+                    if (command == STOP) {
+                        stop = true;
+                        break;
+                    }
+                    done++;
+                    if (command[0] == RESET) {
+                        flushRecords(buffer);
+                        gameId = command[1];
+                        writeHeader();
+                        continue;
+                    }
+                    int ply = (int) command[0];
+                    int move = (int) command[1];
+                    if (!buffer.hasRemaining()) flushRecords(buffer);
+                    if (buffer.position() == 0) recordStart = HEADER + (long) ply * RECORD;
+                    buffer.putInt(move).putShort((short) ply).putShort(check(gameId, ply, move));
+                    dirty = true;
+                }
+                flushRecords(buffer);
+                if (dirty) channel.force(false);
+                synchronized (this) {
+                    committed += done;
+                    notifyAll();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                synchronized (this) {
+                    // Desde acá append y reset no encolan nada: sin escritor la cola no se vaciaría
+                    failure = e;
+                    pending.clear();
+                    notifyAll();
+                }
+                System.out.println("Move journal disabled: " + e.getMessage());
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flushRecords(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        long offset = recordStart;
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,228 @@
+package games;
+
+import engine.Position;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Explorador de aperturas: para cada posición de las primeras jugadas de una colección, qué
+ * jugadas se hicieron, cuántas veces, con qué resultados y con qué rating promedio.
+ *
+ * Las estadísticas se calculan una sola vez con {@link #build} (en paralelo, con un
+ * {@link PairSorter} que junta las apariciones de cada posición y jugada) y se guardan en un
+ * {@link SortedHashFile} indexado por el hash de la posición. Consultar una posición es una
+ * búsqueda en el archivo mapeado: no se recorre la colección.
+ *
+ * @author angelsn
+ */
+public class OpeningExplorer implements Closeable {
+    private static final long MAGIC = 0x4348455A45580001L; // "CHEZEX" + versión
+    private static final int ENTRY = 40; // hash, jugada, partidas, +, =, -, partidas con rating, suma de ratings
+    public static final int DEFAULT_PLIES = 40;
+
+    private static final int WHITE_WINS = 0;
+    private static final int DRAW = 1;
+    private static final int BLACK_WINS = 2;
+
+    /**
+     * Estadísticas de una jugada desde una posición.
+     */
+    public static class Continuation {
+        public int move;
+        public int games;
+        public int whiteWins;
+        public int draws;
+        public int blackWins;
+        public int ratedGames;
+        public long ratingSum;
+
+        public double whitePercent() {
+            return 100.0 * whiteWins / games;
+        }
+
+        public double drawPercent() {
+            return 100.0 * draws / games;
+        }
+
+        public double blackPercent() {
+            return 100.0 * blackWins / games;
+        }
+
+        /**
+         * @return Promedio del rating de ambos jugadores, o 0 si ninguna partida tenía rating
+         */
+        public int averageRating() {
+            return ratedGames == 0 ? 0 : (int) (ratingSum / ratedGames);
+        }
+    }
+
+    private final SortedHashFile table;
+
+    private OpeningExplorer(Path file) throws IOException {
+        table = new SortedHashFile(file, MAGIC, ENTRY);
+    }
+
+    /**
+     * Abre un archivo de estadísticas creado por {@link #build}.
+     * @param file Archivo (normalmente con extensión ".exp")
+     * @return Explorador abierto
+     * @throws IOException si no existe o no tiene el formato esperado
+     */
+    public static OpeningExplorer open(Path file) throws IOException {
+        return new OpeningExplorer(file);
+    }
+
+    /**
+     * Jugadas registradas desde una posición. Se puede llamar desde varios hilos a la vez.
+     * @param hash Hash Zobrist de la posición ({@link Position#hash})
+     * @return Jugadas ordenadas de la más jugada a la menos jugada (vacía si la posición no aparece)
+     */
+    public List<Continuation> find(long hash) {
+        long first = table.first(hash);
+        long end = table.end(hash, first);
+        List<Continuation> moves = new ArrayList<>((int) (end - first));
+        for (long i = first; i < end; i++) {
+            Continuation c = new Continuation();
+            c.move = table.getInt(i, 8);
+            c.games = table.getInt(i, 12);
+            c.whiteWins = table.getInt(i, 16);
+            c.draws = table.getInt(i, 20);
+            c.blackWins = table.getInt(i, 24);
+            c.ratedGames = table.getInt(i, 28);
+            c.ratingSum = table.getLong(i, 32);
+            moves.add(c);
+        }
+        moves.sort((a, b) -> Integer.compare(b.games, a.games));
+        return moves;
+    }
+
+    @Override
+    public void close() throws IOException {
+        table.close();
+    }
+
+    /**
+     * Calcula las estadísticas de una colección. Solo cuentan las partidas terminadas (con
+     * resultado 1-0, 0-1 o 1/2-1/2).
+     * @param collection Archivo PGN (extensión ".pgn") o base de {@link GameStore} (ruta sin extensión)
+     * @param target Archivo de salida
+     * @param threads Hilos de lectura
+     * @param maxPlies Cuántas jugadas de cada partida se cuentan
+     * @param runEntries Apariciones por tramo ordenado (cada hilo usa 16 bytes por aparición)
+     * @return Número de pares posición/jugada distintos
+     * @throws IOException si falla la lectura o la escritura
+     */
+    public static long build(Path collection, Path target, int threads, int maxPlies, int runEntries) throws IOException {
+        ThreadLocal<Position> positions = ThreadLocal.withInitial(Position::new);
+        try (PairSorter sorter = new PairSorter(target, runEntries)) {
+            PgnReader.GameHandler handler = game -> {
+                if (game.isValid()) add(game, positions.get(), maxPlies, sorter);
+            };
+            if (collection.getFileName().toString().endsWith(".pgn")) {
+                new PgnReader(collection).read(threads, handler);
+            } else {
+                try (GameStore store = GameStore.open(collection)) {
+                    store.scan(threads, true, (number, game) -> handler.game(game));
+                }
+            }
+            try (SortedHashFile.Writer out = new SortedHashFile.Writer(target, MAGIC, ENTRY)) {
+                Aggregate aggregate = new Aggregate(out);
+                sorter.merge(aggregate::add);
+                aggregate.finish();
+                return out.size();
+            }
+        }
+    }
+
+    /**
+     * Cada aparición es un par (hash de la posición, jugada | resultado | rating): así el orden
+     * del {@link PairSorter} deja juntas todas las apariciones de la misma posición y jugada.
+     */
+    private static void add(PgnGame game, Position position, int maxPlies, PairSorter sorter) throws IOException {
+        int result;
+        switch (game.result) {
+            case PgnGame.RESULT_WHITE_WINS: result = WHITE_WINS; break;
+            case PgnGame.RESULT_DRAW: result = DRAW; break;
+            case PgnGame.RESULT_BLACK_WINS: result = BLACK_WINS; break;
+            default: return;
+        }
+        long rating = rating(game);
+        position.copyFrom(game.start);
+        int plies = Math.min(game.moveCount, maxPlies);
+        for (int ply = 0; ply < plies; ply++) {
+            int move = game.moves[ply];
+            sorter.add(position.hash, (long) move << 32 | result << 16 | rating);
+            position.makeMove(move);
+            position.resetHistory();
+        }
+    }
+
+    /**
+     * @return Promedio de WhiteElo y BlackElo (o el que haya), entre 0 y 65535; 0 si no hay
+     */
+    private static long rating(PgnGame game) {
+        int sum = 0, count = 0;
+        for (String tag : new String[] {"WhiteElo", "BlackElo"}) {
+            int index = game.findTag(tag);
+            if (index < 0) continue;
+            try {
+                int elo = Integer.parseInt(game.tagValue(index).trim());
+                if (elo > 0) {
+                    sum += elo;
+                    count++;
+                }
+            } catch (NumberFormatException e) {
+                // "?", "-" y similares: sin rating
+            }
+        }
+        return count == 0 ? 0 : Math.min(0xFFFF, sum / count);
+    }
+
+    /**
+     * Suma las apariciones ordenadas de cada posición y jugada y escribe una entrada por grupo.
+     */
+    private static final class Aggregate {
+        private final SortedHashFile.Writer out;
+        private boolean pending;
+        private long hash;
+        private int move;
+        private final int[] results = new int[3];
+        private int games;
+        private int ratedGames;
+        private long ratingSum;
+
+        Aggregate(SortedHashFile.Writer out) {
+            this.out = out;
+        }
+
+        void add(long key, long value) throws IOException {
+            int nextMove = (int) (value >>> 32);
+            if (!pending || key != hash || nextMove != move) {
+                finish();
+                pending = true;
+                hash = key;
+                move = nextMove;
+            }
+            games++;
+            results[(int) (value >>> 16 & 0xFFFF)]++;
+            int rating = (int) (value & 0xFFFF);
+            if (rating > 0) {
+                ratedGames++;
+                ratingSum += rating;
+            }
+        }
+
+        void finish() throws IOException {
+            if (!pending) return;
+            out.add(hash).putInt(move).putInt(games).putInt(results[WHITE_WINS]).putInt(results[DRAW])
+               .putInt(results[BLACK_WINS]).putInt(ratedGames).putLong(ratingSum);
+            pending = false;
+            games = ratedGames = 0;
+            ratingSum = 0;
+            results[WHITE_WINS] = results[DRAW] = results[BLACK_WINS] = 0;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package games;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ordenamiento externo de pares (clave, valor) de long, para construir índices más grandes que
+ * la memoria.
+ *
+ * Cada hilo que llama a {@link #add} junta pares en su propio bloque; cuando se llena, lo ordena
+ * y lo escribe como un tramo ordenado en un archivo temporal. {@link #merge} mezcla todos los
+ * tramos y entrega los pares en orden: clave sin signo y, a igual clave, valor con signo. Si hay
+ * más de {@link #MAX_FAN_IN} tramos se mezclan primero por grupos en tramos más largos, así la
+ * memoria (y los archivos abiertos) de la mezcla no crecen con el tamaño de la entrada. Los
+ * archivos temporales se borran al cerrar.
+ *
+ * @author angelsn
+ */
+public final class PairSorter implements Closeable {
+    public static final int DEFAULT_RUN_ENTRIES = 1 << 22;
+    private static final int INSERTION_SORT = 16;
+    private static final int PAIR = 16;
+    static final int MAX_FAN_IN = 64;
+
+    /**
+     * Recibe los pares ordenados.
+     */
+    @FunctionalInterface
+    public interface PairVisitor {
+        void pair(long key, long value) throws IOException;
+    }
+
+    private final Path prefix;
+    private final int runEntries;
+    private final AtomicInteger runNumber = new AtomicInteger();
+    private final List<Path> runs = new ArrayList<>();
+    private final ConcurrentLinkedQueue<RunBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<RunBuffer> local = ThreadLocal.withInitial(this::newBuffer);
+
+    /**
+     * @param prefix Ruta de los temporales (se les agrega ".runN")
+     * @param runEntries Pares por tramo (cada hilo usa 16 bytes por par)
+     */
+    public PairSorter(Path prefix, int runEntries) {
+        this.prefix = prefix;
+        this.runEntries = runEntries;
+    }
+
+    private RunBuffer newBuffer() {
+        RunBuffer buffer = new RunBuffer(runEntries);
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * Agrega un par. Se puede llamar desde varios hilos a la vez.
+     */
+    public void add(long key, long value) throws IOException {
+        local.get().add(key, value);
+    }
+
+    /**
+     * Entrega todos los pares en orden. Se llama una vez, cuando ya nadie llama a {@link #add}.
+     * @return Número de pares
+     */
+    public long merge(PairVisitor visitor) throws IOException {
+        for (RunBuffer buffer : buffers) {
+            buffer.flush();
+        }
+        List<Path> pending;
+        synchronized (runs) {
+            pending = new ArrayList<>(runs);
+        }
+        while (pending.size() > MAX_FAN_IN) {
+            List<Path> merged = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i += MAX_FAN_IN) {
+                List<Path> group = pending.subList(i, Math.min(pending.size(), i + MAX_FAN_IN));
+                Path run = newRun();
+                try (RunWriter out = new RunWriter(run)) {
+                    mergeRuns(group, out::write);
+                }
+                for (Path done : group) {
+                    Files.deleteIfExists(done);
+                }
+                merged.add(run);
+            }
+            pending = merged;
+        }
+        return mergeRuns(pending, visitor);
+    }
+
+    private static long mergeRuns(List<Path> group, PairVisitor visitor) throws IOException {
+        long total = 0;
+        PriorityQueue<RunCursor> queue = new PriorityQueue<>((a, b) -> compare(a.key, a.value, b.key, b.value));
+        List<RunCursor> cursors = new ArrayList<>();
+        try {
+            for (Path run : group) {
+                RunCursor cursor = new RunCursor(FileChannel.open(run, StandardOpenOption.READ));
+                cursors.add(cursor);
+                if (cursor.next()) queue.add(cursor);
+            }
+            while (!queue.isEmpty()) {
+                RunCursor cursor = queue.poll();
+                visitor.pair(cursor.key, cursor.value);
+                total++;
+                if (cursor.next()) queue.add(cursor);
+            }
+        } finally {
+            for (RunCursor cursor : cursors) {
+                cursor.channel.close();
+            }
+        }
+        return total;
+    }
+
+    private Path newRun() {
+        Path run = prefix.resolveSibling(prefix.getFileName() + ".run" + runNumber.getAndIncrement());
+        synchronized (runs) {
+            runs.add(run);
+        }
+        return run;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (runs) {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            runs.clear();
+        }
+    }
+
+    /**
+     * Pares de un hilo pendientes de ordenar: clave y valor intercalados.
+     */
+    private final class RunBuffer {
+        private final long[] entries;
+        private int count;
+
+        RunBuffer(int capacity) {
+            this.entries = new long[2 * capacity];
+        }
+
+        void add(long key, long value) throws IOException {
+            if (2 * count == entries.length) flush();
+            entries[2 * count] = key;
+            entries[2 * count + 1] = value;
+            count++;
+        }
+
+        void flush() throws IOException {
+            if (count == 0) return;
+            sort(entries, 0, count);
+            try (RunWriter out = new RunWriter(newRun())) {
+                for (int i = 0; i < 2 * count; i += 2) {
+                    out.write(entries[i], entries[i + 1]);
+                }
+            }
+            count = 0;
+        }
+    }
+
+    /**
+     * Escritura secuencial de un tramo.
+     */
+    private static final class RunWriter implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer block = ByteBuffer.allocate(1 << 20);
+
+        RunWriter(Path run) throws IOException {
+            channel = FileChannel.open(run, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void write(long key, long value) throws IOException {
+            if (block.remaining() < PAIR) PairSorter.write(channel, block);
+            block.putLong(key).putLong(value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (channel) {
+                PairSorter.write(channel, block);
+            }
+        }
+    }
+
+    /**
+     * Lectura secuencial de un tramo ordenado.
+     */
+    private static final class RunCursor {
+        private final FileChannel channel;
+        private final ByteBuffer block = ByteBuffer.allocate(1 << 16).limit(0);
+        long key;
+        long value;
+
+        RunCursor(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        boolean next() throws IOException {
+            if (block.remaining() < PAIR) {
+                block.compact();
+                while (block.position() < PAIR && channel.read(block) > 0) {
+                    // completar al menos un par
+                }
+                block.flip();
+                if (block.remaining() < PAIR) return false;
+            }
+            key = block.getLong();
+            value = block.getLong();
+            return true;
+        }
+    }
+
+    static void write(FileChannel out, ByteBuffer block) throws IOException {
+        block.flip();
+        while (block.hasRemaining()) {
+            out.write(block);
+        }
+        block.clear();
+    }
+
+    private static int compare(long key1, long value1, long key2, long value2) {
+        int c = Long.compareUnsigned(key1, key2);
+        return c != 0 ? c : Long.compare(value1, value2);
+    }
+
+    /**
+     * Quicksort de los pares [lo, hi) de un arreglo con clave y valor intercalados.
+     */
+    static void sort(long[] a, int lo, int hi) {
+        while (hi - lo > INSERTION_SORT) {
+            int mid = (lo + hi) >>> 1;
+            long pivotKey = a[2 * mid];
+            long pivotValue = a[2 * mid + 1];
+            int i = lo;
+            int j = hi - 1;
+            while (i <= j) {
+                while (compare(a[2 * i], a[2 * i + 1], pivotKey, pivotValue) < 0) i++;
+                while (compare(a[2 * j], a[2 * j + 1], pivotKey, pivotValue) > 0) j--;
+                if (i <= j) {
+                    swap(a, i++, j--);
+                }
+            }
+            // recursión en la parte más chica para acotar la pila
+            if (j + 1 - lo < hi - i) {
+                sort(a, lo, j + 1);
+                lo = i;
+            } else {
+                sort(a, i, hi);
+                hi = j + 1;
+            }
+        }
+        for (int i = lo + 1; i < hi; i++) {
+            for (int j = i; j > lo && compare(a[2 * j - 2], a[2 * j - 1], a[2 * j], a[2 * j + 1]) > 0; j--) {
+                swap(a, j, j - 1);
+            }
+        }
+    }
+
+    private static void swap(long[] a, int i, int j) {
+        long key = a[2 * i];
+        long value = a[2 * i + 1];
+        a[2 * i] = a[2 * j];
+        a[2 * i + 1] = a[2 * j + 1];
+        a[2 * j] = key;
+        a[2 * j + 1] = value;
+    }
+}
@@ -0,0 +1,118 @@
+package games;
+
+import engine.Position;
+import java.util.Arrays;
+
+/**
+ * Partida leída por {@link PgnReader}. El lector reutiliza el mismo objeto para todas las
+ * partidas de un hilo: las etiquetas se guardan como rangos del texto de entrada y solo se
+ * convierten a String cuando alguien las pide con {@link #tag(String)}. Por eso el objeto y sus
+ * etiquetas solo son válidos durante la llamada que lo recibe; hay que copiar lo que se quiera
+ * conservar.
+ *
+ * @author angelsn
+ */
+public class PgnGame {
+    public static final String RESULT_WHITE_WINS = "1-0";
+    public static final String RESULT_BLACK_WINS = "0-1";
+    public static final String RESULT_DRAW = "1/2-1/2";
+    public static final String RESULT_UNKNOWN = "*";
+
+    /** Posición inicial (la del tag FEN, o la normal). */
+    public final Position start = new Position();
+    /** Jugadas codificadas con {@link engine.Moves}; válidas hasta {@link #moveCount}. */
+    public int[] moves = new int[256];
+    public int moveCount;
+    /** Uno de los RESULT_*. */
+    public String result = RESULT_UNKNOWN;
+    /** Desplazamiento de la partida en el archivo. */
+    public long offset;
+    /** Descripción del error, o null si la partida se leyó completa. */
+    public String error;
+    /** Desplazamiento del error en el archivo, o -1. */
+    public long errorOffset = -1;
+
+    CharSequence source;
+    int tagCount;
+    int[] tagBounds = new int[4 * 16]; // nombre inicio/fin, valor inicio/fin
+
+    void reset(long offset) {
+        this.offset = offset;
+        moveCount = 0;
+        result = RESULT_UNKNOWN;
+        error = null;
+        errorOffset = -1;
+        tagCount = 0;
+    }
+
+    void addTag(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        if (4 * tagCount + 4 > tagBounds.length) tagBounds = Arrays.copyOf(tagBounds, tagBounds.length * 2);
+        int k = 4 * tagCount++;
+        tagBounds[k] = nameStart;
+        tagBounds[k + 1] = nameEnd;
+        tagBounds[k + 2] = valueStart;
+        tagBounds[k + 3] = valueEnd;
+    }
+
+    void addMove(int move) {
+        if (moveCount == moves.length) moves = Arrays.copyOf(moves, moves.length * 2);
+        moves[moveCount++] = move;
+    }
+
+    /**
+     * @return True si la partida se pudo reproducir completa
+     */
+    public boolean isValid() {
+        return error == null;
+    }
+
+    public int tagCount() {
+        return tagCount;
+    }
+
+    public String tagName(int index) {
+        return source.subSequence(tagBounds[4 * index], tagBounds[4 * index + 1]).toString();
+    }
+
+    /**
+     * @param index Índice de la etiqueta (en el orden del archivo)
+     * @return Valor sin comillas ni escapes
+     */
+    public String tagValue(int index) {
+        String raw = source.subSequence(tagBounds[4 * index + 2], tagBounds[4 * index + 3]).toString();
+        if (raw.indexOf('\\') < 0) return raw;
+        StringBuilder value = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c == '\\' && i + 1 < raw.length()) c = raw.charAt(++i);
+            value.append(c);
+        }
+        return value.toString();
+    }
+
+    /**
+     * Busca una etiqueta por nombre sin crear Strings intermedios.
+     * @param name Nombre de la etiqueta (ej: "White")
+     * @return Índice de la etiqueta, o -1 si no existe
+     */
+    public int findTag(String name) {
+        for (int t = 0; t < tagCount; t++) {
+            int start = tagBounds[4 * t];
+            int end = tagBounds[4 * t + 1];
+            if (end - start != name.length()) continue;
+            int i = 0;
+            while (i < name.length() && source.charAt(start + i) == name.charAt(i)) i++;
+            if (i == name.length()) return t;
+        }
+        return -1;
+    }
+
+    /**
+     * @param name Nombre de la etiqueta (ej: "White")
+     * @return Valor de la etiqueta, o null si no existe
+     */
+    public String tag(String name) {
+        int index = findTag(name);
+        return index < 0 ? null : tagValue(index);
+    }
+}
@@ -0,0 +1,404 @@
+package games;
+
+import engine.FenParser;
+import engine.Moves;
+import engine.Position;
+import engine.San;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lector de PGN para bases de datos grandes.
+ *
+ * El archivo se divide en tramos de unos 64 MB que empiezan siempre en una etiqueta "[Event ",
+ * y cada tramo se mapea en memoria y se procesa en un hilo distinto. Dentro de un tramo no se
+ * crea un String por etiqueta ni por jugada: los tokens se leen directamente de los bytes
+ * mapeados, las jugadas se interpretan y se reproducen con {@link San#play} en una
+ * {@link Position} reutilizable para comprobar que son legales.
+ *
+ * Un error (jugada ilegal, FEN inválido, resultado ausente) invalida solo esa partida: el lector
+ * la entrega con {@link PgnGame#error} y sigue con la siguiente.
+ *
+ * @author angelsn
+ */
+public class PgnReader {
+    private static final long SEGMENT_SIZE = 64L << 20;
+    private static final byte[] GAME_START = "\n[Event ".getBytes(StandardCharsets.ISO_8859_1);
+    private static final Position STANDARD_START = new Position();
+
+    static {
+        new FenParser().parseOrThrow(Position.STARTING_FEN, STANDARD_START);
+    }
+
+    /**
+     * Recibe cada partida leída. Se llama desde varios hilos a la vez, así que debe ser seguro
+     * para hilos; la partida se reutiliza después de la llamada.
+     */
+    @FunctionalInterface
+    public interface GameHandler {
+        void game(PgnGame game) throws Exception;
+    }
+
+    /**
+     * Totales de una lectura.
+     */
+    public static class Summary {
+        public long games;
+        public long invalid;
+        public long plies;
+        public long bytes;
+    }
+
+    private final Path file;
+
+    public PgnReader(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Lee todo el archivo.
+     * @param threads Hilos de lectura (con 1 las partidas llegan en el orden del archivo)
+     * @param handler Recibe cada partida, válida o no
+     * @return Totales de la lectura
+     * @throws IOException si falla la lectura o el handler lanza una excepción
+     */
+    public Summary read(int threads, GameHandler handler) throws IOException {
+        AtomicLong games = new AtomicLong();
+        AtomicLong invalid = new AtomicLong();
+        AtomicLong plies = new AtomicLong();
+        Summary summary = new Summary();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            summary.bytes = channel.size();
+            List<Long> bounds = split(channel, summary.bytes);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            ThreadLocal<SegmentParser> parsers = ThreadLocal.withInitial(SegmentParser::new);
+            try {
+                List<Future<?>> segments = new ArrayList<>();
+                for (int s = 0; s + 1 < bounds.size(); s++) {
+                    long start = bounds.get(s);
+                    long end = bounds.get(s + 1);
+                    segments.add(pool.submit(() -> {
+                        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                        SegmentParser parser = parsers.get();
+                        parser.parse(buffer, start, handler);
+                        games.addAndGet(parser.games);
+                        invalid.addAndGet(parser.invalid);
+                        plies.addAndGet(parser.plies);
+                        return null;
+                    }));
+                }
+                for (Future<?> segment : segments) {
+                    segment.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading " + file, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+                throw new IOException("Error while reading " + file, e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        summary.games = games.get();
+        summary.invalid = invalid.get();
+        summary.plies = plies.get();
+        return summary;
+    }
+
+    /**
+     * Calcula los límites de los tramos: cada uno empieza al principio del archivo o en una
+     * línea "[Event ", así ninguna partida queda partida entre dos hilos.
+     */
+    private static List<Long> split(FileChannel channel, long size) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long next = SEGMENT_SIZE;
+        while (next < size) {
+            long start = findGameStart(channel, next, size);
+            if (start >= size) break;
+            if (start - bounds.get(bounds.size() - 1) > Integer.MAX_VALUE) {
+                throw new IOException("No game boundary found in a 2 GB stretch of " + size + " bytes");
+            }
+            bounds.add(start);
+            next = start + SEGMENT_SIZE;
+        }
+        bounds.add(size);
+        return bounds;
+    }
+
+    private static long findGameStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(1 << 16);
+        long position = from - 1; // incluir el salto de línea anterior
+        while (position < size) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) break;
+            byte[] bytes = window.array();
+            for (int i = 0; i + GAME_START.length <= read; i++) {
+                int k = 0;
+                while (k < GAME_START.length && bytes[i + k] == GAME_START[k]) k++;
+                if (k == GAME_START.length) return position + i + 1;
+            }
+            if (read < GAME_START.length) break;
+            position += read - GAME_START.length + 1;
+        }
+        return size;
+    }
+
+    /**
+     * Estado de lectura de un hilo: todo se reutiliza entre partidas y entre tramos.
+     */
+    private static final class SegmentParser {
+        private static final String ILLEGAL_MOVE = "Illegal or ambiguous move";
+        private static final String BAD_FEN = "Invalid FEN tag";
+        private static final String BAD_TAG = "Malformed tag";
+        private static final String NO_RESULT = "Missing game result";
+
+        private final BufferChars text = new BufferChars();
+        private final PgnGame game = new PgnGame();
+        private final Position position = new Position();
+        private final FenParser fenParser = new FenParser();
+        private final int[] scratch = new int[Position.MAX_MOVES];
+        private long base;
+        private GameHandler handler;
+        private boolean inGame;
+        private boolean inMovetext;
+        long games;
+        long invalid;
+        long plies;
+
+        void parse(ByteBuffer buffer, long base, GameHandler handler) throws Exception {
+            this.base = base;
+            this.handler = handler;
+            text.reset(buffer);
+            game.source = text;
+            games = invalid = plies = 0;
+            inGame = inMovetext = false;
+
+            int n = text.length();
+            int i = 0;
+            while (true) {
+                i = skipSpaces(i, n);
+                if (i >= n) break;
+                char c = text.charAt(i);
+                if (c == '[') {
+                    if (inMovetext) finishGame(NO_RESULT, i);
+                    if (!inGame) startGame(i);
+                    i = parseTag(i, n);
+                    continue;
+                }
+                if (!inGame) startGame(i);
+                if (!inMovetext) startMovetext();
+                switch (c) {
+                    case '{': i = skipPast('}', i, n); break;
+                    case ';': case '%': i = skipPast('\n', i, n); break;
+                    case '(': i = skipVariation(i, n); break;
+                    case ')': case '}': i++; break;
+                    default:
+                        int end = tokenEnd(i, n);
+                        if (c != '$') token(i, end);
+                        i = end;
+                }
+            }
+            if (inGame) finishGame(NO_RESULT, n);
+        }
+
+        private void startGame(int at) {
+            game.reset(base + at);
+            inGame = true;
+            inMovetext = false;
+        }
+
+        private void startMovetext() {
+            inMovetext = true;
+            int fen = game.findTag("FEN");
+            if (fen < 0) {
+                game.start.copyFrom(STANDARD_START);
+            } else {
+                int start = game.tagBounds[4 * fen + 2];
+                int end = game.tagBounds[4 * fen + 3];
+                if (fenParser.parse(text, start, end, game.start) != FenParser.OK) {
+                    fail(BAD_FEN, fenParser.errorOffset());
+                    game.start.copyFrom(STANDARD_START);
+                }
+            }
+            position.copyFrom(game.start);
+        }
+
+        private void finishGame(String error, int at) throws Exception {
+            if (error != null && game.error == null) fail(error, at);
+            games++;
+            plies += game.moveCount;
+            if (game.error != null) invalid++;
+            handler.game(game);
+            inGame = false;
+            inMovetext = false;
+        }
+
+        private void fail(String message, int at) {
+            if (game.error == null) {
+                game.error = message;
+                game.errorOffset = base + at;
+            }
+        }
+
+        private void token(int start, int end) throws Exception {
+            String result = result(start, end);
+            if (result != null) {
+                game.result = result;
+                finishGame(null, start);
+                return;
+            }
+            if (game.error != null) return;
+
+            // Número de jugada ("12.", "12...", "12.e4"). Solo lo es si sigue un punto: "0-0" y
+            // "0-0-0" también empiezan con dígitos y son enroques
+            int i = start;
+            while (i < end && Character.isDigit(text.charAt(i))) i++;
+            if (i == end) return;
+            if (i > start && text.charAt(i) != '.') i = start;
+            while (i < end && text.charAt(i) == '.') i++;
+            if (i == end) return;
+
+            int move = San.play(position, text, i, end, scratch);
+            if (move == Moves.NONE) {
+                fail(ILLEGAL_MOVE, i);
+                return;
+            }
+            game.addMove(move);
+            // No se necesitan repeticiones: basta con que la pila interna no crezca
+            position.resetHistory();
+        }
+
+        private String result(int start, int end) {
+            int length = end - start;
+            char first = text.charAt(start);
+            if (length == 1 && first == '*') return PgnGame.RESULT_UNKNOWN;
+            if (length == 3 && text.charAt(start + 1) == '-') {
+                if (first == '1' && text.charAt(start + 2) == '0') return PgnGame.RESULT_WHITE_WINS;
+                if (first == '0' && text.charAt(start + 2) == '1') return PgnGame.RESULT_BLACK_WINS;
+            }
+            if (length == 7 && first == '1' && text.charAt(start + 1) == '/' && text.charAt(start + 3) == '-'
+                    && text.charAt(start + 4) == '1') {
+                return PgnGame.RESULT_DRAW;
+            }
+            return null;
+        }
+
+        private int parseTag(int i, int n) {
+            int lineEnd = skipPast('\n', i, n);
+            int j = skipSpaces(i + 1, lineEnd);
+            int nameStart = j;
+            while (j < lineEnd && !isSpace(text.charAt(j)) && text.charAt(j) != '"' && text.charAt(j) != ']') j++;
+            int nameEnd = j;
+            j = skipSpaces(j, lineEnd);
+            if (nameEnd == nameStart || j >= lineEnd || text.charAt(j) != '"') {
+                fail(BAD_TAG, i);
+                return lineEnd;
+            }
+            int valueStart = ++j;
+            while (j < lineEnd && text.charAt(j) != '"') {
+                if (text.charAt(j) == '\\') j++;
+                j++;
+            }
+            if (j >= lineEnd) {
+                fail(BAD_TAG, i);
+                return lineEnd;
+            }
+            game.addTag(nameStart, nameEnd, valueStart, j);
+            return lineEnd;
+        }
+
+        private int skipVariation(int i, int n) {
+            int depth = 0;
+            while (i < n) {
+                char c = text.charAt(i);
+                if (c == '{') {
+                    i = skipPast('}', i, n);
+                    continue;
+                }
+                if (c == ';') {
+                    i = skipPast('\n', i, n);
+                    continue;
+                }
+                i++;
+                if (c == '(') depth++;
+                else if (c == ')' && --depth == 0) break;
+            }
+            return i;
+        }
+
+        private int tokenEnd(int i, int n) {
+            i++;
+            while (i < n) {
+                char c = text.charAt(i);
+                if (isSpace(c) || c == '{' || c == '}' || c == '(' || c == ')' || c == ';' || c == '[') break;
+                i++;
+            }
+            return i;
+        }
+
+        private int skipPast(char target, int i, int n) {
+            while (i < n && text.charAt(i) != target) i++;
+            return Math.min(n, i + 1);
+        }
+
+        private int skipSpaces(int i, int n) {
+            while (i < n && isSpace(text.charAt(i))) i++;
+            return i;
+        }
+
+        private static boolean isSpace(char c) {
+            return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+        }
+    }
+
+    /**
+     * Tramo mapeado visto como CharSequence de un byte por carácter. Solo {@link #subSequence}
+     * (usado para los valores de las etiquetas) decodifica UTF-8.
+     */
+    private static final class BufferChars implements CharSequence {
+        private ByteBuffer buffer;
+        private int length;
+
+        void reset(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.length = buffer.limit();
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length).toString();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package games;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escritura de partidas en formato PGN (Portable Game Notation).
+ *
+ * @author angelsn
+ */
+public final class PgnWriter {
+    private static final int LINE_WIDTH = 80;
+
+    private PgnWriter() {
+    }
+
+    /**
+     * Escribe una partida completa: etiquetas, jugadas numeradas y resultado.
+     * @param out Destino
+     * @param tags Etiquetas en el orden en que se escriben (Event, Site, ... )
+     * @param sanMoves Jugadas en SAN
+     * @param comments Comentario por jugada (puede ser null, o tener elementos null)
+     * @param startFullmove Número de jugada de la posición inicial
+     * @param whiteStarts True si la primera jugada es de las blancas
+     * @param result Resultado ("1-0", "0-1", "1/2-1/2" o "*")
+     * @throws IOException si falla la escritura
+     */
+    public static void writeGame(Appendable out, Map<String, String> tags, List<String> sanMoves,
+            List<String> comments, int startFullmove, boolean whiteStarts, String result) throws IOException {
+        StringBuilder sb = new StringBuilder(256 + sanMoves.size() * 8);
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            sb.append('[').append(tag.getKey()).append(" \"")
+              .append(tag.getValue().replace("\\", "\\\\").replace("\"", "\\\"")).append("\"]\n");
+        }
+        sb.append('\n');
+
+        int lineStart = sb.length();
+        int fullmove = startFullmove;
+        boolean white = whiteStarts;
+        for (int i = 0; i < sanMoves.size(); i++) {
+            StringBuilder token = new StringBuilder();
+            if (white) {
+                token.append(fullmove).append(". ");
+            } else if (i == 0) {
+                token.append(fullmove).append("... ");
+            }
+            token.append(sanMoves.get(i));
+            if (comments != null && i < comments.size() && comments.get(i) != null) {
+                token.append(" {").append(comments.get(i)).append('}');
+            }
+            lineStart = appendToken(sb, token, lineStart);
+            if (!white) fullmove++;
+            white = !white;
+        }
+        appendToken(sb, result, lineStart);
+        sb.append("\n\n");
+        out.append(sb);
+    }
+
+    private static int appendToken(StringBuilder sb, CharSequence token, int lineStart) {
+        if (sb.length() > lineStart && sb.length() - lineStart + 1 + token.length() > LINE_WIDTH) {
+            sb.append('\n');
+            lineStart = sb.length();
+        } else if (sb.length() > lineStart) {
+            sb.append(' ');
+        }
+        sb.append(token);
+        return lineStart;
+    }
+}
@@ -0,0 +1,119 @@
+package games;
+
+import engine.Position;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Índice de posiciones de una {@link GameStore}: para cada hash Zobrist de una posición, en qué
+ * partidas y en qué ply apareció.
+ *
+ * El archivo (".pos" junto a la base) es un {@link SortedHashFile} con entradas de 16 bytes
+ * (hash, y partida y ply en un long). Se mapea en memoria, así que una consulta es una búsqueda
+ * binaria dentro de una cubeta sin cargar el índice en el heap.
+ *
+ * La construcción recorre la base en paralelo y ordena las entradas con un {@link PairSorter}
+ * (tramos ordenados en archivos temporales, mezclados al final).
+ *
+ * @author angelsn
+ */
+public class PositionIndex implements Closeable {
+    private static final long MAGIC = 0x4348455A504F0001L; // "CHEZPO" + versión
+    private static final int ENTRY = 16;
+
+    private final SortedHashFile table;
+
+    private PositionIndex(Path file) throws IOException {
+        table = new SortedHashFile(file, MAGIC, ENTRY);
+    }
+
+    /**
+     * Abre el índice de una base.
+     * @param base Ruta de la base sin extensión (el índice es base.pos)
+     * @return Índice abierto
+     * @throws IOException si no existe o no tiene el formato esperado
+     */
+    public static PositionIndex open(Path base) throws IOException {
+        return new PositionIndex(file(base));
+    }
+
+    static Path file(Path base) {
+        return GameStore.file(base, ".pos");
+    }
+
+    /**
+     * @return Número de entradas (posiciones de todas las partidas, contando la inicial)
+     */
+    public long size() {
+        return table.size();
+    }
+
+    /**
+     * Busca las apariciones de una posición. Se puede llamar desde varios hilos a la vez.
+     * @param hash Hash Zobrist de la posición ({@link Position#hash})
+     * @param out Destino de las apariciones (usar {@link #gameOf} y {@link #plyOf}); se
+     *            llena hasta su longitud
+     * @return Número total de apariciones, que puede ser mayor que out.length
+     */
+    public long find(long hash, long[] out) {
+        long first = table.first(hash);
+        long end = table.end(hash, first);
+        int n = (int) Math.min(out.length, end - first);
+        for (int i = 0; i < n; i++) {
+            out[i] = table.getLong(first + i, 8);
+        }
+        return end - first;
+    }
+
+    /**
+     * @return Número de partida de una aparición devuelta por {@link #find}
+     */
+    public static long gameOf(long occurrence) {
+        return occurrence >>> 16;
+    }
+
+    /**
+     * @return Ply (0 = posición inicial de la partida) de una aparición devuelta por {@link #find}
+     */
+    public static int plyOf(long occurrence) {
+        return (int) (occurrence & 0xFFFF);
+    }
+
+    @Override
+    public void close() throws IOException {
+        table.close();
+    }
+
+    /**
+     * Construye (o reconstruye) el índice de una base.
+     * @param base Ruta de la base sin extensión
+     * @param threads Hilos para recorrer las partidas
+     * @param runEntries Entradas por tramo ordenado (cada hilo usa 16 bytes por entrada)
+     * @return Número de entradas del índice
+     * @throws IOException si falla la lectura de la base o la escritura del índice
+     */
+    public static long build(Path base, int threads, int runEntries) throws IOException {
+        Path target = file(base);
+        ThreadLocal<Position> positions = ThreadLocal.withInitial(Position::new);
+        try (PairSorter sorter = new PairSorter(target, runEntries)) {
+            try (GameStore store = GameStore.open(base)) {
+                store.scan(threads, false, (number, game) -> {
+                    Position position = positions.get();
+                    position.copyFrom(game.start);
+                    sorter.add(position.hash, number << 16);
+                    int plies = Math.min(game.moveCount, 0xFFFF);
+                    for (int ply = 0; ply < plies; ply++) {
+                        position.makeMove(game.moves[ply]);
+                        position.resetHistory();
+                        sorter.add(position.hash, number << 16 | (ply + 1));
+                    }
+                });
+            }
+            try (SortedHashFile.Writer out = new SortedHashFile.Writer(target, MAGIC, ENTRY)) {
+                sorter.merge((hash, occurrence) -> out.add(hash).putLong(occurrence));
+                return out.size();
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package games;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Archivo de entradas de tamaño fijo ordenadas por un hash de 64 bits (sin signo) que empieza
+ * cada entrada. Lo usan {@link PositionIndex} y {@link OpeningExplorer}.
+ *
+ * Formato: número mágico, número de entradas, una tabla de 65536 cubetas con la primera entrada
+ * de cada valor de los 16 bits altos del hash, y las entradas. Se lee mapeado en memoria (en
+ * trozos de menos de 2 GB), así que buscar un hash es una búsqueda binaria dentro de su cubeta y
+ * solo la tabla de cubetas ocupa heap.
+ *
+ * @author angelsn
+ */
+final class SortedHashFile implements Closeable {
+    private static final int BUCKET_BITS = 16;
+    private static final int BUCKETS = 1 << BUCKET_BITS;
+    private static final long DATA_OFFSET = 16 + 8L * (BUCKETS + 1);
+    private static final long MAX_CHUNK = 1L << 30;
+
+    private final FileChannel channel;
+    private final long[] buckets = new long[BUCKETS + 1];
+    private final MappedByteBuffer[] chunks;
+    private final int entrySize;
+    private final long chunkEntries;
+    private final long size;
+
+    SortedHashFile(Path file, long magic, int entrySize) throws IOException {
+        this.entrySize = entrySize;
+        this.chunkEntries = MAX_CHUNK / entrySize;
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate((int) DATA_OFFSET);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // leer la cabecera completa
+        }
+        if (header.hasRemaining() || header.getLong(0) != magic) {
+            channel.close();
+            throw new IOException("Unexpected file format: " + file);
+        }
+        size = header.getLong(8);
+        header.position(16);
+        header.asLongBuffer().get(buckets);
+
+        chunks = new MappedByteBuffer[(int) ((size + chunkEntries - 1) / chunkEntries)];
+        for (int c = 0; c < chunks.length; c++) {
+            long first = c * chunkEntries;
+            long entries = Math.min(chunkEntries, size - first);
+            chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, DATA_OFFSET + first * entrySize, entries * entrySize);
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * @return Primera entrada con ese hash (o donde iría si no hay ninguna)
+     */
+    long first(long hash) {
+        int bucket = (int) (hash >>> (64 - BUCKET_BITS));
+        return lowerBound(hash, buckets[bucket], buckets[bucket + 1]);
+    }
+
+    /**
+     * @return Entrada siguiente a la última con ese hash
+     */
+    long end(long hash, long first) {
+        long bucketEnd = buckets[(int) (hash >>> (64 - BUCKET_BITS)) + 1];
+        return hash == -1 ? bucketEnd : lowerBound(hash + 1, first, bucketEnd);
+    }
+
+    private long lowerBound(long hash, long lo, long hi) {
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(getLong(mid, 0), hash) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    long getLong(long entry, int offset) {
+        return chunks[(int) (entry / chunkEntries)].getLong((int) (entry % chunkEntries) * entrySize + offset);
+    }
+
+    int getInt(long entry, int offset) {
+        return chunks[(int) (entry / chunkEntries)].getInt((int) (entry % chunkEntries) * entrySize + offset);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Escritura de un archivo nuevo. Las entradas deben llegar ordenadas por hash.
+     */
+    static final class Writer implements Closeable {
+        private final FileChannel out;
+        private final long magic;
+        private final int entrySize;
+        private final long[] bucketCounts = new long[BUCKETS];
+        private final ByteBuffer block = ByteBuffer.allocate(1 << 20);
+        private long total;
+
+        Writer(Path file, long magic, int entrySize) throws IOException {
+            this.out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.magic = magic;
+            this.entrySize = entrySize;
+            out.position(DATA_OFFSET);
+        }
+
+        /**
+         * Empieza una entrada y escribe su hash.
+         * @return Buffer donde escribir los entrySize - 8 bytes restantes
+         */
+        ByteBuffer add(long hash) throws IOException {
+            if (block.remaining() < entrySize) PairSorter.write(out, block);
+            bucketCounts[(int) (hash >>> (64 - BUCKET_BITS))]++;
+            total++;
+            return block.putLong(hash);
+        }
+
+        long size() {
+            return total;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (out) {
+                PairSorter.write(out, block);
+                ByteBuffer header = ByteBuffer.allocate((int) DATA_OFFSET);
+                header.putLong(magic).putLong(total);
+                long start = 0;
+                for (int b = 0; b < BUCKETS; b++) {
+                    header.putLong(start);
+                    start += bucketCounts[b];
+                }
+                header.putLong(start);
+                header.flip();
+                long position = 0;
+                while (header.hasRemaining()) {
+                    position += out.write(header, position);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package games;
+
+import engine.Engine;
+import engine.Evaluator;
+import engine.Position;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Datos de entrenamiento: posiciones de una colección de partidas con la puntuación del motor y
+ * el resultado de la partida, en un archivo de registros de {@link #RECORD} bytes.
+ *
+ * Formato de cada registro (big-endian):
+ * <pre>
+ *  0-31  casillas, dos por byte (casilla par en los 4 bits bajos), pieza + {@link Position#KING}
+ *  32    bit 0: mueven las blancas; bits 1-4: derechos de enroque
+ *  33    casilla de en passant + 1 (0 = ninguna)
+ *  34    regla de 50 jugadas (hasta 255)
+ *  35    resultado de la partida: {@link #BLACK_WINS}, {@link #DRAW} o {@link #WHITE_WINS}
+ *  36-37 puntuación en centipeones desde el punto de vista del bando que mueve
+ *  38-39 número de jugada (sin signo)
+ * </pre>
+ *
+ * {@link #build} trabaja en tres pasadas para no depender de la memoria:
+ * <ol>
+ * <li>Lee las partidas en paralelo y escribe cada posición candidata (sin puntuación) en un
+ *     archivo temporal por hilo; para quitar repetidas junta pares (hash, índice del candidato)
+ *     en un {@link PairSorter}.</li>
+ * <li>Mezcla los pares: de cada hash queda el primer índice, y los índices que quedan se
+ *     vuelven a ordenar para leer los temporales de corrido.</li>
+ * <li>Lee los candidatos que quedaron, los puntúa en un pool y cada hilo escribe sus registros
+ *     al archivo final en bloques.</li>
+ * </ol>
+ *
+ * @author angelsn
+ */
+public final class TrainingData {
+    public static final int RECORD = 40;
+    public static final int BLACK_WINS = 0;
+    public static final int DRAW = 1;
+    public static final int WHITE_WINS = 2;
+
+    private static final int BLOCK = 1 << 20;
+    private static final int BATCH = 1024; // registros por tarea de puntuación
+    private static final int LOCAL_BITS = 40; // índice de un candidato: archivo << 40 | número en el archivo
+
+    /**
+     * Qué posiciones se exportan y cómo se puntúan.
+     */
+    public static class Options {
+        /** Nodos de búsqueda por posición; 0 = solo búsqueda de quietud (mucho más rápido). */
+        public long nodes;
+        public int threads = Runtime.getRuntime().availableProcessors();
+        public int hashMegabytes = 1;
+        /** Jugadas del principio de cada partida que no se exportan. */
+        public int minPly;
+        /** Omitir las posiciones en jaque. */
+        public boolean skipCheck;
+        /** Omitir las posiciones con capturas pendientes (la quietud cambia la evaluación estática). */
+        public boolean quiet;
+        /** Exportar cada posición una sola vez aunque aparezca en varias partidas. */
+        public boolean dedup = true;
+        public int runEntries = PairSorter.DEFAULT_RUN_ENTRIES;
+    }
+
+    /**
+     * Totales de una exportación.
+     */
+    public static class Stats {
+        public final AtomicLong games = new AtomicLong();
+        public final AtomicLong skippedGames = new AtomicLong();
+        public final AtomicLong candidates = new AtomicLong();
+        public final AtomicLong inCheck = new AtomicLong();
+        public long duplicates;
+        public final AtomicLong noisy = new AtomicLong();
+        public final AtomicLong written = new AtomicLong();
+        public final AtomicLong nodes = new AtomicLong();
+    }
+
+    private TrainingData() {
+    }
+
+    /**
+     * Agrega un registro en la posición actual del buffer.
+     * @param pos Posición
+     * @param result Resultado de la partida ({@link #WHITE_WINS}, {@link #DRAW} o {@link #BLACK_WINS})
+     * @param score Puntuación desde el punto de vista del bando que mueve
+     */
+    public static void encode(Position pos, int result, int score, ByteBuffer out) {
+        for (int sq = 0; sq < 64; sq += 2) {
+            out.put((byte) ((pos.squares[sq] + Position.KING) | (pos.squares[sq + 1] + Position.KING) << 4));
+        }
+        out.put((byte) ((pos.whiteToMove ? 1 : 0) | pos.castlingRights << 1));
+        out.put((byte) (pos.enPassantTile + 1));
+        out.put((byte) Math.min(255, pos.halfmoveClock));
+        out.put((byte) result);
+        out.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, score)));
+        out.putChar((char) Math.min(0xFFFF, pos.fullmoveNumber));
+    }
+
+    /**
+     * Lee la posición de un registro.
+     * @param in Buffer con el registro (no cambia su posición)
+     * @param offset Inicio del registro en el buffer
+     * @param target Posición destino (se sobrescribe; su historia para repeticiones queda vacía)
+     */
+    public static void decode(ByteBuffer in, int offset, Position target) {
+        target.clear();
+        for (int i = 0; i < 32; i++) {
+            int pair = in.get(offset + i) & 0xFF;
+            int low = (pair & 0xF) - Position.KING;
+            int high = (pair >>> 4) - Position.KING;
+            if (low != Position.EMPTY) target.setPiece(2 * i, low);
+            if (high != Position.EMPTY) target.setPiece(2 * i + 1, high);
+        }
+        int flags = in.get(offset + 32);
+        target.whiteToMove = (flags & 1) != 0;
+        target.castlingRights = flags >>> 1 & 0xF;
+        target.enPassantTile = (in.get(offset + 33) & 0xFF) - 1;
+        target.halfmoveClock = in.get(offset + 34) & 0xFF;
+        target.fullmoveNumber = in.getChar(offset + 38);
+        target.refreshHash();
+    }
+
+    /**
+     * @return Resultado de la partida del registro ({@link #WHITE_WINS}, {@link #DRAW} o {@link #BLACK_WINS})
+     */
+    public static int result(ByteBuffer in, int offset) {
+        return in.get(offset + 35);
+    }
+
+    /**
+     * @return Puntuación del registro desde el punto de vista del bando que mueve
+     */
+    public static int score(ByteBuffer in, int offset) {
+        return in.getShort(offset + 36);
+    }
+
+    /**
+     * Exporta las posiciones de una colección. Solo cuentan las partidas terminadas; nunca se
+     * exporta una posición sin jugadas legales.
+     * @param collection Archivo PGN (extensión ".pgn") o base de {@link GameStore} (ruta sin extensión)
+     * @param target Archivo de salida (los temporales se crean a su lado y se borran al terminar)
+     * @param options Filtros y puntuación
+     * @return Totales
+     * @throws IOException si falla la lectura o la escritura
+     */
+    public static Stats build(Path collection, Path target, Options options) throws IOException {
+        Stats stats = new Stats();
+        List<CandidateFile> files = new ArrayList<>();
+        try (PairSorter kept = options.dedup ? new PairSorter(target.resolveSibling(target.getFileName() + ".kept"),
+                options.runEntries) : null) {
+            // Los tramos de los hashes solo hacen falta hasta quitar los duplicados
+            try (PairSorter sorter = options.dedup ? new PairSorter(target, options.runEntries) : null) {
+                ThreadLocal<Position> positions = ThreadLocal.withInitial(Position::new);
+                ThreadLocal<CandidateFile> local = ThreadLocal.withInitial(() -> {
+                    synchronized (files) {
+                        CandidateFile file = new CandidateFile(target, files.size());
+                        files.add(file);
+                        return file;
+                    }
+                });
+                PgnReader.GameHandler handler = game ->
+                        addCandidates(game, positions.get(), local.get(), sorter, options, stats);
+                if (collection.getFileName().toString().endsWith(".pgn")) {
+                    new PgnReader(collection).read(options.threads, handler);
+                } else {
+                    try (GameStore store = GameStore.open(collection)) {
+                        store.scan(options.threads, false, (number, game) -> handler.game(game));
+                    }
+                }
+                for (CandidateFile file : files) {
+                    file.finish();
+                }
+
+                if (sorter != null) {
+                    long[] last = {0};
+                    boolean[] first = {true};
+                    sorter.merge((hash, index) -> {
+                        if (!first[0] && hash == last[0]) {
+                            stats.duplicates++;
+                            return;
+                        }
+                        first[0] = false;
+                        last[0] = hash;
+                        kept.add(index, 0);
+                    });
+                }
+            }
+
+            try (Scorer scorer = new Scorer(target, files, options, stats)) {
+                if (kept == null) {
+                    for (CandidateFile file : files) {
+                        for (long i = 0; i < file.count; i++) {
+                            scorer.keep((long) file.id << LOCAL_BITS | i);
+                        }
+                    }
+                } else {
+                    kept.merge((index, unused) -> scorer.keep(index));
+                }
+            }
+        } finally {
+            for (CandidateFile file : files) {
+                file.delete();
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Escribe las posiciones de una partida que pasan los filtros baratos (los que no necesitan
+     * buscar) como candidatas.
+     */
+    private static void addCandidates(PgnGame game, Position position, CandidateFile file, PairSorter sorter,
+            Options options, Stats stats) throws IOException {
+        int result;
+        if (!game.isValid()) {
+            stats.skippedGames.incrementAndGet();
+            return;
+        }
+        switch (game.result) {
+            case PgnGame.RESULT_WHITE_WINS: result = WHITE_WINS; break;
+            case PgnGame.RESULT_DRAW: result = DRAW; break;
+            case PgnGame.RESULT_BLACK_WINS: result = BLACK_WINS; break;
+            default:
+                stats.skippedGames.incrementAndGet();
+                return;
+        }
+        stats.games.incrementAndGet();
+        position.copyFrom(game.start);
+        for (int ply = 0; ply <= game.moveCount; ply++) {
+            // Solo la última posición de una partida puede no tener jugadas (mate o ahogado)
+            boolean terminal = ply == game.moveCount && position.generateLegalMoves(file.moves) == 0;
+            if (ply >= options.minPly && !terminal) {
+                if (options.skipCheck && position.isInCheck()) {
+                    stats.inCheck.incrementAndGet();
+                } else {
+                    long index = file.add(position, result);
+                    stats.candidates.incrementAndGet();
+                    if (sorter != null) sorter.add(position.hash, index);
+                }
+            }
+            if (ply < game.moveCount) {
+                position.makeMove(game.moves[ply]);
+                position.resetHistory();
+            }
+        }
+    }
+
+    /**
+     * Candidatos de un hilo de lectura: registros con la puntuación en 0, escritos de corrido.
+     */
+    private static final class CandidateFile {
+        final int id;
+        final Path path;
+        final FileChannel channel;
+        final ByteBuffer block = ByteBuffer.allocate(BLOCK);
+        final int[] moves = new int[Position.MAX_MOVES];
+        long count;
+
+        CandidateFile(Path target, int id) {
+            this.id = id;
+            this.path = target.resolveSibling(target.getFileName() + ".cand" + id);
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (IOException e) {
+                throw new IllegalStateException("Can't create " + path + ": " + e.getMessage(), e);
+            }
+        }
+
+        long add(Position position, int result) throws IOException {
+            if (block.remaining() < RECORD) PairSorter.write(channel, block);
+            encode(position, result, 0, block);
+            return (long) id << LOCAL_BITS | count++;
+        }
+
+        void finish() throws IOException {
+            PairSorter.write(channel, block);
+        }
+
+        void delete() throws IOException {
+            channel.close();
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Tercera pasada: recibe los índices de los candidatos que quedan en orden creciente, los lee
+     * en tandas y los puntúa en un pool. Si el pool está lleno, el hilo que lee puntúa la tanda
+     * él mismo, así nunca hay más de unas pocas tandas en memoria.
+     */
+    private static final class Scorer implements Closeable {
+        private final List<CandidateFile> files;
+        private final Options options;
+        private final Stats stats;
+        private final FileChannel out;
+        private final ThreadPoolExecutor pool;
+        private final ThreadLocal<Worker> workers;
+        private final ConcurrentLinkedQueue<Worker> allWorkers = new ConcurrentLinkedQueue<>();
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private final ByteBuffer read = ByteBuffer.allocate(BLOCK);
+        private CandidateFile current;
+        private long readStart; // posición en el archivo del primer byte de read
+        private byte[] batch = new byte[BATCH * RECORD];
+        private int batchCount;
+
+        Scorer(Path target, List<CandidateFile> files, Options options, Stats stats) throws IOException {
+            this.files = files;
+            this.options = options;
+            this.stats = stats;
+            this.out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.pool = new ThreadPoolExecutor(options.threads, options.threads, 0, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(2 * options.threads), new ThreadPoolExecutor.CallerRunsPolicy());
+            this.workers = ThreadLocal.withInitial(() -> {
+                Worker worker = new Worker(options);
+                allWorkers.add(worker);
+                return worker;
+            });
+        }
+
+        void keep(long index) throws IOException {
+            CandidateFile file = files.get((int) (index >>> LOCAL_BITS));
+            long offset = (index & ((1L << LOCAL_BITS) - 1)) * RECORD;
+            if (file != current || offset < readStart || offset + RECORD > readStart + read.limit()) {
+                current = file;
+                readStart = offset;
+                read.clear();
+                while (read.hasRemaining() && file.channel.read(read, readStart + read.position()) > 0) {
+                    // llenar el bloque
+                }
+                read.flip();
+            }
+            read.get((int) (offset - readStart), batch, batchCount * RECORD, RECORD);
+            if (++batchCount == BATCH) submit();
+        }
+
+        private void submit() throws IOException {
+            if (failure.get() != null) throw new IOException("Error while scoring positions", failure.get());
+            byte[] records = batch;
+            int count = batchCount;
+            pool.execute(() -> {
+                try {
+                    workers.get().score(records, count, this);
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            batch = new byte[BATCH * RECORD];
+            batchCount = 0;
+        }
+
+        void write(ByteBuffer block) throws IOException {
+            synchronized (out) {
+                PairSorter.write(out, block);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (batchCount > 0) submit();
+                pool.shutdown();
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+                for (Worker worker : allWorkers) {
+                    write(worker.block);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while scoring positions", e);
+            } finally {
+                pool.shutdownNow();
+                out.close();
+            }
+            if (failure.get() != null) throw new IOException("Error while scoring positions", failure.get());
+        }
+    }
+
+    /**
+     * Motor y buffers de un hilo de puntuación.
+     */
+    private static final class Worker {
+        final Engine engine;
+        final Evaluator evaluator;
+        final Search quiescence;
+        final SearchLimits limits;
+        final Position position = new Position();
+        final ByteBuffer block = ByteBuffer.allocate(BLOCK);
+
+        Worker(Options options) {
+            engine = new Engine(options.hashMegabytes, 1);
+            evaluator = engine.evaluator();
+            quiescence = new Search(engine.transpositionTable(), evaluator, new AtomicBoolean(), false);
+            limits = options.nodes > 0 ? SearchLimits.nodes(options.nodes) : null;
+        }
+
+        void score(byte[] records, int count, Scorer scorer) throws IOException {
+            ByteBuffer in = ByteBuffer.wrap(records);
+            Stats stats = scorer.stats;
+            for (int i = 0; i < count; i++) {
+                int offset = i * RECORD;
+                decode(in, offset, position);
+                int quiet = quiescence.quiescence(position);
+                if (scorer.options.quiet && quiet != evaluator.evaluate(position)) {
+                    stats.noisy.incrementAndGet();
+                    continue;
+                }
+                int score = quiet;
+                if (limits != null) {
+                    SearchResult result = engine.search(position, limits, null);
+                    score = result.score;
+                    stats.nodes.addAndGet(result.nodes);
+                }
+                in.putShort(offset + 36, (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, score)));
+                if (block.remaining() < RECORD) scorer.write(block);
+                block.put(records, offset, RECORD);
+                stats.written.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package main;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.GridLayout;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import javax.swing.BorderFactory;
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextArea;
+import javax.swing.SwingConstants;
+import javax.swing.Timer;
+
+import engine.AnalysisCache;
+import engine.Engine;
+import engine.MateSolver;
+import engine.Position;
+import engine.San;
+import engine.SearchLimits;
+import engine.SearchResult;
+import utils.FontLoader;
+
+/**
+ * Panel de análisis que evalúa continuamente la posición actual en un hilo de fondo.
+ * Muestra evaluación, profundidad, nodos por segundo y la mejor línea.
+ *
+ * El motor usa todos los núcleos menos uno (el del EDT). Los resultados no se envían al EDT
+ * uno por uno: un Timer de Swing lee el último resultado unas pocas veces por segundo, así
+ * la interfaz no se satura aunque la búsqueda produzca iteraciones muy rápido.
+ *
+ * Cada iteración se guarda en la {@link AnalysisCache} de la interfaz: al volver a una posición
+ * ya analizada (en esta sesión o en otra) se muestra enseguida lo guardado, hasta que la búsqueda
+ * nueva llega a la misma profundidad.
+ *
+ * Otro hilo busca mates forzados cortos con {@link MateSolver} en cada posición y, si encuentra
+ * uno, lo avisa con la línea del mate, aunque el motor todavía no lo haya visto.
+ *
+ * @author angelsn
+ */
+public class AnalysisPanel extends JPanel {
+    private static final Color BACKGROUND_COLOR = new Color(41, 41, 50);
+    private static final Color PANEL_COLOR = new Color(51, 51, 60);
+    private static final Color TEXT_COLOR = new Color(250, 255, 224);
+    private static final int PADDING = 10;
+    private static final int REFRESH_MS = 100;
+    private static final int MATE_MOVES = 5;
+    private static final long MATE_NODES = 1_000_000;
+
+    private static Font TITLE_FONT;
+    private static Font TEXT_FONT;
+
+    static {
+        try {
+            TITLE_FONT = FontLoader.loadFont(26f);
+            TEXT_FONT = FontLoader.loadFont(18f);
+        } catch (IOException e) {
+            TITLE_FONT = new Font("Century Gothic", Font.BOLD, 26);
+            TEXT_FONT = new Font("Century Gothic", Font.PLAIN, 18);
+        }
+    }
+
+    private final Engine engine;
+    private final AnalysisCache cache = AnalysisCache.getInstance();
+    private final Thread worker;
+    private final MateSolver mateSolver = new MateSolver();
+    private final Thread mateWorker;
+    private final AtomicReference<String> mateText = new AtomicReference<>("Mate: -");
+    private final AtomicReference<String> mateLine = new AtomicReference<>();
+    private final Object lock = new Object();
+    private final FEN fenHandler = new FEN(null);
+    private final AtomicReference<SearchResult> latest = new AtomicReference<>();
+    private final Timer refreshTimer;
+
+    // Estado compartido con el hilo de análisis (protegido por lock)
+    private Position pending;
+    private Position matePending;
+    private Position analyzed;
+    private Position savedPosition;
+    private SearchResult saved; // análisis guardado de la última posición, o null
+    private int generation;
+    private boolean running = true;
+    private boolean enabled = true;
+    private long searchStart;
+
+    private final JLabel evalLabel = createLabel("Eval: -");
+    private final JLabel depthLabel = createLabel("Depth: -");
+    private final JLabel speedLabel = createLabel("Speed: -");
+    private final JLabel mateLabel = createLabel("Mate: -");
+    private final JTextArea lineArea = new JTextArea(3, 16);
+    private final JPanel stats = new JPanel(new GridLayout(0, 1));
+
+    public AnalysisPanel() {
+        setLayout(new BorderLayout());
+        setPreferredSize(new Dimension(200, 260));
+        setBackground(BACKGROUND_COLOR);
+
+        JLabel title = new JLabel("Analysis", SwingConstants.CENTER);
+        title.setFont(TITLE_FONT);
+        title.setForeground(TEXT_COLOR);
+        title.setBorder(BorderFactory.createEmptyBorder(PADDING, 0, PADDING, 0));
+
+        JCheckBox toggle = createCheckBox("On", true, BACKGROUND_COLOR);
+        toggle.addActionListener(e -> setAnalysisEnabled(toggle.isSelected()));
+
+        JPanel header = new JPanel(new BorderLayout());
+        header.setBackground(BACKGROUND_COLOR);
+        header.add(title, BorderLayout.CENTER);
+        header.add(toggle, BorderLayout.EAST);
+
+        stats.setBackground(PANEL_COLOR);
+        stats.setBorder(BorderFactory.createEmptyBorder(0, PADDING, 0, PADDING));
+        stats.add(evalLabel);
+        stats.add(depthLabel);
+        stats.add(speedLabel);
+        stats.add(mateLabel);
+
+        lineArea.setEditable(false);
+        lineArea.setFocusable(false);
+        lineArea.setLineWrap(true);
+        lineArea.setWrapStyleWord(true);
+        lineArea.setFont(TEXT_FONT);
+        lineArea.setForeground(TEXT_COLOR);
+        lineArea.setBackground(PANEL_COLOR);
+        lineArea.setBorder(BorderFactory.createEmptyBorder(PADDING / 2, PADDING, PADDING, PADDING));
+
+        add(header, BorderLayout.NORTH);
+        add(stats, BorderLayout.CENTER);
+        add(lineArea, BorderLayout.SOUTH);
+
+        engine = new Engine(64, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        engine.setAnalysisCache(cache);
+        worker = new Thread(this::analysisLoop, "analysis");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+        mateWorker = new Thread(this::mateLoop, "mate search");
+        mateWorker.setDaemon(true);
+        mateWorker.setPriority(Thread.MIN_PRIORITY);
+        mateWorker.start();
+
+        refreshTimer = new Timer(REFRESH_MS, e -> refresh());
+        refreshTimer.start();
+    }
+
+    private static JLabel createLabel(String text) {
+        JLabel label = new JLabel(text);
+        label.setFont(TEXT_FONT);
+        label.setForeground(TEXT_COLOR);
+        return label;
+    }
+
+    private static JCheckBox createCheckBox(String text, boolean selected, Color background) {
+        JCheckBox box = new JCheckBox(text, selected);
+        box.setFont(TEXT_FONT);
+        box.setForeground(TEXT_COLOR);
+        box.setBackground(background);
+        box.setFocusable(false);
+        return box;
+    }
+
+    /**
+     * Añade una casilla de opción debajo de las estadísticas (por ejemplo, el mapa de calor del tablero).
+     * @param text Texto de la opción
+     * @param selected Estado inicial
+     * @param onChange Se llama en el EDT con el nuevo estado
+     */
+    public void addOption(String text, boolean selected, Consumer<Boolean> onChange) {
+        JCheckBox box = createCheckBox(text, selected, PANEL_COLOR);
+        box.addActionListener(e -> onChange.accept(box.isSelected()));
+        stats.add(box);
+        stats.revalidate();
+    }
+
+    /**
+     * Reinicia el análisis en la posición dada (en notación FEN). Se llama después de cada jugada.
+     * @param fen Posición a analizar
+     */
+    public void analyze(String fen) {
+        Position pos = new Position();
+        fenHandler.loadFromFEN(fen, pos);
+        SearchResult savedResult = savedAnalysis(pos);
+        synchronized (lock) {
+            saved = savedResult;
+            savedPosition = pos;
+            pending = pos;
+            matePending = pos;
+            generation++;
+            mateText.set("Mate: -");
+            mateLine.set(null);
+            latest.set(null);
+            lock.notifyAll();
+        }
+        engine.stop();
+        mateSolver.stop();
+    }
+
+    /**
+     * @return Lo que tiene la caché de la posición, como resultado de una iteración con solo la
+     *         mejor jugada, o null si no hay nada
+     */
+    private SearchResult savedAnalysis(Position pos) {
+        long entry = cache == null ? 0 : cache.probe(pos.hash);
+        if (entry == 0) return null;
+        int move = AnalysisCache.move(entry);
+        int[] legal = new int[Position.MAX_MOVES];
+        int count = pos.generateLegalMoves(legal);
+        for (int i = 0; i < count; i++) {
+            if (legal[i] == move) {
+                SearchResult result = new SearchResult();
+                result.depth = AnalysisCache.depth(entry);
+                result.selDepth = result.depth;
+                result.score = AnalysisCache.score(entry);
+                result.pv = new int[]{move};
+                return result;
+            }
+        }
+        return null; // otra posición con el mismo hash
+    }
+
+    /**
+     * Detiene el hilo de análisis. Se llama cuando el tablero se descarta (nueva partida).
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        refreshTimer.stop();
+        engine.stop();
+        mateSolver.stop();
+    }
+
+    private void setAnalysisEnabled(boolean on) {
+        synchronized (lock) {
+            enabled = on;
+            if (on && analyzed != null) {
+                pending = analyzed;
+                matePending = analyzed;
+                generation++;
+            }
+            lock.notifyAll();
+        }
+        if (!on) {
+            engine.stop();
+            mateSolver.stop();
+        }
+    }
+
+    private void analysisLoop() {
+        try {
+            searchLoop();
+        } finally {
+            // Los hilos auxiliares del motor se liberan desde acá, cuando ya no busca nada
+            engine.shutdown();
+        }
+    }
+
+    private void searchLoop() {
+        while (true) {
+            Position pos;
+            int searchGeneration;
+            synchronized (lock) {
+                while (running && (pending == null || !enabled)) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) return;
+                pos = pending;
+                pending = null;
+                analyzed = pos;
+                searchGeneration = generation;
+                searchStart = System.currentTimeMillis();
+            }
+            engine.search(pos, SearchLimits.infinite(), result -> {
+                // Bajo el lock, así un resultado viejo no pisa el null que puso analyze(); si la
+                // búsqueda ya no sirve (por ejemplo, la orden de parar llegó antes de que
+                // empezara), se corta acá
+                synchronized (lock) {
+                    if (running && searchGeneration == generation) {
+                        latest.set(result);
+                    } else {
+                        engine.stop();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Busca un mate de hasta MATE_MOVES jugadas en cada posición nueva. Si la posición cambia,
+     * analyze() corta la búsqueda y el resultado viejo se descarta.
+     */
+    private void mateLoop() {
+        while (true) {
+            Position pos;
+            int searchGeneration;
+            synchronized (lock) {
+                while (running && (matePending == null || !enabled)) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) return;
+                pos = matePending;
+                matePending = null;
+                searchGeneration = generation;
+            }
+            mateSolver.clear();
+            MateSolver.Result result = mateSolver.solve(pos, MATE_MOVES, MATE_NODES);
+            String line = result.found() ? toSanLine(pos, result.line) : null;
+            String text = result.found()
+                    ? "Mate: " + (pos.whiteToMove ? "#" : "#-") + result.mateIn + " " + San.toSan(pos, result.line[0])
+                    : result.complete ? "Mate: none" : "Mate: -";
+            // Con el signo de Eval (desde las blancas) y la primera jugada; la línea, en el tooltip.
+            // Bajo el lock, así un resultado viejo no pisa el "-" que puso analyze()
+            synchronized (lock) {
+                if (searchGeneration == generation) {
+                    mateText.set(text);
+                    mateLine.set(line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Se ejecuta en el EDT cada REFRESH_MS: pinta el último resultado disponible.
+     */
+    private void refresh() {
+        Position pos;
+        Position savedPos;
+        SearchResult savedResult;
+        SearchResult result;
+        String mate;
+        String mateTip;
+        long start;
+        synchronized (lock) {
+            // Si una orden de parar llegó justo antes de que empezara la búsqueda, repetirla
+            if (pending != null) engine.stop();
+            if (matePending != null) mateSolver.stop();
+            // Todo en la misma lectura: el resultado tiene que ser de la posición analizada
+            pos = analyzed;
+            result = latest.get();
+            mate = mateText.get();
+            mateTip = mateLine.get();
+            savedPos = savedPosition;
+            savedResult = saved;
+            start = searchStart;
+        }
+        mateLabel.setText(mate);
+        mateLabel.setToolTipText(mateTip);
+        if (savedResult != null && (result == null || result.depth < savedResult.depth)) {
+            speedLabel.setText("Speed: -");
+            depthLabel.setText("Depth: " + savedResult.depth + " (saved)");
+            showScore(savedPos, savedResult);
+            return;
+        }
+        if (result == null || pos == null) return;
+
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        long nps = Math.max(engine.nodes(), result.nodes) * 1000 / elapsed;
+        speedLabel.setText("Speed: " + formatSpeed(nps));
+        depthLabel.setText("Depth: " + result.depth + "/" + result.selDepth);
+        showScore(pos, result);
+    }
+
+    /**
+     * Pinta la evaluación (desde las blancas) y la línea de un resultado.
+     */
+    private void showScore(Position pos, SearchResult result) {
+        int whiteScore = pos.whiteToMove ? result.score : -result.score;
+        if (result.isMate()) {
+            int mate = pos.whiteToMove ? result.mateIn() : -result.mateIn();
+            evalLabel.setText("Eval: " + (mate > 0 ? "#" : "#-") + Math.abs(mate));
+        } else {
+            evalLabel.setText(String.format("Eval: %+.2f", whiteScore / 100.0));
+        }
+        lineArea.setText(toSanLine(pos, result.pv));
+    }
+
+    private static String formatSpeed(long nps) {
+        if (nps >= 1_000_000) return String.format("%.1f Mn/s", nps / 1_000_000.0);
+        if (nps >= 1_000) return String.format("%.0f kn/s", nps / 1_000.0);
+        return nps + " n/s";
+    }
+
+    private static String toSanLine(Position root, int[] pv) {
+        Position pos = new Position(root);
+        StringBuilder line = new StringBuilder();
+        for (int move : pv) {
+            if (pos.whiteToMove) {
+                line.append(pos.fullmoveNumber).append(". ");
+            } else if (line.length() == 0) {
+                line.append(pos.fullmoveNumber).append("... ");
+            }
+            line.append(San.toSan(pos, move)).append(' ');
+            pos.makeMove(move);
+        }
+        return line.toString().trim();
+    }
+}
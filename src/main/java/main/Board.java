@@ -10,6 +10,12 @@ import java.util.List;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 
+import engine.GameHistory;
+import engine.GameStatus;
+import engine.MoveRecord;
+import engine.Moves;
+import engine.Position;
+import games.MoveJournal;
 import pieces.Piece;
 import pieces.Queen;
 import sfx.SFXManager;
@@ -48,11 +54,31 @@ public class Board extends JPanel {
     public FEN fenHandler;
     private SFXManager sfx;
     
-    // Game history
-    private List<String> gameHistory = new ArrayList<>();
+    // Game history: jugadas con una foto de la posición cada pocas jugadas (ver GameHistory)
+    private final GameHistory history = new GameHistory();
+    // Piezas de la partida mientras se muestra una posición anterior (null = se muestra la actual)
+    private ArrayList<Piece> livePieces;
+    private final Position viewPosition = new Position();
+    // FEN de la posición actual: se genera una sola vez por jugada y se reutiliza (null = desactualizado)
+    private String currentFEN;
+    // Copia de la posición en el motor, para tener la lista de jugadas legales al registrar cada jugada
+    private final Position position = new Position();
+    private final int[] legalMoves = new int[Position.MAX_MOVES];
+    private List<MoveRecord> moveRecords = new ArrayList<>();
     private static final String STARTING_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    // Diario en disco de la partida (null si no se pudo abrir) y si se está reproduciendo al iniciar
+    private final MoveJournal journal = MoveJournal.getInstance();
+    private boolean restoring;
 
     public MoveHistoryPanel moveHistoryPanel;
+    public AnalysisPanel analysisPanel;
+    public PositionSearchPanel positionSearchPanel;
+    public ExplorerPanel explorerPanel;
+    
+    // Destinos legales de la pieza seleccionada, calculados una sola vez al levantarla
+    private boolean[] selectedTargets;
+    public MoveHeatmap moveHeatmap = new MoveHeatmap(this);
+    public boolean showMoveHeatmap = false;
     
     public Board() {
         this.setPreferredSize(new Dimension(cols * tileSize, rows * tileSize));
@@ -61,23 +87,105 @@ public class Board extends JPanel {
         this.sfx = SFXManager.getInstance();
         this.fenHandler = new FEN(this);
         this.moveHistoryPanel = new MoveHistoryPanel();
+        this.analysisPanel = new AnalysisPanel();
+        this.positionSearchPanel = new PositionSearchPanel();
+        this.explorerPanel = new ExplorerPanel();
+        analysisPanel.addOption("Heatmap", showMoveHeatmap, on -> {
+            showMoveHeatmap = on;
+            repaint();
+        });
         loadFromFEN(STARTING_FEN);
-        printCurrentTurn();
         checkForCheck();
-        gameHistory.add(generateFEN());
+        history.reset(position);
+        moveHistoryPanel.setMoveSelectionListener(this::showPly);
         
         // Update move history panel (should be empty for a new game)
         // Assuming moveHistoryPanel is not null and has an update method that handles empty history
         if (moveHistoryPanel != null) {
-            moveHistoryPanel.updateMoveHistory(gameHistory, false, isInCheck); // Pass checkmate (false) and isInCheck (initial state)
+            moveHistoryPanel.clearMoves(isInCheck);
+        }
+        // Primero la partida guardada, después los paneles una sola vez con la posición final
+        restoreFromJournal();
+        printCurrentTurn();
+        analysisPanel.analyze(generateFEN());
+        refreshPositionPanels();
+    }
+
+    /**
+     * Reproduce las jugadas guardadas en el diario (la partida que quedó abierta al cerrar el
+     * programa) con la misma lógica que una jugada del jugador, pero sin sonidos, mensajes ni
+     * actualizar los paneles. Si alguna ya no es válida, el diario se corta ahí.
+     */
+    private void restoreFromJournal() {
+        if (journal == null) return;
+        int[] saved = journal.moves();
+        if (saved.length == 0) return;
+        restoring = true;
+        int played = 0;
+        try {
+            for (int m : saved) {
+                Piece piece = getPiece(Moves.from(m) % cols, Moves.from(m) / cols);
+                if (piece == null || isGameOver || piece.isWhite != isWhiteToMove) break;
+                Move move = new Move(this, piece, Moves.to(m) % cols, Moves.to(m) / cols);
+                if (!isValidMove(move)) break;
+                makeMove(move);
+                played++;
+            }
+        } finally {
+            restoring = false;
+        }
+        if (played < saved.length) {
+            System.out.println("Move journal: only " + played + " of " + saved.length + " moves could be restored");
+            journal.truncate(played);
         }
     }
 
+    // Mensajes de consola y sonidos de cada jugada: se omiten al reproducir el diario
+    private void log(String message) {
+        if (!restoring) System.out.println(message);
+    }
+
+    private void playSound(String name) {
+        if (!restoring) sfx.playSound(name);
+    }
+
     public MoveHistoryPanel getMoveHistoryPanel() {
        return moveHistoryPanel;
     }   
     
+    public AnalysisPanel getAnalysisPanel() {
+        return analysisPanel;
+    }
+
+    public PositionSearchPanel getPositionSearchPanel() {
+        return positionSearchPanel;
+    }
+
+    public ExplorerPanel getExplorerPanel() {
+        return explorerPanel;
+    }
+    
+    /**
+     * Selecciona la pieza que el jugador acaba de levantar y precalcula sus destinos legales,
+     * de modo que repintar durante el arrastre no vuelve a validar jugadas.
+     * @param piece Pieza seleccionada
+     */
+    public void selectPiece(Piece piece) {
+        selectedPiece = piece;
+        selectedTargets = new boolean[rows * cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                selectedTargets[getTileNum(c, r)] = isValidMove(new Move(this, piece, c, r));
+            }
+        }
+        if (showMoveHeatmap && !isGameOver) {
+            moveHeatmap.request(generateFEN(), getTileNum(piece.col, piece.row));
+        }
+    }
+    
     public void makeMove(Move move) {
+        currentFEN = null;
+        MoveRecord record = recordMove(move);
         Piece currentKing = findKing(isWhiteToMove);
         boolean wasInCheckBeforeMove = isInCheck;
         
@@ -109,23 +217,115 @@ public class Board extends JPanel {
             fullmoveNumber++;
         }
         
-        gameHistory.add(generateFEN());
+        String fen = generateFEN();
+        history.add(record.move, position);
+        // Solo encola la jugada: la escritura y el fsync los hace el hilo del diario. Va antes de
+        // updateGameState, que vacía el diario si la jugada termina la partida
+        if (journal != null && !restoring) journal.append(record.move);
         printCurrentTurn();
         checkForCheck();
-        boolean isCheckmate = updateGameState();
+        updateGameState();
         
-        // Temporary print statements for debugging castling notation
-        if (gameHistory.size() >= 2) {
-            String prevFEN = gameHistory.get(gameHistory.size() - 2);
-            String currentFEN = gameHistory.get(gameHistory.size() - 1);
-            System.out.println("[DEBUG] Move History FENs:");
-            System.out.println("[DEBUG]   Prev FEN: " + prevFEN);
-            System.out.println("[DEBUG]   Current FEN: " + currentFEN);
+        moveHistoryPanel.addMove(record, isInCheck);
+        if (restoring) return; // los paneles se actualizan una vez al terminar de reproducir
+        analysisPanel.analyze(fen);
+        refreshPositionPanels();
+    }
+
+    // Explorador y búsqueda en la base: ambos consultan la posición del motor, ya actualizada
+    private void refreshPositionPanels() {
+        refreshPositionPanels(position);
+    }
+
+    private void refreshPositionPanels(Position shown) {
+        explorerPanel.show(shown);
+        positionSearchPanel.search(shown.hash);
+    }
+
+    /**
+     * Muestra la posición después de un número de jugadas, sin leer ningún FEN: se restaura la
+     * foto más cercana de la historia y se reproducen unas pocas jugadas. Mientras se muestra una
+     * posición anterior el tablero no acepta jugadas; con la última jugada (o al hacer clic en el
+     * tablero) se vuelve a la posición actual.
+     * @param plies Jugadas desde el inicio
+     */
+    public void showPly(int plies) {
+        if (plies < 0 || plies >= history.size()) {
+            showCurrentPosition();
+            return;
         }
-        
-        moveHistoryPanel.updateMoveHistory(gameHistory, isCheckmate, isInCheck);
+        history.positionAt(plies, viewPosition);
+        if (livePieces == null) livePieces = pieceList;
+        pieceList = fenHandler.createPieces(viewPosition);
+        selectedPiece = null;
+        selectedTargets = null;
+        analysisPanel.analyze(FEN.generateFEN(viewPosition));
+        refreshPositionPanels(viewPosition);
+        repaint();
     }
 
+    /**
+     * Vuelve a mostrar la posición actual de la partida después de {@link #showPly}.
+     */
+    public void showCurrentPosition() {
+        if (livePieces == null) return;
+        pieceList = livePieces;
+        livePieces = null;
+        moveHistoryPanel.clearSelection();
+        analysisPanel.analyze(generateFEN());
+        refreshPositionPanels();
+        repaint();
+    }
+
+    /**
+     * @return true si el tablero muestra una posición anterior de la partida
+     */
+    public boolean isShowingHistory() {
+        return livePieces != null;
+    }
+
+    /**
+     * Registra la jugada (con su SAN ya resuelta) y la aplica a la posición del motor.
+     * Debe llamarse antes de mover las piezas del tablero.
+     * @param move Jugada validada por {@link #isValidMove}
+     * @return Registro de la jugada
+     */
+    private MoveRecord recordMove(Move move) {
+        int count = position.generateLegalMoves(legalMoves);
+        int m = engineMove(move, count);
+        if (m == Moves.NONE) {
+            // isValidMove ya la comparó con las jugadas del motor: llegar acá es un error de programa
+            throw new IllegalStateException("Move not legal in the engine position: "
+                    + Moves.squareName(getTileNum(move.piece.col, move.piece.row))
+                    + Moves.squareName(getTileNum(move.newCol, move.newRow)));
+        }
+        MoveRecord record = MoveRecord.create(position, m, legalMoves, count);
+        position.makeMove(m);
+        // Las repeticiones solo pueden darse desde la última jugada irreversible
+        if (position.halfmoveClock == 0) position.resetHistory();
+        moveRecords.add(record);
+        return record;
+    }
+
+    /**
+     * Busca la jugada del tablero entre las jugadas legales del motor, ya generadas en
+     * {@code legalMoves}. El tablero siempre promociona a dama.
+     * @param count Número de jugadas legales generadas
+     * @return Jugada del motor, o {@link Moves#NONE} si el motor no la permite
+     */
+    private int engineMove(Move move, int count) {
+        int from = getTileNum(move.piece.col, move.piece.row);
+        int to = getTileNum(move.newCol, move.newRow);
+        for (int i = 0; i < count; i++) {
+            int m = legalMoves[i];
+            if (Moves.from(m) == from && Moves.to(m) == to
+                    && (Moves.promotion(m) == 0 || Moves.promotion(m) == Position.QUEEN)) {
+                return m;
+            }
+        }
+        return Moves.NONE;
+    }
+    
     private void updateCastlingRights(Move move) {
         if (move.piece.name.equals("King")) {
             if (move.piece.isWhite) {
@@ -157,11 +357,11 @@ public class Board extends JPanel {
             if (move.piece.col < move.newCol) {
                 rook = getPiece(7, move.piece.row);
                 rook.col = 5;
-                System.out.println((move.piece.isWhite ? "White" : "Black") + " castles kingside!");
+                log((move.piece.isWhite ? "White" : "Black") + " castles kingside!");
             } else {
                 rook = getPiece(0, move.piece.row);
                 rook.col = 3;
-                System.out.println((move.piece.isWhite ? "White" : "Black") + " castles queenside!");
+                log((move.piece.isWhite ? "White" : "Black") + " castles queenside!");
             }
             rook.xPos = rook.col * tileSize;
         }
@@ -172,7 +372,7 @@ public class Board extends JPanel {
         
         if (getTileNum(move.newCol, move.newRow) == enPassantTile) {
             move.capture = getPiece(move.newCol, move.newRow + colorIndex);
-            System.out.println((move.piece.isWhite ? "White" : "Black") + " captures en passant!");
+            log((move.piece.isWhite ? "White" : "Black") + " captures en passant!");
         }
         
         if (Math.abs(move.piece.row - move.newRow) == 2) {
@@ -190,16 +390,16 @@ public class Board extends JPanel {
     private void promotePawn(Move move) {
         pieceList.add(new Queen(this, move.newCol, move.newRow, move.piece.isWhite));
         capture(move.piece);
-        System.out.println((move.piece.isWhite ? "White" : "Black") + " pawn promotes to Queen!");
+        log((move.piece.isWhite ? "White" : "Black") + " pawn promotes to Queen!");
     }
 
     public void capture(Piece piece) {
         if (piece != null) {
             pieceList.remove(piece);
-            System.out.println((piece.isWhite ? "White" : "Black") + " " + piece.name + " captured!");
-            sfx.playSound("delete");
+            log((piece.isWhite ? "White" : "Black") + " " + piece.name + " captured!");
+            playSound("delete");
         } else {
-            sfx.playSound("put");
+            playSound("put");
         }
     }
 
@@ -211,12 +411,16 @@ public class Board extends JPanel {
      * - Verifica que el movimiento sea válido para la pieza.
      * - Verifica que no haya colisiones en la trayectoria (excepto caballos).
      * - No permite movimientos que dejen al propio rey en jaque.
+     * - Solo acepta jugadas que también sean legales para el motor.
      */
     public boolean isValidMove(Move move) {
         if (isGameOver) return false; // El juego terminó
         if (move.piece == null) return false; // No hay pieza para mover
         if (move.piece.isWhite != isWhiteToMove) return false; // No es el turno de este color
         if (sameTeam(move.piece, move.capture)) return false; // No puedes capturar tus propias piezas
+        // El motor tiene la última palabra (enroque saliendo de jaque, al paso vencido...): así el
+        // tablero nunca acepta una jugada que la historia y el diario no puedan registrar
+        if (engineMove(move, position.generateLegalMoves(legalMoves)) == Moves.NONE) return false;
 
         // Reglas básicas de movimiento de la pieza y colisiones
         // Nota: Estos métodos (isValidMovement, moveCollidesWithPiece) deben estar implementados
@@ -366,10 +570,21 @@ public class Board extends JPanel {
 
     public void loadFromFEN(String fen) {
         fenHandler.loadFromFEN(fen);
+        fenHandler.loadFromFEN(fen, position);
+        moveRecords.clear();
+        currentFEN = null;
     }
 
+    /**
+     * FEN de la posición actual. Se calcula la primera vez que se pide después de una jugada y
+     * el mismo String se comparte entre historial, consola y análisis.
+     * @return String en formato FEN
+     */
     public String generateFEN() {
-        return fenHandler.generateFEN();
+        if (currentFEN == null) {
+            currentFEN = fenHandler.generateFEN();
+        }
+        return currentFEN;
     }
 
     /**
@@ -400,7 +615,11 @@ public class Board extends JPanel {
         enPassantTile = -1;
 
         // Clear game history
-        gameHistory.clear();
+        if (livePieces != null) {
+            pieceList = livePieces;
+            livePieces = null;
+        }
+        if (journal != null) journal.reset();
 
         // Load the starting FEN
         loadFromFEN(STARTING_FEN);
@@ -408,14 +627,20 @@ public class Board extends JPanel {
         // Update move history panel (should be empty for a new game)
         // Assuming moveHistoryPanel is not null and has an update method that handles empty history
         if (moveHistoryPanel != null) {
-            moveHistoryPanel.updateMoveHistory(gameHistory, false, isInCheck); // Pass false for isCheckmate and the current isInCheck state
+            moveHistoryPanel.clearMoves(isInCheck);
         }
 
         // Print initial turn
         printCurrentTurn();
 
-        // Add initial FEN to history (for the first move number)
-         gameHistory.add(generateFEN());
+        // Start the history from the initial position
+         history.reset(position);
+         if (analysisPanel != null) {
+             analysisPanel.analyze(generateFEN());
+         }
+         if (positionSearchPanel != null) {
+             refreshPositionPanels();
+         }
          
         // Request repaint
         repaint();
@@ -434,48 +659,52 @@ public class Board extends JPanel {
         if (isCurrentlyInCheck != isInCheck) {
             isInCheck = isCurrentlyInCheck;
             if (isInCheck) {
-                System.out.println("CHECK! " + (isWhiteToMove ? "White" : "Black") + " king is in check!");
+                log("CHECK! " + (isWhiteToMove ? "White" : "Black") + " king is in check!");
                 wasInCheckLastTurn = true;
             } else if (wasInCheckLastTurn) {
-                System.out.println((isWhiteToMove ? "White" : "Black") + " king is no longer in check.");
+                log((isWhiteToMove ? "White" : "Black") + " king is no longer in check.");
                 wasInCheckLastTurn = false;
             }
         }
     }
 
     /**
-     * Actualiza el estado general del juego (jaque mate, tablas).
+     * Determina si la partida terminó para el bando que mueve. Usa la posición del motor, así el
+     * tablero aplica las mismas reglas que las herramientas sin ventana (mate, ahogado, cincuenta
+     * jugadas, triple repetición y material insuficiente).
+     * @return Estado de la partida
+     */
+    public GameStatus getGameStatus() {
+        return GameStatus.of(position);
+    }
+
+    /**
+     * Actualiza el estado general del juego (jaque mate, ahogado y las demás tablas).
      * @return true si la partida terminó en jaque mate, false en caso contrario.
      */
     private boolean updateGameState() {
         if (isGameOver) return false; // El juego ya terminó
         
-        boolean checkmate = checkScanner.isCheckmate(isWhiteToMove);
-        boolean stalemate = checkScanner.isStalemate(isWhiteToMove);
-        final String message;
-        final String title;
-        final int result;
+        GameStatus status = getGameStatus();
+        // Mensaje y título compartidos con las herramientas sin ventana (ver engine.GameStatus)
+        final String message = status.message(isWhiteToMove);
+        final String title = status.title();
         
         boolean partidaTerminadaPorJaqueMate = false;
 
-        if (checkmate) {
-            message = (isWhiteToMove ? "Black" : "White") + " wins by checkmate!";
-            title = "Checkmate";
-            sfx.playSound("checkmate");
+        if (status == GameStatus.CHECKMATE) {
+            playSound("checkmate");
             isGameOver = true;
             partidaTerminadaPorJaqueMate = true;
-        } else if (stalemate) {
-            message = "Draw by stalemate!";
-            title = "Stalemate";
-            sfx.playSound("stalemate");
+        } else if (status.isOver()) {
+            // Las demás tablas suenan como el ahogado
+            playSound("stalemate");
             isGameOver = true;
-        } else {
-             // Inicializar si no hay jaque mate o tablas para evitar errores de "variable might not have been initialized"
-            message = null;
-            title = null;
-            result = -1; // O algún valor por defecto apropiado
         }
 
+        // Una partida terminada no se retoma al volver a abrir el programa
+        if (isGameOver && journal != null) journal.reset();
+
         if (isGameOver) {
             // Mostrar OptionPane
             // Estilo OptionPane (como en MainMenu)
@@ -549,6 +778,7 @@ public class Board extends JPanel {
     }
 
     private void printCurrentTurn() {
+        if (restoring) return;
         System.out.println("\n" + "=".repeat(30));
         System.out.println("Turn: " + (isWhiteToMove ? "WHITE" : "BLACK") + " to move");
         System.out.println("FEN: " + generateFEN());
@@ -560,14 +790,32 @@ public class Board extends JPanel {
         return (isWhiteToMove ? "White" : "Black")+"'s Turn";
     }
     
+    /**
+     * FEN de cada posición de la partida, desde la inicial. Se generan al pedirlos: la historia
+     * solo guarda las jugadas (ver {@link #showPly} para mostrar una posición).
+     */
     public List<String> getGameHistory() {
-        return new ArrayList<>(gameHistory);
+        List<String> fens = new ArrayList<>(history.size() + 1);
+        Position pos = new Position();
+        for (int ply = 0; ply <= history.size(); ply++) {
+            history.positionAt(ply, pos);
+            fens.add(FEN.generateFEN(pos));
+        }
+        return fens;
+    }
+    
+    /**
+     * @return Jugadas de la partida en orden, con su SAN
+     */
+    public List<MoveRecord> getMoveRecords() {
+        return new ArrayList<>(moveRecords);
     }
 
     public void printGameHistory() {
         System.out.println("\n=== GAME HISTORY ===");
-        for (int i = 0; i < gameHistory.size(); i++) {
-            System.out.println("Move " + i + ": " + gameHistory.get(i));
+        List<String> fens = getGameHistory();
+        for (int i = 0; i < fens.size(); i++) {
+            System.out.println("Move " + i + ": " + fens.get(i));
         }
         System.out.println("====================");
     }
@@ -585,8 +833,8 @@ public class Board extends JPanel {
             }
         }
 
-        // Resaltar el rey en jaque
-        if (isInCheck) {
+        // Resaltar el rey en jaque (solo en la posición actual)
+        if (isInCheck && !isShowingHistory()) {
             Piece king = findKing(isWhiteToMove);
             if (king != null) {
                 g2d.setColor(new Color(220, 40, 40, 180)); // Rojo semitransparente
@@ -597,11 +845,18 @@ public class Board extends JPanel {
         }
         
         // Draw possible moves
-        if (selectedPiece != null) {
+        if (selectedPiece != null && selectedTargets != null) {
+            // Con el mapa de calor activo, cada destino se tiñe según su evaluación (si ya está lista)
+            MoveHeatmap.Scores scores = showMoveHeatmap ? moveHeatmap.currentScores() : null;
             for (int r = 0; r < rows; r++) {
                 for (int c = 0; c < cols; c++) {
-                    if (isValidMove(new Move(this, selectedPiece, c, r))) {
-                        g2d.setColor(new Color(211, 255, 109, 170));
+                    int tile = getTileNum(c, r);
+                    if (selectedTargets[tile]) {
+                        if (scores != null && scores.scores[tile] != MoveHeatmap.NO_SCORE) {
+                            g2d.setColor(MoveHeatmap.colorFor(scores.scores[tile], scores.best));
+                        } else {
+                            g2d.setColor(new Color(211, 255, 109, 170));
+                        }
                         g2d.fillRect(c * tileSize, r * tileSize, tileSize, tileSize);
                     }
                 }
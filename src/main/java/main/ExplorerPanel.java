@@ -0,0 +1,189 @@
+package main;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.SwingConstants;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.JTableHeader;
+
+import engine.MoveRecord;
+import engine.Position;
+import games.OpeningExplorer;
+import utils.FontLoader;
+
+/**
+ * Explorador de aperturas: jugadas de la posición del tablero con número de partidas,
+ * porcentajes de blancas/tablas/negras y rating promedio, leídas de un archivo creado con
+ * {@link OpeningExplorer#build}.
+ *
+ * La consulta es una búsqueda en un archivo mapeado en memoria, así que se hace directamente
+ * en el EDT después de cada jugada.
+ *
+ * @author angelsn
+ */
+public class ExplorerPanel extends JPanel {
+    private static final Color BACKGROUND_COLOR = new Color(41, 41, 50);
+    private static final Color PANEL_COLOR = new Color(51, 51, 60);
+    private static final Color TEXT_COLOR = new Color(250, 255, 224);
+    private static final Color TABLE_GRID_COLOR = new Color(71, 71, 80);
+    private static final int PADDING = 10;
+
+    private static Font TITLE_FONT;
+    private static Font TABLE_FONT;
+
+    static {
+        try {
+            TITLE_FONT = FontLoader.loadFont(26f);
+            TABLE_FONT = FontLoader.loadFont(16f);
+        } catch (IOException e) {
+            TITLE_FONT = new Font("Century Gothic", Font.BOLD, 26);
+            TABLE_FONT = new Font("Century Gothic", Font.PLAIN, 16);
+        }
+    }
+
+    private final ExplorerTableModel tableModel = new ExplorerTableModel();
+    private final int[] legalMoves = new int[Position.MAX_MOVES];
+    private OpeningExplorer explorer;
+    private Position lastPosition;
+
+    public ExplorerPanel() {
+        setLayout(new BorderLayout());
+        setPreferredSize(new Dimension(200, 250));
+        setBackground(BACKGROUND_COLOR);
+
+        JLabel title = new JLabel("Explorer", SwingConstants.CENTER);
+        title.setFont(TITLE_FONT);
+        title.setForeground(TEXT_COLOR);
+        title.setBorder(BorderFactory.createEmptyBorder(PADDING, 0, PADDING, 0));
+
+        JButton open = new JButton("Open");
+        open.setFont(TABLE_FONT);
+        open.setFocusable(false);
+        open.addActionListener(e -> chooseFile());
+
+        JPanel header = new JPanel(new BorderLayout());
+        header.setBackground(BACKGROUND_COLOR);
+        header.add(title, BorderLayout.CENTER);
+        header.add(open, BorderLayout.EAST);
+
+        JTable table = new JTable(tableModel);
+        table.setFont(TABLE_FONT);
+        table.setForeground(TEXT_COLOR);
+        table.setBackground(PANEL_COLOR);
+        table.setGridColor(TABLE_GRID_COLOR);
+        table.setRowHeight(24);
+        table.setFocusable(false);
+        table.setRowSelectionAllowed(false);
+
+        JTableHeader tableHeader = table.getTableHeader();
+        tableHeader.setFont(TABLE_FONT);
+        tableHeader.setBackground(PANEL_COLOR);
+        tableHeader.setForeground(TEXT_COLOR);
+        tableHeader.setBorder(BorderFactory.createLineBorder(TABLE_GRID_COLOR));
+
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setBorder(BorderFactory.createEmptyBorder());
+        scrollPane.getViewport().setBackground(PANEL_COLOR);
+
+        add(header, BorderLayout.NORTH);
+        add(scrollPane, BorderLayout.CENTER);
+    }
+
+    private void chooseFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Opening explorer (*.exp)", "exp"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        try {
+            OpeningExplorer opened = OpeningExplorer.open(chooser.getSelectedFile().toPath());
+            close();
+            explorer = opened;
+        } catch (IOException e) {
+            System.out.println("Can't open explorer file: " + e.getMessage());
+            return;
+        }
+        if (lastPosition != null) show(lastPosition);
+    }
+
+    /**
+     * Muestra las jugadas de la posición dada. Se llama en el EDT después de cada jugada.
+     * @param position Posición del tablero (se deja igual que estaba)
+     */
+    public void show(Position position) {
+        lastPosition = position;
+        if (explorer == null) return;
+        List<Object[]> rows = new ArrayList<>();
+        int count = position.generateLegalMoves(legalMoves);
+        for (OpeningExplorer.Continuation c : explorer.find(position.hash)) {
+            // una colisión de hash podría traer jugadas que aquí no son legales
+            boolean legal = false;
+            for (int i = 0; i < count && !legal; i++) legal = legalMoves[i] == c.move;
+            if (!legal) continue;
+            rows.add(new Object[] {
+                MoveRecord.create(position, c.move, legalMoves, count).toSan(),
+                c.games,
+                String.format("%.0f%%", c.whitePercent()),
+                String.format("%.0f%%", c.drawPercent()),
+                String.format("%.0f%%", c.blackPercent()),
+                c.ratedGames == 0 ? "-" : String.valueOf(c.averageRating())
+            });
+        }
+        tableModel.setRows(rows);
+    }
+
+    /**
+     * Cierra el archivo abierto. Se llama cuando el tablero se descarta (nueva partida).
+     */
+    public void close() {
+        if (explorer == null) return;
+        try {
+            explorer.close();
+        } catch (IOException e) {
+            System.out.println("Error closing explorer file: " + e.getMessage());
+        }
+        explorer = null;
+    }
+
+    private static class ExplorerTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {"Move", "Games", "White", "Draw", "Black", "Elo"};
+        private List<Object[]> rows = new ArrayList<>();
+
+        void setRows(List<Object[]> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return rows.get(row)[column];
+        }
+    }
+}
@@ -4,6 +4,11 @@
  */
 package main;
 
+import java.util.ArrayList;
+
+import engine.FenParser;
+import engine.Moves;
+import engine.Position;
 import pieces.Bishop;
 import pieces.King;
 import pieces.Knight;
@@ -27,6 +32,8 @@ import pieces.Rook;
  * @see <a href="https://www.chess.com/terms/fen-chess">Chess.com FEN Documentation</a>
  */
 public class FEN {
+    private static final String PIECE_CHARS = "pnbrqk";
+    
     private Board board;
     
     public FEN(Board board) {
@@ -35,89 +42,74 @@ public class FEN {
     
     /**
      * Genera la notación FEN del estado actual del tablero.
+     * Recorre la lista de piezas una sola vez; no busca pieza por pieza en cada casilla.
      * @return String en formato FEN
      */
     public String generateFEN() {
-        StringBuilder fen = new StringBuilder();
+        StringBuilder fen = new StringBuilder(90);
         
         // 1. Piece placement
-        fen.append(generatePiecePlacement()).append(" ");
+        char[] squares = new char[64];
+        for (Piece piece : board.pieceList) {
+            squares[piece.row * 8 + piece.col] = getFENCharForPiece(piece);
+        }
+        appendPiecePlacement(fen, squares);
         
         // 2. Active color
-        fen.append(board.isWhiteToMove ? "w" : "b").append(" ");
+        fen.append(board.isWhiteToMove ? " w " : " b ");
         
         // 3. Castling rights
-        fen.append(generateCastlingAvailability()).append(" ");
+        int length = fen.length();
+        if (board.whiteCanCastleKingside) fen.append('K');
+        if (board.whiteCanCastleQueenside) fen.append('Q');
+        if (board.blackCanCastleKingside) fen.append('k');
+        if (board.blackCanCastleQueenside) fen.append('q');
+        if (fen.length() == length) fen.append('-');
         
         // 4. En passant target
-        fen.append(generateEnPassantTarget()).append(" ");
+        fen.append(' ');
+        if (board.enPassantTile == -1) {
+            fen.append('-');
+        } else {
+            fen.append((char) ('a' + board.enPassantTile % 8)).append(8 - board.enPassantTile / 8);
+        }
         
         // 5. Halfmove clock
-        fen.append(board.halfmoveClock).append(" ");
+        fen.append(' ').append(board.halfmoveClock);
         
         // 6. Fullmove number
-        fen.append(board.fullmoveNumber);
+        fen.append(' ').append(board.fullmoveNumber);
         
         return fen.toString();
     }
     
     /**
-     * Genera la parte de colocación de piezas del FEN.
-     * Comienza desde la octava fila hasta la primera.
-     * @return String representando la colocación de piezas
+     * Agrega la parte de colocación de piezas del FEN, desde la octava fila hasta la primera.
+     * @param fen Destino
+     * @param squares Carácter FEN de cada casilla (0 si está vacía)
      */
-    private String generatePiecePlacement() {
-        StringBuilder placement = new StringBuilder();
+    private static void appendPiecePlacement(StringBuilder fen, char[] squares) {
         for (int row = 0; row < 8; row++) {
             int emptySquares = 0;
             for (int col = 0; col < 8; col++) {
-                Piece piece = board.getPiece(col, row);
-                if (piece == null) {
+                char c = squares[row * 8 + col];
+                if (c == 0) {
                     emptySquares++;
                 } else {
                     if (emptySquares > 0) {
-                        placement.append(emptySquares);
+                        fen.append(emptySquares);
                         emptySquares = 0;
                     }
-                    placement.append(getFENCharForPiece(piece));
+                    fen.append(c);
                 }
             }
             if (emptySquares > 0) {
-                placement.append(emptySquares);
+                fen.append(emptySquares);
             }
             if (row < 7) {
-                placement.append('/');
+                fen.append('/');
             }
         }
-        return placement.toString();
-    }
-    
-    /**
-     * Genera la parte de derechos de enroque del FEN.
-     * @return String representando los derechos de enroque disponibles
-     */
-    private String generateCastlingAvailability() {
-        StringBuilder castling = new StringBuilder();
-        if (board.whiteCanCastleKingside) castling.append('K');
-        if (board.whiteCanCastleQueenside) castling.append('Q');
-        if (board.blackCanCastleKingside) castling.append('k');
-        if (board.blackCanCastleQueenside) castling.append('q');
-        if (castling.length() == 0) castling.append('-');
-        return castling.toString();
-    }
-    
-    /**
-     * Genera la parte de objetivo de en passant del FEN.
-     * @return String representando la casilla objetivo de en passant
-     */
-    private String generateEnPassantTarget() {
-        if (board.enPassantTile == -1) {
-            return "-";
-        } else {
-            int col = board.enPassantTile % 8;
-            int row = board.enPassantTile / 8;
-            return String.format("%c%d", 'a' + col, 8 - row);
-        }
     }
     
     /**
@@ -145,173 +137,97 @@ public class FEN {
      * @throws IllegalArgumentException si el FEN es inválido
      */
     public void loadFromFEN(String fen) {
-        String[] parts = fen.split(" ");
-        if (parts.length != 6) {
-            throw new IllegalArgumentException("Invalid FEN: must have 6 parts");
-        }
-        
-        // Validar cada parte del FEN
-        validatePiecePlacement(parts[0]);
-        validateActiveColor(parts[1]);
-        validateCastlingAvailability(parts[2]);
-        validateEnPassantTarget(parts[3]);
-        validateHalfmoveClock(parts[4]);
-        validateFullmoveNumber(parts[5]);
+        // Se lee y valida en una sola pasada sobre una posición ligera, y luego se crean las piezas
+        Position position = new Position();
+        loadFromFEN(fen, position);
         
         // Clear current board
         board.pieceList.clear();
         
         // 1. Piece placement
-        loadPiecePlacement(parts[0]);
+        board.pieceList.addAll(createPieces(position));
         
         // 2. Active color
-        board.isWhiteToMove = parts[1].equals("w");
+        board.isWhiteToMove = position.whiteToMove;
         
         // 3. Castling availability
-        loadCastlingAvailability(parts[2]);
+        board.whiteCanCastleKingside = (position.castlingRights & Position.WHITE_KINGSIDE) != 0;
+        board.whiteCanCastleQueenside = (position.castlingRights & Position.WHITE_QUEENSIDE) != 0;
+        board.blackCanCastleKingside = (position.castlingRights & Position.BLACK_KINGSIDE) != 0;
+        board.blackCanCastleQueenside = (position.castlingRights & Position.BLACK_QUEENSIDE) != 0;
         
         // 4. En passant target
-        loadEnPassantTarget(parts[3]);
+        board.enPassantTile = position.enPassantTile;
         
         // 5. Halfmove clock
-        board.halfmoveClock = Integer.parseInt(parts[4]);
+        board.halfmoveClock = position.halfmoveClock;
         
         // 6. Fullmove number
-        board.fullmoveNumber = Integer.parseInt(parts[5]);
+        board.fullmoveNumber = position.fullmoveNumber;
         
         // Update first move flags based on castling rights
         updateFirstMoveFlags();
     }
     
     /**
-     * Valida la parte de colocación de piezas del FEN.
-     * @param placement String de colocación de piezas
-     * @throws IllegalArgumentException si el formato es inválido
-     */
-    private void validatePiecePlacement(String placement) {
-        String[] ranks = placement.split("/");
-        if (ranks.length != 8) {
-            throw new IllegalArgumentException("Invalid piece placement: must have 8 ranks");
-        }
-        
-        for (String rank : ranks) {
-            int squares = 0;
-            for (char c : rank.toCharArray()) {
-                if (Character.isDigit(c)) {
-                    squares += Character.getNumericValue(c);
-                } else if ("pnbrqkPNBRQK".indexOf(c) != -1) {
-                    squares++;
-                } else {
-                    throw new IllegalArgumentException("Invalid piece placement: invalid character " + c);
-                }
-            }
-            if (squares != 8) {
-                throw new IllegalArgumentException("Invalid piece placement: rank must have 8 squares");
-            }
-        }
-    }
-    
-    /**
-     * Valida la parte de color activo del FEN.
-     * @param color String de color activo
-     * @throws IllegalArgumentException si el formato es inválido
-     */
-    private void validateActiveColor(String color) {
-        if (!color.equals("w") && !color.equals("b")) {
-            throw new IllegalArgumentException("Invalid active color: must be 'w' or 'b'");
-        }
-    }
-    
-    /**
-     * Valida la parte de derechos de enroque del FEN.
-     * @param castling String de derechos de enroque
-     * @throws IllegalArgumentException si el formato es inválido
-     */
-    private void validateCastlingAvailability(String castling) {
-        if (!castling.equals("-") && !castling.matches("[KQkq]+")) {
-            throw new IllegalArgumentException("Invalid castling availability: must be '-' or combination of 'KQkq'");
-        }
-    }
-    
-    /**
-     * Valida la parte de objetivo de en passant del FEN.
-     * @param enPassant String de objetivo de en passant
-     * @throws IllegalArgumentException si el formato es inválido
+     * Carga una notación FEN en una posición ligera del motor, con las mismas validaciones
+     * que {@link #loadFromFEN(String)}. No necesita un Board, así que sirve en modo sin ventana.
+     * @param fen String en formato FEN
+     * @param position Posición destino (se sobrescribe)
+     * @throws IllegalArgumentException si el FEN es inválido (el mensaje incluye la posición del error)
      */
-    private void validateEnPassantTarget(String enPassant) {
-        if (!enPassant.equals("-") && !enPassant.matches("[a-h][3-6]")) {
-            throw new IllegalArgumentException("Invalid en passant target: must be '-' or valid square (e.g., 'e3')");
-        }
+    public void loadFromFEN(String fen, Position position) {
+        // Un parser por llamada: guarda el último error y un mismo FEN puede usarse desde varios hilos
+        new FenParser().parseOrThrow(fen, position);
     }
     
     /**
-     * Valida la parte de contador de medio movimiento del FEN.
-     * @param halfmove String de contador de medio movimiento
-     * @throws IllegalArgumentException si el formato es inválido
+     * Genera la notación FEN de una posición del motor.
+     * @param position Posición del motor
+     * @return String en formato FEN
      */
-    private void validateHalfmoveClock(String halfmove) {
-        try {
-            int value = Integer.parseInt(halfmove);
-            if (value < 0) {
-                throw new IllegalArgumentException("Invalid halfmove clock: must be non-negative");
+    public static String generateFEN(Position position) {
+        StringBuilder fen = new StringBuilder(90);
+        char[] squares = new char[64];
+        for (int tile = 0; tile < 64; tile++) {
+            int piece = position.squares[tile];
+            if (piece != Position.EMPTY) {
+                char c = PIECE_CHARS.charAt(Math.abs(piece) - 1);
+                squares[tile] = piece > 0 ? Character.toUpperCase(c) : c;
             }
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid halfmove clock: must be a number");
         }
+        appendPiecePlacement(fen, squares);
+        fen.append(position.whiteToMove ? " w " : " b ");
+        int rights = position.castlingRights;
+        if ((rights & Position.WHITE_KINGSIDE) != 0) fen.append('K');
+        if ((rights & Position.WHITE_QUEENSIDE) != 0) fen.append('Q');
+        if ((rights & Position.BLACK_KINGSIDE) != 0) fen.append('k');
+        if ((rights & Position.BLACK_QUEENSIDE) != 0) fen.append('q');
+        if (rights == 0) fen.append('-');
+        fen.append(' ').append(position.enPassantTile == -1 ? "-" : Moves.squareName(position.enPassantTile));
+        fen.append(' ').append(position.halfmoveClock).append(' ').append(position.fullmoveNumber);
+        return fen.toString();
     }
     
     /**
-     * Valida la parte de número de movimiento completo del FEN.
-     * @param fullmove String de número de movimiento completo
-     * @throws IllegalArgumentException si el formato es inválido
+     * Crea las piezas de una posición del motor sin modificar el estado del tablero
+     * (por ejemplo, para mostrar una posición anterior de la partida).
+     * @param position Posición del motor
+     * @return Piezas de la posición
      */
-    private void validateFullmoveNumber(String fullmove) {
-        try {
-            int value = Integer.parseInt(fullmove);
-            if (value < 1) {
-                throw new IllegalArgumentException("Invalid fullmove number: must be positive");
+    public ArrayList<Piece> createPieces(Position position) {
+        ArrayList<Piece> pieces = new ArrayList<>();
+        for (int tile = 0; tile < 64; tile++) {
+            int piece = position.squares[tile];
+            if (piece != Position.EMPTY) {
+                pieces.add(createPieceFromFENChar(PIECE_CHARS.charAt(Math.abs(piece) - 1),
+                        piece > 0, tile % 8, tile / 8));
             }
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid fullmove number: must be a number");
         }
+        return pieces;
     }
     
-    private void loadPiecePlacement(String placement) {
-        String[] ranks = placement.split("/");
-        for (int row = 0; row < 8; row++) {
-            int col = 0;
-            for (char c : ranks[row].toCharArray()) {
-                if (Character.isDigit(c)) {
-                    col += Character.getNumericValue(c);
-                } else {
-                    board.pieceList.add(createPieceFromFENChar(c, col, row));
-                    col++;
-                }
-            }
-        }
-    }
-    
-    private void loadCastlingAvailability(String castling) {
-        board.whiteCanCastleKingside = castling.contains("K");
-        board.whiteCanCastleQueenside = castling.contains("Q");
-        board.blackCanCastleKingside = castling.contains("k");
-        board.blackCanCastleQueenside = castling.contains("q");
-    }
-    
-    private void loadEnPassantTarget(String enPassant) {
-        if (enPassant.equals("-")) {
-            board.enPassantTile = -1;
-        } else {
-            int col = enPassant.charAt(0) - 'a';
-            int row = 8 - Character.getNumericValue(enPassant.charAt(1));
-            board.enPassantTile = row * 8 + col;
-        }
-    }
-    
-    private Piece createPieceFromFENChar(char fenChar, int col, int row) {
-        boolean isWhite = Character.isUpperCase(fenChar);
-        char lowerChar = Character.toLowerCase(fenChar);
-        
+    private Piece createPieceFromFENChar(char lowerChar, boolean isWhite, int col, int row) {
         switch (lowerChar) {
             case 'p': return new Pawn(board, col, row, isWhite);
             case 'r': return new Rook(board, col, row, isWhite);
@@ -319,7 +235,7 @@ public class FEN {
             case 'b': return new Bishop(board, col, row, isWhite);
             case 'q': return new Queen(board, col, row, isWhite);
             case 'k': return new King(board, col, row, isWhite);
-            default: throw new IllegalArgumentException("Invalid FEN character: " + fenChar);
+            default: throw new IllegalArgumentException("Invalid FEN character: " + lowerChar);
         }
     }
     
@@ -355,150 +271,4 @@ public class FEN {
             blackQueensideRook.isFirstMove = board.blackCanCastleQueenside;
         }
     }
-
-    /**
-    * Convierte la diferencia entre dos FENs a notación algebraica.
-    * @param prevFEN FEN anterior
-    * @param currentFEN FEN actual
-    * @return Movimiento en notación estándar (ej: "e4", "Nxf3", "O-O", "exd6 e.p.")
-    */
-   public String convertFENtoMove(String prevFEN, String currentFEN) {
-       // Validación básica
-       String[] prevParts = prevFEN.split(" ");
-       String[] currentParts = currentFEN.split(" ");
-       if (prevParts.length != 6 || currentParts.length != 6) {
-           return "???"; // FEN inválido
-       }
-
-       boolean isWhiteTurn = prevParts[1].equals("w");
-
-       // --- 1. Detectar enroques (prioridad máxima) ---
-       String prevCastling = prevParts[2];
-       String currentCastling = currentParts[2];
-
-       // Enroque blanco
-       if (isWhiteTurn) {
-           if (prevCastling.contains("K") && !currentCastling.contains("K")) return "O-O";
-           if (prevCastling.contains("Q") && !currentCastling.contains("Q")) return "O-O-O";
-       } 
-       // Enroque negro
-       else {
-           if (prevCastling.contains("k") && !currentCastling.contains("k")) return "O-O";
-           if (prevCastling.contains("q") && !currentCastling.contains("q")) return "O-O-O";
-       }
-
-       // --- 2. Procesar movimientos normales ---
-       String[] prevRanks = prevParts[0].split("/");
-       String[] currentRanks = currentParts[0].split("/");
-
-       // Encontrar la pieza movida y su destino
-       int fromCol = -1, fromRow = -1;
-       int toCol = -1, toRow = -1;
-       char movedPiece = ' ';
-       boolean isCapture = false;
-       boolean isEnPassant = false;
-       boolean isPromotion = false;
-
-       // Comparar cada casilla del tablero
-       for (int row = 0; row < 8; row++) {
-           for (int col = 0; col < 8; col++) {
-               char prevPiece = getPieceAt(prevRanks, col, row);
-               char currentPiece = getPieceAt(currentRanks, col, row);
-
-               if (prevPiece != currentPiece) {
-                   if (prevPiece != '1' && currentPiece == '1') {
-                       // Casilla de origen (se vació)
-                       fromCol = col;
-                       fromRow = row;
-                       movedPiece = prevPiece;
-                   } else if (prevPiece == '1' && currentPiece != '1') {
-                       // Casilla de destino (se llenó)
-                       toCol = col;
-                       toRow = row;
-                   } else if (prevPiece != '1' && currentPiece != '1') {
-                       // Captura (pieza diferente en la misma casilla)
-                       toCol = col;
-                       toRow = row;
-                       isCapture = true;
-                       movedPiece = currentPiece;
-                   }
-               }
-           }
-       }
-
-       // --- 3. Validar y construir la notación ---
-       if (fromCol == -1 || toCol == -1) return "???"; // Movimiento no detectado
-
-       // Detectar captura al paso (peón que captura en diagonal pero no hay pieza en destino)
-       if (Character.toLowerCase(movedPiece) == 'p' && 
-           Math.abs(fromCol - toCol) == 1 && !isCapture) {
-           isEnPassant = true;
-           isCapture = true; // Se marca como captura
-       }
-
-       // Detectar promoción (peón llega a la última fila)
-       if (Character.toLowerCase(movedPiece) == 'p' && 
-           (toRow == 0 || toRow == 7)) {
-           isPromotion = true;
-       }
-
-       // Construir notación algebraica
-       StringBuilder move = new StringBuilder();
-
-       // Pieza (excepto peones)
-       if (Character.toLowerCase(movedPiece) != 'p') {
-           move.append(Character.toUpperCase(movedPiece));
-       }
-
-       // Casilla de origen (para ambigüedades, ej: "Nbd2")
-       // (Omitido por simplicidad, pero se puede añadir)
-
-       // Captura
-       if (isCapture) {
-           if (Character.toLowerCase(movedPiece) == 'p') {
-               move.append((char)('a' + fromCol)); // Columna del peón (ej: "exd4")
-           }
-           move.append('x');
-       }
-
-       // Casilla de destino
-       move.append((char)('a' + toCol));
-       move.append(8 - toRow);
-
-       // Captura al paso
-       if (isEnPassant) {
-           move.append(" e.p.");
-       }
-
-       // Promoción (ej: "e8=Q")
-       if (isPromotion) {
-           move.append('=').append(Character.toUpperCase(currentRanks[toRow].charAt(toCol)));
-       }
-
-       return move.toString();
-   }
-
-    /**
-     * Obtiene el símbolo de la pieza en una columna y fila dada de la disposición del tablero.
-     * @param ranks Arreglo de strings representando las filas del tablero en notación FEN
-     * @param col Columna (0-7)
-     * @param row Fila (0-7)
-     * @return Símbolo de la pieza ('p', 'n', 'b', 'r', 'q', 'k' o '1' si está vacío)
-     */
-    private char getPieceAt(String[] ranks, int col, int row) {
-        if (row < 0 || row >= 8 || col < 0 || col >= 8) return ' ';
-        String rank = ranks[row];
-        int currentColumn = 0;
-        for (char c : rank.toCharArray()) {
-            if (Character.isDigit(c)) {
-                currentColumn += Character.getNumericValue(c);
-            } else {
-                if (currentColumn == col) {
-                    return c;
-                }
-                currentColumn++;
-            }
-        }
-        return '1'; // Casilla vacía
-    }
 }
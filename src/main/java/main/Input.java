@@ -25,12 +25,17 @@ public class Input extends MouseAdapter{
     
     @Override
     public void mousePressed(MouseEvent e) {
+        // Con una posición anterior en pantalla, el clic solo vuelve a la posición actual
+        if (board.isShowingHistory()) {
+            board.showCurrentPosition();
+            return;
+        }
         int col = e.getX() / board.tileSize;
         int row = e.getY() / board.tileSize;
         
         Piece pieceXY = board.getPiece(col, row);
         if (pieceXY != null) {
-            board.selectedPiece = pieceXY;
+            board.selectPiece(pieceXY);
             sfx.playSound("grab");
         }
     }
@@ -43,7 +43,32 @@ public class MainFrame extends JFrame {
         cardLayout.show(cards, "Menu");
     }
     
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // Modos sin ventana: java main.MainFrame <comando> [opciones]
+        if (args.length > 0) {
+            String[] rest = java.util.Arrays.copyOfRange(args, 1, args.length);
+            switch (args[0]) {
+                case "uci": Uci.main(rest); return;
+                case "match": tools.MatchRunner.main(rest); return;
+                case "bench": tools.Bench.main(rest); return;
+                case "fens": tools.FenBatch.main(rest); return;
+                case "pgn": tools.PgnImport.main(rest); return;
+                case "games": tools.GameStoreScan.main(rest); return;
+                case "index": tools.PositionSearch.main(rest); return;
+                case "explorer": tools.ExplorerBuild.main(rest); return;
+                case "book": tools.BookBuild.main(rest); return;
+                case "epd": tools.EpdRunner.main(rest); return;
+                case "validate": tools.FenValidate.main(rest); return;
+                case "annotate": tools.PgnAnnotate.main(rest); return;
+                case "export": tools.TrainingExport.main(rest); return;
+                case "tune": tools.TexelTune.main(rest); return;
+                case "puzzles": tools.PuzzleMiner.main(rest); return;
+                case "mate": tools.MateCheck.main(rest); return;
+                default:
+                    System.err.println("Unknown command: " + args[0]);
+                    return;
+            }
+        }
         SwingUtilities.invokeLater(() -> {
             MainFrame frame = new MainFrame();
             frame.getContentPane().setBackground(new Color(33, 27, 47));
@@ -0,0 +1,160 @@
+package main;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import javax.swing.SwingUtilities;
+
+import engine.Evaluator;
+import engine.Moves;
+import engine.Position;
+import engine.Search;
+import engine.SearchLimits;
+import engine.TranspositionTable;
+
+/**
+ * Mapa de calor de la calidad de cada destino legal de la pieza seleccionada.
+ *
+ * Al levantar una pieza se lanza una búsqueda corta por cada jugada posible, todas en paralelo en
+ * un ForkJoinPool. Los resultados se guardan por hash de posición y casilla de origen, así que
+ * volver a levantar la misma pieza en la misma posición no recalcula nada, y pintar durante el
+ * arrastre solo lee el arreglo ya calculado. Cada hilo del pool reutiliza su propia tabla de
+ * transposición y su buscador, limpiando la tabla antes de cada jugada.
+ *
+ * @author angelsn
+ */
+public class MoveHeatmap {
+    public static final int NO_SCORE = Integer.MIN_VALUE;
+    private static final int SEARCH_DEPTH = 4;
+    private static final int CACHE_SIZE = 512;
+    private static final int WORST_LOSS = 300; // centipeones de pérdida que se pintan en rojo pleno
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+    private final Board board;
+    private final FEN fenHandler = new FEN(null);
+    private final Evaluator evaluator = new Evaluator();
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+    private final Map<Long, Scores> cache = new LinkedHashMap<Long, Scores>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Scores> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private final Map<Long, Boolean> inProgress = new LinkedHashMap<>();
+    private long currentKey;
+
+    public MoveHeatmap(Board board) {
+        this.board = board;
+    }
+
+    /**
+     * Puntuaciones de los destinos de una pieza.
+     */
+    public static class Scores {
+        /** Puntuación de cada casilla destino (NO_SCORE si no aplica). */
+        public final int[] scores;
+        /** Mejor puntuación, calculada una sola vez al llegar el resultado. */
+        public final int best;
+
+        Scores(int[] scores) {
+            this.scores = scores;
+            int max = NO_SCORE;
+            for (int s : scores) max = Math.max(max, s);
+            this.best = max;
+        }
+    }
+
+    /**
+     * Tabla de transposición y buscador de un hilo del pool.
+     */
+    private class Worker {
+        final TranspositionTable tt = new TranspositionTable(1);
+        final Search search = new Search(tt, evaluator, new AtomicBoolean(), true);
+    }
+
+    /**
+     * Pide el mapa de calor para la pieza en la casilla indicada. Si ya está en caché no hace nada;
+     * si no, lo calcula en segundo plano y repinta el tablero al terminar.
+     * @param fen Posición actual
+     * @param fromTile Casilla de la pieza (ver {@link Board#getTileNum})
+     */
+    public void request(String fen, int fromTile) {
+        Position pos = new Position();
+        fenHandler.loadFromFEN(fen, pos);
+        long key = key(pos.hash, fromTile);
+        synchronized (this) {
+            currentKey = key;
+            if (cache.containsKey(key) || inProgress.containsKey(key)) return;
+            inProgress.put(key, Boolean.TRUE);
+        }
+        POOL.execute(() -> {
+            Scores scores = new Scores(evaluate(pos, fromTile));
+            boolean repaint;
+            synchronized (this) {
+                inProgress.remove(key);
+                cache.put(key, scores);
+                repaint = key == currentKey;
+            }
+            if (repaint) SwingUtilities.invokeLater(board::repaint);
+        });
+    }
+
+    /**
+     * Puntuaciones calculadas para la selección actual.
+     * @return Puntuaciones de las 64 casillas, o null si todavía se están calculando
+     */
+    public synchronized Scores currentScores() {
+        return cache.get(currentKey);
+    }
+
+    /**
+     * Color de una casilla destino: verde para la mejor jugada, rojo cuanto más se pierde.
+     * @param score Puntuación de la casilla destino
+     * @param best Mejor puntuación de la pieza ({@link Scores#best})
+     * @return Color semitransparente para pintar la casilla
+     */
+    public static Color colorFor(int score, int best) {
+        float loss = Math.min(1f, Math.max(0f, (best - score) / (float) WORST_LOSS));
+        int r = Math.round(60 + loss * (220 - 60));
+        int g = Math.round(200 + loss * (60 - 200));
+        int b = Math.round(90 + loss * (50 - 90));
+        return new Color(r, g, b, 170);
+    }
+
+    private static long key(long hash, int fromTile) {
+        return hash ^ (fromTile + 1) * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Búsqueda corta de cada jugada de la pieza, en paralelo dentro del ForkJoinPool.
+     */
+    private int[] evaluate(Position root, int fromTile) {
+        int[] legal = new int[Position.MAX_MOVES];
+        int count = root.generateLegalMoves(legal);
+        // Board siempre promociona a dama, así que solo se consideran esas promociones
+        int[] candidates = IntStream.range(0, count).map(i -> legal[i])
+                .filter(m -> Moves.from(m) == fromTile)
+                .filter(m -> Moves.promotion(m) == 0 || Moves.promotion(m) == Position.QUEEN)
+                .toArray();
+
+        int[] scores = new int[64];
+        Arrays.fill(scores, NO_SCORE);
+        IntStream.range(0, candidates.length).parallel().forEach(i -> {
+            int move = candidates[i];
+            Position pos = new Position(root);
+            pos.makeMove(move);
+            Worker worker = workers.get();
+            worker.tt.clear();
+            int score = -worker.search.run(pos, SearchLimits.depth(SEARCH_DEPTH), null, 0).score;
+            scores[Moves.to(move)] = score;
+        });
+        return scores;
+    }
+}
@@ -5,18 +5,23 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 import javax.swing.BorderFactory;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.ListSelectionListener;
+import javax.swing.table.AbstractTableModel;
 import javax.swing.table.JTableHeader;
 import javax.swing.table.TableColumnModel;
 
+import engine.MoveRecord;
 import sfx.SFXManager;
 import utils.FontLoader;
 
@@ -27,10 +32,11 @@ import utils.FontLoader;
 public class MoveHistoryPanel extends JPanel {
     private JTable moveHistoryTable;
     private JScrollPane scrollPane;
-    private DefaultTableModel tableModel;
+    private MoveTableModel tableModel;
     private SFXManager sfx;
     private boolean lastCheckState = false;
-    private FEN fenHandler;
+    private IntConsumer moveSelectionListener;
+    private boolean updating;
     
     // Constantes para el estilo
     private static final Color BACKGROUND_COLOR = new Color(41, 41, 50);
@@ -67,15 +73,9 @@ public class MoveHistoryPanel extends JPanel {
         setPreferredSize(new Dimension(200, 400));
         setBackground(BACKGROUND_COLOR);
         this.sfx = SFXManager.getInstance();
-        this.fenHandler = new FEN(null); // No necesitamos el Board aquí
         
         // Crear el modelo de tabla
-        tableModel = new DefaultTableModel(new String[]{"#", "W", "B"}, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new MoveTableModel();
         
         // Crear la tabla
         moveHistoryTable = new JTable(tableModel);
@@ -86,6 +86,15 @@ public class MoveHistoryPanel extends JPanel {
         moveHistoryTable.setShowGrid(true);
         moveHistoryTable.setRowHeight(35);
         
+        // Seleccionar una jugada muestra en el tablero la posición después de ella
+        moveHistoryTable.setCellSelectionEnabled(true);
+        moveHistoryTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        ListSelectionListener selectionListener = e -> {
+            if (!e.getValueIsAdjusting()) notifyMoveSelection();
+        };
+        moveHistoryTable.getSelectionModel().addListSelectionListener(selectionListener);
+        moveHistoryTable.getColumnModel().getSelectionModel().addListSelectionListener(selectionListener);
+        
         // Alinear la columna de números a la derecha
         moveHistoryTable.getColumnModel().getColumn(0).setHeaderRenderer(new javax.swing.table.DefaultTableCellRenderer() {
             {
@@ -137,55 +146,127 @@ public class MoveHistoryPanel extends JPanel {
     }
 
     /**
-     * Actualiza el historial de movimientos con la nueva lista de FENs.
-     * @param fenHistory Lista de strings FEN que representan el estado del tablero en cada movimiento
-     * @param isCheckmate Indica si el último movimiento resultó en jaque mate
-     * @param isInCheck Indica si el rey del color cuyo turno acaba de terminar está en jaque
+     * Añade una jugada al final del historial. Solo se notifica la fila afectada, así que el costo
+     * no crece con la longitud de la partida.
+     * @param move Jugada registrada por el tablero (la SAN ya incluye "+" o "#")
+     * @param isInCheck Indica si el rey del color que tiene el turno está en jaque
+     */
+    public void addMove(MoveRecord move, boolean isInCheck) {
+        clearSelection();
+        int row = tableModel.append(move);
+        sfx.updateCheckState(isInCheck);
+        
+        // Auto-scroll al final
+        moveHistoryTable.scrollRectToVisible(moveHistoryTable.getCellRect(row, 0, true));
+    }
+    
+    /**
+     * Vacía el historial (nueva partida o posición cargada).
+     * @param isInCheck Indica si el rey del color que tiene el turno está en jaque
      */
-    public void updateMoveHistory(List<String> fenHistory, boolean isCheckmate, boolean isInCheck) {
-        // Limpiar la tabla
-        tableModel.setRowCount(0);
-        
-        // Procesar los movimientos
-        for (int i = 1; i < fenHistory.size(); i += 2) {
-            String whiteMove = fenHandler.convertFENtoMove(fenHistory.get(i-1), fenHistory.get(i));
-            String blackMove = (i + 1 < fenHistory.size()) ? 
-                             fenHandler.convertFENtoMove(fenHistory.get(i), fenHistory.get(i+1)) : "";
-            
-            // Temporary print statements for debugging castling notation in MoveHistoryPanel
-            System.out.println("[DEBUG] MoveHistoryPanel processing move pair:");
-            System.out.println("[DEBUG]   White Move String: " + whiteMove);
-            System.out.println("[DEBUG]   Black Move String: " + blackMove);
-            
-            // Si es el último movimiento y es jaque mate, añadir #
-            if (i + 1 >= fenHistory.size()) {
-                 if (isCheckmate) {
-                     if (!blackMove.isEmpty()) {
-                    blackMove += "#";
-                 } else {
-                    whiteMove += "#";
-                 }
-                 } else if (isInCheck) {
-                     if (!blackMove.isEmpty()) {
-                        blackMove += "+";
-                    } else {
-                        whiteMove += "+";
-                    }
-                 }
+    public void clearMoves(boolean isInCheck) {
+        clearSelection();
+        tableModel.clear();
+        sfx.updateCheckState(isInCheck);
+    }
+    
+    /**
+     * @param listener Recibe el número de jugadas desde el inicio hasta la jugada seleccionada
+     *                 (inclusive) cada vez que el usuario selecciona una
+     */
+    public void setMoveSelectionListener(IntConsumer listener) {
+        this.moveSelectionListener = listener;
+    }
+    
+    /**
+     * Quita la selección sin avisar al listener.
+     */
+    public void clearSelection() {
+        updating = true;
+        moveHistoryTable.clearSelection();
+        updating = false;
+    }
+    
+    private void notifyMoveSelection() {
+        if (updating || moveSelectionListener == null) return;
+        int row = moveHistoryTable.getSelectedRow();
+        int column = moveHistoryTable.getSelectedColumn();
+        if (row < 0 || column < 0) return;
+        int ply = tableModel.plyAt(row, column);
+        if (ply >= 0) moveSelectionListener.accept(ply + 1);
+    }
+    
+    /**
+     * Modelo de la tabla sobre la lista de SAN de la partida: una fila por número de jugada,
+     * con la jugada de blancas y la de negras.
+     */
+    private static class MoveTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {"#", "W", "B"};
+        
+        private final List<String> sans = new ArrayList<>();
+        private int firstMoveNumber = 1;
+        private boolean blackStarts;
+        
+        /**
+         * @return Fila donde quedó la jugada
+         */
+        int append(MoveRecord move) {
+            if (sans.isEmpty()) {
+                firstMoveNumber = move.fullmoveNumber;
+                blackStarts = !move.isWhite();
+            }
+            sans.add(move.toSan());
+            int slot = sans.size() - 1 + (blackStarts ? 1 : 0);
+            int row = slot / 2;
+            if (slot % 2 == 0 || sans.size() == 1) {
+                fireTableRowsInserted(row, row);
+            } else {
+                fireTableCellUpdated(row, 2);
             }
-            sfx.updateCheckState(isInCheck);
-            tableModel.addRow(new Object[]{
-                (i/2 + 1) + ".",
-                whiteMove,
-                blackMove
-            });
+            return row;
         }
         
-        // Auto-scroll al final
-        if (moveHistoryTable.getRowCount() > 0) {
-            moveHistoryTable.scrollRectToVisible(
-                moveHistoryTable.getCellRect(moveHistoryTable.getRowCount() - 1, 0, true)
-            );
+        /**
+         * @return Índice de la jugada de una celda (la columna del número cuenta como la última
+         *         jugada de la fila), o -1 si la celda está vacía
+         */
+        int plyAt(int row, int column) {
+            int ply;
+            if (column == 0) {
+                ply = Math.min(row * 2 + 1 - (blackStarts ? 1 : 0), sans.size() - 1);
+            } else {
+                ply = row * 2 + (column - 1) - (blackStarts ? 1 : 0);
+            }
+            return ply >= 0 && ply < sans.size() ? ply : -1;
+        }
+        
+        void clear() {
+            int rows = getRowCount();
+            sans.clear();
+            if (rows > 0) fireTableRowsDeleted(0, rows - 1);
+        }
+        
+        @Override
+        public int getRowCount() {
+            return (sans.size() + (blackStarts ? 1 : 0) + 1) / 2;
+        }
+        
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+        
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+        
+        @Override
+        public Object getValueAt(int row, int column) {
+            if (column == 0) return (firstMoveNumber + row) + ".";
+            int ply = row * 2 + (column - 1) - (blackStarts ? 1 : 0);
+            if (ply < 0) return "...";
+            return ply < sans.size() ? sans.get(ply) : "";
         }
     }
-}
\ No newline at end of file
+}
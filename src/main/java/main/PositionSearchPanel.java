@@ -0,0 +1,200 @@
+package main;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.BorderFactory;
+import javax.swing.DefaultListModel;
+import javax.swing.JButton;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+import games.GameStore;
+import games.PgnGame;
+import games.PositionIndex;
+import utils.FontLoader;
+
+/**
+ * Panel que muestra en qué partidas de una base (ver {@link GameStore} y {@link PositionIndex})
+ * apareció la posición del tablero. La base se elige con "Open"; después cada jugada del tablero
+ * dispara una consulta.
+ *
+ * La consulta al índice tarda microsegundos, pero leer los nombres de los jugadores toca el disco,
+ * así que se hace en un hilo aparte y solo se muestra el resultado de la última posición pedida.
+ *
+ * @author angelsn
+ */
+public class PositionSearchPanel extends JPanel {
+    private static final Color BACKGROUND_COLOR = new Color(41, 41, 50);
+    private static final Color PANEL_COLOR = new Color(51, 51, 60);
+    private static final Color TEXT_COLOR = new Color(250, 255, 224);
+    private static final int PADDING = 10;
+    private static final int MAX_SHOWN = 50;
+
+    private static Font TITLE_FONT;
+    private static Font TEXT_FONT;
+
+    static {
+        try {
+            TITLE_FONT = FontLoader.loadFont(26f);
+            TEXT_FONT = FontLoader.loadFont(16f);
+        } catch (IOException e) {
+            TITLE_FONT = new Font("Century Gothic", Font.BOLD, 26);
+            TEXT_FONT = new Font("Century Gothic", Font.PLAIN, 16);
+        }
+    }
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "position-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final JLabel countLabel = new JLabel("No database", SwingConstants.CENTER);
+    private final DefaultListModel<String> results = new DefaultListModel<>();
+
+    // Solo se usan desde el hilo de búsqueda
+    private GameStore store;
+    private PositionIndex index;
+    private final PgnGame game = new PgnGame();
+    private final long[] hits = new long[MAX_SHOWN];
+
+    private volatile long lastHash;
+    private volatile boolean searched;
+
+    public PositionSearchPanel() {
+        setLayout(new BorderLayout());
+        setPreferredSize(new Dimension(200, 220));
+        setBackground(BACKGROUND_COLOR);
+
+        JLabel title = new JLabel("Games", SwingConstants.CENTER);
+        title.setFont(TITLE_FONT);
+        title.setForeground(TEXT_COLOR);
+        title.setBorder(BorderFactory.createEmptyBorder(PADDING, 0, PADDING, 0));
+
+        JButton open = new JButton("Open");
+        open.setFont(TEXT_FONT);
+        open.setFocusable(false);
+        open.addActionListener(e -> chooseDatabase());
+
+        JPanel header = new JPanel(new BorderLayout());
+        header.setBackground(BACKGROUND_COLOR);
+        header.add(title, BorderLayout.CENTER);
+        header.add(open, BorderLayout.EAST);
+
+        countLabel.setFont(TEXT_FONT);
+        countLabel.setForeground(TEXT_COLOR);
+
+        JList<String> list = new JList<>(results);
+        list.setFont(TEXT_FONT);
+        list.setForeground(TEXT_COLOR);
+        list.setBackground(PANEL_COLOR);
+        list.setFocusable(false);
+        JScrollPane scrollPane = new JScrollPane(list);
+        scrollPane.setBorder(BorderFactory.createEmptyBorder());
+
+        JPanel body = new JPanel(new BorderLayout());
+        body.setBackground(PANEL_COLOR);
+        body.setBorder(BorderFactory.createEmptyBorder(0, PADDING, PADDING, PADDING));
+        body.add(countLabel, BorderLayout.NORTH);
+        body.add(scrollPane, BorderLayout.CENTER);
+
+        add(header, BorderLayout.NORTH);
+        add(body, BorderLayout.CENTER);
+    }
+
+    private void chooseDatabase() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Game database (*.games)", "games"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        String name = file.getName().endsWith(".games")
+                ? file.getName().substring(0, file.getName().length() - ".games".length())
+                : file.getName();
+        Path base = file.toPath().resolveSibling(name);
+        worker.execute(() -> open(base));
+    }
+
+    private void open(Path base) {
+        closeDatabase();
+        try {
+            store = GameStore.open(base);
+            index = PositionIndex.open(base);
+        } catch (IOException e) {
+            closeDatabase();
+            show("Can't open: " + e.getMessage(), List.of());
+            return;
+        }
+        if (searched) lookup(lastHash);
+    }
+
+    /**
+     * Busca la posición en la base abierta (si hay una). Se llama después de cada jugada.
+     * @param hash Hash Zobrist de la posición del tablero
+     */
+    public void search(long hash) {
+        lastHash = hash;
+        searched = true;
+        worker.execute(() -> {
+            if (hash == lastHash) lookup(hash);
+        });
+    }
+
+    private void lookup(long hash) {
+        if (index == null) return;
+        long total = index.find(hash, hits);
+        List<String> lines = new ArrayList<>();
+        try {
+            for (int i = 0; i < Math.min(total, MAX_SHOWN); i++) {
+                long number = PositionIndex.gameOf(hits[i]);
+                store.read(number, game, true);
+                lines.add("#" + number + " " + game.tag("White") + " - " + game.tag("Black") + " "
+                        + game.result + " (ply " + PositionIndex.plyOf(hits[i]) + ")");
+            }
+        } catch (IOException e) {
+            lines.add("Read error: " + e.getMessage());
+        }
+        show(total == 1 ? "Found once" : "Found " + total + " times", lines);
+    }
+
+    private void show(String count, List<String> lines) {
+        SwingUtilities.invokeLater(() -> {
+            countLabel.setText(count);
+            results.clear();
+            results.addAll(lines);
+        });
+    }
+
+    private void closeDatabase() {
+        try {
+            if (store != null) store.close();
+            if (index != null) index.close();
+        } catch (IOException e) {
+            System.out.println("Error closing game database: " + e.getMessage());
+        }
+        store = null;
+        index = null;
+    }
+
+    /**
+     * Cierra la base y el hilo de búsqueda. Se llama cuando el tablero se descarta (nueva partida).
+     */
+    public void shutdown() {
+        worker.execute(this::closeDatabase);
+        worker.shutdown();
+    }
+}
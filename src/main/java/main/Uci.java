@@ -0,0 +1,281 @@
+package main;
+
+import engine.Engine;
+import engine.Moves;
+import engine.Position;
+import engine.SearchLimits;
+import engine.SearchResult;
+import engine.SearchTelemetry;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Modo UCI (Universal Chess Interface) por entrada/salida estándar, sin ventana Swing.
+ * Permite usar el motor desde administradores de torneos y perfiladores externos.
+ *
+ * Comandos soportados: uci, isready, ucinewgame, setoption (Hash, Threads, Telemetry),
+ * position [startpos | fen ...] [moves ...], go (depth, nodes, movetime, wtime, btime,
+ * winc, binc, movestogo, infinite, searchmoves), stop, quit.
+ *
+ * La opción Telemetry es un archivo donde agregar la telemetría de cada búsqueda en JSON lines
+ * ({@link SearchTelemetry}); {@code <empty>} la apaga.
+ *
+ * @author angelsn
+ */
+public class Uci {
+    private final Engine engine = new Engine();
+    private final FEN fenHandler = new FEN(null);
+    private final Position position = new Position();
+    private final PrintStream out;
+    private Thread searchThread;
+    private boolean infiniteSearch;
+    private SearchTelemetry telemetry;
+
+    public Uci(PrintStream out) {
+        this.out = out;
+        fenHandler.loadFromFEN(Position.STARTING_FEN, position);
+    }
+
+    public static void main(String[] args) throws IOException {
+        new Uci(System.out).run(new BufferedReader(new InputStreamReader(System.in)));
+    }
+
+    /**
+     * Lee comandos hasta "quit" o fin de entrada.
+     * @param in Entrada de comandos
+     * @throws IOException si falla la lectura
+     */
+    public void run(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) continue;
+            if (!handle(line)) {
+                stopSearch();
+                setTelemetry(null);
+                return;
+            }
+        }
+        // Fin de la entrada (ej: comandos desde un archivo): dejar terminar una búsqueda con límites
+        if (searchThread != null && !infiniteSearch) {
+            try {
+                searchThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        stopSearch();
+        setTelemetry(null);
+    }
+
+    /**
+     * Procesa un comando.
+     * @param line Línea de comando UCI
+     * @return False si el comando fue "quit"
+     */
+    boolean handle(String line) {
+        String[] tokens = line.split("\\s+");
+        switch (tokens[0]) {
+            case "uci":
+                send("id name Chessdrez");
+                send("id author angelsn & Ricardo");
+                send("option name Hash type spin default " + Engine.DEFAULT_HASH_MB + " min 1 max 4096");
+                send("option name Threads type spin default 1 min 1 max 256");
+                send("option name Telemetry type string default <empty>");
+                send("uciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "ucinewgame":
+                stopSearch();
+                engine.newGame();
+                break;
+            case "setoption":
+                stopSearch();
+                setOption(tokens);
+                break;
+            case "position":
+                stopSearch();
+                setPosition(tokens);
+                break;
+            case "go":
+                stopSearch();
+                go(tokens);
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "quit":
+                return false;
+            default:
+                send("info string Unknown command: " + tokens[0]);
+        }
+        return true;
+    }
+
+    private void setOption(String[] tokens) {
+        // setoption name <id> value <x>
+        String name = null;
+        String value = null;
+        for (int i = 1; i < tokens.length - 1; i++) {
+            if (tokens[i].equals("name")) name = tokens[i + 1];
+            if (tokens[i].equals("value")) value = tokens[i + 1];
+        }
+        if (name == null || value == null) return;
+        try {
+            if (name.equalsIgnoreCase("Hash")) {
+                engine.setHashSize(Integer.parseInt(value));
+            } else if (name.equalsIgnoreCase("Threads")) {
+                engine.setThreads(Integer.parseInt(value));
+            } else if (name.equalsIgnoreCase("Telemetry")) {
+                setTelemetry(value.equals("<empty>") ? null : value);
+            } else {
+                send("info string Unknown option: " + name);
+            }
+        } catch (NumberFormatException e) {
+            send("info string Invalid value for " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Cambia el archivo de telemetría (cerrando el anterior).
+     * @param file Archivo, o null para apagarla
+     */
+    private void setTelemetry(String file) {
+        stopSearch();
+        engine.setTelemetry(null);
+        try {
+            if (telemetry != null) telemetry.close();
+            telemetry = null;
+            if (file != null) {
+                telemetry = SearchTelemetry.open(Path.of(file));
+                engine.setTelemetry(telemetry);
+            }
+        } catch (IOException e) {
+            send("info string Can't open telemetry file " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void setPosition(String[] tokens) {
+        int i = 1;
+        String fen;
+        if (i < tokens.length && tokens[i].equals("startpos")) {
+            fen = Position.STARTING_FEN;
+            i++;
+        } else if (i < tokens.length && tokens[i].equals("fen")) {
+            StringBuilder sb = new StringBuilder();
+            i++;
+            while (i < tokens.length && !tokens[i].equals("moves")) {
+                sb.append(tokens[i++]).append(' ');
+            }
+            fen = sb.toString().trim();
+        } else {
+            send("info string Invalid position command");
+            return;
+        }
+        try {
+            fenHandler.loadFromFEN(fen, position);
+        } catch (IllegalArgumentException e) {
+            send("info string " + e.getMessage());
+            return;
+        }
+        if (i < tokens.length && tokens[i].equals("moves")) {
+            for (i++; i < tokens.length; i++) {
+                int move = position.parseUciMove(tokens[i]);
+                if (move == Moves.NONE) {
+                    send("info string Illegal move: " + tokens[i]);
+                    return;
+                }
+                position.makeMove(move);
+                // Solo importan las jugadas desde la última captura o avance de peón para las repeticiones
+                if (position.halfmoveClock == 0) position.resetHistory();
+            }
+        }
+    }
+
+    /**
+     * Lee las jugadas de "searchmoves" hasta el final o hasta la próxima palabra que no sea una
+     * jugada legal.
+     * @return Índice del primer token que no se leyó
+     */
+    private int searchMoves(String[] tokens, int from, SearchLimits limits) {
+        List<Integer> moves = new ArrayList<>();
+        int i = from;
+        for (; i < tokens.length; i++) {
+            int move = position.parseUciMove(tokens[i]);
+            if (move == Moves.NONE) break;
+            moves.add(move);
+        }
+        if (!moves.isEmpty()) limits.searchMoves = moves.stream().mapToInt(Integer::intValue).toArray();
+        return i;
+    }
+
+    private void go(String[] tokens) {
+        SearchLimits limits = new SearchLimits();
+        for (int i = 1; i < tokens.length; i++) {
+            String value = i + 1 < tokens.length ? tokens[i + 1] : "0";
+            try {
+                switch (tokens[i]) {
+                    case "depth": limits.depth = Integer.parseInt(value); i++; break;
+                    case "nodes": limits.nodes = Long.parseLong(value); i++; break;
+                    case "movetime": limits.moveTime = Long.parseLong(value); i++; break;
+                    case "wtime": limits.whiteTime = Long.parseLong(value); i++; break;
+                    case "btime": limits.blackTime = Long.parseLong(value); i++; break;
+                    case "winc": limits.whiteIncrement = Long.parseLong(value); i++; break;
+                    case "binc": limits.blackIncrement = Long.parseLong(value); i++; break;
+                    case "movestogo": limits.movesToGo = Integer.parseInt(value); i++; break;
+                    case "infinite": limits.infinite = true; break;
+                    case "searchmoves":
+                        i = searchMoves(tokens, i + 1, limits) - 1;
+                        break;
+                    default: break;
+                }
+            } catch (NumberFormatException e) {
+                send("info string Invalid value for " + tokens[i] + ": " + value);
+            }
+        }
+        infiniteSearch = limits.infinite;
+        Position root = new Position(position);
+        searchThread = new Thread(() -> {
+            SearchResult result = engine.search(root, limits, this::sendInfo);
+            String bestMove = "bestmove " + Moves.toUci(result.bestMove());
+            if (result.ponderMove() != Moves.NONE) bestMove += " ponder " + Moves.toUci(result.ponderMove());
+            send(bestMove);
+        }, "uci-search");
+        searchThread.start();
+    }
+
+    private void sendInfo(SearchResult result) {
+        String score = result.isMate() ? "mate " + result.mateIn() : "cp " + result.score;
+        send("info depth " + result.depth + " seldepth " + result.selDepth + " score " + score
+                + " nodes " + result.nodes + " nps " + result.nps() + " time " + result.timeMillis
+                + " hashfull " + engine.transpositionTable().hashfull() + " pv " + result.pvString());
+    }
+
+    private void stopSearch() {
+        if (searchThread == null) return;
+        try {
+            // Se repite por si la búsqueda aún no había empezado cuando llegó la orden de parar
+            while (searchThread.isAlive()) {
+                engine.stop();
+                searchThread.join(10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        searchThread = null;
+    }
+
+    private void send(String message) {
+        synchronized (out) {
+            out.println(message);
+            out.flush();
+        }
+    }
+}
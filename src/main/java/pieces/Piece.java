@@ -26,8 +26,9 @@ public abstract class Piece {
     
     public boolean isFirstMove = true;
     
-    BufferedImage sheet;
-    {
+    // La hoja de sprites se decodifica una sola vez, no por cada pieza creada
+    static BufferedImage sheet;
+    static {
         try {
             sheet = ImageIO.read(ClassLoader.getSystemResourceAsStream("pieces.png"));
         } catch (Exception e) {
@@ -2,9 +2,13 @@
 package screens;
 
 import java.awt.BorderLayout;
+import java.awt.GridLayout;
 import javax.swing.JPanel;
+import main.AnalysisPanel;
 import main.Board;
+import main.ExplorerPanel;
 import main.MoveHistoryPanel;
+import main.PositionSearchPanel;
 
 /**
  *
@@ -13,20 +17,43 @@ import main.MoveHistoryPanel;
 public class Game extends JPanel {
     private Board board = new Board();
     private MoveHistoryPanel historyPanel = board.getMoveHistoryPanel();
+    private AnalysisPanel analysisPanel = board.getAnalysisPanel();
+    private PositionSearchPanel searchPanel = board.getPositionSearchPanel();
+    private ExplorerPanel explorerPanel = board.getExplorerPanel();
     
     public Game() {
         this.setLayout(new BorderLayout());
         this.add(board, BorderLayout.CENTER);
-        this.add(historyPanel, BorderLayout.EAST);
+        this.add(createSidePanel(), BorderLayout.EAST);
+    }
+    
+    // Historial y explorador arriba, y análisis y búsqueda en la base debajo, a la derecha del tablero
+    private JPanel createSidePanel() {
+        JPanel top = new JPanel(new GridLayout(2, 1));
+        top.add(historyPanel);
+        top.add(explorerPanel);
+        JPanel bottom = new JPanel(new BorderLayout());
+        bottom.add(analysisPanel, BorderLayout.NORTH);
+        bottom.add(searchPanel, BorderLayout.CENTER);
+        JPanel side = new JPanel(new BorderLayout());
+        side.add(top, BorderLayout.CENTER);
+        side.add(bottom, BorderLayout.SOUTH);
+        return side;
     }
     
     // Método para reiniciar el juego si es necesario
     public void resetGame() {
         this.removeAll();
+        analysisPanel.shutdown();
+        searchPanel.shutdown();
+        explorerPanel.close();
         board = new Board();
         historyPanel = board.getMoveHistoryPanel();
+        analysisPanel = board.getAnalysisPanel();
+        searchPanel = board.getPositionSearchPanel();
+        explorerPanel = board.getExplorerPanel();
         this.add(board, BorderLayout.CENTER);
-        this.add(historyPanel, BorderLayout.EAST);
+        this.add(createSidePanel(), BorderLayout.EAST);
         this.revalidate();
         this.repaint();
     }
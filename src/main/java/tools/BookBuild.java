@@ -0,0 +1,79 @@
+package tools;
+
+import engine.FenParser;
+import engine.MoveRecord;
+import engine.Position;
+import games.PairSorter;
+import games.PolyglotBook;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Construye un libro de aperturas Polyglot a partir de un PGN, o muestra las jugadas del libro
+ * para una posición.
+ *
+ * Uso: book archivo.pgn [--out libro.bin] [--plies 30] [--min-games 1] [--keys claves.txt|engine]
+ *                       [--threads N] [--run-entries N] [--tmp carpeta]
+ *      book libro.bin --fen "FEN" [--keys claves.txt|engine]
+ *
+ * Sin --keys el libro usa la tabla Random64 estándar de Polyglot; "--keys engine" usa las claves
+ * Zobrist del motor (el libro solo sirve para este programa) y "--keys archivo" lee otra tabla
+ * (ver {@link PolyglotBook}).
+ *
+ * @author angelsn
+ */
+public class BookBuild {
+
+    /** Valor de --keys para usar las claves del motor. */
+    public static final String ENGINE_KEYS = "engine";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: book <file.pgn> [--out book.bin] [--plies 30] [--min-games 1] [--keys file|engine]"
+                    + " [--threads N] [--run-entries N] [--tmp dir] | book <book.bin> --fen <fen> [--keys file|engine]");
+            return;
+        }
+        Path input = Path.of(args[0]);
+        Map<String, String> options = MatchRunner.parseOptions(Arrays.copyOfRange(args, 1, args.length));
+        String keyOption = options.get("keys");
+        long[] keys = keyOption == null ? PolyglotBook.random64()
+                : keyOption.equals(ENGINE_KEYS) ? null : PolyglotBook.readKeys(Path.of(keyOption));
+        if (options.containsKey("fen")) {
+            probe(input, options.get("fen"), keys);
+            return;
+        }
+        String name = input.getFileName().toString();
+        String defaultOut = (name.endsWith(".pgn") ? name.substring(0, name.length() - 4) : name) + ".bin";
+        Path out = Path.of(options.getOrDefault("out", input.resolveSibling(defaultOut).toString()));
+        Path tmp = Path.of(options.getOrDefault("tmp", out.toAbsolutePath().getParent().toString()));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int plies = Integer.parseInt(options.getOrDefault("plies", String.valueOf(PolyglotBook.DEFAULT_PLIES)));
+        int minGames = Integer.parseInt(options.getOrDefault("min-games", "1"));
+        int runEntries = Integer.parseInt(options.getOrDefault("run-entries",
+                String.valueOf(PairSorter.DEFAULT_RUN_ENTRIES)));
+
+        long start = System.nanoTime();
+        long entries = PolyglotBook.build(input, out, keys, threads, plies, minGames, runEntries, tmp);
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        System.out.println("===========================");
+        System.out.println("Output          : " + out);
+        System.out.println("Entries         : " + entries);
+        System.out.println("Keys            : " + (keyOption == null ? "Polyglot Random64" : keyOption));
+        System.out.println("Total time (ms) : " + millis);
+    }
+
+    private static void probe(Path book, String fen, long[] keys) throws Exception {
+        Position position = new Position();
+        new FenParser().parseOrThrow(fen, position);
+        int[] legal = new int[Position.MAX_MOVES];
+        int count = position.generateLegalMoves(legal);
+        List<PolyglotBook.BookMove> moves = PolyglotBook.probe(book, position, keys);
+        System.out.printf("Key %016x: %d moves%n", PolyglotBook.key(position, keys), moves.size());
+        for (PolyglotBook.BookMove m : moves) {
+            System.out.printf("%-8s %6d%n", MoveRecord.create(position, m.move, legal, count).toSan(), m.weight);
+        }
+    }
+}
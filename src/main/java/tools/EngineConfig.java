@@ -0,0 +1,90 @@
+package tools;
+
+import engine.Engine;
+import engine.Evaluator;
+import engine.SearchLimits;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Configuración de un motor para las herramientas sin ventana, escrita como "clave=valor" separados
+ * por comas (ej: "name=dev,nodes=20000,hash=16"). Claves: name, depth, nodes, movetime, hash, threads,
+ * eval (archivo de pesos de {@link Evaluator#load}).
+ *
+ * @author angelsn
+ */
+public class EngineConfig {
+    public String name = "Chessdrez";
+    public int depth;
+    public long nodes;
+    public long moveTime;
+    public int hashMegabytes = Engine.DEFAULT_HASH_MB;
+    public int threads = 1;
+    public String evalFile;
+    public int[] weights; // null = pesos por defecto
+
+    /**
+     * @param spec Configuración en formato "clave=valor,..."
+     * @param defaultName Nombre a usar si la configuración no trae "name"
+     * @return Configuración leída
+     * @throws IllegalArgumentException si alguna clave o valor es inválido
+     */
+    public static EngineConfig parse(String spec, String defaultName) {
+        EngineConfig config = new EngineConfig();
+        config.name = defaultName;
+        if (spec != null && !spec.isBlank()) {
+            for (String pair : spec.split(",")) {
+                String[] kv = pair.split("=", 2);
+                if (kv.length != 2) {
+                    throw new IllegalArgumentException("Invalid engine option: " + pair);
+                }
+                String key = kv[0].trim();
+                String value = kv[1].trim();
+                try {
+                    switch (key) {
+                        case "name": config.name = value; break;
+                        case "depth": config.depth = Integer.parseInt(value); break;
+                        case "nodes": config.nodes = Long.parseLong(value); break;
+                        case "movetime": config.moveTime = Long.parseLong(value); break;
+                        case "hash": config.hashMegabytes = Integer.parseInt(value); break;
+                        case "threads": config.threads = Integer.parseInt(value); break;
+                        case "eval":
+                            config.evalFile = value;
+                            config.weights = Evaluator.load(Path.of(value));
+                            break;
+                        default: throw new IllegalArgumentException("Unknown engine option: " + key);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid value for " + key + ": " + value);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Can't read weights: " + e.getMessage());
+                }
+            }
+        }
+        if (config.depth == 0 && config.nodes == 0 && config.moveTime == 0) {
+            config.nodes = 20_000; // límite por defecto para partidas rápidas y reproducibles
+        }
+        return config;
+    }
+
+    public SearchLimits limits() {
+        SearchLimits limits = new SearchLimits();
+        limits.depth = depth;
+        limits.nodes = nodes;
+        limits.moveTime = moveTime;
+        return limits;
+    }
+
+    public Engine createEngine() {
+        Engine engine = new Engine(hashMegabytes, threads);
+        if (weights != null) engine.setEvaluator(new Evaluator(weights));
+        return engine;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (depth=" + depth + ", nodes=" + nodes + ", movetime=" + moveTime
+                + ", hash=" + hashMegabytes + ", threads=" + threads
+                + (evalFile != null ? ", eval=" + evalFile : "") + ")";
+    }
+}
@@ -0,0 +1,277 @@
+package tools;
+
+import engine.Engine;
+import engine.Moves;
+import engine.Position;
+import engine.San;
+import engine.SearchLimits;
+import engine.SearchResult;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import main.FEN;
+
+/**
+ * Ejecuta una batería de posiciones EPD (WAC, STS, ...) con las operaciones "bm" (mejor jugada)
+ * y "am" (jugada a evitar).
+ *
+ * Cada posición se busca con un límite fijo de tiempo, nodos o profundidad. Las posiciones se
+ * reparten entre varios hilos, cada uno con su propio motor de un hilo y su propia copia de la
+ * posición, así el resultado de cada posición no depende de cuántas se busquen a la vez. Al final
+ * se muestran las resueltas, el tiempo hasta la solución (desde qué iteración la mejor jugada ya
+ * no cambió a una incorrecta) y los nodos por segundo de todos los hilos juntos.
+ *
+ * Uso: epd archivo.epd [--time ms | --nodes N | --depth N] [--threads N] [--hash MB]
+ *
+ * @author angelsn
+ */
+public class EpdRunner {
+    public static final long DEFAULT_TIME_MS = 1000;
+
+    /**
+     * Una línea EPD: posición, jugadas "bm"/"am", mate anunciado "dm" e identificador.
+     */
+    static class EpdPosition {
+        int line;
+        String id;
+        String fen;
+        int mateIn; // 0 si no hay "dm"
+        final Position position = new Position();
+        final List<Integer> bestMoves = new ArrayList<>();
+        final List<Integer> avoidMoves = new ArrayList<>();
+
+        boolean isCorrect(int move) {
+            if (!bestMoves.isEmpty() && !bestMoves.contains(move)) return false;
+            return !avoidMoves.contains(move);
+        }
+    }
+
+    /**
+     * Resultado de una posición.
+     */
+    static class EpdResult {
+        EpdPosition epd;
+        SearchResult search;
+        String san;
+        boolean solved;
+        long solvedAtMillis = -1;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: epd <file.epd> [--time ms | --nodes N | --depth N] [--threads N] [--hash MB]");
+            return;
+        }
+        Map<String, String> options = MatchRunner.parseOptions(Arrays.copyOfRange(args, 1, args.length));
+        SearchLimits limits;
+        if (options.containsKey("nodes")) {
+            limits = SearchLimits.nodes(Long.parseLong(options.get("nodes")));
+        } else if (options.containsKey("depth")) {
+            limits = SearchLimits.depth(Integer.parseInt(options.get("depth")));
+        } else {
+            limits = SearchLimits.moveTime(Long.parseLong(options.getOrDefault("time", String.valueOf(DEFAULT_TIME_MS))));
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int hash = Integer.parseInt(options.getOrDefault("hash", String.valueOf(Engine.DEFAULT_HASH_MB)));
+
+        List<EpdPosition> suite = load(Path.of(args[0]));
+        run(suite, limits, threads, hash);
+    }
+
+    /**
+     * Lee un archivo EPD. Las líneas vacías y las que empiezan con "#" se ignoran; una línea
+     * inválida o sin "bm"/"am" se reporta y se salta.
+     */
+    static List<EpdPosition> load(Path file) throws IOException {
+        FEN fenHandler = new FEN(null);
+        List<EpdPosition> suite = new ArrayList<>();
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            try {
+                EpdPosition epd = parse(line, fenHandler);
+                epd.line = i + 1;
+                if (epd.bestMoves.isEmpty() && epd.avoidMoves.isEmpty()) {
+                    System.out.println("Line " + (i + 1) + ": no bm/am operation, skipped");
+                } else {
+                    suite.add(epd);
+                }
+            } catch (IllegalArgumentException e) {
+                System.out.println("Line " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        return suite;
+    }
+
+    /**
+     * Interpreta una línea EPD: cuatro campos de FEN y operaciones "opcode operandos;".
+     */
+    static EpdPosition parse(String line, FEN fenHandler) {
+        String[] fields = line.split("\\s+", 5);
+        if (fields.length < 4) throw new IllegalArgumentException("Expected at least 4 FEN fields");
+        String operations = fields.length == 5 ? fields[4] : "";
+
+        EpdPosition epd = new EpdPosition();
+        String halfmove = "0", fullmove = "1";
+        List<String[]> ops = operations(operations);
+        for (String[] op : ops) {
+            if (op[0].equals("hmvc") && op.length > 1) halfmove = op[1];
+            if (op[0].equals("fmvn") && op.length > 1) fullmove = op[1];
+        }
+        epd.fen = fields[0] + " " + fields[1] + " " + fields[2] + " " + fields[3] + " " + halfmove + " " + fullmove;
+        fenHandler.loadFromFEN(epd.fen, epd.position);
+
+        for (String[] op : ops) {
+            switch (op[0]) {
+                case "bm":
+                case "am":
+                    List<Integer> target = op[0].equals("bm") ? epd.bestMoves : epd.avoidMoves;
+                    for (int i = 1; i < op.length; i++) {
+                        int move = San.parse(epd.position, op[i]);
+                        if (move == Moves.NONE) move = epd.position.parseUciMove(op[i]);
+                        if (move == Moves.NONE) throw new IllegalArgumentException("Illegal move in " + op[0] + ": " + op[i]);
+                        target.add(move);
+                    }
+                    break;
+                case "dm":
+                    if (op.length > 1) epd.mateIn = Integer.parseInt(op[1]);
+                    break;
+                case "id":
+                    epd.id = op.length > 1 ? String.join(" ", Arrays.copyOfRange(op, 1, op.length)) : null;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (epd.id == null) epd.id = epd.fen;
+        return epd;
+    }
+
+    /**
+     * Separa las operaciones "opcode op1 op2;" respetando los operandos entre comillas.
+     * @return Cada operación como [opcode, operandos...] (sin comillas)
+     */
+    private static List<String[]> operations(String text) {
+        List<String[]> ops = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ';';
+            if (quoted) {
+                if (c == '"') quoted = false;
+                else token.append(c);
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ';' || Character.isWhitespace(c)) {
+                if (token.length() > 0) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                }
+                if (c == ';' && !tokens.isEmpty()) {
+                    ops.add(tokens.toArray(new String[0]));
+                    tokens.clear();
+                }
+            } else {
+                token.append(c);
+            }
+        }
+        return ops;
+    }
+
+    /**
+     * Busca todas las posiciones e imprime el resumen.
+     * @return Número de posiciones resueltas
+     */
+    static int run(List<EpdPosition> suite, SearchLimits limits, int threads, int hashMegabytes)
+            throws InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ThreadLocal<Engine> engines = ThreadLocal.withInitial(() -> new Engine(hashMegabytes, 1));
+        long start = System.nanoTime();
+        List<Future<EpdResult>> futures = new ArrayList<>();
+        try {
+            for (EpdPosition epd : suite) {
+                futures.add(pool.submit(() -> {
+                    EpdResult result = solve(engines.get(), epd, limits);
+                    synchronized (EpdRunner.class) {
+                        System.out.printf("%-5s %-20s %-8s %8d nodes  %s%n", result.solved ? "ok" : "FAIL",
+                                epd.id, result.san, result.search.nodes,
+                                result.solved ? "(" + result.solvedAtMillis + " ms)" : "");
+                    }
+                    return result;
+                }));
+            }
+            List<EpdResult> results = new ArrayList<>();
+            for (Future<EpdResult> future : futures) {
+                results.add(future.get());
+            }
+            long wallMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            return report(results, wallMillis);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Busca una posición en una copia propia (la del {@link EpdPosition} la comparten todos los
+     * hilos), con la tabla hash vacía.
+     */
+    static EpdResult solve(Engine engine, EpdPosition epd, SearchLimits limits) {
+        Position position = new Position(epd.position);
+        EpdResult result = new EpdResult();
+        result.epd = epd;
+        engine.newGame();
+        long[] correctSince = {-1};
+        result.search = engine.search(position, limits, iteration -> {
+            if (epd.isCorrect(iteration.bestMove())) {
+                if (correctSince[0] < 0) correctSince[0] = iteration.timeMillis;
+            } else {
+                correctSince[0] = -1;
+            }
+        });
+        int best = result.search.bestMove();
+        result.san = best == Moves.NONE ? "-" : San.toSan(position, best);
+        result.solved = best != Moves.NONE && epd.isCorrect(best);
+        if (result.solved) {
+            result.solvedAtMillis = correctSince[0] >= 0 ? correctSince[0] : result.search.timeMillis;
+        }
+        return result;
+    }
+
+    private static int report(List<EpdResult> results, long wallMillis) {
+        int solved = 0;
+        long totalNodes = 0;
+        long solveTime = 0;
+        List<String> failed = new ArrayList<>();
+        for (EpdResult r : results) {
+            totalNodes += r.search.nodes;
+            if (r.solved) {
+                solved++;
+                solveTime += r.solvedAtMillis;
+            } else {
+                failed.add(r.epd.id);
+            }
+        }
+        System.out.println("===========================");
+        System.out.println("Solved          : " + solved + "/" + results.size());
+        System.out.println("Avg time to sol.: " + (solved == 0 ? "-" : solveTime / solved + " ms"));
+        System.out.println("Total time (ms) : " + wallMillis);
+        System.out.println("Nodes searched  : " + totalNodes);
+        System.out.println("Nodes/second    : " + totalNodes * 1000 / wallMillis);
+        if (!failed.isEmpty()) {
+            System.out.println("Failed          : " + String.join(", ", failed));
+        }
+        return solved;
+    }
+}
@@ -0,0 +1,71 @@
+package tools;
+
+import engine.FenParser;
+import engine.MoveRecord;
+import engine.Position;
+import games.OpeningExplorer;
+import games.PairSorter;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calcula las estadísticas del explorador de aperturas de una colección (PGN o base binaria), o
+ * consulta las de una posición.
+ *
+ * Uso: explorer coleccion [--out archivo.exp] [--plies 40] [--threads N] [--run-entries N]
+ *      explorer archivo.exp --fen "FEN"
+ *
+ * @author angelsn
+ */
+public class ExplorerBuild {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: explorer <file.pgn|base> [--out file.exp] [--plies 40] [--threads N]"
+                    + " | explorer <file.exp> --fen <fen>");
+            return;
+        }
+        Map<String, String> options = MatchRunner.parseOptions(Arrays.copyOfRange(args, 1, args.length));
+        if (options.containsKey("fen")) {
+            query(Path.of(args[0]), options.get("fen"));
+            return;
+        }
+        Path collection = Path.of(args[0]);
+        String name = collection.getFileName().toString();
+        String defaultOut = (name.endsWith(".pgn") ? name.substring(0, name.length() - 4) : name) + ".exp";
+        Path out = Path.of(options.getOrDefault("out", collection.resolveSibling(defaultOut).toString()));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int plies = Integer.parseInt(options.getOrDefault("plies", String.valueOf(OpeningExplorer.DEFAULT_PLIES)));
+        int runEntries = Integer.parseInt(options.getOrDefault("run-entries",
+                String.valueOf(PairSorter.DEFAULT_RUN_ENTRIES)));
+
+        long start = System.nanoTime();
+        long entries = OpeningExplorer.build(collection, out, threads, plies, runEntries);
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        System.out.println("===========================");
+        System.out.println("Output          : " + out);
+        System.out.println("Position/moves  : " + entries);
+        System.out.println("Total time (ms) : " + millis);
+    }
+
+    private static void query(Path file, String fen) throws Exception {
+        Position position = new Position();
+        new FenParser().parseOrThrow(fen, position);
+        int[] legal = new int[Position.MAX_MOVES];
+        int count = position.generateLegalMoves(legal);
+        try (OpeningExplorer explorer = OpeningExplorer.open(file)) {
+            long start = System.nanoTime();
+            List<OpeningExplorer.Continuation> moves = explorer.find(position.hash);
+            long micros = (System.nanoTime() - start) / 1000;
+            System.out.println(moves.size() + " moves (" + micros + " us)");
+            for (OpeningExplorer.Continuation c : moves) {
+                System.out.printf("%-8s %8d  %5.1f%% %5.1f%% %5.1f%%  %4d%n",
+                        MoveRecord.create(position, c.move, legal, count).toSan(), c.games,
+                        c.whitePercent(), c.drawPercent(), c.blackPercent(), c.averageRating());
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package tools;
+
+import engine.FenParser;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Lee un archivo con un FEN por línea usando {@link FenParser} y reporta cuántas líneas son
+ * válidas, los primeros errores (línea y columna) y la velocidad de lectura.
+ *
+ * Uso: fens archivo.fen [--max-errors 20]
+ *
+ * @author angelsn
+ */
+public class FenBatch {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: fens <file> [--max-errors 20]");
+            return;
+        }
+        Path file = Path.of(args[0]);
+        Map<String, String> options = MatchRunner.parseOptions(Arrays.copyOfRange(args, 1, args.length));
+        int maxErrors = Integer.parseInt(options.getOrDefault("max-errors", "20"));
+
+        long[] invalid = new long[1];
+        long start = System.nanoTime();
+        long total = new FenParser().parseFile(file, (line, position, parser) -> {
+            if (position == null && invalid[0]++ < maxErrors) {
+                System.out.println("Line " + line + ", column " + (parser.errorOffset() + 1) + ": "
+                        + parser.errorMessage());
+            }
+        });
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        long bytes = Files.size(file);
+
+        System.out.println("===========================");
+        System.out.println("Positions       : " + total);
+        System.out.println("Invalid         : " + invalid[0]);
+        System.out.println("Total time (ms) : " + millis);
+        System.out.println("Positions/second: " + total * 1000 / millis);
+        System.out.printf("MB/second       : %.1f%n", bytes / 1048576.0 * 1000 / millis);
+    }
+}
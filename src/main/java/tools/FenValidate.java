@@ -0,0 +1,208 @@
+package tools;
+
+import engine.FenParser;
+import engine.Position;
+import engine.PositionValidator;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Revisa un archivo con un FEN por línea: primero la sintaxis con {@link FenParser} y después
+ * que la posición sea legal con {@link PositionValidator}. Escribe un reporte con una línea por
+ * FEN inválido ("número de línea: error; error") y, si se pide, un archivo solo con los FEN
+ * válidos, listo para los trabajos de análisis.
+ *
+ * El archivo se lee en bloques de unos MB cortados en fin de línea; cada bloque se revisa en un
+ * hilo del pool y los resultados se escriben en el orden del archivo. Solo hay unos pocos bloques
+ * en memoria a la vez, así que el tamaño del archivo no importa.
+ *
+ * Uso: validate archivo.fen [--threads N] [--report errores.txt] [--clean validos.fen]
+ *
+ * @author angelsn
+ */
+public class FenValidate {
+    private static final int BLOCK_SIZE = 4 << 20;
+
+    /**
+     * Resultado de un bloque.
+     */
+    private static class BlockResult {
+        final StringBuilder report = new StringBuilder();
+        byte[] clean;
+        int cleanLength;
+        long fens;
+        long syntaxErrors;
+        long illegal;
+        final Map<String, Long> errorCounts = new LinkedHashMap<>();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        if (args.length == 0) {
+            System.err.println("Usage: validate <file> [--threads N] [--report errors.txt] [--clean valid.fen]");
+            return;
+        }
+        Path file = Path.of(args[0]);
+        Map<String, String> options = MatchRunner.parseOptions(Arrays.copyOfRange(args, 1, args.length));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        Path report = options.containsKey("report") ? Path.of(options.get("report")) : null;
+        Path clean = options.containsKey("clean") ? Path.of(options.get("clean")) : null;
+
+        long start = System.nanoTime();
+        BlockResult total = validate(file, threads, report, clean);
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        System.out.println("===========================");
+        System.out.println("Positions       : " + total.fens);
+        System.out.println("Syntax errors   : " + total.syntaxErrors);
+        System.out.println("Illegal         : " + total.illegal);
+        System.out.println("Valid           : " + (total.fens - total.syntaxErrors - total.illegal));
+        for (Map.Entry<String, Long> e : total.errorCounts.entrySet()) {
+            System.out.printf("  %8d  %s%n", e.getValue(), e.getKey());
+        }
+        System.out.println("Total time (ms) : " + millis);
+        System.out.println("Positions/second: " + total.fens * 1000 / millis);
+        System.out.printf("MB/second       : %.1f%n", Files.size(file) / 1048576.0 * 1000 / millis);
+    }
+
+    /**
+     * Revisa el archivo completo.
+     * @param file Archivo con un FEN por línea
+     * @param threads Hilos de revisión
+     * @param report Archivo del reporte, o null para escribirlo en la salida estándar
+     * @param clean Archivo para los FEN válidos, o null para no escribirlo
+     * @return Totales (sin el texto del reporte)
+     */
+    static BlockResult validate(Path file, int threads, Path report, Path clean)
+            throws IOException, InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ThreadLocal<FenParser> parsers = ThreadLocal.withInitial(FenParser::new);
+        ThreadLocal<Position> positions = ThreadLocal.withInitial(Position::new);
+        ArrayDeque<Future<BlockResult>> inFlight = new ArrayDeque<>();
+        BlockResult total = new BlockResult();
+        OutputStream reportOut = report == null ? null : new BufferedOutputStream(Files.newOutputStream(report), 1 << 16);
+        OutputStream cleanOut = clean == null ? null : new BufferedOutputStream(Files.newOutputStream(clean), 1 << 16);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            byte[] carry = new byte[0];
+            long lineNumber = 1;
+            boolean eof = false;
+            while (!eof) {
+                // Bloque nuevo: lo que sobró del anterior más lo leído, cortado en el último '\n'
+                byte[] block = Arrays.copyOf(carry, Math.max(BLOCK_SIZE, carry.length * 2));
+                ByteBuffer buffer = ByteBuffer.wrap(block, carry.length, block.length - carry.length);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        eof = true;
+                        break;
+                    }
+                }
+                int length = buffer.position();
+                int cut = length;
+                if (!eof) {
+                    while (cut > 0 && block[cut - 1] != '\n') cut--;
+                    if (cut == 0) {
+                        // una línea más larga que el bloque: seguir leyendo con un bloque más grande
+                        carry = Arrays.copyOf(block, length);
+                        continue;
+                    }
+                }
+                carry = Arrays.copyOfRange(block, cut, length);
+                int end = cut;
+                long firstLine = lineNumber;
+                for (int i = 0; i < end; i++) {
+                    if (block[i] == '\n') lineNumber++;
+                }
+                inFlight.add(pool.submit(() -> validateBlock(block, end, firstLine, parsers.get(), positions.get(),
+                        cleanOut != null)));
+                // Escribir en orden sin acumular más de dos bloques por hilo
+                while (inFlight.size() >= 2 * threads) {
+                    write(inFlight.poll().get(), total, reportOut, cleanOut);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                write(inFlight.poll().get(), total, reportOut, cleanOut);
+            }
+        } finally {
+            pool.shutdownNow();
+            if (reportOut != null) reportOut.close();
+            if (cleanOut != null) cleanOut.close();
+        }
+        if (reportOut == null) System.out.flush();
+        return total;
+    }
+
+    private static void write(BlockResult block, BlockResult total, OutputStream reportOut, OutputStream cleanOut)
+            throws IOException {
+        if (reportOut != null) {
+            reportOut.write(block.report.toString().getBytes(StandardCharsets.UTF_8));
+        } else {
+            System.out.print(block.report);
+        }
+        if (cleanOut != null) cleanOut.write(block.clean, 0, block.cleanLength);
+        total.fens += block.fens;
+        total.syntaxErrors += block.syntaxErrors;
+        total.illegal += block.illegal;
+        block.errorCounts.forEach((message, count) -> total.errorCounts.merge(message, count, Long::sum));
+    }
+
+    /**
+     * Revisa las líneas de un bloque. Las líneas vacías y las que empiezan con '#' se ignoran,
+     * igual que en {@link FenParser#parseFile}.
+     */
+    private static BlockResult validateBlock(byte[] block, int end, long firstLine, FenParser parser,
+            Position position, boolean keepValid) {
+        BlockResult result = new BlockResult();
+        if (keepValid) result.clean = new byte[end + 1]; // + '\n' si la última línea del archivo no lo tiene
+        List<String> errors = new ArrayList<>();
+        long lineNumber = firstLine;
+        int lineStart = 0;
+        while (lineStart < end) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && block[lineEnd] != '\n') lineEnd++;
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && block[lineEnd - 1] == '\r') lineEnd--;
+            int first = lineStart;
+            while (first < lineEnd && (block[first] == ' ' || block[first] == '\t')) first++;
+            if (first < lineEnd && block[first] != '#') {
+                result.fens++;
+                if (parser.parse(block, lineStart, lineEnd, position) != FenParser.OK) {
+                    result.syntaxErrors++;
+                    result.report.append(lineNumber).append(": column ").append(parser.errorOffset() + 1)
+                            .append(": ").append(parser.errorMessage()).append('\n');
+                    result.errorCounts.merge("Syntax error", 1L, Long::sum);
+                } else if (PositionValidator.validate(position, errors) > 0) {
+                    result.illegal++;
+                    result.report.append(lineNumber).append(": ").append(String.join("; ", errors)).append('\n');
+                    for (String error : errors) {
+                        result.errorCounts.merge(error, 1L, Long::sum);
+                    }
+                    errors.clear();
+                } else if (keepValid) {
+                    System.arraycopy(block, lineStart, result.clean, result.cleanLength, lineEnd - lineStart);
+                    result.cleanLength += lineEnd - lineStart;
+                    result.clean[result.cleanLength++] = '\n';
+                }
+            }
+            lineNumber++;
+            lineStart = next;
+        }
+        return result;
+    }
+}
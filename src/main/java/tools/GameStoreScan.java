@@ -0,0 +1,71 @@
+package tools;
+
+import engine.MoveRecord;
+import engine.Position;
+import games.GameStore;
+import games.PgnGame;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recorre una {@link GameStore} completa y muestra la velocidad de lectura, o imprime una sola
+ * partida con --game.
+ *
+ * Uso: games base [--threads N] [--tags] [--game N]
+ *
+ * @author angelsn
+ */
+public class GameStoreScan {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: games <base> [--threads N] [--tags] [--game N]");
+            return;
+        }
+        Map<String, String> options = MatchRunner.parseOptions(Arrays.copyOfRange(args, 1, args.length));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        boolean withTags = options.containsKey("tags");
+
+        try (GameStore store = GameStore.open(Path.of(args[0]))) {
+            if (options.containsKey("game")) {
+                PgnGame game = new PgnGame();
+                store.read(Long.parseLong(options.get("game")), game, true);
+                print(game);
+                return;
+            }
+            AtomicLong plies = new AtomicLong();
+            long start = System.nanoTime();
+            store.scan(threads, withTags, (number, game) -> plies.addAndGet(game.moveCount));
+            long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+            System.out.println("===========================");
+            System.out.println("Games           : " + store.size());
+            System.out.println("Plies           : " + plies.get());
+            System.out.println("Total time (ms) : " + millis);
+            System.out.println("Games/second    : " + store.size() * 1000 / millis);
+        }
+    }
+
+    private static void print(PgnGame game) {
+        for (int t = 0; t < game.tagCount(); t++) {
+            System.out.println("[" + game.tagName(t) + " \"" + game.tagValue(t) + "\"]");
+        }
+        Position pos = new Position(game.start);
+        int[] legal = new int[Position.MAX_MOVES];
+        StringBuilder moves = new StringBuilder();
+        for (int i = 0; i < game.moveCount; i++) {
+            int count = pos.generateLegalMoves(legal);
+            MoveRecord record = MoveRecord.create(pos, game.moves[i], legal, count);
+            if (record.isWhite()) moves.append(record.fullmoveNumber).append(". ");
+            else if (i == 0) moves.append(record.fullmoveNumber).append("... ");
+            moves.append(record.toSan()).append(' ');
+            pos.makeMove(game.moves[i]);
+            pos.resetHistory();
+        }
+        System.out.println();
+        System.out.println(moves.append(game.result));
+    }
+}
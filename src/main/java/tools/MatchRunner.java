@@ -0,0 +1,284 @@
+package tools;
+
+import engine.Engine;
+import engine.GameStatus;
+import engine.Moves;
+import engine.Position;
+import engine.San;
+import games.PgnWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import main.FEN;
+
+/**
+ * Enfrenta dos configuraciones del motor en partidas automáticas y aplica SPRT para decidir
+ * si un cambio ("dev") es al menos tan fuerte como la referencia ("base").
+ *
+ * Cada partida corre en un hilo virtual; las búsquedas, que sí consumen CPU, se envían a un
+ * grupo fijo de hilos de plataforma. Cada apertura se juega dos veces con colores invertidos.
+ * Nunca hay más de {@code --concurrency} partidas en curso: cuando SPRT decide, las partidas
+ * que siguen jugando se abandonan en la jugada siguiente y sus resultados no cuentan.
+ *
+ * Uso: match [--openings archivo.fen] [--games N] [--concurrency N] [--base "nodes=20000"]
+ *            [--dev "nodes=20000"] [--elo0 0] [--elo1 5] [--alpha 0.05] [--beta 0.05]
+ *            [--max-plies 400] [--pgn salida.pgn]
+ *
+ * @author angelsn
+ */
+public class MatchRunner {
+    private final EngineConfig base;
+    private final EngineConfig dev;
+    private final List<String> openings;
+    private final int maxPlies;
+    private final Sprt sprt;
+    private final ExecutorService searchPool;
+    private final Semaphore running;
+    // Motores libres por configuración: cada partida toma uno por bando y lo devuelve al terminar
+    private final Map<EngineConfig, ConcurrentLinkedQueue<Engine>> idleEngines = new ConcurrentHashMap<>();
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private final AtomicInteger played = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final FEN fenHandler = new FEN(null);
+    private Writer pgnOut;
+
+    public MatchRunner(EngineConfig base, EngineConfig dev, List<String> openings, int maxPlies,
+            Sprt sprt, int concurrency) {
+        this.base = base;
+        this.dev = dev;
+        this.openings = openings;
+        this.maxPlies = maxPlies;
+        this.sprt = sprt;
+        this.searchPool = Executors.newFixedThreadPool(concurrency);
+        this.running = new Semaphore(concurrency);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        List<String> openings = new ArrayList<>();
+        if (options.containsKey("openings")) {
+            for (String line : Files.readAllLines(Path.of(options.get("openings")), StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) openings.add(line);
+            }
+        }
+        if (openings.isEmpty()) openings.add(Position.STARTING_FEN);
+
+        Sprt sprt = new Sprt(
+                Double.parseDouble(options.getOrDefault("elo0", "0")),
+                Double.parseDouble(options.getOrDefault("elo1", "5")),
+                Double.parseDouble(options.getOrDefault("alpha", "0.05")),
+                Double.parseDouble(options.getOrDefault("beta", "0.05")));
+        MatchRunner runner = new MatchRunner(
+                EngineConfig.parse(options.get("base"), "base"),
+                EngineConfig.parse(options.get("dev"), "dev"),
+                openings,
+                Integer.parseInt(options.getOrDefault("max-plies", "400")),
+                sprt,
+                Integer.parseInt(options.getOrDefault("concurrency",
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))));
+        int games = Integer.parseInt(options.getOrDefault("games", "1000"));
+        Path pgn = Path.of(options.getOrDefault("pgn", "match.pgn"));
+        runner.run(games, pgn);
+    }
+
+    /**
+     * Lee opciones "--clave valor" de la línea de comandos.
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String key = args[i].substring(2);
+            String value = i + 1 < args.length && !args[i + 1].startsWith("--") ? args[++i] : "true";
+            options.put(key, value);
+        }
+        return options;
+    }
+
+    /**
+     * Juega hasta {@code games} partidas (en pares de colores invertidos) o hasta que SPRT decida.
+     * @param games Número máximo de partidas
+     * @param pgnPath Archivo PGN de salida
+     * @throws IOException si falla la escritura del PGN
+     * @throws InterruptedException si se interrumpe mientras espera lugar para otra partida
+     */
+    public void run(int games, Path pgnPath) throws IOException, InterruptedException {
+        System.out.println("Base: " + base);
+        System.out.println("Dev:  " + dev);
+        System.out.printf("SPRT bounds: [%.2f, %.2f]%n", sprt.lowerBound(), sprt.upperBound());
+        long start = System.currentTimeMillis();
+        try (BufferedWriter writer = Files.newBufferedWriter(pgnPath, StandardCharsets.UTF_8)) {
+            pgnOut = writer;
+            try (ExecutorService gameThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int round = 0; round < games; round++) {
+                    // Una partida nueva solo empieza cuando termina otra, así SPRT puede cortar a tiempo
+                    running.acquire();
+                    if (finished.get()) {
+                        running.release();
+                        break;
+                    }
+                    int gameRound = round;
+                    gameThreads.submit(() -> {
+                        try {
+                            playAndRecord(gameRound);
+                        } catch (Exception e) {
+                            // La partida no cuenta para SPRT ni va al PGN, pero no se pierde en silencio
+                            errors.incrementAndGet();
+                            System.err.println("Game " + (gameRound + 1) + " failed: " + e);
+                            e.printStackTrace();
+                        } finally {
+                            running.release();
+                        }
+                    });
+                }
+            }
+        } finally {
+            searchPool.shutdownNow();
+            for (ConcurrentLinkedQueue<Engine> idle : idleEngines.values()) {
+                for (Engine engine : idle) engine.shutdown();
+            }
+        }
+        printSummary(System.currentTimeMillis() - start);
+    }
+
+    private void playAndRecord(int round) throws Exception {
+        String opening = openings.get((round / 2) % openings.size());
+        boolean devIsWhite = round % 2 == 1;
+        EngineConfig white = devIsWhite ? dev : base;
+        EngineConfig black = devIsWhite ? base : dev;
+
+        Engine whiteEngine = acquireEngine(white);
+        Engine blackEngine = acquireEngine(black);
+        try {
+            playAndRecord(round, opening, devIsWhite, white, black, whiteEngine, blackEngine);
+        } finally {
+            idleEngines.get(white).add(whiteEngine);
+            idleEngines.get(black).add(blackEngine);
+        }
+    }
+
+    private void playAndRecord(int round, String opening, boolean devIsWhite, EngineConfig white,
+            EngineConfig black, Engine whiteEngine, Engine blackEngine) throws Exception {
+        Position pos = new Position();
+        fenHandler.loadFromFEN(opening, pos);
+        boolean whiteStarts = pos.whiteToMove;
+        int startFullmove = pos.fullmoveNumber;
+        List<String> sans = new ArrayList<>();
+        GameStatus status;
+        String termination;
+        while (true) {
+            // SPRT ya decidió: la partida se abandona sin contarla
+            if (finished.get()) return;
+            status = GameStatus.of(pos);
+            if (status.isOver()) {
+                termination = status.message(pos.whiteToMove);
+                break;
+            }
+            if (sans.size() >= maxPlies) {
+                termination = "Adjudicated draw after " + maxPlies + " plies";
+                break;
+            }
+            EngineConfig side = pos.whiteToMove ? white : black;
+            int move = bestMove(pos.whiteToMove ? whiteEngine : blackEngine, side, pos);
+            if (move == Moves.NONE) {
+                termination = "No move from " + side.name;
+                break;
+            }
+            sans.add(San.toSan(pos, move));
+            pos.makeMove(move);
+            // Las repeticiones solo pueden darse desde la última jugada irreversible
+            if (pos.halfmoveClock == 0) pos.resetHistory();
+        }
+        String result = status.isOver() ? status.pgnResult(pos.whiteToMove) : "1/2-1/2";
+
+        double whiteScore = result.equals("1-0") ? 1 : result.equals("0-1") ? 0 : 0.5;
+
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", "Chessdrez SPRT match");
+        tags.put("Site", "?");
+        tags.put("Date", LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd")));
+        tags.put("Round", String.valueOf(round + 1));
+        tags.put("White", white.name);
+        tags.put("Black", black.name);
+        tags.put("Result", result);
+        if (!opening.equals(Position.STARTING_FEN)) {
+            tags.put("SetUp", "1");
+            tags.put("FEN", opening);
+        }
+        tags.put("PlyCount", String.valueOf(sans.size()));
+        tags.put("Termination", termination);
+        // Registrar y decidir juntos: una partida que termina después de la decisión no la cambia
+        synchronized (this) {
+            if (finished.get()) return;
+            sprt.record(devIsWhite ? whiteScore : 1 - whiteScore);
+            PgnWriter.writeGame(pgnOut, tags, sans, null, startFullmove, whiteStarts, result);
+            int count = played.incrementAndGet();
+            Sprt.Decision decision = sprt.decision();
+            if (count % 50 == 0 || decision != Sprt.Decision.CONTINUE) {
+                System.out.printf("Games %d: +%d =%d -%d  Elo %.1f  LLR %.2f%n", sprt.games(),
+                        sprt.wins(), sprt.draws(), sprt.losses(), sprt.elo(), sprt.llr());
+            }
+            if (decision != Sprt.Decision.CONTINUE) finished.set(true);
+        }
+    }
+
+    /**
+     * Toma un motor libre de la configuración (o crea uno) y limpia su tabla: se limpia una vez
+     * por partida, así el resultado no depende de las partidas que jugó antes ese motor.
+     */
+    private Engine acquireEngine(EngineConfig config) {
+        Engine engine = idleEngines.computeIfAbsent(config, c -> new ConcurrentLinkedQueue<>()).poll();
+        if (engine == null) engine = config.createEngine();
+        engine.newGame();
+        return engine;
+    }
+
+    /**
+     * Envía la búsqueda al grupo de hilos de CPU; el hilo virtual queda bloqueado sin ocupar un núcleo.
+     * El motor es el de la partida, así su tabla conserva lo aprendido en las jugadas anteriores.
+     */
+    private int bestMove(Engine engine, EngineConfig config, Position pos)
+            throws InterruptedException, ExecutionException {
+        Position snapshot = new Position(pos);
+        return searchPool.submit(() -> engine.search(snapshot, config.limits(), null).bestMove()).get();
+    }
+
+    private void printSummary(long elapsedMillis) {
+        Sprt.Decision decision = sprt.decision();
+        String verdict = decision == Sprt.Decision.ACCEPT_H1 ? "H1 accepted (dev is stronger)"
+                : decision == Sprt.Decision.ACCEPT_H0 ? "H0 accepted (no improvement)" : "inconclusive";
+        System.out.println();
+        System.out.println("+----------+--------+--------+--------+---------+--------------------+---------+");
+        System.out.println("| Games    | Wins   | Draws  | Losses | Score   | Elo                | LLR     |");
+        System.out.println("+----------+--------+--------+--------+---------+--------------------+---------+");
+        String elo = String.format("%+.1f +/- %.1f", sprt.elo(), sprt.eloError());
+        System.out.printf("| %-8d | %-6d | %-6d | %-6d | %6.2f%% | %-18s | %+7.2f |%n",
+                sprt.games(), sprt.wins(), sprt.draws(), sprt.losses(), sprt.score() * 100, elo, sprt.llr());
+        System.out.println("+----------+--------+--------+--------+---------+--------------------+---------+");
+        System.out.println("SPRT: " + verdict + " in " + elapsedMillis / 1000.0 + " s");
+        if (errors.get() > 0) {
+            System.out.println("Games failed: " + errors.get() + " (not counted, see the errors above)");
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package tools;
+
+import engine.MateSolver;
+import engine.Position;
+import engine.San;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import main.FEN;
+import tools.EpdRunner.EpdPosition;
+
+/**
+ * Valida un archivo EPD de problemas de mate con {@link MateSolver}: cada posición con "dm N"
+ * tiene que tener un mate en exactamente N jugadas (ni más largo, ni uno más corto que el
+ * anunciado), y si tiene "bm" la primera jugada del mate tiene que ser una de ellas. Las líneas
+ * sin "dm" se buscan hasta {@code --moves} jugadas y solo se reporta si hay mate.
+ *
+ * Sirve para revisar los problemas del comando "puzzles" (los de mate traen "dm") o cualquier
+ * colección de mates en N. Las posiciones se reparten entre varios hilos, cada uno con su
+ * propio buscador, y se imprimen en el orden del archivo.
+ *
+ * Uso: mate archivo.epd [--moves 5] [--nodes N] [--threads N] [--hash MB]
+ *
+ * @author angelsn
+ */
+public class MateCheck {
+    public static final int DEFAULT_MOVES = 5;
+    public static final long DEFAULT_NODES = 5_000_000;
+
+    /**
+     * Resultado de una posición.
+     */
+    static class MateResult {
+        EpdPosition epd;
+        MateSolver.Result solve;
+        String line;
+        boolean ok;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: mate <file.epd> [--moves 5] [--nodes N] [--threads N] [--hash MB]");
+            return;
+        }
+        Map<String, String> options = MatchRunner.parseOptions(Arrays.copyOfRange(args, 1, args.length));
+        int moves = Integer.parseInt(options.getOrDefault("moves", String.valueOf(DEFAULT_MOVES)));
+        long nodes = Long.parseLong(options.getOrDefault("nodes", String.valueOf(DEFAULT_NODES)));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int hash = Integer.parseInt(options.getOrDefault("hash", String.valueOf(MateSolver.DEFAULT_HASH_MB)));
+
+        List<EpdPosition> suite = load(Path.of(args[0]));
+        run(suite, moves, nodes, threads, hash);
+    }
+
+    /**
+     * Lee el archivo como {@link EpdRunner#load}, pero acepta también las líneas sin "bm"/"am".
+     */
+    static List<EpdPosition> load(Path file) throws Exception {
+        FEN fenHandler = new FEN(null);
+        List<EpdPosition> suite = new ArrayList<>();
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            try {
+                EpdPosition epd = EpdRunner.parse(line, fenHandler);
+                epd.line = i + 1;
+                suite.add(epd);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Line " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        return suite;
+    }
+
+    static int run(List<EpdPosition> suite, int moves, long nodeLimit, int threads, int hashMegabytes)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ThreadLocal<MateSolver> solvers = ThreadLocal.withInitial(() -> new MateSolver(hashMegabytes));
+        long start = System.nanoTime();
+        List<Future<MateResult>> futures = new ArrayList<>();
+        try {
+            for (EpdPosition epd : suite) {
+                futures.add(pool.submit(() -> check(solvers.get(), epd, moves, nodeLimit)));
+            }
+            int solved = 0, mates = 0;
+            long totalNodes = 0;
+            List<String> failed = new ArrayList<>();
+            for (Future<MateResult> future : futures) {
+                MateResult r = future.get();
+                totalNodes += r.solve.nodes;
+                if (r.solve.found()) mates++;
+                if (r.ok) solved++; else failed.add(r.epd.id);
+                System.out.printf("%-5s %-20s %-6s %8d nodes  %s%n", r.ok ? "ok" : "FAIL", r.epd.id,
+                        r.solve.found() ? "#" + r.solve.mateIn : r.solve.complete ? "none" : "?",
+                        r.solve.nodes, r.line);
+            }
+            long wallMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            System.out.println("===========================");
+            System.out.println("Solved          : " + solved + "/" + suite.size());
+            System.out.println("Mates found     : " + mates);
+            System.out.println("Total time (ms) : " + wallMillis);
+            System.out.println("Nodes searched  : " + totalNodes);
+            System.out.println("Nodes/second    : " + totalNodes * 1000 / wallMillis);
+            if (!failed.isEmpty()) {
+                System.out.println("Failed          : " + String.join(", ", failed));
+            }
+            return solved;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Busca el mate de una posición. Con "dm N" alcanza buscar hasta N jugadas: el buscador
+     * devuelve el mate más corto, así un mate más corto que el anunciado también se detecta.
+     */
+    static MateResult check(MateSolver solver, EpdPosition epd, int moves, long nodeLimit) {
+        MateResult result = new MateResult();
+        result.epd = epd;
+        solver.clear();
+        result.solve = solver.solve(epd.position, epd.mateIn > 0 ? epd.mateIn : moves, nodeLimit);
+        int[] line = result.solve.line;
+        StringBuilder san = new StringBuilder();
+        Position pos = new Position(epd.position);
+        for (int move : line) {
+            if (san.length() > 0) san.append(' ');
+            san.append(San.toSan(pos, move));
+            pos.makeMove(move);
+        }
+        result.line = san.toString();
+        if (epd.mateIn > 0) {
+            result.ok = result.solve.mateIn == epd.mateIn;
+        } else {
+            result.ok = result.solve.found();
+        }
+        if (result.ok && line.length > 0 && !epd.bestMoves.isEmpty()) {
+            result.ok = epd.bestMoves.contains(line[0]);
+        }
+        return result;
+    }
+}
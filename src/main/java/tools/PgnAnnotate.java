@@ -0,0 +1,247 @@
+package tools;
+
+import engine.Engine;
+import engine.Moves;
+import engine.Position;
+import engine.San;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import games.PgnGame;
+import games.PgnReader;
+import games.PgnWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Anota una colección de partidas sin ventana: evalúa cada posición de cada partida con un
+ * número fijo de nodos y escribe un PGN con la evaluación de cada jugada en un comentario
+ * "[%eval ...]" (en peones, desde el punto de vista de las blancas) y las imprecisiones, errores
+ * y errores graves marcados con $6, $2 y $4 junto con la mejor jugada.
+ *
+ * Cada partida es una tarea de un {@link ForkJoinPool} (los hilos libres le roban trabajo a los
+ * ocupados, así las partidas largas no dejan hilos parados) con un motor de un hilo por
+ * trabajador. Las partidas se leen en orden con {@link PgnReader} y los resultados se escriben
+ * en el orden de entrada; la lectura espera cuando hay más de unas pocas partidas por hilo sin
+ * escribir, así la memoria no depende del tamaño del archivo.
+ *
+ * Uso: annotate entrada.pgn salida.pgn [--nodes 50000] [--threads N] [--hash MB]
+ *
+ * @author angelsn
+ */
+public class PgnAnnotate {
+    public static final long DEFAULT_NODES = 50_000;
+    public static final int DEFAULT_HASH_MB = 8;
+    // Pérdida en centipeones (desde el punto de vista del que juega) para cada marca
+    static final int INACCURACY = 50;
+    static final int MISTAKE = 100;
+    static final int BLUNDER = 300;
+    // Las evaluaciones se recortan a ±10 peones para medir pérdidas: con +15 o +25 se gana igual
+    private static final int MAX_LOSS_SCORE = 1000;
+    private static final int GAMES_PER_THREAD = 4;
+
+    private final SearchLimits limits;
+    private final int threads;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Engine> engines;
+    private final ArrayDeque<Future<String>> inFlight = new ArrayDeque<>();
+    private final AtomicLong positions = new AtomicLong();
+    private final AtomicLong nodes = new AtomicLong();
+    private final AtomicLong[] marks = {new AtomicLong(), new AtomicLong(), new AtomicLong()};
+    private final AtomicLong failed = new AtomicLong();
+    private long games;
+    private long skipped;
+
+    /**
+     * Partida a anotar: una copia de lo que hace falta, porque el {@link PgnGame} del lector se
+     * reutiliza.
+     */
+    private static class Job {
+        final Map<String, String> tags = new LinkedHashMap<>();
+        final long offset;
+        final Position start;
+        final int[] moves;
+        final String result;
+
+        Job(PgnGame game) {
+            for (int i = 0; i < game.tagCount(); i++) {
+                tags.put(game.tagName(i), game.tagValue(i));
+            }
+            offset = game.offset;
+            start = new Position(game.start);
+            moves = Arrays.copyOf(game.moves, game.moveCount);
+            result = game.result;
+        }
+    }
+
+    PgnAnnotate(long nodeLimit, int threads, int hashMegabytes) {
+        this.limits = SearchLimits.nodes(nodeLimit);
+        this.threads = threads;
+        this.pool = new ForkJoinPool(threads);
+        this.engines = ThreadLocal.withInitial(() -> new Engine(hashMegabytes, 1));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: annotate <in.pgn> <out.pgn> [--nodes 50000] [--threads N] [--hash MB]");
+            return;
+        }
+        Map<String, String> options = MatchRunner.parseOptions(Arrays.copyOfRange(args, 2, args.length));
+        long nodeLimit = Long.parseLong(options.getOrDefault("nodes", String.valueOf(DEFAULT_NODES)));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int hash = Integer.parseInt(options.getOrDefault("hash", String.valueOf(DEFAULT_HASH_MB)));
+
+        PgnAnnotate annotator = new PgnAnnotate(nodeLimit, threads, hash);
+        long start = System.nanoTime();
+        annotator.run(Path.of(args[0]), Path.of(args[1]));
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        System.out.println("===========================");
+        System.out.println("Games annotated : " + annotator.games);
+        System.out.println("Games skipped   : " + annotator.skipped);
+        System.out.println("Games failed    : " + annotator.failed.get());
+        System.out.println("Positions       : " + annotator.positions.get());
+        System.out.println("Inaccuracies    : " + annotator.marks[0].get());
+        System.out.println("Mistakes        : " + annotator.marks[1].get());
+        System.out.println("Blunders        : " + annotator.marks[2].get());
+        System.out.println("Total time (ms) : " + millis);
+        System.out.println("Nodes/second    : " + annotator.nodes.get() * 1000 / millis);
+        System.out.printf("Games/hour      : %.0f%n", annotator.games * 3_600_000.0 / millis);
+    }
+
+    /**
+     * Anota todas las partidas de un archivo. Las partidas que no se pudieron leer se omiten.
+     */
+    void run(Path in, Path out) throws Exception {
+        try (Writer writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            // Con un hilo de lectura las partidas llegan en el orden del archivo
+            new PgnReader(in).read(1, game -> {
+                if (!game.isValid()) {
+                    skipped++;
+                    System.out.println("Skipping game at offset " + game.offset + ": " + game.error);
+                    return;
+                }
+                Job job = new Job(game);
+                inFlight.add(pool.submit(() -> annotateOrSkip(job)));
+                games++;
+                while (inFlight.size() >= GAMES_PER_THREAD * threads) {
+                    writer.write(inFlight.poll().get());
+                }
+            });
+            while (!inFlight.isEmpty()) {
+                writer.write(inFlight.poll().get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Anota una partida con el motor del hilo. Si falla se avisa y queda fuera de la salida, pero
+     * las demás partidas siguen.
+     */
+    private String annotateOrSkip(Job job) {
+        try {
+            return annotate(engines.get(), job);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.err.println("Failed to annotate game at offset " + job.offset + ": " + e);
+            return "";
+        }
+    }
+
+    /**
+     * Evalúa todas las posiciones de una partida y la devuelve como texto PGN.
+     */
+    String annotate(Engine engine, Job job) throws IOException {
+        engine.newGame();
+        int n = job.moves.length;
+        int[] scores = new int[n + 1]; // desde el punto de vista de las blancas
+        int[] bestMoves = new int[n + 1];
+        String[] bestSans = new String[n];
+        boolean[] finished = new boolean[n + 1];
+        List<String> sans = new ArrayList<>(n);
+        int[] legal = new int[Position.MAX_MOVES];
+
+        Position pos = new Position(job.start);
+        for (int ply = 0; ply <= n; ply++) {
+            int sign = pos.whiteToMove ? 1 : -1;
+            if (pos.generateLegalMoves(legal) == 0) {
+                // Mate o ahogado: no hay nada que buscar
+                finished[ply] = true;
+                scores[ply] = pos.isInCheck() ? -sign * Search.MATE : 0;
+            } else {
+                SearchResult result = engine.search(pos, limits, null);
+                scores[ply] = sign * result.score;
+                bestMoves[ply] = result.bestMove();
+                positions.incrementAndGet();
+                nodes.addAndGet(result.nodes);
+            }
+            if (ply < n) {
+                sans.add(San.toSan(pos, job.moves[ply]));
+                // Sin jugada (búsqueda cortada antes de terminar una iteración) no hay con qué comparar
+                if (bestMoves[ply] != Moves.NONE && bestMoves[ply] != job.moves[ply]) {
+                    bestSans[ply] = San.toSan(pos, bestMoves[ply]);
+                }
+                pos.makeMove(job.moves[ply]);
+                if (pos.halfmoveClock == 0) pos.resetHistory();
+            }
+        }
+
+        List<String> comments = new ArrayList<>(n);
+        boolean white = job.start.whiteToMove;
+        for (int ply = 0; ply < n; ply++) {
+            StringBuilder comment = new StringBuilder();
+            if (!finished[ply + 1]) comment.append("[%eval ").append(formatScore(scores[ply + 1])).append(']');
+            int sign = white ? 1 : -1;
+            int loss = sign * (clamp(scores[ply]) - clamp(scores[ply + 1]));
+            int mark = bestSans[ply] == null ? -1
+                    : loss >= BLUNDER ? 2 : loss >= MISTAKE ? 1 : loss >= INACCURACY ? 0 : -1;
+            if (mark >= 0) {
+                marks[mark].incrementAndGet();
+                sans.set(ply, sans.get(ply) + (mark == 2 ? " $4" : mark == 1 ? " $2" : " $6"));
+                comment.append(comment.length() > 0 ? " " : "")
+                       .append(mark == 2 ? "Blunder" : mark == 1 ? "Mistake" : "Inaccuracy")
+                       .append(". Best was ").append(bestSans[ply]).append('.');
+            }
+            comments.add(comment.length() > 0 ? comment.toString() : null);
+            white = !white;
+        }
+
+        StringBuilder text = new StringBuilder(256 + n * 24);
+        job.tags.putIfAbsent("Annotator", "Chessdrez");
+        PgnWriter.writeGame(text, job.tags, sans, comments, job.start.fullmoveNumber, job.start.whiteToMove,
+                job.result);
+        return text.toString();
+    }
+
+    private static int clamp(int score) {
+        return Math.max(-MAX_LOSS_SCORE, Math.min(MAX_LOSS_SCORE, score));
+    }
+
+    /**
+     * Evaluación como en "[%eval]": peones con dos decimales, o "#N" / "#-N" para un mate
+     * (positivo si dan mate las blancas).
+     */
+    static String formatScore(int whiteScore) {
+        if (Math.abs(whiteScore) >= Search.MATE_BOUND) {
+            int moves = (Search.MATE - Math.abs(whiteScore) + 1) / 2;
+            return (whiteScore > 0 ? "#" : "#-") + moves;
+        }
+        return String.format(Locale.ROOT, "%.2f", whiteScore / 100.0);
+    }
+}
@@ -0,0 +1,58 @@
+package tools;
+
+import games.GameStore;
+import games.PgnReader;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lee y comprueba una base de datos PGN con {@link PgnReader}: reproduce todas las partidas,
+ * muestra las primeras con errores y la velocidad de lectura. Con --out las partidas válidas se
+ * guardan además en una {@link GameStore} (con varios hilos no se conserva el orden del archivo).
+ *
+ * Uso: pgn archivo.pgn [--threads N] [--max-errors 20] [--out base]
+ *
+ * @author angelsn
+ */
+public class PgnImport {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: pgn <file> [--threads N] [--max-errors 20] [--out base]");
+            return;
+        }
+        Path file = Path.of(args[0]);
+        Map<String, String> options = MatchRunner.parseOptions(Arrays.copyOfRange(args, 1, args.length));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int maxErrors = Integer.parseInt(options.getOrDefault("max-errors", "20"));
+        String out = options.get("out");
+
+        AtomicInteger reported = new AtomicInteger();
+        long start = System.nanoTime();
+        PgnReader.Summary summary;
+        try (GameStore.Writer store = out == null ? null : GameStore.create(Path.of(out))) {
+            summary = new PgnReader(file).read(threads, game -> {
+                if (!game.isValid()) {
+                    if (reported.getAndIncrement() < maxErrors) {
+                        System.out.println("Game at byte " + game.offset + ": " + game.error
+                                + " (byte " + game.errorOffset + ", after " + game.moveCount + " plies)");
+                    }
+                } else if (store != null) {
+                    store.append(game);
+                }
+            });
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        System.out.println("===========================");
+        System.out.println("Games           : " + summary.games);
+        System.out.println("Invalid         : " + summary.invalid);
+        System.out.println("Plies           : " + summary.plies);
+        System.out.println("Total time (ms) : " + millis);
+        System.out.println("Games/second    : " + summary.games * 1000 / millis);
+        System.out.printf("MB/second       : %.1f%n", summary.bytes / 1048576.0 * 1000 / millis);
+    }
+}
@@ -0,0 +1,68 @@
+package tools;
+
+import engine.FenParser;
+import engine.Position;
+import games.GameStore;
+import games.PairSorter;
+import games.PgnGame;
+import games.PositionIndex;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Construye el índice de posiciones de una {@link GameStore}, o busca en él las partidas que
+ * pasaron por una posición.
+ *
+ * Uso: index base [--threads N] [--run-entries N]
+ *      index base --fen "FEN" [--max 20]
+ *
+ * @author angelsn
+ */
+public class PositionSearch {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: index <base> [--threads N] [--run-entries N] | index <base> --fen <fen> [--max 20]");
+            return;
+        }
+        Path base = Path.of(args[0]);
+        Map<String, String> options = MatchRunner.parseOptions(Arrays.copyOfRange(args, 1, args.length));
+        if (options.containsKey("fen")) {
+            search(base, options.get("fen"), Integer.parseInt(options.getOrDefault("max", "20")));
+            return;
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int runEntries = Integer.parseInt(options.getOrDefault("run-entries",
+                String.valueOf(PairSorter.DEFAULT_RUN_ENTRIES)));
+
+        long start = System.nanoTime();
+        long entries = PositionIndex.build(base, threads, runEntries);
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        System.out.println("===========================");
+        System.out.println("Positions       : " + entries);
+        System.out.println("Total time (ms) : " + millis);
+        System.out.println("Positions/second: " + entries * 1000 / millis);
+    }
+
+    private static void search(Path base, String fen, int max) throws Exception {
+        Position position = new Position();
+        new FenParser().parseOrThrow(fen, position);
+        try (PositionIndex index = PositionIndex.open(base); GameStore store = GameStore.open(base)) {
+            long[] hits = new long[max];
+            long start = System.nanoTime();
+            long total = index.find(position.hash, hits);
+            long micros = (System.nanoTime() - start) / 1000;
+            System.out.println(total + " occurrences (" + micros + " us)");
+
+            PgnGame game = new PgnGame();
+            for (int i = 0; i < Math.min(total, max); i++) {
+                long number = PositionIndex.gameOf(hits[i]);
+                store.read(number, game, true);
+                System.out.println("Game " + number + ", ply " + PositionIndex.plyOf(hits[i]) + ": "
+                        + game.tag("White") + " - " + game.tag("Black") + " " + game.result);
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package tools;
+
+import engine.Engine;
+import engine.Moves;
+import engine.Position;
+import engine.San;
+import engine.SearchLimits;
+import engine.SearchResult;
+import games.GameStore;
+import games.PgnGame;
+import games.PgnReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import main.FEN;
+
+/**
+ * Busca problemas de táctica en una colección de partidas (PGN o base binaria): posiciones con
+ * una sola jugada ganadora. Cada posición se busca con un número fijo de nodos; si la mejor
+ * jugada gana (al menos {@code --win} centipeones o mate), se busca otra vez sin ella (con
+ * "searchmoves", como un multi-PV de dos líneas) y la posición es un problema si la segunda
+ * mejor ya no gana y queda al menos {@code --gap} centipeones por debajo. Se descartan las
+ * posiciones que ya estaban ganadas antes de la jugada del rival y las que se resuelven retomando
+ * la pieza que el rival acaba de capturar.
+ *
+ * Cada problema es una línea EPD: la posición, "bm" con la solución, "pv" con la línea del
+ * motor en SAN, "ce" (o "dm" si es mate), "id" con la partida y la jugada, y "hmvc"/"fmvn" para
+ * reconstruir el FEN completo (el comando "epd" lo lee tal cual, así se pueden revisar).
+ *
+ * Las partidas se reparten en un {@link ForkJoinPool} con un motor de un hilo por trabajador y
+ * los problemas se escriben en el orden de la colección, con pocas partidas en memoria a la vez.
+ *
+ * Uso: puzzles coleccion salida.epd [--nodes 20000] [--threads N] [--hash MB] [--win 300]
+ *      [--gap 200] [--min-ply 10] [--pv 8]
+ *
+ * @author angelsn
+ */
+public class PuzzleMiner {
+    public static final long DEFAULT_NODES = 20_000;
+    public static final int DEFAULT_HASH_MB = 8;
+    public static final int DEFAULT_WIN = 300;
+    public static final int DEFAULT_GAP = 200;
+    public static final int DEFAULT_MIN_PLY = 10;
+    public static final int DEFAULT_PV_PLIES = 8;
+    private static final int GAMES_PER_THREAD = 4;
+
+    private final long nodeLimit;
+    private final int win;
+    private final int gap;
+    private final int minPly;
+    private final int pvPlies;
+    private final int threads;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Engine> engines;
+    private final ArrayDeque<Future<String>> inFlight = new ArrayDeque<>();
+    private final AtomicLong positions = new AtomicLong();
+    private final AtomicLong nodes = new AtomicLong();
+    private final AtomicLong puzzles = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private long games;
+    private long skipped;
+
+    /**
+     * Partida a revisar: una copia de lo que hace falta, porque el {@link PgnGame} del lector se
+     * reutiliza.
+     */
+    private static class Job {
+        final long number;
+        final Position start;
+        final int[] moves;
+
+        Job(long number, PgnGame game) {
+            this.number = number;
+            start = new Position(game.start);
+            moves = Arrays.copyOf(game.moves, game.moveCount);
+        }
+    }
+
+    PuzzleMiner(long nodeLimit, int win, int gap, int minPly, int pvPlies, int threads, int hashMegabytes) {
+        this.nodeLimit = nodeLimit;
+        this.win = win;
+        this.gap = gap;
+        this.minPly = minPly;
+        this.pvPlies = pvPlies;
+        this.threads = threads;
+        this.pool = new ForkJoinPool(threads);
+        this.engines = ThreadLocal.withInitial(() -> new Engine(hashMegabytes, 1));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: puzzles <file.pgn|base> <out.epd> [--nodes 20000] [--threads N] [--hash MB]"
+                    + " [--win 300] [--gap 200] [--min-ply 10] [--pv 8]");
+            return;
+        }
+        Map<String, String> options = MatchRunner.parseOptions(Arrays.copyOfRange(args, 2, args.length));
+        PuzzleMiner miner = new PuzzleMiner(
+                Long.parseLong(options.getOrDefault("nodes", String.valueOf(DEFAULT_NODES))),
+                Integer.parseInt(options.getOrDefault("win", String.valueOf(DEFAULT_WIN))),
+                Integer.parseInt(options.getOrDefault("gap", String.valueOf(DEFAULT_GAP))),
+                Integer.parseInt(options.getOrDefault("min-ply", String.valueOf(DEFAULT_MIN_PLY))),
+                Integer.parseInt(options.getOrDefault("pv", String.valueOf(DEFAULT_PV_PLIES))),
+                Integer.parseInt(options.getOrDefault("threads",
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                Integer.parseInt(options.getOrDefault("hash", String.valueOf(DEFAULT_HASH_MB))));
+
+        long start = System.nanoTime();
+        miner.run(Path.of(args[0]), Path.of(args[1]));
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        System.out.println("===========================");
+        System.out.println("Games           : " + miner.games);
+        System.out.println("Games skipped   : " + miner.skipped);
+        System.out.println("Games failed    : " + miner.failed.get());
+        System.out.println("Positions       : " + miner.positions.get());
+        System.out.println("Puzzles         : " + miner.puzzles.get());
+        System.out.println("Total time (ms) : " + millis);
+        System.out.println("Nodes/second    : " + miner.nodes.get() * 1000 / millis);
+        System.out.printf("Games/hour      : %.0f%n", miner.games * 3_600_000.0 / millis);
+    }
+
+    /**
+     * Revisa todas las partidas de la colección.
+     * @param collection Archivo PGN (extensión ".pgn") o base de {@link GameStore} (ruta sin extensión)
+     * @param out Archivo EPD de salida
+     */
+    void run(Path collection, Path out) throws Exception {
+        try (Writer writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            if (collection.getFileName().toString().endsWith(".pgn")) {
+                // Con un hilo de lectura las partidas llegan en el orden del archivo
+                long[] number = {0};
+                new PgnReader(collection).read(1, game -> submit(++number[0], game, writer));
+            } else {
+                try (GameStore store = GameStore.open(collection)) {
+                    PgnGame game = new PgnGame();
+                    for (long n = 0; n < store.size(); n++) {
+                        store.read(n, game, false);
+                        submit(n + 1, game, writer);
+                    }
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                writer.write(inFlight.poll().get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void submit(long number, PgnGame game, Writer writer) throws Exception {
+        if (!game.isValid()) {
+            skipped++;
+            return;
+        }
+        Job job = new Job(number, game);
+        inFlight.add(pool.submit(() -> mineOrSkip(job)));
+        games++;
+        while (inFlight.size() >= GAMES_PER_THREAD * threads) {
+            writer.write(inFlight.poll().get());
+        }
+    }
+
+    /**
+     * Revisa una partida con el motor del hilo. Si falla se avisa y no aporta problemas, pero las
+     * demás partidas siguen.
+     */
+    private String mineOrSkip(Job job) {
+        try {
+            return mine(engines.get(), job);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.err.println("Failed to mine game " + job.number + ": " + e);
+            return "";
+        }
+    }
+
+    /**
+     * Busca los problemas de una partida.
+     * @return Líneas EPD (vacío si no hay ninguno)
+     */
+    String mine(Engine engine, Job job) {
+        engine.newGame();
+        StringBuilder text = new StringBuilder();
+        int[] legal = new int[Position.MAX_MOVES];
+        Position pos = new Position(job.start);
+        int previousScore = 0; // de la búsqueda anterior, desde el punto de vista del rival
+        boolean previousSearched = false;
+        for (int ply = 0; ply <= job.moves.length; ply++) {
+            int count = pos.generateLegalMoves(legal);
+            boolean searched = false;
+            if (ply >= minPly && count >= 2) {
+                SearchResult best = engine.search(pos, SearchLimits.nodes(nodeLimit), null);
+                positions.incrementAndGet();
+                nodes.addAndGet(best.nodes);
+                searched = true;
+                // Si ya se ganaba antes de la jugada del rival, o la jugada es retomar lo que
+                // acaba de capturar, no es un problema
+                boolean alreadyWinning = previousSearched && -previousScore >= win;
+                boolean recapture = ply > 0 && Moves.isCapture(job.moves[ply - 1]) && Moves.isCapture(best.bestMove())
+                        && Moves.to(best.bestMove()) == Moves.to(job.moves[ply - 1]);
+                if (best.score >= win && !alreadyWinning && !recapture) {
+                    SearchLimits others = SearchLimits.nodes(nodeLimit);
+                    others.searchMoves = without(legal, count, best.bestMove());
+                    SearchResult second = engine.search(pos, others, null);
+                    nodes.addAndGet(second.nodes);
+                    if (second.score < win && best.score - second.score >= gap) {
+                        puzzles.incrementAndGet();
+                        appendPuzzle(text, pos, best, job.number, ply);
+                    }
+                }
+                previousScore = best.score;
+            }
+            previousSearched = searched;
+            if (ply < job.moves.length) {
+                pos.makeMove(job.moves[ply]);
+                if (pos.halfmoveClock == 0) pos.resetHistory();
+            }
+        }
+        return text.toString();
+    }
+
+    private static int[] without(int[] moves, int count, int excluded) {
+        int[] result = new int[count - 1];
+        int n = 0;
+        for (int i = 0; i < count && n < result.length; i++) {
+            if (moves[i] != excluded) result[n++] = moves[i];
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    private void appendPuzzle(StringBuilder text, Position pos, SearchResult best, long game, int ply) {
+        String[] fen = FEN.generateFEN(pos).split(" ");
+        Position line = new Position(pos);
+        StringBuilder pv = new StringBuilder();
+        for (int i = 0; i < Math.min(pvPlies, best.pv.length); i++) {
+            if (i > 0) pv.append(' ');
+            pv.append(San.toSan(line, best.pv[i]));
+            line.makeMove(best.pv[i]);
+        }
+        text.append(fen[0]).append(' ').append(fen[1]).append(' ').append(fen[2]).append(' ').append(fen[3])
+            .append(" bm ").append(San.toSan(pos, best.bestMove())).append(';');
+        if (best.isMate()) {
+            text.append(" dm ").append(best.mateIn()).append(';');
+        } else {
+            text.append(" ce ").append(best.score).append(';');
+        }
+        text.append(" pv \"").append(pv).append("\";")
+            .append(" id \"game ").append(game).append(", ply ").append(ply).append("\";")
+            .append(" hmvc ").append(fen[4]).append("; fmvn ").append(fen[5]).append(";\n");
+    }
+}
@@ -0,0 +1,121 @@
+package tools;
+
+/**
+ * Prueba secuencial de razón de verosimilitud (SPRT) sobre resultados victoria/tablas/derrota,
+ * con el modelo trinomial normal aproximado que usan las pruebas de motores (estilo Fishtest).
+ *
+ * H0: la diferencia de Elo es elo0. H1: la diferencia es elo1. Se detiene en cuanto el
+ * logaritmo de la razón de verosimilitud (LLR) cruza alguno de los límites.
+ *
+ * @author angelsn
+ */
+public class Sprt {
+    public enum Decision { CONTINUE, ACCEPT_H0, ACCEPT_H1 }
+
+    private final double elo0, elo1;
+    private final double lowerBound, upperBound;
+    private long wins, draws, losses;
+
+    /**
+     * @param elo0 Elo de la hipótesis nula (ej: 0)
+     * @param elo1 Elo de la hipótesis alternativa (ej: 5)
+     * @param alpha Probabilidad de falso positivo
+     * @param beta Probabilidad de falso negativo
+     */
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.lowerBound = Math.log(beta / (1 - alpha));
+        this.upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    /**
+     * Registra una partida desde el punto de vista del motor evaluado.
+     * @param score 1 victoria, 0.5 tablas, 0 derrota
+     */
+    public synchronized void record(double score) {
+        if (score > 0.75) wins++;
+        else if (score < 0.25) losses++;
+        else draws++;
+    }
+
+    public synchronized long games() {
+        return wins + draws + losses;
+    }
+
+    public synchronized long wins() {
+        return wins;
+    }
+
+    public synchronized long draws() {
+        return draws;
+    }
+
+    public synchronized long losses() {
+        return losses;
+    }
+
+    public synchronized double score() {
+        long n = games();
+        return n == 0 ? 0.5 : (wins + 0.5 * draws) / n;
+    }
+
+    /**
+     * Logaritmo de la razón de verosimilitud acumulado.
+     */
+    public synchronized double llr() {
+        long n = games();
+        if (n == 0 || wins + draws == 0 || losses + draws == 0) return 0;
+        double mean = score();
+        double variance = (wins * Math.pow(1 - mean, 2) + draws * Math.pow(0.5 - mean, 2)
+                + losses * Math.pow(mean, 2)) / n;
+        if (variance <= 0) return 0;
+        double s0 = expectedScore(elo0);
+        double s1 = expectedScore(elo1);
+        return n * (s1 - s0) * (2 * mean - s0 - s1) / (2 * variance);
+    }
+
+    public synchronized Decision decision() {
+        double llr = llr();
+        if (llr >= upperBound) return Decision.ACCEPT_H1;
+        if (llr <= lowerBound) return Decision.ACCEPT_H0;
+        return Decision.CONTINUE;
+    }
+
+    public double lowerBound() {
+        return lowerBound;
+    }
+
+    public double upperBound() {
+        return upperBound;
+    }
+
+    /**
+     * Diferencia de Elo estimada a partir de la puntuación.
+     */
+    public synchronized double elo() {
+        return eloFromScore(score());
+    }
+
+    /**
+     * Margen de error del Elo con 95% de confianza.
+     */
+    public synchronized double eloError() {
+        long n = games();
+        if (n < 2) return Double.NaN;
+        double mean = score();
+        double variance = (wins * Math.pow(1 - mean, 2) + draws * Math.pow(0.5 - mean, 2)
+                + losses * Math.pow(mean, 2)) / n;
+        double margin = 1.96 * Math.sqrt(variance / n);
+        return (eloFromScore(Math.min(0.999, mean + margin)) - eloFromScore(Math.max(0.001, mean - margin))) / 2;
+    }
+
+    static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    static double eloFromScore(double score) {
+        score = Math.max(0.001, Math.min(0.999, score));
+        return -400 * Math.log10(1 / score - 1);
+    }
+}
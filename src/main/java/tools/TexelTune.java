@@ -0,0 +1,121 @@
+package tools;
+
+import engine.Evaluator;
+import engine.Position;
+import engine.Tuner;
+import games.TrainingData;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Ajusta los pesos de la evaluación con {@link Tuner} sobre un archivo de {@link TrainingData}
+ * (el que escribe el comando "export"; conviene exportar con --quiet, así la evaluación estática
+ * de cada posición es la que vería la búsqueda) y los guarda en un archivo de texto que se puede
+ * usar con "eval=archivo" en {@link EngineConfig}.
+ *
+ * Uso: tune datos.bin [--out pesos.txt] [--epochs 300] [--rate 1.0] [--threads N] [--max N]
+ *      [--init pesos.txt]
+ *
+ * @author angelsn
+ */
+public class TexelTune {
+    public static final int DEFAULT_EPOCHS = 300;
+    public static final double DEFAULT_RATE = 1.0;
+    private static final int REPORT_EVERY = 10;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: tune <data.bin> [--out weights.txt] [--epochs 300] [--rate 1.0]"
+                    + " [--threads N] [--max N] [--init weights.txt]");
+            return;
+        }
+        Map<String, String> options = MatchRunner.parseOptions(Arrays.copyOfRange(args, 1, args.length));
+        Path out = Path.of(options.getOrDefault("out", "weights.txt"));
+        int epochs = Integer.parseInt(options.getOrDefault("epochs", String.valueOf(DEFAULT_EPOCHS)));
+        double rate = Double.parseDouble(options.getOrDefault("rate", String.valueOf(DEFAULT_RATE)));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        long max = Long.parseLong(options.getOrDefault("max", String.valueOf(Long.MAX_VALUE)));
+        int[] initial = options.containsKey("init") ? Evaluator.load(Path.of(options.get("init")))
+                : Evaluator.defaultWeights();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Tuner tuner = new Tuner(initial, pool);
+            long start = System.nanoTime();
+            load(Path.of(args[0]), max, tuner, pool, threads);
+            long loadMillis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("Positions       : " + tuner.positions());
+            System.out.println("Load time (ms)  : " + loadMillis);
+
+            double initialLoss = tuner.loss();
+            double scale = tuner.fitScale();
+            System.out.printf(Locale.ROOT, "Scale (K)       : %.4f%n", scale * 400 / Math.log(10));
+            System.out.printf(Locale.ROOT, "Initial loss    : %.6f (%.6f before fitting K)%n", tuner.loss(), initialLoss);
+
+            start = System.nanoTime();
+            for (int epoch = 1; epoch <= epochs; epoch++) {
+                double loss = tuner.epoch(rate);
+                if (epoch % REPORT_EVERY == 0 || epoch == epochs) {
+                    System.out.printf(Locale.ROOT, "Epoch %5d     : %.6f%n", epoch, loss);
+                }
+            }
+            long tuneMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            Evaluator.save(tuner.weights(), out);
+
+            System.out.println("===========================");
+            System.out.printf(Locale.ROOT, "Final loss      : %.6f%n", tuner.loss());
+            System.out.println("Output          : " + out);
+            System.out.println("Total time (ms) : " + tuneMillis);
+            System.out.println("ms/epoch        : " + tuneMillis / Math.max(1, epochs));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Lee el archivo en bloques de {@link Tuner#CHUNK_POSITIONS} registros y convierte cada
+     * bloque en un hilo del pool, con pocos bloques leídos a la vez.
+     */
+    private static void load(Path file, long max, Tuner tuner, ForkJoinPool pool, int threads) throws Exception {
+        ThreadLocal<Position> positions = ThreadLocal.withInitial(Position::new);
+        ArrayDeque<Future<Tuner.Chunk>> inFlight = new ArrayDeque<>();
+        long remaining = max;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (remaining > 0) {
+                int records = (int) Math.min(Tuner.CHUNK_POSITIONS, remaining);
+                ByteBuffer block = ByteBuffer.allocate(records * TrainingData.RECORD);
+                while (block.hasRemaining() && channel.read(block) > 0) {
+                    // llenar el bloque
+                }
+                int count = block.position() / TrainingData.RECORD;
+                if (count == 0) break;
+                remaining -= count;
+                inFlight.add(pool.submit(() -> {
+                    Position position = positions.get();
+                    Tuner.Chunk chunk = new Tuner.Chunk();
+                    for (int i = 0; i < count; i++) {
+                        TrainingData.decode(block, i * TrainingData.RECORD, position);
+                        chunk.add(position, TrainingData.result(block, i * TrainingData.RECORD));
+                    }
+                    return chunk;
+                }));
+                while (inFlight.size() >= 2 * threads) {
+                    tuner.addChunk(inFlight.poll().get());
+                }
+                if (count < records) break;
+            }
+            while (!inFlight.isEmpty()) {
+                tuner.addChunk(inFlight.poll().get());
+            }
+        }
+    }
+}
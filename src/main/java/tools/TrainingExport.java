@@ -0,0 +1,57 @@
+package tools;
+
+import games.PairSorter;
+import games.TrainingData;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Exporta las posiciones de una colección (PGN o base binaria) como datos de entrenamiento con
+ * el formato de {@link TrainingData}.
+ *
+ * Uso: export coleccion salida.bin [--nodes 0] [--threads N] [--hash MB] [--min-ply N]
+ *      [--skip-check] [--quiet] [--no-dedup] [--run-entries N]
+ *
+ * @author angelsn
+ */
+public class TrainingExport {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: export <file.pgn|base> <out.bin> [--nodes 0] [--threads N] [--hash MB]"
+                    + " [--min-ply N] [--skip-check] [--quiet] [--no-dedup] [--run-entries N]");
+            return;
+        }
+        Map<String, String> options = MatchRunner.parseOptions(Arrays.copyOfRange(args, 2, args.length));
+        TrainingData.Options export = new TrainingData.Options();
+        export.nodes = Long.parseLong(options.getOrDefault("nodes", "0"));
+        export.threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(export.threads)));
+        export.hashMegabytes = Integer.parseInt(options.getOrDefault("hash", String.valueOf(export.hashMegabytes)));
+        export.minPly = Integer.parseInt(options.getOrDefault("min-ply", "0"));
+        export.skipCheck = options.containsKey("skip-check");
+        export.quiet = options.containsKey("quiet");
+        export.dedup = !options.containsKey("no-dedup");
+        export.runEntries = Integer.parseInt(options.getOrDefault("run-entries",
+                String.valueOf(PairSorter.DEFAULT_RUN_ENTRIES)));
+
+        Path out = Path.of(args[1]);
+        long start = System.nanoTime();
+        TrainingData.Stats stats = TrainingData.build(Path.of(args[0]), out, export);
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        System.out.println("===========================");
+        System.out.println("Output          : " + out);
+        System.out.println("Games           : " + stats.games.get());
+        System.out.println("Games skipped   : " + stats.skippedGames.get());
+        System.out.println("Positions       : " + stats.candidates.get());
+        System.out.println("In check        : " + stats.inCheck.get());
+        System.out.println("Duplicates      : " + stats.duplicates);
+        System.out.println("Not quiet       : " + stats.noisy.get());
+        System.out.println("Samples written : " + stats.written.get());
+        System.out.printf("Output size (MB): %.1f%n", Files.size(out) / 1048576.0);
+        System.out.println("Total time (ms) : " + millis);
+        System.out.println("Samples/second  : " + stats.written.get() * 1000 / millis);
+    }
+}
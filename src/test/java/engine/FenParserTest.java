@@ -0,0 +1,82 @@
+package engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Lectura de FEN: campos, desplazamiento de cada tipo de error y lectura de archivos por líneas.
+ *
+ * @author angelsn
+ */
+class FenParserTest {
+    @TempDir
+    Path dir;
+
+    private final FenParser parser = new FenParser();
+    private final Position pos = new Position();
+
+    @Test
+    void readsAllFields() {
+        assertEquals(FenParser.OK, parser.parse("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w Kq e6 0 2", pos));
+        assertEquals(Position.PAWN, pos.squares[36]); // e4
+        assertEquals(-Position.PAWN, pos.squares[28]); // e5
+        assertEquals(Position.WHITE_KINGSIDE | Position.BLACK_QUEENSIDE, pos.castlingRights);
+        assertEquals(20, pos.enPassantTile); // e6
+        assertEquals(0, pos.halfmoveClock);
+        assertEquals(2, pos.fullmoveNumber);
+        assertEquals(Zobrist.compute(pos), pos.hash);
+        assertNull(parser.errorMessage());
+    }
+
+    @Test
+    void allowsSurroundingSpaces() {
+        assertEquals(FenParser.OK, parser.parse("  " + Position.STARTING_FEN + " \t", pos));
+    }
+
+    @Test
+    void reportsErrorOffsets() {
+        assertError("rnbqkbnr/ppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", 9);
+        assertError("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1", 34);
+        assertError("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKXNR w KQkq - 0 1", 40);
+        assertError("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1", 44);
+        assertError("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQxq - 0 1", 48);
+        assertError("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e2 0 1", 51);
+        assertError("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - x 1", 53);
+        assertError("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 0", 55);
+        assertError("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0", 54);
+        assertError("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1 extra", 57);
+    }
+
+    @Test
+    void parseOrThrowIncludesTheOffset() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> parser.parseOrThrow("8/8/8/8/8/8/8/8 w - - 0", pos));
+        assertEquals("Invalid FEN: must have 6 parts (at offset 23)", e.getMessage());
+    }
+
+    @Test
+    void readsFilesLineByLine() throws Exception {
+        Path file = dir.resolve("positions.fen");
+        Files.writeString(file, "# comentario\r\n" + Position.STARTING_FEN + "\r\n\n8/8/8/8/8/8/8/8 w - - 0\n"
+                + "4k3/8/8/8/8/8/8/4K3 b - - 3 40", StandardCharsets.US_ASCII);
+        List<String> seen = new ArrayList<>();
+        long count = parser.parseFile(file, (line, position, p) ->
+                seen.add(line + ":" + (position == null ? p.errorOffset() : position.fullmoveNumber)));
+        assertEquals(3, count);
+        assertEquals(List.of("2:1", "4:23", "5:40"), seen);
+    }
+
+    private void assertError(String fen, int offset) {
+        assertEquals(offset, parser.parse(fen, pos), fen);
+        assertEquals(offset, parser.errorOffset());
+    }
+}
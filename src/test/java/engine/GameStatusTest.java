@@ -0,0 +1,58 @@
+package engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Reglas de fin de partida compartidas por el tablero y las herramientas sin ventana.
+ *
+ * @author angelsn
+ */
+class GameStatusTest {
+
+    @Test
+    void checkmate() {
+        Position pos = SanTest.position("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        pos.makeMove(SanTest.move(pos, "a1a8"));
+        GameStatus status = GameStatus.of(pos);
+        assertEquals(GameStatus.CHECKMATE, status);
+        assertEquals("1-0", status.pgnResult(pos.whiteToMove));
+        assertEquals("White wins by checkmate!", status.message(pos.whiteToMove));
+    }
+
+    @Test
+    void stalemate() {
+        GameStatus status = GameStatus.of(SanTest.position("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"));
+        assertEquals(GameStatus.STALEMATE, status);
+        assertEquals("1/2-1/2", status.pgnResult(false));
+    }
+
+    @Test
+    void fiftyMoveRule() {
+        assertEquals(GameStatus.ONGOING, GameStatus.of(SanTest.position("4k3/8/8/8/8/8/8/R3K3 w - - 99 60")));
+        assertEquals(GameStatus.FIFTY_MOVE_RULE, GameStatus.of(SanTest.position("4k3/8/8/8/8/8/8/R3K3 w - - 100 60")));
+    }
+
+    @Test
+    void threefoldRepetition() {
+        Position pos = SanTest.position(Position.STARTING_FEN);
+        String[] cycle = {"g1f3", "g8f6", "f3g1", "f6g8"};
+        for (String uci : cycle) pos.makeMove(SanTest.move(pos, uci));
+        // La posición inicial aparece dos veces: todavía no son tablas
+        assertEquals(GameStatus.ONGOING, GameStatus.of(pos));
+        for (String uci : cycle) pos.makeMove(SanTest.move(pos, uci));
+        assertEquals(GameStatus.THREEFOLD_REPETITION, GameStatus.of(pos));
+    }
+
+    @Test
+    void insufficientMaterial() {
+        assertEquals(GameStatus.INSUFFICIENT_MATERIAL, GameStatus.of(SanTest.position("4k3/8/8/8/8/8/8/4K3 w - - 0 1")));
+        assertEquals(GameStatus.INSUFFICIENT_MATERIAL, GameStatus.of(SanTest.position("4k3/8/8/8/8/8/8/1N2K3 w - - 0 1")));
+        // Alfiles en casillas del mismo color (c1 y f8 son oscuras)
+        assertEquals(GameStatus.INSUFFICIENT_MATERIAL, GameStatus.of(SanTest.position("4kb2/8/8/8/8/8/8/2B1K3 w - - 0 1")));
+        // c8 es clara: con alfiles de distinto color todavía se puede dar mate
+        assertEquals(GameStatus.ONGOING, GameStatus.of(SanTest.position("2b1k3/8/8/8/8/8/8/2B1K3 w - - 0 1")));
+        assertEquals(GameStatus.ONGOING, GameStatus.of(SanTest.position("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1")));
+    }
+}
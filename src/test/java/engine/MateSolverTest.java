@@ -0,0 +1,92 @@
+package engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Buscador de mates: mates en una y en dos con la línea completa, ausencia de mate demostrada y
+ * corte por nodos.
+ *
+ * @author angelsn
+ */
+class MateSolverTest {
+    private final MateSolver solver = new MateSolver(4);
+
+    @Test
+    void mateInOne() {
+        MateSolver.Result result = solve("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", 3, 0);
+        assertEquals(1, result.mateIn);
+        assertEquals("Ra8#", line("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", result.line));
+    }
+
+    @Test
+    void mateInTwoWithTheLongestDefence() {
+        String fen = "r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1";
+        MateSolver.Result result = solve(fen, 3, 0);
+        assertEquals(2, result.mateIn);
+        assertTrue(result.complete);
+        assertEquals("Nf6+ gxf6 Bxf7#", line(fen, result.line));
+    }
+
+    @Test
+    void quietFirstMove() {
+        // Ra6 no da jaque: después de bxa6 sigue b7# y de cualquier otra, Rxa7#
+        String fen = "kbK5/pp6/1P6/8/8/8/8/R7 w - - 0 1";
+        MateSolver.Result result = solve(fen, 3, 0);
+        assertEquals(2, result.mateIn);
+        assertEquals("Ra6", San.toSan(SanTest.position(fen), result.line[0]));
+        assertEquals(GameStatus.CHECKMATE, GameStatus.of(play(fen, result.line)));
+    }
+
+    @Test
+    void provesThereIsNoShortMate() {
+        MateSolver.Result result = solve("6k1/8/8/8/8/8/8/R5K1 w - - 0 1", 2, 0);
+        assertFalse(result.found());
+        assertTrue(result.complete);
+        assertArrayEquals(new int[0], result.line);
+    }
+
+    @Test
+    void nodeLimitLeavesTheSearchIncomplete() {
+        MateSolver.Result result = solve("6k1/8/8/8/8/8/8/R5K1 w - - 0 1", 5, 500);
+        assertFalse(result.found());
+        assertFalse(result.complete);
+    }
+
+    @Test
+    void doesNotModifyThePosition() {
+        Position pos = SanTest.position("kbK5/pp6/1P6/8/8/8/8/R7 w - - 0 1");
+        Position before = new Position(pos);
+        solver.solve(pos, 3, 0);
+        assertArrayEquals(before.squares, pos.squares);
+        assertEquals(before.hash, pos.hash);
+    }
+
+    private MateSolver.Result solve(String fen, int maxMoves, long nodes) {
+        solver.clear();
+        return solver.solve(SanTest.position(fen), maxMoves, nodes);
+    }
+
+    private static Position play(String fen, int[] line) {
+        Position pos = SanTest.position(fen);
+        for (int move : line) {
+            pos.makeMove(move);
+        }
+        return pos;
+    }
+
+    private static String line(String fen, int[] line) {
+        Position pos = SanTest.position(fen);
+        StringBuilder san = new StringBuilder();
+        for (int move : line) {
+            if (san.length() > 0) san.append(' ');
+            san.append(San.toSan(pos, move));
+            pos.makeMove(move);
+        }
+        return san.toString();
+    }
+}
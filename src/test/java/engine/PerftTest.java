@@ -0,0 +1,88 @@
+package engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cuenta las hojas del árbol de jugadas legales (perft) en posiciones de referencia y las compara
+ * con los valores publicados. Cubre el generador, makeMove/unmakeMove (enroques, en passant,
+ * promociones) y la clave Zobrist incremental.
+ *
+ * @author angelsn
+ */
+class PerftTest {
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final String PROMOTIONS = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+
+    private final int[][] buffers = new int[8][Position.MAX_MOVES];
+
+    @Test
+    void startingPosition() {
+        Position pos = position(Position.STARTING_FEN);
+        assertEquals(20, perft(pos, 1));
+        assertEquals(400, perft(pos, 2));
+        assertEquals(8_902, perft(pos, 3));
+        assertEquals(197_281, perft(pos, 4));
+    }
+
+    @Test
+    void castlingAndEnPassant() {
+        Position pos = position(KIWIPETE);
+        assertEquals(48, perft(pos, 1));
+        assertEquals(2_039, perft(pos, 2));
+        assertEquals(97_862, perft(pos, 3));
+    }
+
+    @Test
+    void pinsAndDiscoveredChecks() {
+        Position pos = position(ENDGAME);
+        assertEquals(14, perft(pos, 1));
+        assertEquals(191, perft(pos, 2));
+        assertEquals(2_812, perft(pos, 3));
+        assertEquals(43_238, perft(pos, 4));
+    }
+
+    @Test
+    void promotions() {
+        Position pos = position(PROMOTIONS);
+        assertEquals(6, perft(pos, 1));
+        assertEquals(264, perft(pos, 2));
+        assertEquals(9_467, perft(pos, 3));
+    }
+
+    @Test
+    void unmakeRestoresThePosition() {
+        Position pos = position(KIWIPETE);
+        Position before = new Position(pos);
+        perft(pos, 3);
+        assertArrayEquals(before.squares, pos.squares);
+        assertEquals(before.whiteToMove, pos.whiteToMove);
+        assertEquals(before.castlingRights, pos.castlingRights);
+        assertEquals(before.enPassantTile, pos.enPassantTile);
+        assertEquals(before.hash, pos.hash);
+    }
+
+    private static Position position(String fen) {
+        Position pos = new Position();
+        new FenParser().parseOrThrow(fen, pos);
+        return pos;
+    }
+
+    private long perft(Position pos, int depth) {
+        int[] moves = buffers[depth];
+        int count = pos.generatePseudoLegalMoves(moves);
+        long leaves = 0;
+        for (int i = 0; i < count; i++) {
+            if (pos.makeMove(moves[i])) {
+                // La clave incremental tiene que coincidir con la calculada desde cero
+                assertEquals(Zobrist.compute(pos), pos.hash);
+                leaves += depth == 1 ? 1 : perft(pos, depth - 1);
+            }
+            pos.unmakeMove(moves[i]);
+        }
+        return leaves;
+    }
+}
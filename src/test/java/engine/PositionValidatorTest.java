@@ -0,0 +1,69 @@
+package engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Legalidad de posiciones leídas de FEN (reyes, peones, material, jaque, enroque, en passant).
+ *
+ * @author angelsn
+ */
+class PositionValidatorTest {
+
+    @Test
+    void acceptsLegalPositions() {
+        assertTrue(PositionValidator.isLegal(SanTest.position(Position.STARTING_FEN)));
+        assertTrue(PositionValidator.isLegal(SanTest.position(
+                "rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 3")));
+        // Tres damas con dos peones menos: salen de promociones
+        assertTrue(PositionValidator.isLegal(SanTest.position("4k3/8/8/8/8/8/PPPPPP2/QQQ1K3 w - - 0 1")));
+    }
+
+    @Test
+    void kingsAndPawns() {
+        assertErrors("4k3/8/8/8/8/8/8/4KK2 w - - 0 1", PositionValidator.WHITE_KING_COUNT);
+        assertErrors("8/8/8/8/8/8/8/4K3 w - - 0 1", PositionValidator.BLACK_KING_COUNT);
+        assertErrors("P3k3/8/8/8/8/8/8/4K3 w - - 0 1", PositionValidator.PAWN_ON_BACK_RANK);
+        assertErrors("4k3/8/8/8/8/P7/PPPPPPPP/4K3 w - - 0 1", PositionValidator.TOO_MANY_WHITE_PAWNS);
+    }
+
+    @Test
+    void tooManyPromotedPieces() {
+        assertErrors("4k3/8/8/8/8/8/PPPPPPP1/QQQ1K3 w - - 0 1", PositionValidator.TOO_MANY_WHITE_PIECES);
+        assertErrors("nnnk4/pppppppp/8/8/8/8/8/4K3 w - - 0 1", PositionValidator.TOO_MANY_BLACK_PIECES);
+    }
+
+    @Test
+    void sideNotToMoveInCheck() {
+        assertErrors("4k3/8/8/8/8/8/8/4R1K1 w - - 0 1", PositionValidator.OPPONENT_IN_CHECK);
+    }
+
+    @Test
+    void castlingNeedsKingAndRook() {
+        assertErrors("r3k3/8/8/8/8/8/8/4K2R w Kq - 0 1");
+        assertErrors("4k2r/8/8/8/8/8/8/R3K3 w KQk - 0 1", PositionValidator.WHITE_KINGSIDE_CASTLING);
+        assertErrors("r3k3/8/8/8/8/8/8/4K3 w Qq - 0 1", PositionValidator.WHITE_QUEENSIDE_CASTLING);
+        assertErrors("4k3/8/8/8/8/8/8/4K3 w kq - 0 1",
+                PositionValidator.BLACK_KINGSIDE_CASTLING, PositionValidator.BLACK_QUEENSIDE_CASTLING);
+    }
+
+    @Test
+    void enPassantSquare() {
+        assertErrors("4k3/8/8/8/4P3/8/8/4K3 w - e3 0 1", PositionValidator.EN_PASSANT_RANK);
+        assertErrors("4k3/8/8/8/8/8/8/4K3 b - e3 0 1", PositionValidator.EN_PASSANT_NO_PAWN);
+        assertErrors("4k3/8/8/8/4P3/8/8/4K3 b - e3 5 1", PositionValidator.EN_PASSANT_HALFMOVE);
+    }
+
+    private static void assertErrors(String fen, String... expected) {
+        List<String> errors = new ArrayList<>();
+        int found = PositionValidator.validate(SanTest.position(fen), errors);
+        assertEquals(List.of(expected), errors, fen);
+        assertEquals(expected.length, found);
+        assertFalse(expected.length > 0 && PositionValidator.isLegal(SanTest.position(fen)));
+    }
+}
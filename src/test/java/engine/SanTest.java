@@ -0,0 +1,104 @@
+package engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Escritura y lectura de SAN: desambiguación, enroques, promociones y sufijos de jaque.
+ *
+ * @author angelsn
+ */
+class SanTest {
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @Test
+    void writesBasicMoves() {
+        Position pos = position(Position.STARTING_FEN);
+        assertEquals("e4", San.toSan(pos, move(pos, "e2e4")));
+        assertEquals("Nf3", San.toSan(pos, move(pos, "g1f3")));
+    }
+
+    @Test
+    void disambiguatesByFileAndRank() {
+        Position knights = position("4k3/8/8/8/8/5N2/8/1N2K3 w - - 0 1");
+        assertEquals("Nbd2", San.toSan(knights, move(knights, "b1d2")));
+        assertEquals("Nfd2", San.toSan(knights, move(knights, "f3d2")));
+        assertEquals(Moves.NONE, San.parse(knights, "Nd2"));
+
+        Position rooks = position("4k3/8/8/R7/8/8/8/R3K3 w - - 0 1");
+        assertEquals("R1a3", San.toSan(rooks, move(rooks, "a1a3")));
+        assertEquals(move(rooks, "a5a3"), San.parse(rooks, "R5a3"));
+    }
+
+    @Test
+    void castlingAcceptsLettersAndDigits() {
+        Position pos = position("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        int kingside = move(pos, "e1g1");
+        int queenside = move(pos, "e1c1");
+        assertEquals("O-O", San.toSan(pos, kingside));
+        assertEquals("O-O-O", San.toSan(pos, queenside));
+        assertEquals(kingside, San.parse(pos, "O-O"));
+        assertEquals(kingside, San.parse(pos, "0-0"));
+        assertEquals(queenside, San.parse(pos, "0-0-0"));
+    }
+
+    @Test
+    void promotionsWithAndWithoutEquals() {
+        Position pos = position("8/4P3/8/8/8/8/k7/4K3 w - - 0 1");
+        int queen = San.parse(pos, "e8=Q");
+        assertNotEquals(Moves.NONE, queen);
+        assertEquals(Position.QUEEN, Moves.promotion(queen));
+        assertEquals(queen, San.parse(pos, "e8Q"));
+        assertEquals(Position.KNIGHT, Moves.promotion(San.parse(pos, "e8=N")));
+        assertEquals("e8=Q", San.toSan(pos, queen));
+    }
+
+    @Test
+    void checkAndMateSuffixes() {
+        Position pos = position("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        assertEquals("Ra8#", San.toSan(pos, move(pos, "a1a8")));
+        assertEquals(move(pos, "a1a8"), San.parse(pos, "Ra8#"));
+        Position check = position("6k1/8/8/8/8/8/8/R5K1 w - - 0 1");
+        assertEquals("Ra8+", San.toSan(check, move(check, "a1a8")));
+    }
+
+    @Test
+    void everyLegalMoveReadsBack() {
+        Position pos = position(KIWIPETE);
+        int[] legal = new int[Position.MAX_MOVES];
+        int count = pos.generateLegalMoves(legal);
+        for (int i = 0; i < count; i++) {
+            String san = San.toSan(pos, legal[i]);
+            assertEquals(legal[i], San.parse(pos, san), san);
+        }
+    }
+
+    @Test
+    void rejectsIllegalText() {
+        Position pos = position(Position.STARTING_FEN);
+        assertEquals(Moves.NONE, San.parse(pos, "e5"));
+        assertEquals(Moves.NONE, San.parse(pos, "Ke2"));
+        assertEquals(Moves.NONE, San.parse(pos, "O-O"));
+        assertEquals(Moves.NONE, San.parse(pos, "12"));
+    }
+
+    static Position position(String fen) {
+        Position pos = new Position();
+        new FenParser().parseOrThrow(fen, pos);
+        return pos;
+    }
+
+    /**
+     * @return La jugada legal con esa notación UCI ("e2e4"), o {@link Moves#NONE}
+     */
+    static int move(Position pos, String uci) {
+        int[] legal = new int[Position.MAX_MOVES];
+        int count = pos.generateLegalMoves(legal);
+        for (int i = 0; i < count; i++) {
+            if (Moves.toUci(legal[i]).equals(uci)) return legal[i];
+        }
+        return Moves.NONE;
+    }
+}
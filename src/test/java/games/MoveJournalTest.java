@@ -0,0 +1,124 @@
+package games;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import engine.Moves;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Diario de la partida: las jugadas sobreviven a cerrar y volver a abrir, un registro a medio
+ * escribir se descarta y, si el disco falla, el diario deja de aceptar jugadas.
+ *
+ * @author angelsn
+ */
+class MoveJournalTest {
+    private static final int E4 = Moves.encode(52, 36, 0, Moves.FLAG_DOUBLE_PUSH);
+    private static final int E5 = Moves.encode(12, 28, 0, Moves.FLAG_DOUBLE_PUSH);
+    private static final int NF3 = Moves.encode(62, 45, 0, 0);
+    // Cabecera de 16 bytes y 8 por jugada (ver MoveJournal)
+    private static final int HEADER = 16;
+    private static final int RECORD = 8;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysMovesAfterReopening() throws IOException {
+        Path file = dir.resolve("game.journal");
+        try (MoveJournal journal = new MoveJournal(file)) {
+            assertArrayEquals(new int[0], journal.moves());
+            journal.append(E4);
+            journal.append(E5);
+            journal.append(NF3);
+            journal.flush();
+        }
+        try (MoveJournal journal = new MoveJournal(file)) {
+            assertArrayEquals(new int[] {E4, E5, NF3}, journal.moves());
+        }
+    }
+
+    @Test
+    void closeWritesPendingMoves() throws IOException {
+        Path file = dir.resolve("game.journal");
+        try (MoveJournal journal = new MoveJournal(file)) {
+            journal.append(E4);
+        }
+        try (MoveJournal journal = new MoveJournal(file)) {
+            assertArrayEquals(new int[] {E4}, journal.moves());
+        }
+    }
+
+    @Test
+    void resetAndTruncate() throws IOException {
+        Path file = dir.resolve("game.journal");
+        try (MoveJournal journal = new MoveJournal(file)) {
+            journal.append(E4);
+            journal.append(E5);
+            journal.reset();
+            journal.append(NF3);
+            journal.append(E5);
+            journal.truncate(1);
+        }
+        try (MoveJournal journal = new MoveJournal(file)) {
+            assertArrayEquals(new int[] {NF3}, journal.moves());
+        }
+        assertEquals(HEADER + RECORD, Files.size(file));
+    }
+
+    @Test
+    void dropsATornRecord() throws IOException {
+        Path file = dir.resolve("game.journal");
+        try (MoveJournal journal = new MoveJournal(file)) {
+            journal.append(E4);
+            journal.append(E5);
+        }
+        // Una caída a mitad de una escritura deja un registro incompleto al final
+        Files.write(file, new byte[] {1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+        try (MoveJournal journal = new MoveJournal(file)) {
+            assertArrayEquals(new int[] {E4, E5}, journal.moves());
+        }
+        assertEquals(HEADER + 2 * RECORD, Files.size(file));
+    }
+
+    @Test
+    void startsOverOnAFileThatIsNotAJournal() throws IOException {
+        Path file = dir.resolve("game.journal");
+        Files.write(file, new byte[64]);
+        try (MoveJournal journal = new MoveJournal(file)) {
+            assertArrayEquals(new int[0], journal.moves());
+            journal.append(E4);
+        }
+        try (MoveJournal journal = new MoveJournal(file)) {
+            assertArrayEquals(new int[] {E4}, journal.moves());
+        }
+    }
+
+    @Test
+    void stopsAcceptingMovesAfterAWriteFailure() throws Exception {
+        MoveJournal journal = new MoveJournal(dir.resolve("game.journal"));
+        journal.append(E4);
+        journal.flush();
+
+        // Simula un disco que falla: la próxima escritura del hilo escritor lanza IOException
+        Field channel = MoveJournal.class.getDeclaredField("channel");
+        channel.setAccessible(true);
+        ((FileChannel) channel.get(journal)).close();
+        journal.append(E5);
+        assertThrows(IOException.class, journal::flush);
+
+        // Sin escritor nada se encola: la partida en memoria tampoco cambia
+        journal.append(NF3);
+        journal.reset();
+        assertArrayEquals(new int[] {E4, E5}, journal.moves());
+        assertThrows(IOException.class, journal::close);
+    }
+}
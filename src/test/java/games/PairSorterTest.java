@@ -0,0 +1,121 @@
+package games;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Ordenamiento externo: orden (clave sin signo, valor con signo), mezcla en varios niveles,
+ * varios hilos agregando a la vez y borrado de los temporales.
+ *
+ * @author angelsn
+ */
+class PairSorterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void sortsByUnsignedKeyThenSignedValue() throws Exception {
+        long[][] pairs = {{-1, 0}, {5, 3}, {5, -3}, {0, 7}, {Long.MIN_VALUE, 1}, {5, 0}};
+        long[][] expected = {{0, 7}, {5, -3}, {5, 0}, {5, 3}, {Long.MIN_VALUE, 1}, {-1, 0}};
+        try (PairSorter sorter = new PairSorter(dir.resolve("small"), 2)) {
+            for (long[] pair : pairs) sorter.add(pair[0], pair[1]);
+            List<long[]> out = new ArrayList<>();
+            assertEquals(pairs.length, sorter.merge((key, value) -> out.add(new long[] {key, value})));
+            assertArrayEquals(expected, out.toArray());
+        }
+    }
+
+    @Test
+    void mergesMoreRunsThanTheFanIn() throws Exception {
+        // Tramos de 10 pares: 1000 tramos obligan a mezclar en dos niveles
+        int count = 10_000;
+        long[] keys = new SplittableRandom(42).longs(count).toArray();
+        try (PairSorter sorter = new PairSorter(dir.resolve("many"), 10)) {
+            for (int i = 0; i < count; i++) sorter.add(keys[i], i);
+            long[] out = new long[count];
+            int[] n = {0};
+            sorter.merge((key, value) -> {
+                assertEquals(keys[(int) value], key);
+                out[n[0]++] = key;
+            });
+            assertEquals(count, n[0]);
+            long[] expected = sortedUnsigned(keys);
+            assertArrayEquals(expected, out);
+        }
+    }
+
+    @Test
+    void acceptsPairsFromSeveralThreads() throws Exception {
+        int threads = 4;
+        int perThread = 5_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (PairSorter sorter = new PairSorter(dir.resolve("threads"), 1_000)) {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long first = (long) t * perThread;
+                tasks.add(pool.submit(() -> {
+                    for (long v = first; v < first + perThread; v++) sorter.add(v % 97, v);
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) task.get();
+            long[] previous = {-1, Long.MIN_VALUE};
+            long total = sorter.merge((key, value) -> {
+                boolean ordered = key > previous[0] || (key == previous[0] && value > previous[1]);
+                assertTrue(ordered);
+                previous[0] = key;
+                previous[1] = value;
+            });
+            assertEquals((long) threads * perThread, total);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void closeDeletesTemporaryRuns() throws IOException {
+        try (PairSorter sorter = new PairSorter(dir.resolve("temp"), 4)) {
+            for (int i = 0; i < 100; i++) sorter.add(i, i);
+            sorter.merge((key, value) -> { });
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void inMemorySortOrdersPairs() {
+        long[] keys = new SplittableRandom(7).longs(1_000, 0, 50).toArray();
+        long[] pairs = new long[2 * keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            pairs[2 * i] = keys[i];
+            pairs[2 * i + 1] = keys.length - i;
+        }
+        PairSorter.sort(pairs, 0, keys.length);
+        for (int i = 1; i < keys.length; i++) {
+            long key = pairs[2 * i], previousKey = pairs[2 * i - 2];
+            assertTrue(key > previousKey || (key == previousKey && pairs[2 * i + 1] > pairs[2 * i - 1]));
+        }
+    }
+
+    private static long[] sortedUnsigned(long[] keys) {
+        // Sumar Long.MIN_VALUE convierte el orden sin signo en el orden con signo
+        long[] shifted = Arrays.stream(keys).map(k -> k + Long.MIN_VALUE).sorted().toArray();
+        return Arrays.stream(shifted).map(k -> k - Long.MIN_VALUE).toArray();
+    }
+}
@@ -0,0 +1,149 @@
+package games;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import engine.Moves;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Lectura de PGN: movetext con comentarios y variantes, enroques, etiqueta FEN y errores que
+ * invalidan solo su partida.
+ *
+ * @author angelsn
+ */
+class PgnReaderTest {
+    @TempDir
+    Path dir;
+
+    /**
+     * Copia de lo que interesa de cada partida (el {@link PgnGame} del lector se reutiliza).
+     */
+    private record Game(String white, String result, String error, List<String> moves) {
+    }
+
+    @Test
+    void readsMovetextWithCommentsAndVariations() throws Exception {
+        List<Game> games = read("""
+                [Event "Test"]
+                [White "Alice"]
+                [Result "1-0"]
+
+                1. e4 {apertura} e5 2. Nf3 (2. f4 exf4) 2... Nc6 $1 3. Bb5 a6 ; resto de la línea
+                4. Ba4 1-0
+                """);
+        assertEquals(1, games.size());
+        Game game = games.get(0);
+        assertEquals("Alice", game.white);
+        assertEquals(PgnGame.RESULT_WHITE_WINS, game.result);
+        assertNull(game.error);
+        assertEquals(List.of("e2e4", "e7e5", "g1f3", "b8c6", "f1b5", "a7a6", "b5a4"), game.moves);
+    }
+
+    @Test
+    void castlingWrittenWithZeros() throws Exception {
+        // "0-0" y "0-0-0" empiezan con dígitos pero no son números de jugada
+        List<Game> games = read("""
+                [Event "Castling"]
+                [Result "*"]
+
+                1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5 4. 0-0 Nf6 5. d3 d6 6. Nc3 Bg4 7. Be3 Qd7
+                8. a3 0-0-0 9. b4 *
+                """);
+        Game game = games.get(0);
+        assertNull(game.error);
+        assertEquals("e1g1", game.moves.get(6));
+        assertEquals("e8c8", game.moves.get(15));
+        assertEquals(17, game.moves.size());
+    }
+
+    @Test
+    void startsFromTheFenTag() throws Exception {
+        List<Game> games = read("""
+                [Event "Endgame"]
+                [FEN "4k3/8/8/8/8/8/4P3/4K3 b - - 0 1"]
+                [Result "1/2-1/2"]
+
+                1... Kd7 2. e4 1/2-1/2
+                """);
+        assertEquals(List.of("e8d7", "e2e4"), games.get(0).moves);
+        assertEquals(PgnGame.RESULT_DRAW, games.get(0).result);
+    }
+
+    @Test
+    void errorsInvalidateOnlyTheirGame() throws Exception {
+        List<Game> games = read("""
+                [Event "Illegal"]
+                [Result "*"]
+
+                1. e4 e5 2. Ke3 *
+
+                [Event "Bad FEN"]
+                [FEN "8/8/8 w - - 0 1"]
+                [Result "*"]
+
+                *
+
+                [Event "No result"]
+
+                1. d4 d5
+
+                [Event "Fine"]
+                [White "Last"]
+                [Result "0-1"]
+
+                1. f3 e5 2. g4 Qh4# 0-1
+                """);
+        assertEquals(4, games.size());
+        assertEquals("Illegal or ambiguous move", games.get(0).error);
+        assertEquals(2, games.get(0).moves.size());
+        assertEquals("Invalid FEN tag", games.get(1).error);
+        assertEquals("Missing game result", games.get(2).error);
+        assertNull(games.get(3).error);
+        assertEquals("Last", games.get(3).white);
+        assertEquals(4, games.get(3).moves.size());
+    }
+
+    @Test
+    void summaryCountsGamesAndPlies() throws Exception {
+        Path file = dir.resolve("summary.pgn");
+        Files.writeString(file, """
+                [Event "A"]
+                [Result "*"]
+
+                1. e4 e5 *
+
+                [Event "B"]
+                [Result "*"]
+
+                1. e4 e5 2. Qxf7 *
+                """, StandardCharsets.ISO_8859_1);
+        // Qxf7 no es legal (la dama de d1 no llega a f7): la segunda partida queda en dos jugadas
+        PgnReader.Summary summary = new PgnReader(file).read(1, game -> { });
+        assertEquals(2, summary.games);
+        assertEquals(1, summary.invalid);
+        assertEquals(4, summary.plies);
+        assertEquals(Files.size(file), summary.bytes);
+    }
+
+    private List<Game> read(String pgn) throws Exception {
+        Path file = dir.resolve("games.pgn");
+        Files.writeString(file, pgn, StandardCharsets.ISO_8859_1);
+        List<Game> games = new ArrayList<>();
+        // Con un hilo las partidas llegan en el orden del archivo
+        new PgnReader(file).read(1, game -> {
+            List<String> moves = new ArrayList<>();
+            for (int i = 0; i < game.moveCount; i++) {
+                moves.add(Moves.toUci(game.moves[i]));
+            }
+            games.add(new Game(game.tag("White"), game.result, game.error, moves));
+        });
+        return games;
+    }
+}
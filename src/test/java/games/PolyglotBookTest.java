@@ -0,0 +1,129 @@
+package games;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import engine.FenParser;
+import engine.Moves;
+import engine.Position;
+import engine.San;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Libro Polyglot: claves contra los vectores de la especificación, lectura de tablas de claves,
+ * codificación de jugadas y un libro construido y consultado de punta a punta.
+ *
+ * @author angelsn
+ */
+class PolyglotBookTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void keysMatchTheReferenceVectors() {
+        long[] keys = PolyglotBook.random64();
+        assertKey(keys, 0x463b96181691fc9cL);
+        assertKey(keys, 0x823c9b50fd114196L, "e4");
+        assertKey(keys, 0x0756b94461c50fb0L, "e4", "d5");
+        assertKey(keys, 0x662fafb965db29d4L, "e4", "d5", "e5");
+        assertKey(keys, 0x22a48b5a8e47ff78L, "e4", "d5", "e5", "f5");
+        assertKey(keys, 0x652a607ca3f242c1L, "e4", "d5", "e5", "f5", "Ke2");
+        assertKey(keys, 0x00fdd303c946bdd9L, "e4", "d5", "e5", "f5", "Ke2", "Kf7");
+        assertKey(keys, 0x3c8123ea7b067637L, "a4", "b5", "h4", "b4", "c4");
+        assertKey(keys, 0x5c3f9b829b279560L, "a4", "b5", "h4", "b4", "c4", "bxc3", "Ra3");
+    }
+
+    @Test
+    void readsKeysWrittenAsCOrJava() throws IOException {
+        long[] keys = PolyglotBook.random64();
+        StringBuilder text = new StringBuilder("const uint64 Random64[781] = {\n");
+        for (int i = 0; i < keys.length; i++) {
+            // Mezcla los formatos de los listados: con y sin 0x, ULL, L o sin sufijo
+            String suffix = i % 3 == 0 ? "ULL" : i % 3 == 1 ? "L" : "";
+            text.append(i % 2 == 0 ? "0x" : "").append(String.format("%016X", keys[i])).append(suffix).append(",\n");
+        }
+        Path file = dir.resolve("random64.h");
+        Files.writeString(file, text.append("};\n"), StandardCharsets.US_ASCII);
+        assertArrayEquals(keys, PolyglotBook.readKeys(file));
+    }
+
+    @Test
+    void rejectsTablesWithTheWrongSize() throws IOException {
+        Path file = dir.resolve("short.txt");
+        Files.writeString(file, "0x9D39247E33776D41ULL, 0x2AF7398005AAA5C7ULL");
+        assertThrows(IOException.class, () -> PolyglotBook.readKeys(file));
+    }
+
+    @Test
+    void encodesCastlingAsKingTakesRook() {
+        Position pos = position("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        int kingside = San.parse(pos, "O-O");
+        int queenside = San.parse(pos, "O-O-O");
+        // e1 = 4, h1 = 7, a1 = 0 (la fila 0 es la primera en Polyglot)
+        assertEquals(4 << 6 | 7, PolyglotBook.encodeMove(kingside));
+        assertEquals(4 << 6, PolyglotBook.encodeMove(queenside));
+        assertEquals(kingside, PolyglotBook.decodeMove(pos, 4 << 6 | 7));
+        assertEquals(Moves.NONE, PolyglotBook.decodeMove(pos, 12 << 6 | 28)); // e2e4 sin peón
+    }
+
+    @Test
+    void encodesPromotions() {
+        Position pos = position("8/4P3/8/8/8/8/k7/4K3 w - - 0 1");
+        int knight = San.parse(pos, "e8=N");
+        int queen = San.parse(pos, "e8=Q");
+        assertEquals(52 << 6 | 60 | 1 << 12, PolyglotBook.encodeMove(knight));
+        assertEquals(52 << 6 | 60 | 4 << 12, PolyglotBook.encodeMove(queen));
+        assertEquals(queen, PolyglotBook.decodeMove(pos, PolyglotBook.encodeMove(queen)));
+    }
+
+    @Test
+    void buildsAndProbesABook() throws IOException {
+        Path pgn = dir.resolve("games.pgn");
+        Files.writeString(pgn, game("1. e4 e5 1-0") + game("1. e4 e5 1-0") + game("1. d4 d5 1/2-1/2")
+                + game("1. e4 c5 0-1"), StandardCharsets.ISO_8859_1);
+        Path book = dir.resolve("book.bin");
+        long[] keys = PolyglotBook.random64();
+        // e4 (dos victorias), d4 y d5 (tablas), c5 (una victoria); e5 nunca sumó puntos
+        assertEquals(4, PolyglotBook.build(pgn, book, keys, 2, 10, 1, 4, dir));
+
+        Position pos = position(Position.STARTING_FEN);
+        assertEquals(Map.of("e4", 4, "d4", 1), probe(book, pos, keys));
+        pos.makeMove(San.parse(pos, "e4"));
+        assertEquals(Map.of("c5", 2), probe(book, pos, keys));
+    }
+
+    private static Map<String, Integer> probe(Path book, Position pos, long[] keys) throws IOException {
+        Map<String, Integer> weights = new TreeMap<>();
+        for (PolyglotBook.BookMove move : PolyglotBook.probe(book, pos, keys)) {
+            weights.put(San.toSan(pos, move.move), move.weight);
+        }
+        return weights;
+    }
+
+    private static String game(String movetext) {
+        String result = movetext.substring(movetext.lastIndexOf(' ') + 1);
+        return "[Event \"Book\"]\n[Result \"" + result + "\"]\n\n" + movetext + "\n\n";
+    }
+
+    private static void assertKey(long[] keys, long expected, String... sans) {
+        Position pos = position(Position.STARTING_FEN);
+        for (String san : sans) {
+            pos.makeMove(San.parse(pos, san));
+        }
+        assertEquals(expected, PolyglotBook.key(pos, keys), String.join(" ", sans));
+    }
+
+    private static Position position(String fen) {
+        Position pos = new Position();
+        new FenParser().parseOrThrow(fen, pos);
+        return pos;
+    }
+}
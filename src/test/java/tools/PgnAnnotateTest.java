@@ -0,0 +1,71 @@
+package tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Anotador sin ventana: marca los errores graves y no se cae con partidas muy largas.
+ *
+ * @author angelsn
+ */
+class PgnAnnotateTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void marksABlunder() throws Exception {
+        String out = annotate("""
+                [Event "Scholar"]
+                [Result "1-0"]
+
+                1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 1-0
+                """, 5_000);
+        assertTrue(out.contains("Nf6 $4"), out);
+        assertTrue(out.contains("Blunder."), out);
+        assertTrue(out.contains("[%eval"), out);
+    }
+
+    @Test
+    void annotatesGamesLongerThanThePositionHistory() throws Exception {
+        String out = annotate(longGame() + "[Event \"Next\"]\n[Result \"*\"]\n\n1. d4 d5 *\n", 10);
+        assertTrue(out.contains("[Event \"Long\"]"), "la partida larga no se perdió");
+        // Una evaluación por jugada (salvo la que da mate): 2418 de la larga y 2 de la siguiente
+        assertEquals(2420, out.split("\\[%eval ", -1).length - 1);
+        assertTrue(out.contains("Nf6 $4"), "el error del final de la partida larga");
+        assertTrue(out.contains("[Event \"Next\"]"), "la partida siguiente también se anotó");
+    }
+
+    /**
+     * Partida de 2419 jugadas, con una jugada de peón cada 400 (sin vaciar la historia de la
+     * posición en cada jugada irreversible, reproducirla se sale del arreglo) que termina con un
+     * error que permite mate en una: Nf6?? Qxf7#.
+     */
+    static String longGame() {
+        StringBuilder movetext = new StringBuilder();
+        String[][] pawns = {{"a3", "a6"}, {"b3", "b6"}, {"c3", "c6"}, {"h3", "h6"}, {"a4", "a5"}, {"b4", "b5"}};
+        int number = 1;
+        for (String[] pair : pawns) {
+            for (int i = 0; i < 100; i++) {
+                movetext.append(number++).append(". Nf3 Nf6 ").append(number++).append(". Ng1 Ng8 ");
+            }
+            movetext.append(number++).append(". ").append(pair[0]).append(' ').append(pair[1]).append(' ');
+        }
+        movetext.append(number++).append(". e4 e5 ").append(number++).append(". Qh5 c5 ")
+                .append(number++).append(". Bc4 Nf6 ").append(number).append(". Qxf7# 1-0");
+        return "[Event \"Long\"]\n[Result \"1-0\"]\n\n" + movetext + "\n\n";
+    }
+
+    private String annotate(String pgn, long nodes) throws Exception {
+        Path in = dir.resolve("in.pgn");
+        Path out = dir.resolve("out.pgn");
+        Files.writeString(in, pgn, StandardCharsets.ISO_8859_1);
+        new PgnAnnotate(nodes, 1, 1).run(in, out);
+        return Files.readString(out, StandardCharsets.UTF_8);
+    }
+}
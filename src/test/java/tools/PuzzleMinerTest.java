@@ -0,0 +1,50 @@
+package tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Buscador de problemas: encuentra el mate que dejó un error y no se cae con partidas muy largas.
+ *
+ * @author angelsn
+ */
+class PuzzleMinerTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void findsTheMateLeftByABlunder() throws Exception {
+        String epd = mine("""
+                [Event "Scholar"]
+                [Result "1-0"]
+
+                1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 1-0
+                """, 5_000);
+        assertTrue(epd.startsWith("r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq -"), epd);
+        assertTrue(epd.contains("bm Qxf7#;"), epd);
+        assertTrue(epd.contains("dm 1;"), epd);
+    }
+
+    @Test
+    void minesGamesLongerThanThePositionHistory() throws Exception {
+        // El único problema está al final: solo aparece si la partida se reprodujo entera
+        String epd = mine(PgnAnnotateTest.longGame(), 1_000);
+        assertEquals(1, epd.lines().count(), epd);
+        assertTrue(epd.contains("bm Qxf7#;"), epd);
+    }
+
+    private String mine(String pgn, long nodes) throws Exception {
+        Path in = dir.resolve("in.pgn");
+        Path out = dir.resolve("out.epd");
+        Files.writeString(in, pgn, StandardCharsets.ISO_8859_1);
+        new PuzzleMiner(nodes, PuzzleMiner.DEFAULT_WIN, PuzzleMiner.DEFAULT_GAP, 0, PuzzleMiner.DEFAULT_PV_PLIES, 1, 1)
+                .run(in, out);
+        return Files.readString(out, StandardCharsets.UTF_8);
+    }
+}